@@ -1,9 +1,25 @@
-import org.example.examplecommands.chess.ChessCommand;
+import org.example.examplecommands.GrepCommand;
 import org.example.examplecommands.PrintNumberCommand;
+import org.example.examplecommands.SeqCommand;
 import org.example.examplecommands.TypingCommand;
 import org.example.examplecommands.WindowCommand;
+import org.example.examplecommands.chess.ChessCommand;
+import org.example.examplecommands.chess.ChessDatabaseCommand;
+import org.example.examplecommands.chess.ChessLoadCommand;
+import org.example.examplecommands.chess.ChessServerCommand;
 import org.example.internal.Command;
+import org.example.internal.BatchResult;
+import org.example.internal.CommandLineBenchmark;
+import org.example.internal.DispatchBenchmark;
+import org.example.internal.LazyCommand;
 import org.example.internal.Terminal;
+import org.example.internal.TerminalBenchmark;
+import org.example.internal.TerminalClient;
+import org.example.internal.TerminalServer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * The main class.
@@ -11,6 +27,31 @@ import org.example.internal.Terminal;
  * @author Macintosh_Fan
  */
 public final class Main {
+    /**
+     * The numbers of sessions {@code --bench} runs by default.
+     */
+    private static final int[] BENCH_SESSIONS = {1, 100, 10_000};
+
+    /**
+     * The number of commands each level of {@code --bench} runs by default.
+     */
+    private static final int BENCH_COMMANDS = 20_000;
+
+    /**
+     * The command {@code --bench} sends by default.
+     */
+    private static final String BENCH_COMMAND = "printNumber 42";
+
+    /**
+     * The number of lines each run of {@code --tokenizer-bench} splits by default.
+     */
+    private static final int TOKENIZER_BENCH_LINES = 2_000_000;
+
+    /**
+     * The number of lines each run of {@code --dispatch-bench} finds the command of by default.
+     */
+    private static final int DISPATCH_BENCH_LINES = 1_000_000;
+
     /**
      * Don't let anyone instantiate this class.
      */
@@ -19,17 +60,208 @@ public final class Main {
 
     /**
      * The main method.
+     * <p>
+     * Without arguments, the interactive terminal is started. With a script file as the first argument
+     * ("-" for the standard input), every line of it is run as a command without prompts, a summary is printed,
+     * and the program exits with status 1 if any line failed.
+     * <p>
+     * Commands are only loaded when they are first called; {@code --startup-stats [eager]} shows what that saves.
+     * {@code --serve [port|unix:path]} serves the terminal to remote sessions, {@code --connect [port|unix:path]}
+     * runs a session on such a server, and {@code --bench [port|unix:path] [sessions,...] [commands per level]
+     * [command...]} measures one. {@code --tokenizer-bench [lines]} measures how fast command lines are split, and
+     * {@code --dispatch-bench [lines]} how long finding their commands takes with 10 to 10,000 commands.
      *
-     * @param args does nothing
+     * @param args an optional script file, or a flag and its arguments
      */
     public static void main(String[] args) {
         Command[] commands = {
-                new PrintNumberCommand(),
-                new TypingCommand(),
-                new WindowCommand(),
-                new ChessCommand()
+                new LazyCommand("org.example.examplecommands.PrintNumberCommand", PrintNumberCommand.NAME,
+                        PrintNumberCommand.USAGE, PrintNumberCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.TypingCommand", TypingCommand.NAME, null,
+                        TypingCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.WindowCommand", WindowCommand.NAME, null,
+                        WindowCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.chess.ChessCommand", ChessCommand.NAME, null,
+                        ChessCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.chess.ChessDatabaseCommand", ChessDatabaseCommand.NAME,
+                        ChessDatabaseCommand.USAGE, ChessDatabaseCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.chess.ChessServerCommand", ChessServerCommand.NAME,
+                        ChessServerCommand.USAGE, ChessServerCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.chess.ChessLoadCommand", ChessLoadCommand.NAME,
+                        ChessLoadCommand.USAGE, ChessLoadCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.SeqCommand", SeqCommand.NAME, SeqCommand.USAGE,
+                        SeqCommand.DESCRIPTION),
+                new LazyCommand("org.example.examplecommands.GrepCommand", GrepCommand.NAME, GrepCommand.USAGE,
+                        GrepCommand.DESCRIPTION)
         };
         Terminal terminal = new Terminal(commands);
+        if (args.length == 0) {
+            terminal.start(false);
+            return;
+        }
+
+        switch (args[0]) {
+            case "--startup-stats" -> startupStats(terminal, commands, args);
+            case "--serve" -> serve(terminal, args);
+            case "--connect" -> connect(terminal, args);
+            case "--bench" -> bench(terminal, args);
+            case "--tokenizer-bench" -> tokenizerBench(terminal, args);
+            case "--dispatch-bench" -> dispatchBench(terminal, args);
+            default -> runScript(terminal, args[0]);
+        }
+    }
+
+    /**
+     * Starts the interactive terminal, printing how long it took to get to the first prompt and how many classes
+     * were loaded by then. With "eager", every command is loaded first, like before commands were lazy.
+     *
+     * @param terminal the terminal
+     * @param commands the commands of the terminal
+     * @param args     the arguments of the program
+     */
+    private static void startupStats(Terminal terminal, Command[] commands, String[] args) {
+        if (args.length > 1 && args[1].equals("eager")) {
+            for (Command command : commands) {
+                if (command instanceof LazyCommand lazyCommand) {
+                    lazyCommand.getCommand();
+                }
+            }
+        }
+        terminal.setStartupStats(true);
         terminal.start(false);
     }
+
+    /**
+     * Serves the terminal to remote sessions until the process is stopped.
+     *
+     * @param terminal the terminal
+     * @param args     the arguments of the program
+     */
+    private static void serve(Terminal terminal, String[] args) {
+        TerminalServer server;
+        try {
+            server = new TerminalServer(terminal, args.length > 1 ? args[1] : TerminalServer.DEFAULT_ADDRESS);
+        } catch (IOException | IllegalArgumentException e) {
+            terminal.stdErrStream.println("Could not start the server: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        terminal.stdOutStream.println("Terminal server listening on " + server.getAddress());
+        terminal.flush();
+        server.run();
+    }
+
+    /**
+     * Runs a session on a terminal server, with the standard input and output.
+     *
+     * @param terminal the terminal
+     * @param args     the arguments of the program
+     */
+    private static void connect(Terminal terminal, String[] args) {
+        String address = args.length > 1 ? args[1] : TerminalServer.DEFAULT_ADDRESS;
+        try {
+            TerminalClient.connect(address, terminal.stdInStream, terminal.stdOutStream);
+        } catch (IOException | IllegalArgumentException e) {
+            terminal.stdErrStream.println("Could not connect to '" + address + "': " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Measures a terminal server with several numbers of sessions.
+     *
+     * @param terminal the terminal
+     * @param args     the arguments of the program
+     */
+    private static void bench(Terminal terminal, String[] args) {
+        String address = args.length > 1 ? args[1] : TerminalServer.DEFAULT_ADDRESS;
+        try {
+            int[] sessions = args.length > 2
+                    ? Arrays.stream(args[2].split(",")).mapToInt(Integer::parseInt).toArray() : BENCH_SESSIONS;
+            int commands = args.length > 3 ? Integer.parseInt(args[3]) : BENCH_COMMANDS;
+            if (commands < 1 || Arrays.stream(sessions).anyMatch(count -> count < 1)) {
+                throw new NumberFormatException("counts must be positive");
+            }
+            String command = args.length > 4
+                    ? String.join(" ", Arrays.copyOfRange(args, 4, args.length)) : BENCH_COMMAND;
+            TerminalBenchmark.run(address, sessions, commands, command, terminal.stdOutStream);
+        } catch (NumberFormatException e) {
+            terminal.stdErrStream.println("Invalid count: " + e.getMessage());
+            System.exit(1);
+        } catch (IOException | IllegalArgumentException e) {
+            terminal.stdErrStream.println("Could not benchmark '" + address + "': " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Measures how fast command lines are split into tokens, against the split-based path.
+     *
+     * @param terminal the terminal
+     * @param args     the arguments of the program
+     */
+    private static void tokenizerBench(Terminal terminal, String[] args) {
+        int lines;
+        try {
+            lines = args.length > 1 ? Integer.parseInt(args[1]) : TOKENIZER_BENCH_LINES;
+            if (lines < 1) {
+                throw new NumberFormatException("counts must be positive");
+            }
+        } catch (NumberFormatException e) {
+            terminal.stdErrStream.println("Invalid count: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        CommandLineBenchmark.run(lines, terminal.stdOutStream);
+        terminal.flush();
+        System.exit(0);
+    }
+
+    /**
+     * Measures how long finding the command of a line takes, with more and more commands registered.
+     *
+     * @param terminal the terminal
+     * @param args     the arguments of the program
+     */
+    private static void dispatchBench(Terminal terminal, String[] args) {
+        int lines;
+        try {
+            lines = args.length > 1 ? Integer.parseInt(args[1]) : DISPATCH_BENCH_LINES;
+            if (lines < 1) {
+                throw new NumberFormatException("counts must be positive");
+            }
+        } catch (NumberFormatException e) {
+            terminal.stdErrStream.println("Invalid count: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        DispatchBenchmark.run(lines, terminal.stdOutStream);
+        terminal.flush();
+        System.exit(0);
+    }
+
+    /**
+     * Runs a script, prints its summary and exits.
+     *
+     * @param terminal the terminal
+     * @param script   the script file, or "-" for the standard input
+     */
+    private static void runScript(Terminal terminal, String script) {
+        BatchResult result;
+        if (script.equals("-")) {
+            result = terminal.runBatch(terminal.stdInStream);
+        } else {
+            try {
+                result = terminal.runBatch(Path.of(script));
+            } catch (IOException e) {
+                terminal.stdErrStream.println("Could not read script '" + script + "': " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        terminal.stdOutStream.println(result);
+        System.exit(result.failures() == 0 ? 0 : 1);
+    }
 }
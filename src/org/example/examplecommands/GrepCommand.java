@@ -0,0 +1,212 @@
+package org.example.examplecommands;
+
+import org.example.internal.CommandContext;
+import org.example.internal.StreamingCommand;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Prints the lines of the input that match a regular expression, as they arrive.
+ *
+ * @author Macintosh_Fan
+ */
+public class GrepCommand implements StreamingCommand {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "grep";
+
+    /**
+     * The usage of the command.
+     */
+    public static final String USAGE = "[-v] [-c] [-m n] pattern";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "prints the lines of the input (or of the previous command of a "
+            + "pipeline) that match the regular expression pattern.";
+
+    /**
+     * Starts an invocation: parses the options and the pattern.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     * @return the consumer of the input, or {@code null} if the arguments are not valid
+     */
+    @Override
+    public LineConsumer open(CommandContext context, String[] args) {
+        boolean invert = false;
+        boolean count = false;
+        long maxMatches = Long.MAX_VALUE;
+        int i = 0;
+        try {
+            for (; args != null && i < args.length - 1 && args[i].startsWith("-"); i++) {
+                switch (args[i]) {
+                    case "-v" -> invert = true;
+                    case "-c" -> count = true;
+                    case "-m" -> maxMatches = Long.parseLong(args[++i]);
+                    default -> {
+                        context.getErr().println("Unknown option '" + args[i] + "'!");
+                        return null;
+                    }
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            maxMatches = -1;
+        }
+        if (maxMatches < 1) {
+            context.getErr().println("Invalid number of matches!");
+            return null;
+        }
+        if (args == null || i >= args.length) {
+            context.getErr().println("Missing parameter 'pattern'!");
+            return null;
+        }
+
+        Matcher matcher;
+        try {
+            matcher = Pattern.compile(String.join(" ", Arrays.copyOfRange(args, i, args.length)))
+                    .matcher("");
+        } catch (PatternSyntaxException pse) {
+            context.getErr().println("Invalid pattern (" + pse.getDescription() + ")!");
+            return null;
+        }
+        return new Matches(context.getOut(), matcher, invert, count, maxMatches);
+    }
+
+    /**
+     * The state of one invocation: prints (or counts) the matching lines.
+     */
+    private static final class Matches implements LineConsumer {
+        /**
+         * The stream the lines are printed to.
+         */
+        private final PrintStream OUT;
+
+        /**
+         * The matcher of the pattern, reset for every line.
+         */
+        private final Matcher MATCHER;
+
+        /**
+         * Are the lines that don't match printed instead?
+         */
+        private final boolean INVERT;
+
+        /**
+         * Is only the number of matching lines printed?
+         */
+        private final boolean COUNT;
+
+        /**
+         * The number of matching lines after which the input is no longer read.
+         */
+        private final long MAX_MATCHES;
+
+        /**
+         * The number of matching lines so far.
+         */
+        private long matches;
+
+        /**
+         * Constructs the state of an invocation.
+         *
+         * @param out        the stream the lines are printed to
+         * @param matcher    the matcher of the pattern
+         * @param invert     are the lines that don't match printed instead?
+         * @param count      is only the number of matching lines printed?
+         * @param maxMatches the number of matching lines after which the input is no longer read
+         */
+        Matches(PrintStream out, Matcher matcher, boolean invert, boolean count, long maxMatches) {
+            OUT = out;
+            MATCHER = matcher;
+            INVERT = invert;
+            COUNT = count;
+            MAX_MATCHES = maxMatches;
+        }
+
+        /**
+         * Prints the line if it matches.
+         *
+         * @param line the line (without its line break)
+         * @return {@code false} once the most matching lines have been found
+         */
+        @Override
+        public boolean accept(String line) {
+            if (MATCHER.reset(line).find() == INVERT) {
+                return true;
+            }
+            matches++;
+            if (!COUNT) {
+                OUT.println(line);
+            }
+            return matches < MAX_MATCHES;
+        }
+
+        /**
+         * Prints the number of matching lines, if only that is printed.
+         */
+        @Override
+        public void end() {
+            if (COUNT) {
+                OUT.println(matches);
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return USAGE;
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+}
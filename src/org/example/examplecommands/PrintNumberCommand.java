@@ -1,7 +1,7 @@
 package org.example.examplecommands;
 
 import org.example.internal.Command;
-import org.example.internal.Terminal;
+import org.example.internal.CommandContext;
 
 /**
  * Prints a number to the console.
@@ -9,21 +9,36 @@ import org.example.internal.Terminal;
  * @author Macintosh_Fan
  */
 public class PrintNumberCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "printNumber";
+
+    /**
+     * The usage of the command.
+     */
+    public static final String USAGE = "x";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "prints parameter 'x' passed to the standard output.";
+
     /**
      * Called when the command is called.
      *
-     * @param terminal the main terminal
-     * @param args     inputted arguments by the user (might be null)
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
      */
     @Override
-    public void onCommand(Terminal terminal, String[] args) {
+    public void onCommand(CommandContext context, String[] args) {
         if (args == null) {
-            terminal.stdErrStream.println("Missing parameter 'x'!");
+            context.getErr().println("Missing parameter 'x'!");
         } else {
             try {
-                terminal.stdOutStream.println(Long.parseLong(args[0]));
+                context.getOut().println(Long.parseLong(args[0]));
             } catch (NumberFormatException nfe) {
-                terminal.stdErrStream.println("Invalid number (too small/big or contained non-numeric characters?)!");
+                context.getErr().println("Invalid number (too small/big or contained non-numeric characters?)!");
             }
         }
     }
@@ -42,7 +57,7 @@ public class PrintNumberCommand implements Command {
      */
     @Override
     public String getName() {
-        return "printNumber";
+        return NAME;
     }
 
     /**
@@ -59,7 +74,7 @@ public class PrintNumberCommand implements Command {
      */
     @Override
     public String getUsage() {
-        return "x";
+        return USAGE;
     }
 
     /**
@@ -76,6 +91,6 @@ public class PrintNumberCommand implements Command {
      */
     @Override
     public String getDescription() {
-        return "prints parameter 'x' passed to the standard output.";
+        return DESCRIPTION;
     }
 }
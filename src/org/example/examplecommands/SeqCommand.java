@@ -0,0 +1,119 @@
+package org.example.examplecommands;
+
+import org.example.internal.Command;
+import org.example.internal.CommandContext;
+
+import java.io.PrintStream;
+
+/**
+ * Prints a sequence of numbers, one per line (mostly to feed pipelines).
+ *
+ * @author Macintosh_Fan
+ */
+public class SeqCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "seq";
+
+    /**
+     * The usage of the command.
+     */
+    public static final String USAGE = "[first] last";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "prints the numbers from first (1 by default) to last, one per line.";
+
+    /**
+     * How many numbers are printed between checks for cancellation.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * Called when the command is called.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(CommandContext context, String[] args) {
+        if (args == null) {
+            context.getErr().println("Missing parameter 'last'!");
+            return;
+        }
+
+        long first;
+        long last;
+        try {
+            first = args.length >= 2 ? Long.parseLong(args[0]) : 1;
+            last = Long.parseLong(args[args.length >= 2 ? 1 : 0]);
+        } catch (NumberFormatException nfe) {
+            context.getErr().println("Invalid number (too small/big or contained non-numeric characters?)!");
+            return;
+        }
+
+        PrintStream out = context.getOut();
+        for (long number = first, count = 1; number <= last; number++, count++) {
+            out.println(number);
+            if (count % CHECK_INTERVAL == 0 && (context.isCancelled() || out.checkError())) {
+                return;
+            }
+            if (number == Long.MAX_VALUE) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return USAGE;
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+}
@@ -3,14 +3,22 @@ package org.example.examplecommands;
 import org.example.internal.Command;
 import org.example.internal.Terminal;
 
-import java.util.Scanner;
-
 /**
  * Allows a user to check their WPM.
  *
  * @author Macintosh_Fan
  */
 public class TypingCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "typing";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "checks your WPM for something that you type.";
+
     /**
      * Called when the command is called.
      *
@@ -19,10 +27,10 @@ public class TypingCommand implements Command {
      */
     @Override
     public void onCommand(Terminal terminal, String[] args) {
-        Scanner scanner = new Scanner(terminal.stdInStream);
         terminal.stdOutStream.println("Press enter when done.\nPreparing typing...");
         for (int i = 3; i != 0; i--) {
             terminal.stdOutStream.println(i);
+            terminal.flush();
             try {
                 Thread.sleep(1000);
             } catch (InterruptedException e) {
@@ -31,9 +39,13 @@ public class TypingCommand implements Command {
             }
         }
         terminal.stdOutStream.print("GO!\n");
+        terminal.flush();
         long start = System.currentTimeMillis();
-        String text = scanner.nextLine();
+        String text = terminal.readLine();
         long end = System.currentTimeMillis();
+        if (text == null) {
+            return;
+        }
         double timeInSeconds = ((double) (end - start) / 1000);
         terminal.stdOutStream.printf("WPM: %.1f\n", (text.length() / 5 / (timeInSeconds / 60)));
     }
@@ -52,7 +64,7 @@ public class TypingCommand implements Command {
      */
     @Override
     public String getName() {
-        return "typing";
+        return NAME;
     }
 
     /**
@@ -86,6 +98,6 @@ public class TypingCommand implements Command {
      */
     @Override
     public String getDescription() {
-        return "checks your WPM for something that you type.";
+        return DESCRIPTION;
     }
 }
@@ -15,6 +15,16 @@ import java.net.URISyntaxException;
  * @author Macintosh_Fan
  */
 public class WindowCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "window";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "opens a window...";
+
     /**
      * Called when the command is called.
      *
@@ -68,7 +78,7 @@ public class WindowCommand implements Command {
      */
     @Override
     public String getName() {
-        return "window";
+        return NAME;
     }
 
     /**
@@ -102,6 +112,6 @@ public class WindowCommand implements Command {
      */
     @Override
     public String getDescription() {
-        return "opens a window...";
+        return DESCRIPTION;
     }
 }
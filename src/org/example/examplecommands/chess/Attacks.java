@@ -0,0 +1,299 @@
+package org.example.examplecommands.chess;
+
+/**
+ * Precomputed attack tables for every piece type.
+ * <p>
+ * Knights, kings and pawns attack the same squares wherever the other pieces are, so their attacks are looked up
+ * by square. Bishops, rooks and queens are blocked by other pieces, so their attacks are looked up with magic
+ * bitboards: the relevant blockers are multiplied by a "magic" number that maps every blocker combination to its
+ * own slot of a table. The magic numbers are searched for (with a fixed seed) when this class is loaded.
+ *
+ * @author Macintosh_Fan
+ */
+final class Attacks {
+    /**
+     * The squares a knight attacks, by square.
+     */
+    static final long[] KNIGHT = new long[64];
+
+    /**
+     * The squares a king attacks, by square.
+     */
+    static final long[] KING = new long[64];
+
+    /**
+     * The squares a pawn attacks, by side and square.
+     */
+    static final long[][] PAWN = new long[2][64];
+
+    /**
+     * The squares strictly between two squares on the same line (empty if the squares are not on a line).
+     */
+    static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * The squares that can block a rook, by square.
+     */
+    private static final long[] ROOK_MASK = new long[64];
+
+    /**
+     * The rook magic numbers, by square.
+     */
+    private static final long[] ROOK_MAGIC = new long[64];
+
+    /**
+     * The rook table shift (64 minus the number of bits in the mask), by square.
+     */
+    private static final int[] ROOK_SHIFT = new int[64];
+
+    /**
+     * The index of the first rook table slot, by square.
+     */
+    private static final int[] ROOK_OFFSET = new int[64];
+
+    /**
+     * The rook attacks for every blocker combination of every square.
+     */
+    private static final long[] ROOK_TABLE;
+
+    /**
+     * The squares that can block a bishop, by square.
+     */
+    private static final long[] BISHOP_MASK = new long[64];
+
+    /**
+     * The bishop magic numbers, by square.
+     */
+    private static final long[] BISHOP_MAGIC = new long[64];
+
+    /**
+     * The bishop table shift (64 minus the number of bits in the mask), by square.
+     */
+    private static final int[] BISHOP_SHIFT = new int[64];
+
+    /**
+     * The index of the first bishop table slot, by square.
+     */
+    private static final int[] BISHOP_OFFSET = new int[64];
+
+    /**
+     * The bishop attacks for every blocker combination of every square.
+     */
+    private static final long[] BISHOP_TABLE;
+
+    /**
+     * The rook directions as {file, rank} steps.
+     */
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    /**
+     * The bishop directions as {file, rank} steps.
+     */
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] kingSteps = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = steps(square, knightSteps);
+            KING[square] = steps(square, kingSteps);
+            PAWN[Position.WHITE][square] = steps(square, new int[][]{{-1, 1}, {1, 1}});
+            PAWN[Position.BLACK][square] = steps(square, new int[][]{{-1, -1}, {1, -1}});
+        }
+
+        ROOK_TABLE = initMagics(ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET, 0x5DEECE66DL);
+        BISHOP_TABLE = initMagics(BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET,
+                0x2545F4914F6CDD1DL);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long bitA = 1L << a;
+                long bitB = 1L << b;
+                if ((rook(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = rook(a, bitB) & rook(b, bitA);
+                } else if ((bishop(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = bishop(a, bitB) & bishop(b, bitA);
+                }
+            }
+        }
+    }
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private Attacks() {
+    }
+
+    /**
+     * Gets the squares a rook attacks.
+     *
+     * @param square   the square of the rook
+     * @param occupied the bitboard of all pieces
+     * @return the attacked squares (including squares of blocking pieces)
+     */
+    static long rook(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSET[square]
+                + (int) (((occupied & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square])];
+    }
+
+    /**
+     * Gets the squares a bishop attacks.
+     *
+     * @param square   the square of the bishop
+     * @param occupied the bitboard of all pieces
+     * @return the attacked squares (including squares of blocking pieces)
+     */
+    static long bishop(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSET[square]
+                + (int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square])];
+    }
+
+    /**
+     * Gets the squares a queen attacks.
+     *
+     * @param square   the square of the queen
+     * @param occupied the bitboard of all pieces
+     * @return the attacked squares (including squares of blocking pieces)
+     */
+    static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /**
+     * Gets the squares reached by single steps from a square.
+     *
+     * @param square the square
+     * @param steps  the steps as {file, rank} pairs
+     * @return the reached squares
+     */
+    private static long steps(int square, int[][] steps) {
+        long attacks = 0;
+        for (int[] step : steps) {
+            int file = (square & 7) + step[0];
+            int rank = (square >>> 3) + step[1];
+            if (file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                attacks |= 1L << (rank * 8 + file);
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Computes slider attacks by walking the rays (slow; only used to fill the tables).
+     *
+     * @param square     the square of the slider
+     * @param occupied   the bitboard of all pieces
+     * @param directions the directions as {file, rank} steps
+     * @return the attacked squares
+     */
+    private static long slide(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int file = (square & 7) + direction[0];
+            int rank = (square >>> 3) + direction[1];
+            while (file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Gets the squares that can block a slider: its rays without the edge squares the rays end on.
+     *
+     * @param square     the square of the slider
+     * @param directions the directions as {file, rank} steps
+     * @return the blocker mask
+     */
+    private static long blockerMask(int square, int[][] directions) {
+        long mask = 0;
+        for (int[] direction : directions) {
+            int file = (square & 7) + direction[0];
+            int rank = (square >>> 3) + direction[1];
+            while (file + direction[0] >= 0 && file + direction[0] < 8
+                    && rank + direction[1] >= 0 && rank + direction[1] < 8) {
+                mask |= 1L << (rank * 8 + file);
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Finds the magic numbers of a slider type and fills its table.
+     *
+     * @param directions the directions as {file, rank} steps
+     * @param masks      the blocker masks to fill
+     * @param magics     the magic numbers to fill
+     * @param shifts     the shifts to fill
+     * @param offsets    the table offsets to fill
+     * @param seed       the seed of the random number generator
+     * @return the filled table
+     */
+    private static long[] initMagics(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets,
+                                     long seed) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = blockerMask(square, directions);
+            shifts[square] = 64 - Long.bitCount(masks[square]);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(masks[square]);
+        }
+
+        long[] table = new long[size];
+        long[] occupancies = new long[4096];
+        long[] references = new long[4096];
+        int[] epochs = new int[4096];
+        int epoch = 0;
+        long random = seed;
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            int count = 0;
+            long subset = 0;
+            do {
+                occupancies[count] = subset;
+                references[count++] = slide(square, subset, directions);
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            search:
+            while (true) {
+                long magic = -1;
+                for (int i = 0; i < 3; i++) {
+                    random ^= random << 13;
+                    random ^= random >>> 7;
+                    random ^= random << 17;
+                    magic &= random;
+                }
+                if (Long.bitCount((mask * magic) >>> 56) < 6) {
+                    continue;
+                }
+
+                epoch++;
+                for (int i = 0; i < count; i++) {
+                    int index = offsets[square] + (int) ((occupancies[i] * magic) >>> shifts[square]);
+                    int local = index - offsets[square];
+                    if (epochs[local] < epoch) {
+                        epochs[local] = epoch;
+                        table[index] = references[i];
+                    } else if (table[index] != references[i]) {
+                        continue search;
+                    }
+                }
+                magics[square] = magic;
+                break;
+            }
+        }
+        return table;
+    }
+}
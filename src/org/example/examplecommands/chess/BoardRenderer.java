@@ -0,0 +1,198 @@
+package org.example.examplecommands.chess;
+
+import java.io.PrintStream;
+
+/**
+ * Draws the Chess board without building it again for every move.
+ * <p>
+ * The board is kept as one preallocated {@code char[]} frame. {@link #update(Position)} compares the position with
+ * what the frame shows and patches only the squares that changed, and {@link #draw(PrintStream)} writes the frame
+ * straight to the stream, so drawing allocates nothing. In ANSI mode the board is drawn once at the top of the
+ * screen, the lines below it scroll on their own, and later draws only move the cursor to the changed squares and
+ * rewrite them.
+ *
+ * @author Macintosh_Fan
+ */
+final class BoardRenderer {
+    /**
+     * The empty board. Every square is one space, at line {@code 2 + 2 * (7 - rank)} and column {@code 2 + 2 * file}.
+     */
+    private static final String TEMPLATE = """
+            ╔═╤═╤═╤═╤═╤═╤═╤═╗╮
+            ║ │ │ │ │ │ │ │ ║8
+            ╟─┼─┼─┼─┼─┼─┼─┼─╢┊
+            ║ │ │ │ │ │ │ │ ║7
+            ╟─┼─┼─┼─┼─┼─┼─┼─╢┊
+            ║ │ │ │ │ │ │ │ ║6
+            ╟─┼─┼─┼─┼─┼─┼─┼─╢┊
+            ║ │ │ │ │ │ │ │ ║5
+            ╟─┼─┼─┼─┼─┼─┼─┼─╢┊
+            ║ │ │ │ │ │ │ │ ║4
+            ╟─┼─┼─┼─┼─┼─┼─┼─╢┊
+            ║ │ │ │ │ │ │ │ ║3
+            ╟─┼─┼─┼─┼─┼─┼─┼─╢┊
+            ║ │ │ │ │ │ │ │ ║2
+            ╟─┼─┼─┼─┼─┼─┼─┼─╢┊
+            ║ │ │ │ │ │ │ │ ║1
+            ╚═╧═╧═╧═╧═╧═╧═╧═╝┊
+            ╰a┈b┈c┈d┈e┈f┈g┈h┈╯
+            """;
+
+    /**
+     * The number of characters of a line of the template (without the line break).
+     */
+    private static final int LINE_LENGTH = 18;
+
+    /**
+     * The number of lines of the template.
+     */
+    private static final int LINES = 18;
+
+    /**
+     * Clears the screen, moves the cursor home and draws the board from there (ANSI mode).
+     */
+    private static final char[] CLEAR_SCREEN = "\033[2J\033[H".toCharArray();
+
+    /**
+     * Makes the lines below the board scroll on their own and moves the cursor there (ANSI mode).
+     */
+    private static final char[] SCROLL_BELOW_BOARD = ("\033[" + (LINES + 2) + "r\033[" + (LINES + 2) + ";1H")
+            .toCharArray();
+
+    /**
+     * Lets the whole screen scroll again (leaving ANSI mode).
+     */
+    private static final char[] RESET_SCROLL = "\033[r".toCharArray();
+
+    /**
+     * Saves the cursor position.
+     */
+    private static final char[] SAVE_CURSOR = "\0337".toCharArray();
+
+    /**
+     * Restores the saved cursor position.
+     */
+    private static final char[] RESTORE_CURSOR = "\0338".toCharArray();
+
+    /**
+     * The characters of the pieces, by piece code.
+     */
+    private final char[] PIECE_CHARACTERS = new char[12];
+
+    /**
+     * The board as it is drawn.
+     */
+    private final char[] FRAME = TEMPLATE.toCharArray();
+
+    /**
+     * The index in {@link #FRAME} of every square.
+     */
+    private final int[] OFFSETS = new int[64];
+
+    /**
+     * For every square, the ANSI sequence that moves the cursor to it followed by its character.
+     */
+    private final char[][] CELLS = new char[64][];
+
+    /**
+     * The piece the frame shows on every square, or {@code -2} if the frame has not been filled yet.
+     */
+    private final int[] SHOWN = new int[64];
+
+    /**
+     * The squares that changed since the board was last drawn in ANSI mode.
+     */
+    private long changed;
+
+    /**
+     * Is the board drawn in place with ANSI sequences?
+     */
+    private boolean ansi;
+
+    /**
+     * Is the board already on the screen in ANSI mode (so only changed squares have to be drawn)?
+     */
+    private boolean onScreen;
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param pieces the pieces, by piece code
+     */
+    BoardRenderer(ChessPiece[] pieces) {
+        for (int i = 0; i < PIECE_CHARACTERS.length; i++) {
+            PIECE_CHARACTERS[i] = pieces[i].CHESS_PIECE;
+        }
+        for (int square = 0; square < 64; square++) {
+            int line = 1 + 2 * (7 - square / 8);
+            int column = 1 + 2 * (square % 8);
+            OFFSETS[square] = line * (LINE_LENGTH + 1) + column;
+            CELLS[square] = String.format("\033[%02d;%02dH ", line + 1, column + 1).toCharArray();
+            SHOWN[square] = -2;
+        }
+    }
+
+    /**
+     * Patches the squares of the frame that changed.
+     *
+     * @param position the position to show
+     */
+    void update(Position position) {
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != SHOWN[square]) {
+                SHOWN[square] = piece;
+                char character = piece == Position.NO_PIECE ? ' ' : PIECE_CHARACTERS[piece];
+                FRAME[OFFSETS[square]] = character;
+                CELLS[square][CELLS[square].length - 1] = character;
+                changed |= 1L << square;
+            }
+        }
+    }
+
+    /**
+     * Draws the board: the whole frame, or in ANSI mode only the squares that changed since the last draw.
+     *
+     * @param out the stream to draw to
+     */
+    void draw(PrintStream out) {
+        if (!ansi) {
+            out.print(FRAME);
+        } else if (!onScreen) {
+            out.print(CLEAR_SCREEN);
+            out.print(FRAME);
+            out.print(SCROLL_BELOW_BOARD);
+            onScreen = true;
+        } else if (changed != 0) {
+            out.print(SAVE_CURSOR);
+            for (long squares = changed; squares != 0; squares &= squares - 1) {
+                out.print(CELLS[Long.numberOfTrailingZeros(squares)]);
+            }
+            out.print(RESTORE_CURSOR);
+        }
+        changed = 0;
+    }
+
+    /**
+     * Turns ANSI mode on or off.
+     *
+     * @param ansi should the board be drawn in place with ANSI sequences?
+     * @param out  the stream the board is drawn to
+     */
+    void setAnsi(boolean ansi, PrintStream out) {
+        if (this.ansi && onScreen) {
+            out.print(RESET_SCROLL);
+        }
+        this.ansi = ansi;
+        onScreen = false;
+    }
+
+    /**
+     * Is ANSI mode on?
+     *
+     * @return {@code true} if the board is drawn in place with ANSI sequences
+     */
+    boolean isAnsi() {
+        return ansi;
+    }
+}
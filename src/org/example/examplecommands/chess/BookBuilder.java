@@ -0,0 +1,413 @@
+package org.example.examplecommands.chess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Compiles an {@link OpeningBook} from the games of a PGN file, in bounded memory.
+ * <p>
+ * Every move of the first plies of every valid game becomes a (position key, move) record. Records are collected
+ * in a fixed-size buffer; when it is full it is sorted, equal records are counted together, and the result is
+ * written to a temporary "run" file. At the end the runs are merged (an external merge sort), counts of equal
+ * records in different runs are added up, and the book is written in key order with the counts as weights.
+ *
+ * @author Macintosh_Fan
+ */
+final class BookBuilder {
+    /**
+     * The number of records the buffer holds (16 MB).
+     */
+    private static final int BUFFER_RECORDS = 1 << 20;
+
+    /**
+     * The size of the stream buffers of the run and book files.
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The records of the buffer: the key of record {@code i} at {@code 2 * i} and its move at {@code 2 * i + 1}.
+     */
+    private final long[] RECORDS;
+
+    /**
+     * The run files written so far.
+     */
+    private final List<Path> RUNS = new ArrayList<>();
+
+    /**
+     * The number of plies of every game that go into the book.
+     */
+    private final int PLIES;
+
+    /**
+     * The number of records in the buffer.
+     */
+    private int count;
+
+    /**
+     * The number of games used.
+     */
+    private long games;
+
+    /**
+     * The number of positions written to the book.
+     */
+    private long positions;
+
+    /**
+     * The number of records written to the book.
+     */
+    private long records;
+
+    /**
+     * Constructs a builder.
+     *
+     * @param plies the number of plies of every game that go into the book
+     */
+    BookBuilder(int plies) {
+        this(plies, BUFFER_RECORDS);
+    }
+
+    /**
+     * Constructs a builder with a buffer size.
+     *
+     * @param plies         the number of plies of every game that go into the book
+     * @param bufferRecords the number of records the buffer holds
+     */
+    BookBuilder(int plies, int bufferRecords) {
+        PLIES = plies;
+        RECORDS = new long[bufferRecords * 2];
+    }
+
+    /**
+     * Builds a book.
+     *
+     * @param pgn  the PGN file to read the games from
+     * @param book the book file to write
+     * @throws IOException if a file can't be read or written
+     */
+    void build(Path pgn, Path book) throws IOException {
+        try {
+            try (PgnReader reader = new PgnReader(pgn)) {
+                Position position = new Position();
+                int[] moves = new int[MoveGenerator.MAX_MOVES];
+                while (reader.nextGame()) {
+                    if (reader.tag("FEN") != null) {
+                        continue;
+                    }
+                    position.setFen(Position.START_FEN);
+                    int plies = Math.min(PLIES, reader.moveCount());
+                    for (int i = 0; i < plies; i++) {
+                        int move = San.parse(position, reader.moveText(), reader.moveStart(i), reader.moveEnd(i),
+                                moves);
+                        if (move == Move.NONE) {
+                            break;
+                        }
+                        add(position.key, OpeningBook.encode(move));
+                        position.makeMove(move);
+                    }
+                    games++;
+                }
+            }
+            if (count > 0) {
+                writeRun();
+            }
+            merge(book);
+        } finally {
+            for (Path run : RUNS) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of games used.
+     *
+     * @return the number of games
+     */
+    long getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the number of positions written to the book.
+     *
+     * @return the number of positions
+     */
+    long getPositions() {
+        return positions;
+    }
+
+    /**
+     * Gets the number of records written to the book.
+     *
+     * @return the number of records
+     */
+    long getRecords() {
+        return records;
+    }
+
+    /**
+     * Gets the number of run files the records were sorted into.
+     *
+     * @return the number of runs
+     */
+    int getRuns() {
+        return RUNS.size();
+    }
+
+    /**
+     * Adds a record to the buffer, writing a run first if the buffer is full.
+     *
+     * @param key  the position key
+     * @param move the book move
+     * @throws IOException if the run can't be written
+     */
+    private void add(long key, int move) throws IOException {
+        if (count * 2 == RECORDS.length) {
+            writeRun();
+        }
+        RECORDS[count * 2] = key;
+        RECORDS[count * 2 + 1] = move;
+        count++;
+    }
+
+    /**
+     * Sorts the buffer and writes it as a run, with equal records counted together.
+     *
+     * @throws IOException if the run can't be written
+     */
+    private void writeRun() throws IOException {
+        sort(0, count - 1);
+        Path run = Files.createTempFile("book-run", ".bin");
+        RUNS.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run),
+                STREAM_BUFFER_SIZE))) {
+            int i = 0;
+            while (i < count) {
+                long key = RECORDS[i * 2];
+                long move = RECORDS[i * 2 + 1];
+                int records = 1;
+                while (i + records < count && RECORDS[(i + records) * 2] == key
+                        && RECORDS[(i + records) * 2 + 1] == move) {
+                    records++;
+                }
+                out.writeLong(key);
+                out.writeShort((int) move);
+                out.writeShort(0);
+                out.writeInt(records);
+                i += records;
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Merges the runs into the book.
+     *
+     * @param book the book file to write
+     * @throws IOException if a file can't be read or written
+     */
+    private void merge(Path book) throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(book),
+                STREAM_BUFFER_SIZE))) {
+            for (Path path : RUNS) {
+                Run run = new Run(path);
+                if (run.next()) {
+                    queue.add(run);
+                } else {
+                    run.close();
+                }
+            }
+
+            long lastKey = 0;
+            while (!queue.isEmpty()) {
+                Run first = queue.poll();
+                long key = first.key;
+                int move = first.move;
+                long weight = first.count;
+                advance(first, queue);
+                while (!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move) {
+                    Run same = queue.poll();
+                    weight += same.count;
+                    advance(same, queue);
+                }
+
+                if (records == 0 || key != lastKey) {
+                    positions++;
+                }
+                lastKey = key;
+                out.writeLong(key);
+                out.writeShort(move);
+                out.writeShort((int) Math.min(weight, 0xFFFF));
+                out.writeInt(0);
+                records++;
+            }
+        } finally {
+            for (Run run : queue) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Moves a run to its next record and puts it back in the queue, or closes it if it has no more records.
+     *
+     * @param run   the run
+     * @param queue the queue of runs
+     * @throws IOException if the run can't be read
+     */
+    private static void advance(Run run, PriorityQueue<Run> queue) throws IOException {
+        if (run.next()) {
+            queue.add(run);
+        } else {
+            run.close();
+        }
+    }
+
+    /**
+     * Sorts records of the buffer by key (unsigned) and move, with quicksort.
+     *
+     * @param low  the index of the first record
+     * @param high the index of the last record
+     */
+    private void sort(int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long pivotKey = RECORDS[middle * 2];
+            long pivotMove = RECORDS[middle * 2 + 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(i, pivotKey, pivotMove) < 0) {
+                    i++;
+                }
+                while (compare(j, pivotKey, pivotMove) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+    }
+
+    /**
+     * Compares a record of the buffer with a key and move.
+     *
+     * @param index the index of the record
+     * @param key   the key
+     * @param move  the move
+     * @return a negative number, zero or a positive number if the record sorts before, with or after them
+     */
+    private int compare(int index, long key, long move) {
+        int byKey = Long.compareUnsigned(RECORDS[index * 2], key);
+        return byKey != 0 ? byKey : Long.compare(RECORDS[index * 2 + 1], move);
+    }
+
+    /**
+     * Swaps two records of the buffer.
+     *
+     * @param a the index of one record
+     * @param b the index of the other record
+     */
+    private void swap(int a, int b) {
+        long key = RECORDS[a * 2];
+        long move = RECORDS[a * 2 + 1];
+        RECORDS[a * 2] = RECORDS[b * 2];
+        RECORDS[a * 2 + 1] = RECORDS[b * 2 + 1];
+        RECORDS[b * 2] = key;
+        RECORDS[b * 2 + 1] = move;
+    }
+
+    /**
+     * A run file being merged, positioned at its current record.
+     */
+    private static final class Run implements Comparable<Run> {
+        /**
+         * The file.
+         */
+        private final DataInputStream IN;
+
+        /**
+         * The key of the current record.
+         */
+        long key;
+
+        /**
+         * The move of the current record.
+         */
+        int move;
+
+        /**
+         * The count of the current record.
+         */
+        int count;
+
+        /**
+         * Opens a run.
+         *
+         * @param path the run file
+         * @throws IOException if the file can't be opened
+         */
+        Run(Path path) throws IOException {
+            IN = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), STREAM_BUFFER_SIZE));
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return {@code false} if there are no more records
+         * @throws IOException if the file can't be read
+         */
+        boolean next() throws IOException {
+            try {
+                key = IN.readLong();
+                move = IN.readShort() & 0xFFFF;
+                IN.readShort();
+                count = IN.readInt();
+                return true;
+            } catch (EOFException eofe) {
+                return false;
+            }
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @throws IOException if the file can't be closed
+         */
+        void close() throws IOException {
+            IN.close();
+        }
+
+        /**
+         * Orders runs by the key (unsigned) and move of their current records.
+         *
+         * @param other the other run
+         * @return a negative number, zero or a positive number if this run comes before, with or after the other
+         */
+        @Override
+        public int compareTo(Run other) {
+            int byKey = Long.compareUnsigned(key, other.key);
+            return byKey != 0 ? byKey : Integer.compare(move, other.move);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.examplecommands.chess;
+
+import org.example.internal.Command;
+import org.example.internal.Terminal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Replays and validates every game of a PGN database on all cores, and reports the results, the most common
+ * openings and the games with illegal moves.
+ * <p>
+ * The file is cut into ranges at game boundaries, and the ranges are validated by a fork/join pool (see
+ * {@link DatabaseValidator}). With "scale" instead of a number of threads, the file is validated with 1, 2, 4, ...
+ * threads up to the number of processors, to show how the throughput scales.
+ *
+ * @author Macintosh_Fan
+ */
+public class ChessDatabaseCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "chessdb";
+
+    /**
+     * The usage of the command.
+     */
+    public static final String USAGE = "file.pgn [threads|scale]";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "validates a PGN game database in parallel and reports statistics.";
+
+    /**
+     * The number of ranges the file is cut into per thread (more ranges than threads balance the load).
+     */
+    private static final int RANGES_PER_THREAD = 8;
+
+    /**
+     * The number of openings reported.
+     */
+    private static final int OPENINGS = 10;
+
+    /**
+     * Called when the command is called.
+     *
+     * @param terminal the main terminal
+     * @param args     inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(Terminal terminal, String[] args) {
+        if (args == null) {
+            terminal.stdErrStream.println("Missing parameter 'file.pgn'!");
+            return;
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        int threads = processors;
+        boolean scale = args.length >= 2 && args[1].equals("scale");
+        if (args.length >= 2 && !scale) {
+            try {
+                threads = Integer.parseInt(args[1]);
+            } catch (NumberFormatException nfe) {
+                threads = -1;
+            }
+            if (threads < 1 || threads > ParallelSearch.MAX_THREADS) {
+                terminal.stdErrStream.println("The number of threads must be between 1 and "
+                        + ParallelSearch.MAX_THREADS + "!");
+                return;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.READ)) {
+            if (!scale) {
+                long start = System.nanoTime();
+                DatabaseStatistics statistics = validate(channel, threads);
+                long nanos = System.nanoTime() - start;
+                statistics.print(OPENINGS, terminal.stdOutStream);
+                terminal.stdOutStream.printf("Validated in %,.1f ms with %d thread(s): %,.0f games/s, "
+                                + "%,.0f moves/s%n", nanos / 1_000_000.0, threads,
+                        statistics.getGames() * 1_000_000_000.0 / Math.max(1, nanos),
+                        statistics.getMoves() * 1_000_000_000.0 / Math.max(1, nanos));
+                return;
+            }
+
+            terminal.stdOutStream.printf("Validating %s with 1 to %d threads (%d processors available):%n", args[0],
+                    processors, processors);
+            double baseRate = 0;
+            for (threads = 1; threads <= processors; threads = threads == processors ? threads + 1
+                    : Math.min(threads * 2, processors)) {
+                long start = System.nanoTime();
+                DatabaseStatistics statistics = validate(channel, threads);
+                long nanos = Math.max(1, System.nanoTime() - start);
+                double rate = statistics.getGames() * 1_000_000_000.0 / nanos;
+                if (threads == 1) {
+                    baseRate = rate;
+                }
+                terminal.stdOutStream.printf("%3d threads: %,10.1f ms, %,12.0f games/s, speedup %.2fx%n", threads,
+                        nanos / 1_000_000.0, rate, rate / baseRate);
+                terminal.stdOutStream.flush();
+            }
+        } catch (IOException | UncheckedIOException | InvalidPathException e) {
+            terminal.stdErrStream.println("Could not read '" + args[0] + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validates every game of a file.
+     *
+     * @param channel the file
+     * @param threads the number of threads
+     * @return the statistics of the games
+     * @throws IOException if the file can't be read
+     */
+    private static DatabaseStatistics validate(FileChannel channel, int threads) throws IOException {
+        long[] bounds = PgnReader.split(channel, threads * RANGES_PER_THREAD);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new DatabaseValidator(channel, bounds));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return USAGE;
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+}
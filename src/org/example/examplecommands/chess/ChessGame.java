@@ -0,0 +1,1124 @@
+package org.example.examplecommands.chess;
+
+import org.example.internal.CommandContext;
+import org.example.internal.CommandLine;
+import org.example.internal.Completer;
+import org.example.util.Utility;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/**
+ * One game of the {@link ChessCommand}: the position, history, settings and streams of a single invocation, so
+ * games in background jobs or remote sessions don't share a board. Only the table of search results is shared,
+ * through the command.
+ * <p>
+ * A line ending with a tab completes its last word instead of being played: chess commands, their options, and the
+ * squares and promotions of the legal moves of the position.
+ *
+ * @author Macintosh_Fan
+ */
+final class ChessGame implements Completer {
+    /**
+     * The chess commands, in alphabetical order (for completion).
+     */
+    private static final String[] CHESS_COMMANDS = {
+            "board", "book", "bookbuild", "bookmoves", "exit", "fen", "go", "hash", "hashstats", "history", "load",
+            "move", "perft", "play", "redo", "save", "smpbench", "tb", "threads", "undo"
+    };
+
+    /**
+     * The pieces used to draw the board, by piece code (see {@link Position}).
+     */
+    private static final ChessPiece[] PIECES = {
+            new Pawn(true), new Knight(true), new Bishop(true), new Rook(true), new Queen(true), new King(true),
+            new Pawn(false), new Knight(false), new Bishop(false), new Rook(false), new Queen(false), new King(false)
+    };
+
+    /**
+     * The time the computer thinks about a move when no time is given, in milliseconds.
+     */
+    private static final long DEFAULT_MOVE_TIME = 1000;
+
+    /**
+     * The number of plies of every game that go into a book when no number is given.
+     */
+    private static final int DEFAULT_BOOK_PLIES = 20;
+
+    /**
+     * The number of probes the tb command times.
+     */
+    private static final int TIMED_PROBES = 100_000;
+
+    /**
+     * The command the game belongs to (which holds the shared table of search results).
+     */
+    private final ChessCommand COMMAND;
+
+    /**
+     * The context of the invocation that plays the game.
+     */
+    private final CommandContext CONTEXT;
+
+    /**
+     * The standard output stream of the invocation.
+     */
+    private final PrintStream OUT;
+
+    /**
+     * The standard error stream of the invocation.
+     */
+    private final PrintStream ERR;
+
+    /**
+     * Draws the chess board.
+     */
+    private final BoardRenderer RENDERER = new BoardRenderer(PIECES);
+
+    /**
+     * The chess position.
+     */
+    private final Position POSITION = new Position();
+
+    /**
+     * The table of search results that {@link #search} uses (replaced when another game resizes the shared one).
+     */
+    private TranspositionTable table;
+
+    /**
+     * The number of threads the computer searches with.
+     */
+    private int threads = 1;
+
+    /**
+     * The computer opponent.
+     */
+    private ParallelSearch search;
+
+    /**
+     * Picks the book moves.
+     */
+    private final Random RANDOM = new Random();
+
+    /**
+     * The opening book the computer plays from, or {@code null} if none.
+     */
+    private OpeningBook book;
+
+    /**
+     * The endgame tables.
+     */
+    private Tablebases tablebases = new Tablebases(Path.of("tablebases"));
+
+    /**
+     * The moves that can be undone and redone, and how often each position has occurred.
+     */
+    private final GameHistory HISTORY = new GameHistory();
+
+    /**
+     * Is a game being replayed (so checks are not announced)?
+     */
+    private boolean replaying;
+
+    /**
+     * The side the computer plays automatically, or {@code -1} if none.
+     */
+    private int computerSide = -1;
+
+    /**
+     * Is the game over?
+     */
+    boolean gameOver;
+
+    /**
+     * Did white win?
+     */
+    boolean whiteWin;
+
+    /**
+     * Why the game was drawn, or {@code null} if it was not.
+     */
+    String drawReason;
+
+    /**
+     * Constructs a game.
+     *
+     * @param command the command the game belongs to
+     * @param context the context of the invocation that plays the game
+     */
+    ChessGame(ChessCommand command, CommandContext context) {
+        COMMAND = command;
+        CONTEXT = context;
+        OUT = context.getOut();
+        ERR = context.getErr();
+        table = command.getTable();
+        search = new ParallelSearch(table, threads);
+    }
+
+    /**
+     * Plays the game: reads chess commands until the game is over, "exit", the end of the input or the invocation
+     * is cancelled.
+     */
+    void play() {
+        setup();
+        OUT.println("""
+                Chess commands (this program assumes that you know how to play Chess):
+                                
+                move oldPlace newPlace [piece]: moves the piece from oldPlace to newPlace. Example: "move e2 e4"
+                    (a pawn reaching the last rank promotes to a queen, or to piece: q, r, b or n)
+                go [movetime ms | depth n]: lets the computer play the side to move (1 second by default).
+                play white|black|off: lets the computer reply automatically as that side.
+                undo [n]: takes back n moves (1, or 2 when the computer plays, by default).
+                redo [n]: plays again n moves that were taken back.
+                history: shows the moves of the game, and the ones that can be redone.
+                perft depth: counts the positions reachable in depth moves, with nodes per second.
+                perft suite [depth]: checks the move generator against the reference positions.
+                hash [megabytes]: clears the search table, or resizes it (16 MB by default).
+                hashstats: shows how full the search table is and how often it is hit.
+                fen [fen]: shows the position as FEN, or starts a new game from a FEN.
+                load file.pgn [n]: replays game n (1 by default) of a PGN file.
+                save [file.pgn]: shows the game as PGN, or adds it to the end of a PGN file.
+                board ansi|plain: redraws only the changed squares in place, or prints the whole board.
+                threads [n]: shows or sets the number of threads the computer searches with.
+                smpbench [depth] [max threads]: measures how the search scales from 1 to max threads.
+                book file.bin|off: lets the computer play from an opening book, or stops it.
+                bookmoves: lists the book moves of the position.
+                bookbuild games.pgn book.bin [plies]: builds a book from the first plies (20 by default) of games.
+                tb: shows the exact result and best move of a position with up to 4 pieces.
+                tb gen table|all [threads]: generates an endgame table such as KQKR, or every 3 and 4 piece table.
+                tb dir [directory]: shows or sets the directory of the endgame tables ("tablebases" by default).
+                exit: exits the game.
+                (end a line with a tab to complete its last word.)
+                """);
+
+        String input;
+        String[] inputArgs;
+        commands:
+        while (!gameOver && !CONTEXT.isCancelled() && !Thread.currentThread().isInterrupted()) {
+            drawChessBoard();
+            OUT.print("> ");
+            input = CONTEXT.readLine();
+            if (input == null) {
+                break;
+            }
+
+            if (Completer.isCompletionRequest(input)) {
+                Completer.printCompletions(this, input.substring(0, input.length() - 1), OUT);
+                continue;
+            }
+            inputArgs = CommandLine.split(input);
+            if (inputArgs.length == 0) {
+                ERR.println("Not a valid chess command! Try again...\n");
+                continue;
+            }
+
+            switch (inputArgs[0]) {
+                case "move" -> {
+                    if (inputArgs.length >= 3) {
+                        movePiece(inputArgs[1], inputArgs[2], inputArgs.length >= 4 ? inputArgs[3] : "q");
+                    } else {
+                        ERR.println("Not enough arguments! Try again...\n");
+                    }
+                }
+                case "go" -> go(inputArgs);
+                case "play" -> play(inputArgs);
+                case "undo" -> undo(inputArgs);
+                case "redo" -> redo(inputArgs);
+                case "history" -> history();
+                case "perft" -> perft(inputArgs);
+                case "hash" -> hash(inputArgs);
+                case "hashstats" -> OUT.println(COMMAND.getTable().statistics());
+                case "fen" -> fen(inputArgs);
+                case "load" -> load(inputArgs);
+                case "save" -> save(inputArgs);
+                case "board" -> board(inputArgs);
+                case "threads" -> threads(inputArgs);
+                case "smpbench" -> smpBench(inputArgs);
+                case "book" -> book(inputArgs);
+                case "bookmoves" -> bookMoves();
+                case "bookbuild" -> bookBuild(inputArgs);
+                case "tb" -> tablebase(inputArgs);
+                case "exit" -> {
+                    OUT.println("Goodbye.");
+                    break commands;
+                }
+                default -> ERR.println("Not a valid chess command! Try again...\n");
+            }
+
+            if (!gameOver && POSITION.sideToMove == computerSide) {
+                drawChessBoard();
+                think(Search.MAX_DEPTH, DEFAULT_MOVE_TIME);
+            }
+        }
+        if (gameOver) {
+            drawChessBoard();
+            OUT.print("Game over! ");
+            if (drawReason != null) {
+                OUT.println("Draw by " + drawReason + "!");
+            } else if (whiteWin) {
+                OUT.println("White won!");
+            } else {
+                OUT.println("Black won!");
+            }
+        }
+        RENDERER.setAnsi(false, OUT);
+        OUT.println("Exiting chess...");
+    }
+
+    /**
+     * Completes a word of a chess command: the command, an option, or for a move the squares of the pieces that can
+     * move, the squares they can move to and the pieces a pawn can promote to.
+     *
+     * @param words      the words typed before the word
+     * @param word       the beginning of the word
+     * @param candidates the consumer of the candidates
+     */
+    @Override
+    public void complete(String[] words, String word, Candidates candidates) {
+        if (words.length == 0) {
+            Completer.offerMatching(word, candidates, CHESS_COMMANDS);
+            return;
+        }
+
+        switch (words[0]) {
+            case "move" -> completeMove(words, word, candidates);
+            case "go" -> Completer.offerMatching(word, candidates, "depth", "movetime");
+            case "play" -> Completer.offerMatching(word, candidates, "black", "off", "white");
+            case "board" -> Completer.offerMatching(word, candidates, "ansi", "plain");
+            case "book" -> Completer.offerMatching(word, candidates, "off");
+            case "perft" -> Completer.offerMatching(word, candidates, "suite");
+            case "tb" -> Completer.offerMatching(word, candidates, "dir", "gen");
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Completes a word of a move command from the legal moves of the position, in alphabetical order.
+     *
+     * @param words      the words typed before the word ("move", then maybe the squares)
+     * @param word       the beginning of the word
+     * @param candidates the consumer of the candidates
+     */
+    private void completeMove(String[] words, String word, Candidates candidates) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(POSITION, moves);
+        int from = words.length >= 2 ? Move.parseSquare(words[1]) : -1;
+        int to = words.length >= 3 ? Move.parseSquare(words[2]) : -1;
+        if (words.length >= 2 && from == -1 || words.length >= 3 && to == -1 || words.length > 3) {
+            return;
+        }
+
+        long squares = 0;
+        boolean promotion = false;
+        for (int i = 0; i < count; i++) {
+            if (words.length == 1) {
+                squares |= 1L << Move.from(moves[i]);
+            } else if (Move.from(moves[i]) == from) {
+                squares |= 1L << Move.to(moves[i]);
+                promotion |= Move.to(moves[i]) == to && Move.promotion(moves[i]) != 0;
+            }
+        }
+
+        if (words.length == 3) {
+            if (promotion) {
+                Completer.offerMatching(word, candidates, "q", "r", "b", "n");
+            }
+            return;
+        }
+        // Files first, so the squares come in alphabetical order.
+        for (int file = 0; file < 8; file++) {
+            for (int rank = 0; rank < 8; rank++) {
+                int square = rank * 8 + file;
+                if ((squares & 1L << square) != 0 && Move.squareName(square).startsWith(word)
+                        && !candidates.offer(Move.squareName(square))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the chess piece from the old place to the new place.
+     *
+     * @param oldPlace  the old place (eg: e2)
+     * @param newPlace  the new place (eg: e4)
+     * @param promotion the piece a pawn promotes to (q, r, b or n)
+     */
+    final void movePiece(String oldPlace, String newPlace, String promotion) {
+        if (oldPlace.length() != 2 || newPlace.length() != 2) {
+            ERR.println("A place is not valid! Try again...\n");
+            return;
+        }
+
+        byte[] oldPlaceByteArray = {
+                (byte) oldPlace.charAt(0),
+                (byte) oldPlace.charAt(1)
+        };
+        byte[] newPlaceByteArray = {
+                (byte) newPlace.charAt(0),
+                (byte) newPlace.charAt(1)
+        };
+        int promotionType = "pnbrqk".indexOf(promotion.toLowerCase());
+        if (promotionType < Position.KNIGHT || promotionType > Position.QUEEN) {
+            ERR.println("A pawn can only promote to q, r, b or n! Try again...\n");
+            return;
+        }
+        if (!Utility.isInRange(oldPlaceByteArray[0], 97, 104) ||
+                !Utility.isInRange(oldPlaceByteArray[1], 49, 56) ||
+                !Utility.isInRange(newPlaceByteArray[0], 97, 104) ||
+                !Utility.isInRange(newPlaceByteArray[1], 49, 56)) {
+            ERR.println("A place is not valid! Try again...\n");
+            return;
+        }
+
+        int oldPlaceNumber = oldPlaceByteArray[1] - 49;
+        int oldPlaceLetter = oldPlaceByteArray[0] - 97;
+        int newPlaceNumber = newPlaceByteArray[1] - 49;
+        int newPlaceLetter = newPlaceByteArray[0] - 97;
+        updateChessBoard(oldPlaceNumber, oldPlaceLetter, newPlaceNumber, newPlaceLetter, promotionType);
+    }
+
+    /**
+     * Updates the Chess board for the start of the game.
+     */
+    final void setup() {
+        setup(Position.START_FEN);
+    }
+
+    /**
+     * Updates the Chess board for a game that starts from a position.
+     *
+     * @param fen the FEN of the position
+     * @throws IllegalArgumentException if the FEN is not valid (the board is not changed then)
+     */
+    final void setup(String fen) {
+        new Position().setFen(fen);
+        POSITION.setFen(fen);
+        HISTORY.reset(POSITION);
+        computerSide = -1;
+        gameOver = false;
+        drawReason = null;
+        refreshChessBoard();
+        checkGameOver();
+    }
+
+    /**
+     * Updates the Chess board during the game.
+     *
+     * @param oldPlaceNumber the old place index number (eg: '2' in e2)
+     * @param oldPlaceLetter the old place index letter (eg: 'e' in e2)
+     * @param newPlaceNumber the new place index number (eg: '4' in e4)
+     * @param newPlaceLetter the new place index letter (eg: 'e' in e4)
+     * @param promotion      the piece type a pawn promotes to, if it reaches the last rank
+     */
+    final void updateChessBoard(int oldPlaceNumber, int oldPlaceLetter, int newPlaceNumber, int newPlaceLetter,
+                                int promotion) {
+        int from = oldPlaceNumber * 8 + oldPlaceLetter;
+        int to = newPlaceNumber * 8 + newPlaceLetter;
+        int piece = POSITION.pieceAt(from);
+
+        if (piece == Position.NO_PIECE) {
+            ERR.println("Can't move from a blank space!");
+            return;
+        }
+
+        if (piece / 6 != POSITION.sideToMove) {
+            ERR.println("It's not your turn!");
+            return;
+        }
+
+        int move = Move.NONE;
+        if (PIECES[piece].move(POSITION, from, to)) {
+            move = MoveGenerator.findLegalMove(POSITION, from, to, promotion);
+        }
+        if (move == Move.NONE) {
+            ERR.println("Not a valid move!");
+            return;
+        }
+
+        playMove(move);
+    }
+
+    /**
+     * Plays a legal move and updates the Chess board.
+     *
+     * @param move the move
+     */
+    private void playMove(int move) {
+        HISTORY.play(POSITION, move);
+        checkGameOver();
+        refreshChessBoard();
+    }
+
+    /**
+     * Runs the go command.
+     *
+     * @param inputArgs the words of the command ("go", "go movetime ms" or "go depth n")
+     */
+    private void go(String[] inputArgs) {
+        int depth = Search.MAX_DEPTH;
+        long moveTime = DEFAULT_MOVE_TIME;
+        if (inputArgs.length >= 3) {
+            try {
+                switch (inputArgs[1]) {
+                    case "movetime" -> moveTime = Long.parseLong(inputArgs[2]);
+                    case "depth" -> {
+                        depth = Integer.parseInt(inputArgs[2]);
+                        moveTime = 0;
+                    }
+                    default -> {
+                        ERR.println("Use \"go movetime ms\" or \"go depth n\"! Try again...\n");
+                        return;
+                    }
+                }
+            } catch (NumberFormatException nfe) {
+                depth = -1;
+            }
+            if (depth < 1 || depth > Search.MAX_DEPTH || moveTime < 0) {
+                ERR.println("Not a valid time or depth! Try again...\n");
+                return;
+            }
+        }
+        think(depth, moveTime);
+    }
+
+    /**
+     * Lets the computer search for a move and play it.
+     *
+     * @param depth    the deepest search depth
+     * @param moveTime the time to search in milliseconds, or {@code 0} for no limit
+     */
+    private void think(int depth, long moveTime) {
+        if (book != null) {
+            int move = book.pick(POSITION, RANDOM);
+            if (move != Move.NONE) {
+                OUT.println("Computer plays " + Move.toString(move) + " (book)");
+                playMove(move);
+                return;
+            }
+        }
+        if (tablebases.probe(POSITION) != Tablebases.UNKNOWN) {
+            int move = tablebases.bestMove(POSITION);
+            if (move != Move.NONE) {
+                OUT.println("Computer plays " + Move.toString(move) + " (tablebase)");
+                playMove(move);
+                return;
+            }
+        }
+
+        TranspositionTable shared = COMMAND.getTable();
+        if (table != shared) {
+            table = shared;
+            search = new ParallelSearch(table, threads);
+        }
+        int move = search.search(POSITION, depth, moveTime, CONTEXT::isCancelled, OUT);
+        if (CONTEXT.isCancelled()) {
+            return;
+        }
+        if (move == Move.NONE) {
+            ERR.println("There are no legal moves!");
+            return;
+        }
+        OUT.println("Computer plays " + Move.toString(move));
+        playMove(move);
+    }
+
+    /**
+     * Runs the play command.
+     *
+     * @param inputArgs the words of the command ("play white", "play black" or "play off")
+     */
+    private void play(String[] inputArgs) {
+        String side = inputArgs.length >= 2 ? inputArgs[1] : "";
+        switch (side) {
+            case "white" -> computerSide = Position.WHITE;
+            case "black" -> computerSide = Position.BLACK;
+            case "off" -> computerSide = -1;
+            default -> ERR.println("Use \"play white\", \"play black\" or \"play off\"! Try again...\n");
+        }
+    }
+
+    /**
+     * Runs the undo command.
+     *
+     * @param inputArgs the words of the command ("undo" or "undo n")
+     */
+    private void undo(String[] inputArgs) {
+        int count = moveCount(inputArgs);
+        if (count < 1) {
+            ERR.println("Not a valid number of moves! Try again...\n");
+            return;
+        }
+        int undone = 0;
+        while (undone < count && HISTORY.undo(POSITION)) {
+            undone++;
+        }
+        if (undone == 0) {
+            ERR.println("There is no move to undo! Try again...\n");
+            return;
+        }
+        refreshChessBoard();
+        OUT.println("Took back " + undone + " move(s).");
+    }
+
+    /**
+     * Runs the redo command.
+     *
+     * @param inputArgs the words of the command ("redo" or "redo n")
+     */
+    private void redo(String[] inputArgs) {
+        int count = moveCount(inputArgs);
+        if (count < 1) {
+            ERR.println("Not a valid number of moves! Try again...\n");
+            return;
+        }
+        int redone = 0;
+        while (redone < count && HISTORY.redo(POSITION)) {
+            redone++;
+        }
+        if (redone == 0) {
+            ERR.println("There is no move to redo! Try again...\n");
+            return;
+        }
+        refreshChessBoard();
+        OUT.println("Played again " + redone + " move(s).");
+        checkGameOver();
+    }
+
+    /**
+     * Gets the number of moves of the undo and redo commands.
+     *
+     * @param inputArgs the words of the command
+     * @return the number of moves (1, or 2 when the computer plays, if none is given), or {@code -1} if it is not a
+     * number
+     */
+    private int moveCount(String[] inputArgs) {
+        if (inputArgs.length < 2) {
+            return computerSide == -1 ? 1 : 2;
+        }
+        try {
+            return Integer.parseInt(inputArgs[1]);
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs the history command.
+     */
+    private void history() {
+        Position replay = new Position();
+        replay.copyFrom(HISTORY.getFirst());
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        StringBuilder history = new StringBuilder(256);
+        if (POSITION.firstPly > 0) {
+            history.append("(").append(POSITION.firstPly).append(" older moves) ");
+        }
+        for (int i = POSITION.firstPly; i < POSITION.ply; i++) {
+            appendMove(history, replay, POSITION.moveAt(i), i == POSITION.firstPly, moves);
+        }
+        if (HISTORY.getRedoCount() > 0) {
+            history.append("| can be redone: ");
+            for (int i = 0; i < HISTORY.getRedoCount(); i++) {
+                appendMove(history, replay, HISTORY.redoMove(i), i == 0, moves);
+            }
+        }
+        if (history.length() == 0) {
+            history.append("No moves yet.");
+        }
+        OUT.println(history.toString().trim());
+        OUT.printf("This position has occurred %d time(s); %d half-move(s) since the last capture"
+                + " or pawn move.%n", HISTORY.repetitions(POSITION), POSITION.halfmoveClock);
+    }
+
+    /**
+     * Adds a move in SAN, with its number, to a list of moves and plays it.
+     *
+     * @param history the list of moves
+     * @param replay  the position the move is played in
+     * @param move    the move
+     * @param first   is it the first move of the list (so a black move needs its number)?
+     * @param moves   an array to generate moves into
+     */
+    private static void appendMove(StringBuilder history, Position replay, int move, boolean first, int[] moves) {
+        if (replay.sideToMove == Position.WHITE) {
+            history.append(replay.fullmoveNumber).append(". ");
+        } else if (first) {
+            history.append(replay.fullmoveNumber).append("... ");
+        }
+        history.append(San.toString(replay, move, moves)).append(' ');
+        replay.makeMove(move);
+    }
+
+    /**
+     * Runs the hash command.
+     *
+     * @param inputArgs the words of the command ("hash" or "hash megabytes")
+     */
+    private void hash(String[] inputArgs) {
+        if (inputArgs.length < 2) {
+            COMMAND.getTable().clear();
+            OUT.println("Cleared the search table.");
+            return;
+        }
+
+        int megabytes;
+        try {
+            megabytes = Integer.parseInt(inputArgs[1]);
+        } catch (NumberFormatException nfe) {
+            megabytes = -1;
+        }
+        if (megabytes < 1 || megabytes > 32768) {
+            ERR.println("The size must be between 1 and 32768 MB! Try again...\n");
+            return;
+        }
+
+        table = null;
+        search = null;
+        try {
+            table = new TranspositionTable(megabytes);
+        } catch (OutOfMemoryError oome) {
+            ERR.println("Not enough memory for " + megabytes + " MB! Using "
+                    + ChessCommand.DEFAULT_HASH_SIZE + " MB...\n");
+            table = new TranspositionTable(ChessCommand.DEFAULT_HASH_SIZE);
+        }
+        COMMAND.setTable(table);
+        search = new ParallelSearch(table, threads);
+        OUT.printf("The search table now has %,d entries (%,d MB).%n", table.capacity(),
+                table.sizeInBytes() / (1024 * 1024));
+    }
+
+    /**
+     * Runs the threads command.
+     *
+     * @param inputArgs the words of the command ("threads" or "threads n")
+     */
+    private void threads(String[] inputArgs) {
+        if (inputArgs.length >= 2) {
+            int newThreads;
+            try {
+                newThreads = Integer.parseInt(inputArgs[1]);
+            } catch (NumberFormatException nfe) {
+                newThreads = -1;
+            }
+            if (newThreads < 1 || newThreads > ParallelSearch.MAX_THREADS) {
+                ERR.println("The number of threads must be between 1 and "
+                        + ParallelSearch.MAX_THREADS + "! Try again...\n");
+                return;
+            }
+            threads = newThreads;
+            search = new ParallelSearch(table, threads);
+        }
+        OUT.println("The computer searches with " + threads + " thread(s) ("
+                + Runtime.getRuntime().availableProcessors() + " processors available).");
+    }
+
+    /**
+     * Runs the smpbench command.
+     *
+     * @param inputArgs the words of the command ("smpbench [depth] [max threads]")
+     */
+    private void smpBench(String[] inputArgs) {
+        int depth = 6;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        try {
+            if (inputArgs.length >= 2) {
+                depth = Integer.parseInt(inputArgs[1]);
+            }
+            if (inputArgs.length >= 3) {
+                maxThreads = Integer.parseInt(inputArgs[2]);
+            }
+        } catch (NumberFormatException nfe) {
+            depth = -1;
+        }
+        if (depth < 1 || depth > Search.MAX_DEPTH || maxThreads < 1 || maxThreads > ParallelSearch.MAX_THREADS) {
+            ERR.println("Not a valid depth or number of threads! Try again...\n");
+            return;
+        }
+        ParallelSearch.runBenchmark(maxThreads, depth, CONTEXT::isCancelled, OUT);
+    }
+
+    /**
+     * Ends the game if the side to move is checkmated or stalemated, or warns it if it is in check.
+     */
+    private void checkGameOver() {
+        boolean inCheck = MoveGenerator.inCheck(POSITION);
+        if (MoveGenerator.generateLegal(POSITION, new int[MoveGenerator.MAX_MOVES]) == 0) {
+            gameOver = true;
+            if (inCheck) {
+                whiteWin = POSITION.sideToMove == Position.BLACK;
+            } else {
+                drawReason = "stalemate";
+            }
+        } else if (POSITION.halfmoveClock >= 100) {
+            gameOver = true;
+            drawReason = "the fifty-move rule";
+        } else if (HISTORY.repetitions(POSITION) >= 3) {
+            gameOver = true;
+            drawReason = "threefold repetition";
+        } else if (inCheck && !replaying) {
+            OUT.println("Check!");
+        }
+    }
+
+    /**
+     * Runs the perft command.
+     *
+     * @param inputArgs the words of the command ("perft depth" or "perft suite [depth]")
+     */
+    private void perft(String[] inputArgs) {
+        boolean suite = inputArgs.length >= 2 && inputArgs[1].equals("suite");
+        int depth = suite ? 4 : -1;
+        try {
+            if (inputArgs.length >= (suite ? 3 : 2)) {
+                depth = Integer.parseInt(inputArgs[suite ? 2 : 1]);
+            }
+        } catch (NumberFormatException nfe) {
+            depth = -1;
+        }
+        if (depth < 1 || depth > Perft.MAX_DEPTH) {
+            ERR.println("The depth must be between 1 and " + Perft.MAX_DEPTH + "! Try again...\n");
+            return;
+        }
+
+        if (suite) {
+            new Perft(CONTEXT::isCancelled).runSuite(depth, OUT);
+        } else {
+            new Perft(CONTEXT::isCancelled).report(POSITION, depth, null, OUT);
+        }
+    }
+
+    /**
+     * Runs the fen command.
+     *
+     * @param inputArgs the words of the command ("fen" or "fen" and the fields of a FEN)
+     */
+    private void fen(String[] inputArgs) {
+        String fen = String.join(" ", Arrays.copyOfRange(inputArgs, 1, inputArgs.length));
+        if (fen.isEmpty()) {
+            OUT.println(POSITION.getFen());
+            return;
+        }
+
+        try {
+            setup(fen);
+        } catch (IllegalArgumentException iae) {
+            ERR.println(iae.getMessage() + "! Try again...\n");
+        }
+    }
+
+    /**
+     * Runs the load command.
+     *
+     * @param inputArgs the words of the command ("load file.pgn" or "load file.pgn n")
+     */
+    private void load(String[] inputArgs) {
+        if (inputArgs.length < 2) {
+            ERR.println("Use \"load file.pgn [n]\"! Try again...\n");
+            return;
+        }
+        long number;
+        try {
+            number = inputArgs.length >= 3 ? Long.parseLong(inputArgs[2]) : 1;
+        } catch (NumberFormatException nfe) {
+            number = -1;
+        }
+        if (number < 1) {
+            ERR.println("Not a valid game number! Try again...\n");
+            return;
+        }
+
+        try (PgnReader reader = new PgnReader(Path.of(inputArgs[1]))) {
+            while (reader.games() < number) {
+                if (!reader.nextGame()) {
+                    ERR.println("The file only has " + reader.games() + " game(s)! Try again...\n");
+                    return;
+                }
+            }
+            String fen = reader.tag("FEN");
+            setup(fen == null ? Position.START_FEN : fen);
+
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int played = 0;
+            replaying = true;
+            try {
+                for (int i = 0; i < reader.moveCount() && !gameOver; i++) {
+                    int move = San.parse(POSITION, reader.moveText(), reader.moveStart(i), reader.moveEnd(i), moves);
+                    if (move == Move.NONE) {
+                        ERR.println("Move " + (i + 1) + " (" + reader.move(i)
+                                + ") is not legal! The game stops before it.");
+                        break;
+                    }
+                    int from = Move.from(move);
+                    int to = Move.to(move);
+                    updateChessBoard(from / 8, from % 8, to / 8, to % 8,
+                            Move.promotion(move) == 0 ? Position.QUEEN : Move.promotion(move));
+                    played++;
+                }
+            } finally {
+                replaying = false;
+            }
+            OUT.printf("Loaded game %d: %s - %s (%s), %d of %d moves.%n", number,
+                    reader.tag("White"), reader.tag("Black"), reader.result(), played, reader.moveCount());
+        } catch (IOException | InvalidPathException e) {
+            ERR.println("Can't read " + inputArgs[1] + " (" + e.getMessage() + ")! Try again...\n");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            ERR.println("Can't replay the game (" + e.getMessage() + ")! Try again...\n");
+        }
+    }
+
+    /**
+     * Runs the save command.
+     *
+     * @param inputArgs the words of the command ("save" or "save file.pgn")
+     */
+    private void save(String[] inputArgs) {
+        String result = "*";
+        if (gameOver) {
+            result = drawReason != null ? "1/2-1/2" : whiteWin ? "1-0" : "0-1";
+        }
+        String pgn = PgnWriter.write(POSITION, HISTORY.getFirst().getFen(),
+                computerSide == Position.WHITE ? "Computer" : "?", computerSide == Position.BLACK ? "Computer" : "?",
+                result);
+        if (inputArgs.length < 2) {
+            OUT.print(pgn);
+            return;
+        }
+
+        try {
+            Files.writeString(Path.of(inputArgs[1]), pgn + "\n", StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            OUT.println("Saved the game to " + inputArgs[1] + ".");
+        } catch (IOException | InvalidPathException e) {
+            ERR.println("Can't write " + inputArgs[1] + " (" + e.getMessage() + ")! Try again...\n");
+        }
+    }
+
+    /**
+     * Runs the board command.
+     *
+     * @param inputArgs the words of the command ("board ansi" or "board plain")
+     */
+    private void board(String[] inputArgs) {
+        String mode = inputArgs.length >= 2 ? inputArgs[1] : "";
+        switch (mode) {
+            case "ansi" -> RENDERER.setAnsi(true, OUT);
+            case "plain" -> RENDERER.setAnsi(false, OUT);
+            default -> ERR.println("Use \"board ansi\" or \"board plain\"! Try again...\n");
+        }
+    }
+
+    /**
+     * Runs the book command.
+     *
+     * @param inputArgs the words of the command ("book file.bin" or "book off")
+     */
+    private void book(String[] inputArgs) {
+        if (inputArgs.length < 2) {
+            ERR.println("Use \"book file.bin\" or \"book off\"! Try again...\n");
+            return;
+        }
+        if (inputArgs[1].equals("off")) {
+            book = null;
+            OUT.println("The computer no longer plays from a book.");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            book = new OpeningBook(Path.of(inputArgs[1]));
+            OUT.printf("Opened %s: %,d book moves in %.3f ms.%n", inputArgs[1], book.size(),
+                    (System.nanoTime() - start) / 1e6);
+        } catch (IOException | InvalidPathException e) {
+            ERR.println("Can't open " + inputArgs[1] + " (" + e.getMessage() + ")! Try again...\n");
+        }
+    }
+
+    /**
+     * Runs the bookmoves command.
+     */
+    private void bookMoves() {
+        if (book == null) {
+            ERR.println("No book is open! Use \"book file.bin\" first...\n");
+            return;
+        }
+
+        int[] moves = new int[OpeningBook.MAX_BOOK_MOVES];
+        int[] weights = new int[OpeningBook.MAX_BOOK_MOVES];
+        int count = book.lookup(POSITION, moves, weights);
+        if (count == 0) {
+            OUT.println("The position is not in the book.");
+            return;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        int[] generated = new int[MoveGenerator.MAX_MOVES];
+        for (int i = 0; i < count; i++) {
+            OUT.printf("  %-8s %,7d  %5.1f%%%n", San.toString(POSITION, moves[i], generated),
+                    weights[i], total == 0 ? 0.0 : weights[i] * 100.0 / total);
+        }
+    }
+
+    /**
+     * Runs the bookbuild command.
+     *
+     * @param inputArgs the words of the command ("bookbuild games.pgn book.bin" or "bookbuild games.pgn book.bin
+     *                  plies")
+     */
+    private void bookBuild(String[] inputArgs) {
+        if (inputArgs.length < 3) {
+            ERR.println("Use \"bookbuild games.pgn book.bin [plies]\"! Try again...\n");
+            return;
+        }
+        int plies;
+        try {
+            plies = inputArgs.length >= 4 ? Integer.parseInt(inputArgs[3]) : DEFAULT_BOOK_PLIES;
+        } catch (NumberFormatException nfe) {
+            plies = -1;
+        }
+        if (plies < 1 || plies > Position.MAX_PLY) {
+            ERR.println("The number of plies must be between 1 and " + Position.MAX_PLY
+                    + "! Try again...\n");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            BookBuilder builder = new BookBuilder(plies);
+            builder.build(Path.of(inputArgs[1]), Path.of(inputArgs[2]));
+            OUT.printf("Built %s from %,d games: %,d positions, %,d book moves, %d sorted run(s),"
+                            + " %.2f s.%n", inputArgs[2], builder.getGames(), builder.getPositions(),
+                    builder.getRecords(), builder.getRuns(), (System.nanoTime() - start) / 1e9);
+        } catch (IOException | InvalidPathException e) {
+            ERR.println("Can't build the book (" + e.getMessage() + ")! Try again...\n");
+        }
+    }
+
+    /**
+     * Runs the tb command.
+     *
+     * @param inputArgs the words of the command ("tb", "tb gen table", "tb gen table threads" or "tb dir directory")
+     */
+    private void tablebase(String[] inputArgs) {
+        if (inputArgs.length >= 2 && inputArgs[1].equals("gen")) {
+            generateTables(inputArgs);
+            return;
+        }
+        if (inputArgs.length >= 2 && inputArgs[1].equals("dir")) {
+            if (inputArgs.length >= 3) {
+                try {
+                    tablebases = new Tablebases(Path.of(inputArgs[2]));
+                } catch (InvalidPathException ipe) {
+                    ERR.println("Not a valid directory! Try again...\n");
+                    return;
+                }
+            }
+            OUT.println("The endgame tables are in " + tablebases.getDirectory().toAbsolutePath()
+                    + ".");
+            return;
+        }
+
+        long start = System.nanoTime();
+        int value = tablebases.probe(POSITION);
+        long first = System.nanoTime() - start;
+        if (value == Tablebases.UNKNOWN) {
+            if (Long.bitCount(POSITION.occupied) > Tablebases.MAX_PIECES || POSITION.castlingRights != 0) {
+                ERR.println("Only positions with up to " + Tablebases.MAX_PIECES
+                        + " pieces and no castling are in the tables! Try again...\n");
+            } else {
+                ERR.println("There is no " + Tablebases.name(POSITION) + " table in "
+                        + tablebases.getDirectory() + "! Use \"tb gen " + Tablebases.name(POSITION) + "\"...\n");
+            }
+            return;
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < TIMED_PROBES; i++) {
+            tablebases.probe(POSITION);
+        }
+        long average = (System.nanoTime() - start) / TIMED_PROBES;
+        OUT.println(Tablebases.describe(value, POSITION.sideToMove) + ".");
+        int move = tablebases.bestMove(POSITION);
+        if (move != Move.NONE) {
+            OUT.println("Best move: "
+                    + San.toString(POSITION, move, new int[MoveGenerator.MAX_MOVES]));
+        }
+        OUT.printf("Probe: %,.1f us the first time, %,d ns on average over %,d probes.%n",
+                first / 1e3, average, TIMED_PROBES);
+    }
+
+    /**
+     * Runs the tb gen command.
+     *
+     * @param inputArgs the words of the command ("tb gen table" or "tb gen table threads")
+     */
+    private void generateTables(String[] inputArgs) {
+        if (inputArgs.length < 3) {
+            ERR.println("Use \"tb gen table|all [threads]\"! Try again...\n");
+            return;
+        }
+        int generateThreads;
+        try {
+            generateThreads = inputArgs.length >= 4 ? Integer.parseInt(inputArgs[3])
+                    : Runtime.getRuntime().availableProcessors();
+        } catch (NumberFormatException nfe) {
+            generateThreads = -1;
+        }
+        if (generateThreads < 1 || generateThreads > ParallelSearch.MAX_THREADS) {
+            ERR.println("The number of threads must be between 1 and "
+                    + ParallelSearch.MAX_THREADS + "! Try again...\n");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (inputArgs[2].equals("all")) {
+                for (String name : Tablebases.allNames()) {
+                    if (tablebases.table(name) == null) {
+                        tablebases.generate(name, generateThreads, CONTEXT::isCancelled, OUT);
+                    }
+                }
+            } else {
+                tablebases.generate(inputArgs[2].toUpperCase(), generateThreads, CONTEXT::isCancelled, OUT);
+            }
+            OUT.printf("Done in %.2f s with %d thread(s).%n", (System.nanoTime() - start) / 1e9,
+                    generateThreads);
+        } catch (IOException e) {
+            ERR.println("Can't write the tables (" + e.getMessage() + ")! Try again...\n");
+        } catch (IllegalArgumentException iae) {
+            ERR.println(iae.getMessage() + "! Tables are named like KQK or KRKP, with up to "
+                    + Tablebases.MAX_PIECES + " pieces. Try again...\n");
+        } catch (OutOfMemoryError oome) {
+            ERR.println("Not enough memory to generate the table! Try again...\n");
+        } catch (CancellationException ce) {
+            ERR.println("Cancelled! " + ce.getMessage() + ".");
+        }
+    }
+
+    /**
+     * Updates the Chess board from the position (only the squares that changed).
+     */
+    void refreshChessBoard() {
+        RENDERER.update(POSITION);
+    }
+
+    /**
+     * Draws the Chess board.
+     */
+    private void drawChessBoard() {
+        RENDERER.draw(OUT);
+        if (!RENDERER.isAnsi()) {
+            OUT.println();
+        }
+    }
+}
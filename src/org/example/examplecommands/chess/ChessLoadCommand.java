@@ -0,0 +1,144 @@
+package org.example.examplecommands.chess;
+
+import org.example.internal.Command;
+import org.example.internal.Terminal;
+import org.example.util.LatencyRecorder;
+
+import java.io.IOException;
+
+/**
+ * Load tests a chess server (see {@link ChessServerCommand}) with many clients playing random legal moves, and
+ * reports the moves per second and the latency of the moves.
+ *
+ * @author Macintosh_Fan
+ */
+public class ChessLoadCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "chessload";
+
+    /**
+     * The usage of the command.
+     */
+    public static final String USAGE = "[clients] [moves per client] [port|unix:path]";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "load tests a chess server with clients playing random moves, and "
+            + "reports moves/s and latency.";
+
+    /**
+     * The number of clients by default.
+     */
+    private static final int DEFAULT_CLIENTS = 100;
+
+    /**
+     * The number of moves each client plays by default.
+     */
+    private static final int DEFAULT_MOVES = 200;
+
+    /**
+     * Called when the command is called.
+     *
+     * @param terminal the main terminal
+     * @param args     inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(Terminal terminal, String[] args) {
+        int clients = DEFAULT_CLIENTS;
+        int moves = DEFAULT_MOVES;
+        String address = ChessServer.DEFAULT_ADDRESS;
+        try {
+            if (args != null && args.length >= 1) {
+                clients = Integer.parseInt(args[0]);
+            }
+            if (args != null && args.length >= 2) {
+                moves = Integer.parseInt(args[1]);
+            }
+        } catch (NumberFormatException nfe) {
+            clients = -1;
+        }
+        if (clients < 1 || moves < 1) {
+            terminal.stdErrStream.println("The clients and moves must be positive numbers! Try again...\n");
+            return;
+        }
+        if (args != null && args.length >= 3) {
+            address = args[2];
+        }
+
+        ChessLoadGenerator generator;
+        try {
+            generator = new ChessLoadGenerator(address, clients, moves, System.nanoTime());
+            generator.run();
+        } catch (IOException | IllegalArgumentException e) {
+            terminal.stdErrStream.println("Could not connect to " + address + ": " + e.getMessage());
+            return;
+        }
+
+        LatencyRecorder latencies = generator.getLatencies();
+        long nanos = Math.max(1, generator.getNanos());
+        terminal.stdOutStream.printf("%,d clients played %,d moves (%,d games ended) in %,.1f ms: %,.0f moves/s%n",
+                clients, latencies.getCount(), generator.getGames(), nanos / 1_000_000.0,
+                latencies.getCount() * 1_000_000_000.0 / nanos);
+        terminal.stdOutStream.printf("Move latency: mean %,.1f us, p50 %,.1f us, p99 %,.1f us, p99.9 %,.1f us,"
+                        + " max %,.1f us%n", latencies.getMean() / 1000, latencies.getPercentile(50) / 1000.0,
+                latencies.getPercentile(99) / 1000.0, latencies.getPercentile(99.9) / 1000.0,
+                latencies.getMax() / 1000.0);
+        if (generator.getFailures() > 0) {
+            terminal.stdErrStream.println(generator.getFailures() + " client(s) failed or were refused.");
+        }
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return USAGE;
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+}
@@ -0,0 +1,365 @@
+package org.example.examplecommands.chess;
+
+import org.example.util.LatencyRecorder;
+import org.example.util.Utility;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * A load test of a {@link ChessServer}: many clients that each play random legal moves in their own game, one
+ * request at a time, and start a new game whenever one ends.
+ * <p>
+ * Every client keeps its own copy of the position to pick its moves, so that only "move" requests are sent. One
+ * thread drives every client with a {@link Selector}, and the time from sending a move to reading its answer is
+ * recorded in a {@link LatencyRecorder}.
+ *
+ * @author Macintosh_Fan
+ */
+final class ChessLoadGenerator {
+    /**
+     * The longest response line the clients read (they never ask for lists of moves).
+     */
+    private static final int MAX_LINE = 256;
+
+    /**
+     * The address of the server.
+     */
+    private final SocketAddress ADDRESS;
+
+    /**
+     * The number of clients.
+     */
+    private final int CLIENTS;
+
+    /**
+     * The number of moves each client plays.
+     */
+    private final int MOVES_PER_CLIENT;
+
+    /**
+     * The random number generator of the moves.
+     */
+    private final Random RANDOM;
+
+    /**
+     * The round-trip times of the moves.
+     */
+    private final LatencyRecorder LATENCIES = new LatencyRecorder();
+
+    /**
+     * The number of games that ended.
+     */
+    private long games;
+
+    /**
+     * The number of clients that got an error or lost their connection.
+     */
+    private int failures;
+
+    /**
+     * The time the load test took.
+     */
+    private long nanos;
+
+    /**
+     * The number of clients whose connection is open.
+     */
+    private int open;
+
+    /**
+     * The state of a client.
+     */
+    private static final class Client {
+        /**
+         * The connection to the server.
+         */
+        final SocketChannel CHANNEL;
+
+        /**
+         * The position of the game of the client.
+         */
+        final Position POSITION = new Position();
+
+        /**
+         * An array to generate the legal moves into.
+         */
+        final int[] MOVES = new int[MoveGenerator.MAX_MOVES];
+
+        /**
+         * The bytes read that are not a complete line yet.
+         */
+        final ByteBuffer INPUT = ByteBuffer.allocate(MAX_LINE);
+
+        /**
+         * The request that is not written yet (in read mode).
+         */
+        ByteBuffer output = ByteBuffer.allocate(0);
+
+        /**
+         * The move that was sent, or {@link Move#NONE} if the request was not a move.
+         */
+        int move = Move.NONE;
+
+        /**
+         * The time the request was sent.
+         */
+        long sentAt;
+
+        /**
+         * The number of moves left to play.
+         */
+        int movesLeft;
+
+        /**
+         * Constructs the state of a client.
+         *
+         * @param channel   the connection to the server
+         * @param movesLeft the number of moves to play
+         */
+        Client(SocketChannel channel, int movesLeft) {
+            CHANNEL = channel;
+            this.movesLeft = movesLeft;
+        }
+    }
+
+    /**
+     * Constructs a load test.
+     *
+     * @param address        the address of the server (see {@link Utility#parseSocketAddress(String)})
+     * @param clients        the number of clients
+     * @param movesPerClient the number of moves each client plays
+     * @param seed           the seed of the random moves
+     * @throws IllegalArgumentException if the address is not a port or a socket file
+     */
+    ChessLoadGenerator(String address, int clients, int movesPerClient, long seed) {
+        ADDRESS = Utility.parseSocketAddress(address);
+        CLIENTS = clients;
+        MOVES_PER_CLIENT = movesPerClient;
+        RANDOM = new Random(seed);
+    }
+
+    /**
+     * Runs the load test until every client has played its moves or failed.
+     *
+     * @throws IOException if the clients can't connect
+     */
+    void run() throws IOException {
+        long start = System.nanoTime();
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                SocketChannel channel = SocketChannel.open(ADDRESS instanceof UnixDomainSocketAddress
+                        ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+                open++;
+                try {
+                    channel.configureBlocking(false);
+                    if (ADDRESS instanceof InetSocketAddress) {
+                        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    }
+                    Client client = new Client(channel, MOVES_PER_CLIENT);
+                    if (channel.connect(ADDRESS)) {
+                        sendNext(client);
+                        channel.register(selector, SelectionKey.OP_WRITE, client);
+                    } else {
+                        channel.register(selector, SelectionKey.OP_CONNECT, client);
+                    }
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+
+            while (open > 0 && !Thread.currentThread().isInterrupted()) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        step(key);
+                    } catch (IOException e) {
+                        failures++;
+                        close(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+        }
+        nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Lets a client go on: finishes its connection, writes its request or reads its answers.
+     *
+     * @param key the key of the client
+     * @throws IOException if the connection fails
+     */
+    private void step(SelectionKey key) throws IOException {
+        Client client = (Client) key.attachment();
+        if (key.isConnectable()) {
+            client.CHANNEL.finishConnect();
+            sendNext(client);
+        }
+        if (key.isValid() && key.isReadable()) {
+            if (client.CHANNEL.read(client.INPUT) == -1) {
+                if (client.movesLeft > 0 || client.move != Move.NONE) {
+                    failures++;
+                }
+                close(key);
+                return;
+            }
+            readLines(key, client);
+        }
+        if (key.isValid() && client.output.hasRemaining()) {
+            client.CHANNEL.write(client.output);
+        }
+        if (key.isValid()) {
+            key.interestOps(client.output.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Reads the complete answers of a client, and sends its next request after each.
+     *
+     * @param key    the key of the client
+     * @param client the client
+     * @throws IOException if a line is too long
+     */
+    private void readLines(SelectionKey key, Client client) throws IOException {
+        ByteBuffer input = client.INPUT;
+        byte[] bytes = input.array();
+        int start = 0;
+        for (int i = 0; i < input.position() && key.isValid(); i++) {
+            if (bytes[i] == '\n') {
+                answer(key, client, new String(bytes, start, i - start, StandardCharsets.US_ASCII));
+                start = i + 1;
+            }
+        }
+        if (start == 0 && !input.hasRemaining()) {
+            throw new IOException("Response line too long");
+        }
+        input.limit(input.position()).position(start);
+        input.compact();
+    }
+
+    /**
+     * Handles an answer of the server.
+     *
+     * @param key      the key of the client
+     * @param client   the client
+     * @param response the answer
+     */
+    private void answer(SelectionKey key, Client client, String response) {
+        if (response.equals(ChessSession.BYE)) {
+            close(key);
+            return;
+        }
+        if (!response.startsWith(ChessSession.OK)) {
+            failures++;
+            close(key);
+            return;
+        }
+
+        if (client.move == Move.NONE) {
+            client.POSITION.setFen(Position.START_FEN);
+        } else {
+            LATENCIES.record(System.nanoTime() - client.sentAt);
+            client.POSITION.makeMove(client.move);
+            client.movesLeft--;
+            client.move = Move.NONE;
+            if (response.indexOf(' ', ChessSession.OK.length() + 1) != -1) {
+                games++;
+                send(client, "new");
+                return;
+            }
+        }
+        sendNext(client);
+    }
+
+    /**
+     * Sends the next request of a client: a random legal move, or "quit" once it has played its moves.
+     *
+     * @param client the client
+     */
+    private void sendNext(Client client) {
+        if (client.movesLeft == 0) {
+            send(client, "quit");
+            return;
+        }
+        int count = MoveGenerator.generateLegal(client.POSITION, client.MOVES);
+        client.move = client.MOVES[RANDOM.nextInt(count)];
+        send(client, "move " + Move.toString(client.move));
+    }
+
+    /**
+     * Queues a request of a client (it is written by {@link #step(SelectionKey)}).
+     *
+     * @param client  the client
+     * @param request the request line (without the line break)
+     */
+    private static void send(Client client, String request) {
+        client.output = ByteBuffer.wrap((request + "\n").getBytes(StandardCharsets.US_ASCII));
+        client.sentAt = System.nanoTime();
+    }
+
+    /**
+     * Closes the connection of a client.
+     *
+     * @param key the key of the client
+     */
+    private void close(SelectionKey key) {
+        open--;
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // The connection is gone either way.
+        }
+    }
+
+    /**
+     * Gets the round-trip times of the moves.
+     *
+     * @return the latencies
+     */
+    LatencyRecorder getLatencies() {
+        return LATENCIES;
+    }
+
+    /**
+     * Gets the number of games that ended.
+     *
+     * @return the number of games
+     */
+    long getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the number of clients that got an error or lost their connection.
+     *
+     * @return the number of clients
+     */
+    int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the time the load test took.
+     *
+     * @return the time in nanoseconds
+     */
+    long getNanos() {
+        return nanos;
+    }
+}
@@ -31,19 +31,17 @@ public abstract class ChessPiece {
     }
 
     /**
-     * Checks if a Chess piece move is valid (if overridden, or it just returns {@code true}).
+     * Checks if a Chess piece move is legal (it follows the piece rules and does not leave the king in check).
      * <p>
-     * For developers: it is recommended that you override this method
+     * For developers: the move generator decides by default, so override this method only to add restrictions.
      *
-     * @param chessBoardArray the Chess board (as an array)
-     * @param oldPlaceNumber the old place index number (eg: '2' in e2)
-     * @param oldPlaceLetter the old place index letter (eg: 'e' in e2)
-     * @param newPlaceNumber the new place index number (eg: '4' in e4)
-     * @param newPlaceLetter the new place index letter (eg: 'e' in e4)
+     * @param position the Chess position
+     * @param from     the square the piece moves from (see {@link Position})
+     * @param to       the square the piece moves to
      * @return {@code true} if the move is valid
      */
-    boolean move(ChessPiece[][] chessBoardArray, int oldPlaceNumber, int oldPlaceLetter, int newPlaceNumber, int newPlaceLetter) {
-        return true;
+    boolean move(Position position, int from, int to) {
+        return MoveGenerator.findLegalMove(position, from, to, Position.QUEEN) != Move.NONE;
     }
 
     /**
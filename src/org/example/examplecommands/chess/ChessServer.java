@@ -0,0 +1,381 @@
+package org.example.examplecommands.chess;
+
+import org.example.util.Utility;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * A chess server on a loopback TCP port or a Unix domain socket, where every connection plays its own game (see
+ * {@link ChessSession} for the protocol).
+ * <p>
+ * One thread serves every connection with a {@link Selector}: it accepts connections, reads whatever requests have
+ * arrived, answers each complete line and writes the answers back without blocking. Each connection has a small
+ * input and output buffer next to its session, so thousands of idle games cost no threads.
+ *
+ * @author Macintosh_Fan
+ */
+final class ChessServer implements Runnable {
+    /**
+     * The address the server listens on by default (a port of the loopback interface).
+     */
+    static final String DEFAULT_ADDRESS = "7777";
+
+    /**
+     * The longest request line (a FEN fits easily).
+     */
+    private static final int MAX_LINE = 256;
+
+    /**
+     * The longest response line (the most legal moves a position can have, in coordinate notation).
+     */
+    private static final int MAX_RESPONSE = MoveGenerator.MAX_MOVES * 6;
+
+    /**
+     * The size of the output buffer of a connection.
+     */
+    private static final int OUTPUT_SIZE = MAX_RESPONSE * 2;
+
+    /**
+     * The number of connections the operating system may queue before they are accepted.
+     */
+    private static final int BACKLOG = 1024;
+
+    /**
+     * The sessions of the connections.
+     */
+    private final ChessSessions SESSIONS;
+
+    /**
+     * The address the server listens on.
+     */
+    private final SocketAddress ADDRESS;
+
+    /**
+     * The address the server listens on, as it is given to {@link Utility#parseSocketAddress(String)}.
+     */
+    private final String NAME;
+
+    /**
+     * The selector of the server socket and the connections.
+     */
+    private final Selector SELECTOR;
+
+    /**
+     * The server socket.
+     */
+    private final ServerSocketChannel SERVER;
+
+    /**
+     * The thread that serves the connections.
+     */
+    private final Thread THREAD;
+
+    /**
+     * The number of requests answered.
+     */
+    private volatile long requests;
+
+    /**
+     * The state of a connection.
+     */
+    private static final class Connection {
+        /**
+         * The game of the connection.
+         */
+        final ChessSession SESSION;
+
+        /**
+         * The bytes read that are not a complete line yet.
+         */
+        final ByteBuffer INPUT = ByteBuffer.allocate(MAX_LINE);
+
+        /**
+         * The responses that are not written yet (in read mode).
+         */
+        final ByteBuffer OUTPUT = ByteBuffer.allocate(OUTPUT_SIZE).flip();
+
+        /**
+         * Should the connection be closed once the output is written?
+         */
+        boolean closing;
+
+        /**
+         * Constructs the state of a connection.
+         *
+         * @param session the game of the connection
+         */
+        Connection(ChessSession session) {
+            SESSION = session;
+        }
+    }
+
+    /**
+     * Opens a server (which is started with {@link #start()}).
+     *
+     * @param address     the address to listen on (see {@link Utility#parseSocketAddress(String)})
+     * @param maxSessions the most games that can be played at once
+     * @throws IOException              if the address can't be listened on
+     * @throws IllegalArgumentException if the address is not a port or a socket file
+     */
+    ChessServer(String address, int maxSessions) throws IOException {
+        ADDRESS = Utility.parseSocketAddress(address);
+        SESSIONS = new ChessSessions(maxSessions);
+        if (ADDRESS instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+        SERVER = ServerSocketChannel.open(ADDRESS instanceof UnixDomainSocketAddress
+                ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+        try {
+            SERVER.bind(ADDRESS, BACKLOG);
+            NAME = Utility.formatSocketAddress(SERVER.getLocalAddress());
+            SERVER.configureBlocking(false);
+            SELECTOR = Selector.open();
+            SERVER.register(SELECTOR, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            SERVER.close();
+            throw e;
+        }
+        THREAD = new Thread(this, "chess-server");
+        THREAD.setDaemon(true);
+    }
+
+    /**
+     * Starts serving connections on a separate thread.
+     */
+    void start() {
+        THREAD.start();
+    }
+
+    /**
+     * Stops the server, closing every connection, and waits for its thread to end.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    void stop() throws InterruptedException {
+        THREAD.interrupt();
+        SELECTOR.wakeup();
+        THREAD.join();
+    }
+
+    /**
+     * Gets the address the server listens on.
+     *
+     * @return the address (with the port that was chosen, if the port was 0)
+     */
+    String getAddress() {
+        return NAME;
+    }
+
+    /**
+     * Gets the sessions of the connections.
+     *
+     * @return the sessions
+     */
+    ChessSessions getSessions() {
+        return SESSIONS;
+    }
+
+    /**
+     * Gets the number of requests answered.
+     *
+     * @return the number of requests
+     */
+    long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Serves connections until the thread is interrupted. A connection that fails (or whose request can't be
+     * handled) is closed without stopping the others.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                SELECTOR.select();
+                for (SelectionKey key : SELECTOR.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            serve(key);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        close(key);
+                    }
+                }
+                SELECTOR.selectedKeys().clear();
+            }
+        } catch (IOException | ClosedSelectorException ignored) {
+            // The server stops.
+        } finally {
+            shutDown();
+        }
+    }
+
+    /**
+     * Accepts the waiting connections and opens a session for each.
+     *
+     * @throws IOException if a connection can't be set up
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = SERVER.accept()) != null) {
+            ChessSession session = SESSIONS.open();
+            if (session == null) {
+                channel.write(ByteBuffer.wrap("error too many games\n".getBytes(StandardCharsets.US_ASCII)));
+                channel.close();
+                continue;
+            }
+            channel.configureBlocking(false);
+            if (channel.getRemoteAddress() instanceof InetSocketAddress) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            channel.register(SELECTOR, SelectionKey.OP_READ, new Connection(session));
+        }
+    }
+
+    /**
+     * Reads the requests of a connection, answers them and writes the answers.
+     * <p>
+     * While the answers can't all be written, the connection is only watched for writing, so a client that sends
+     * requests without reading the answers is slowed down instead of filling the memory of the server.
+     *
+     * @param key the key of the connection
+     * @throws IOException if the connection fails, or a request line is too long
+     */
+    private void serve(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        if (key.isWritable() && !flush(channel, connection)) {
+            return;
+        }
+        if (key.isReadable() && channel.read(connection.INPUT) == -1) {
+            close(key);
+            return;
+        }
+
+        boolean more;
+        do {
+            more = handleLines(connection);
+            if (!flush(channel, connection)) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+        } while (more);
+        if (connection.closing) {
+            close(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Answers the complete lines of the input of a connection while the output buffer has room, and keeps the rest
+     * for later.
+     *
+     * @param connection the connection
+     * @return {@code true} if a complete line is left because the output buffer is full
+     * @throws IOException if a line is too long
+     */
+    private boolean handleLines(Connection connection) throws IOException {
+        ByteBuffer input = connection.INPUT;
+        ByteBuffer output = connection.OUTPUT;
+        byte[] bytes = input.array();
+        int start = 0;
+        boolean more = false;
+        for (int i = 0; i < input.position() && !connection.closing; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            if (output.capacity() - output.remaining() <= MAX_RESPONSE) {
+                more = true;
+                break;
+            }
+            int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+            String response = connection.SESSION.handle(new String(bytes, start, end - start,
+                    StandardCharsets.US_ASCII));
+            requests++;
+            output.compact();
+            for (int j = 0; j < response.length(); j++) {
+                output.put((byte) response.charAt(j));
+            }
+            output.put((byte) '\n');
+            output.flip();
+            connection.closing = response.equals(ChessSession.BYE);
+            start = i + 1;
+        }
+        if (start == 0 && !more && !input.hasRemaining()) {
+            throw new IOException("Request line too long");
+        }
+        input.limit(input.position()).position(start);
+        input.compact();
+        return more;
+    }
+
+    /**
+     * Writes as much of the output of a connection as the connection takes.
+     *
+     * @param channel    the channel of the connection
+     * @param connection the connection
+     * @return {@code true} if the whole output was written
+     * @throws IOException if the connection fails
+     */
+    private static boolean flush(SocketChannel channel, Connection connection) throws IOException {
+        channel.write(connection.OUTPUT);
+        return !connection.OUTPUT.hasRemaining();
+    }
+
+    /**
+     * Closes a connection and its session.
+     *
+     * @param key the key of the connection
+     */
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // The connection is gone either way.
+        }
+        if (key.attachment() instanceof Connection connection) {
+            SESSIONS.close(connection.SESSION);
+        }
+    }
+
+    /**
+     * Closes every connection, the server socket and the selector.
+     */
+    private void shutDown() {
+        if (SELECTOR.isOpen()) {
+            for (SelectionKey key : SELECTOR.keys()) {
+                close(key);
+            }
+        }
+        try {
+            SELECTOR.close();
+            SERVER.close();
+            if (ADDRESS instanceof UnixDomainSocketAddress unix) {
+                Files.deleteIfExists(unix.getPath());
+            }
+        } catch (IOException ignored) {
+            // Nothing more can be done.
+        }
+    }
+}
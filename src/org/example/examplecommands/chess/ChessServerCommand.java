@@ -0,0 +1,182 @@
+package org.example.examplecommands.chess;
+
+import org.example.internal.Command;
+import org.example.internal.Terminal;
+
+import java.io.IOException;
+
+/**
+ * Starts, stops and shows a {@link ChessServer}, which hosts a separate game for every connection on a loopback port
+ * or a Unix domain socket, while the terminal stays usable.
+ *
+ * @author Macintosh_Fan
+ */
+public class ChessServerCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String NAME = "chessserver";
+
+    /**
+     * The usage of the command.
+     */
+    public static final String USAGE = "start [port|unix:path] [max games] | stop | status";
+
+    /**
+     * The description of the command.
+     */
+    public static final String DESCRIPTION = "hosts a separate chess game for every connection to a local port (7777 "
+            + "by default) or socket file.";
+
+    /**
+     * The most games the server hosts at once by default.
+     */
+    private static final int DEFAULT_MAX_GAMES = 10_000;
+
+    /**
+     * The running server, or {@code null}.
+     */
+    private ChessServer server;
+
+    /**
+     * Called when the command is called.
+     *
+     * @param terminal the main terminal
+     * @param args     inputted arguments by the user (might be null)
+     */
+    @Override
+    public synchronized void onCommand(Terminal terminal, String[] args) {
+        String action = args == null ? "status" : args[0];
+        switch (action) {
+            case "start" -> start(terminal, args);
+            case "stop" -> stop(terminal);
+            case "status" -> status(terminal);
+            default -> terminal.stdErrStream.println("Not a valid action (start, stop or status)! Try again...\n");
+        }
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param terminal the main terminal
+     * @param args     the arguments ("start [port|unix:path] [max games]")
+     */
+    private void start(Terminal terminal, String[] args) {
+        if (server != null) {
+            terminal.stdErrStream.println("The server is already running on " + server.getAddress()
+                    + "! Try again...\n");
+            return;
+        }
+
+        String address = args.length >= 2 ? args[1] : ChessServer.DEFAULT_ADDRESS;
+        int maxGames = DEFAULT_MAX_GAMES;
+        if (args.length >= 3) {
+            try {
+                maxGames = Integer.parseInt(args[2]);
+            } catch (NumberFormatException nfe) {
+                maxGames = -1;
+            }
+        }
+        if (maxGames < 1) {
+            terminal.stdErrStream.println("The most games must be a positive number! Try again...\n");
+            return;
+        }
+
+        try {
+            server = new ChessServer(address, maxGames);
+        } catch (IOException | IllegalArgumentException e) {
+            terminal.stdErrStream.println("Could not start the server on " + address + ": " + e.getMessage());
+            return;
+        }
+        server.start();
+        terminal.stdOutStream.println("Chess server listening on " + server.getAddress() + " (up to " + maxGames
+                + " games).");
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @param terminal the main terminal
+     */
+    private void stop(Terminal terminal) {
+        if (server == null) {
+            terminal.stdErrStream.println("The server is not running! Try again...\n");
+            return;
+        }
+        try {
+            server.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        status(terminal);
+        server = null;
+        terminal.stdOutStream.println("Chess server stopped.");
+    }
+
+    /**
+     * Shows the state of the server.
+     *
+     * @param terminal the main terminal
+     */
+    private void status(Terminal terminal) {
+        if (server == null) {
+            terminal.stdOutStream.println("The server is not running.");
+            return;
+        }
+        ChessSessions sessions = server.getSessions();
+        terminal.stdOutStream.printf("Chess server on %s: %,d games open, %,d opened, %,d requests, %,d moves in"
+                        + " closed games%n", server.getAddress(), sessions.size(), sessions.getOpened(),
+                server.getRequests(), sessions.getClosedMoves());
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return USAGE;
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+}
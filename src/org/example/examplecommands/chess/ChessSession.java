@@ -0,0 +1,226 @@
+package org.example.examplecommands.chess;
+
+/**
+ * One game of the chess server, played through a line protocol: every request line gets exactly one response line.
+ * <p>
+ * The requests are:
+ * <ul>
+ *     <li>"move m": plays m (in coordinate notation like "e2e4" or "e7e8q", or in SAN like "Nf3") and answers
+ *     "ok" and the move in SAN, followed by the result and its reason if the move ends the game
+ *     (eg: "ok Qxf7# 1-0 checkmate");</li>
+ *     <li>"moves": answers the legal moves in coordinate notation, separated by spaces;</li>
+ *     <li>"fen [fen]": answers the position as FEN, or starts a new game from a FEN and answers "ok";</li>
+ *     <li>"new": starts a new game from the initial position and answers "ok";</li>
+ *     <li>"quit": answers "bye" (the connection is then closed).</li>
+ * </ul>
+ * A request that can't be done is answered with "error" and the reason.
+ * <p>
+ * A session only holds a {@link Position} (whose move records are enough to find repetitions) and a move array, so
+ * that thousands of them fit in memory. A session is used by one thread at a time.
+ *
+ * @author Macintosh_Fan
+ */
+final class ChessSession {
+    /**
+     * The response of a request that was done.
+     */
+    static final String OK = "ok";
+
+    /**
+     * The response to "quit".
+     */
+    static final String BYE = "bye";
+
+    /**
+     * The id of the session.
+     */
+    private final long ID;
+
+    /**
+     * The position of the game.
+     */
+    private final Position POSITION = new Position();
+
+    /**
+     * An array to generate the legal moves into.
+     */
+    private final int[] MOVES = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * The result and its reason if the game is over (eg: "1-0 checkmate"), or {@code null}.
+     */
+    private String result;
+
+    /**
+     * The number of moves played in the session, over every game.
+     */
+    private long moves;
+
+    /**
+     * Constructs a session with a game at the initial position.
+     *
+     * @param id the id of the session
+     */
+    ChessSession(long id) {
+        ID = id;
+    }
+
+    /**
+     * Gets the id of the session.
+     *
+     * @return the id
+     */
+    long getId() {
+        return ID;
+    }
+
+    /**
+     * Gets the number of moves played in the session, over every game.
+     *
+     * @return the number of moves
+     */
+    long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Answers a request.
+     *
+     * @param request the request line (without the line break)
+     * @return the response line (without the line break)
+     */
+    String handle(String request) {
+        int space = request.indexOf(' ');
+        String name = space == -1 ? request : request.substring(0, space);
+        String argument = space == -1 ? "" : request.substring(space + 1).trim();
+        return switch (name) {
+            case "move" -> move(argument);
+            case "moves" -> legalMoves();
+            case "fen" -> argument.isEmpty() ? POSITION.getFen() : newGame(argument);
+            case "new" -> newGame(Position.START_FEN);
+            case "quit" -> BYE;
+            default -> "error unknown request";
+        };
+    }
+
+    /**
+     * Starts a new game (from the initial position if the FEN is not valid).
+     *
+     * @param fen the FEN of the position the game starts from
+     * @return the response
+     */
+    private String newGame(String fen) {
+        try {
+            POSITION.setFen(fen);
+        } catch (IllegalArgumentException iae) {
+            POSITION.setFen(Position.START_FEN);
+            result = null;
+            return "error not a valid FEN (a new game was started)";
+        }
+        result = null;
+        return OK;
+    }
+
+    /**
+     * Plays a move.
+     *
+     * @param text the move in coordinate notation or in SAN
+     * @return the response
+     */
+    private String move(String text) {
+        if (result != null) {
+            return "error the game is over";
+        }
+        int move = parse(text);
+        if (move == Move.NONE) {
+            return "error not a legal move";
+        }
+
+        String san = San.toString(POSITION, move, MOVES);
+        POSITION.makeMove(move);
+        moves++;
+        result = result();
+        return result == null ? OK + " " + san : OK + " " + san + " " + result;
+    }
+
+    /**
+     * Reads a move in coordinate notation or in SAN.
+     *
+     * @param text the move
+     * @return the legal move, or {@link Move#NONE}
+     */
+    private int parse(String text) {
+        if (text.length() == 4 || text.length() == 5) {
+            int from = Move.parseSquare(text.substring(0, 2));
+            int to = Move.parseSquare(text.substring(2, 4));
+            if (from != -1 && to != -1) {
+                int promotion = text.length() == 5 ? "pnbrqk".indexOf(text.charAt(4)) : Position.QUEEN;
+                if (promotion < Position.KNIGHT || promotion > Position.QUEEN) {
+                    return Move.NONE;
+                }
+                return MoveGenerator.findLegalMove(POSITION, from, to, promotion);
+            }
+        }
+        return San.parse(POSITION, text.toCharArray(), 0, text.length(), MOVES);
+    }
+
+    /**
+     * Lists the legal moves.
+     *
+     * @return the moves in coordinate notation, separated by spaces
+     */
+    private String legalMoves() {
+        if (result != null) {
+            return "";
+        }
+        int count = MoveGenerator.generateLegal(POSITION, MOVES);
+        StringBuilder list = new StringBuilder(count * 5);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                list.append(' ');
+            }
+            list.append(Move.toString(MOVES[i]));
+        }
+        return list.toString();
+    }
+
+    /**
+     * Finds out if the game is over.
+     *
+     * @return the result and its reason, or {@code null} if the game goes on
+     */
+    private String result() {
+        if (MoveGenerator.generateLegal(POSITION, MOVES) == 0) {
+            if (!MoveGenerator.inCheck(POSITION)) {
+                return "1/2-1/2 stalemate";
+            }
+            return POSITION.sideToMove == Position.WHITE ? "0-1 checkmate" : "1-0 checkmate";
+        } else if (POSITION.halfmoveClock >= 100) {
+            return "1/2-1/2 fifty-move rule";
+        } else if (POSITION.repetitions() >= 3) {
+            return "1/2-1/2 threefold repetition";
+        } else if (isInsufficientMaterial()) {
+            return "1/2-1/2 insufficient material";
+        }
+        return null;
+    }
+
+    /**
+     * Are there only the kings left, or the kings and a bishop or a knight (so that random games end sooner)?
+     *
+     * @return {@code true} if neither side can mate
+     */
+    private boolean isInsufficientMaterial() {
+        int pieces = Long.bitCount(POSITION.occupied);
+        if (pieces > 3) {
+            return false;
+        }
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            if ((POSITION.PIECES[color * 6 + Position.PAWN] | POSITION.PIECES[color * 6 + Position.ROOK]
+                    | POSITION.PIECES[color * 6 + Position.QUEEN]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.examplecommands.chess;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The games of the chess server, one {@link ChessSession} per connection.
+ * <p>
+ * Sessions are opened and closed by the server thread, while the terminal can count them at any time, so the
+ * sessions are kept in a concurrent map and the counters are atomic.
+ *
+ * @author Macintosh_Fan
+ */
+final class ChessSessions {
+    /**
+     * The open sessions, by id.
+     */
+    private final Map<Long, ChessSession> SESSIONS = new ConcurrentHashMap<>();
+
+    /**
+     * The id of the last session that was opened.
+     */
+    private final AtomicLong LAST_ID = new AtomicLong();
+
+    /**
+     * The moves played in the sessions that were closed.
+     */
+    private final LongAdder CLOSED_MOVES = new LongAdder();
+
+    /**
+     * The most sessions that can be open at once.
+     */
+    private final int MAX_SESSIONS;
+
+    /**
+     * Constructs a session manager.
+     *
+     * @param maxSessions the most sessions that can be open at once
+     */
+    ChessSessions(int maxSessions) {
+        MAX_SESSIONS = maxSessions;
+    }
+
+    /**
+     * Opens a session with a new game.
+     *
+     * @return the session, or {@code null} if {@link #MAX_SESSIONS} sessions are already open
+     */
+    ChessSession open() {
+        if (SESSIONS.size() >= MAX_SESSIONS) {
+            return null;
+        }
+        ChessSession session = new ChessSession(LAST_ID.incrementAndGet());
+        SESSIONS.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Closes a session.
+     *
+     * @param session the session
+     */
+    void close(ChessSession session) {
+        if (SESSIONS.remove(session.getId()) != null) {
+            CLOSED_MOVES.add(session.getMoves());
+        }
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return the number of sessions
+     */
+    int size() {
+        return SESSIONS.size();
+    }
+
+    /**
+     * Gets the number of sessions that were ever opened.
+     *
+     * @return the number of sessions
+     */
+    long getOpened() {
+        return LAST_ID.get();
+    }
+
+    /**
+     * Gets the number of moves played in the sessions that were closed (the open ones are still being played, and
+     * are not read from another thread).
+     *
+     * @return the number of moves
+     */
+    long getClosedMoves() {
+        return CLOSED_MOVES.sum();
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.examplecommands.chess;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The statistics of the games of a PGN database.
+ * <p>
+ * Every task that validates part of a database fills its own statistics without any locking, and the statistics of
+ * all tasks are merged with {@link #merge(DatabaseStatistics)} at the end.
+ *
+ * @author Macintosh_Fan
+ */
+final class DatabaseStatistics {
+    /**
+     * The results that are counted, in the order they are reported.
+     */
+    static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2", "*"};
+
+    /**
+     * The number of moves that name an opening when the game has no Opening or ECO tag.
+     */
+    static final int OPENING_PLIES = 4;
+
+    /**
+     * The most illegal games kept for the report (all of them are counted).
+     */
+    private static final int MAX_REPORTS = 10;
+
+    /**
+     * The number of games by result (the last slot counts games without a known result).
+     */
+    private final long[] RESULT_COUNTS = new long[RESULTS.length + 1];
+
+    /**
+     * The number of games by opening.
+     */
+    private final Map<String, long[]> OPENINGS = new HashMap<>();
+
+    /**
+     * The first illegal games, as report lines.
+     */
+    private final List<String> ILLEGAL = new ArrayList<>();
+
+    /**
+     * The number of valid games.
+     */
+    private long games;
+
+    /**
+     * The number of moves played.
+     */
+    private long moves;
+
+    /**
+     * The number of games with an illegal move (or a bad starting position).
+     */
+    private long illegalGames;
+
+    /**
+     * Counts a valid game.
+     *
+     * @param result  the result of the game (may be null)
+     * @param opening the opening of the game
+     * @param plies   the number of legal moves of the game
+     */
+    void addGame(String result, String opening, int plies) {
+        games++;
+        moves += plies;
+        int index = RESULTS.length;
+        for (int i = 0; i < RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) {
+                index = i;
+                break;
+            }
+        }
+        RESULT_COUNTS[index]++;
+        OPENINGS.computeIfAbsent(opening, key -> new long[1])[0]++;
+    }
+
+    /**
+     * Counts a game with an illegal move.
+     *
+     * @param report what was wrong and where
+     */
+    void addIllegal(String report) {
+        illegalGames++;
+        if (ILLEGAL.size() < MAX_REPORTS) {
+            ILLEGAL.add(report);
+        }
+    }
+
+    /**
+     * Adds the statistics of other games to these.
+     *
+     * @param other the other statistics
+     * @return these statistics
+     */
+    DatabaseStatistics merge(DatabaseStatistics other) {
+        games += other.games;
+        moves += other.moves;
+        illegalGames += other.illegalGames;
+        for (int i = 0; i < RESULT_COUNTS.length; i++) {
+            RESULT_COUNTS[i] += other.RESULT_COUNTS[i];
+        }
+        for (Map.Entry<String, long[]> entry : other.OPENINGS.entrySet()) {
+            OPENINGS.computeIfAbsent(entry.getKey(), key -> new long[1])[0] += entry.getValue()[0];
+        }
+        for (String report : other.ILLEGAL) {
+            if (ILLEGAL.size() == MAX_REPORTS) {
+                break;
+            }
+            ILLEGAL.add(report);
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of games (valid or not).
+     *
+     * @return the number of games
+     */
+    long getGames() {
+        return games + illegalGames;
+    }
+
+    /**
+     * Gets the number of moves played.
+     *
+     * @return the number of moves
+     */
+    long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Prints the result distribution, the most common openings and the illegal games.
+     *
+     * @param openings the number of openings to print
+     * @param out      the stream to print to
+     */
+    void print(int openings, PrintStream out) {
+        out.printf("%,d games (%,d valid, %,d with illegal moves), %,d moves%n", games + illegalGames, games,
+                illegalGames, moves);
+        out.println("Results:");
+        for (int i = 0; i < RESULT_COUNTS.length; i++) {
+            out.printf("  %-8s %,12d (%5.1f%%)%n", i < RESULTS.length ? RESULTS[i] : "unknown", RESULT_COUNTS[i],
+                    games == 0 ? 0.0 : RESULT_COUNTS[i] * 100.0 / games);
+        }
+
+        out.println("Most common openings:");
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(OPENINGS.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (int i = 0; i < Math.min(openings, sorted.size()); i++) {
+            out.printf("  %,10d  %s%n", sorted.get(i).getValue()[0], sorted.get(i).getKey());
+        }
+
+        if (illegalGames > 0) {
+            out.println("Illegal games" + (illegalGames > ILLEGAL.size() ? " (first " + ILLEGAL.size() + ")" : "")
+                    + ":");
+            for (String report : ILLEGAL) {
+                out.println("  " + report);
+            }
+        }
+    }
+}
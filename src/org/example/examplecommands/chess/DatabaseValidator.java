@@ -0,0 +1,161 @@
+package org.example.examplecommands.chess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Replays and validates the games of some ranges of a PGN file on a fork/join pool.
+ * <p>
+ * A task with more than one range splits itself in two; a task with one range reads its games with its own
+ * {@link PgnReader} and {@link Position} into its own {@link DatabaseStatistics}, and the statistics are merged as
+ * the tasks are joined.
+ *
+ * @author Macintosh_Fan
+ */
+final class DatabaseValidator extends RecursiveTask<DatabaseStatistics> {
+    /**
+     * The version of the serialized form (tasks are never serialized, but {@link RecursiveTask} is serializable).
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The file (transient, since a channel can't be serialized).
+     */
+    private final transient FileChannel CHANNEL;
+
+    /**
+     * The offsets where the ranges start, followed by the size of the file (see {@link PgnReader#split}).
+     */
+    private final long[] BOUNDS;
+
+    /**
+     * The index of the first range of this task.
+     */
+    private final int FIRST;
+
+    /**
+     * The index after the last range of this task.
+     */
+    private final int LAST;
+
+    /**
+     * Constructs a task for every range of a file.
+     *
+     * @param channel the file
+     * @param bounds  the offsets where the ranges start, followed by the size of the file
+     */
+    DatabaseValidator(FileChannel channel, long[] bounds) {
+        this(channel, bounds, 0, bounds.length - 1);
+    }
+
+    /**
+     * Constructs a task for some ranges of a file.
+     *
+     * @param channel the file
+     * @param bounds  the offsets where the ranges start, followed by the size of the file
+     * @param first   the index of the first range
+     * @param last    the index after the last range
+     */
+    private DatabaseValidator(FileChannel channel, long[] bounds, int first, int last) {
+        CHANNEL = channel;
+        BOUNDS = bounds;
+        FIRST = first;
+        LAST = last;
+    }
+
+    /**
+     * Validates the ranges of this task.
+     *
+     * @return the statistics of their games
+     * @throws UncheckedIOException if the file can't be read
+     */
+    @Override
+    protected DatabaseStatistics compute() {
+        if (LAST - FIRST > 1) {
+            int middle = (FIRST + LAST) >>> 1;
+            DatabaseValidator right = new DatabaseValidator(CHANNEL, BOUNDS, middle, LAST);
+            right.fork();
+            DatabaseStatistics left = new DatabaseValidator(CHANNEL, BOUNDS, FIRST, middle).compute();
+            return left.merge(right.join());
+        }
+
+        DatabaseStatistics statistics = new DatabaseStatistics();
+        if (LAST == FIRST) {
+            return statistics;
+        }
+        try (PgnReader reader = new PgnReader(CHANNEL, BOUNDS[FIRST], BOUNDS[LAST])) {
+            Position position = new Position();
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            StringBuilder opening = new StringBuilder(32);
+            while (reader.nextGame()) {
+                validate(reader, position, moves, opening, statistics);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        return statistics;
+    }
+
+    /**
+     * Replays the game the reader has just read and counts it.
+     *
+     * @param reader     the reader
+     * @param position   a position to replay the game on
+     * @param moves      an array to generate moves into
+     * @param opening    a builder for the name of the opening
+     * @param statistics the statistics to count the game in
+     */
+    private static void validate(PgnReader reader, Position position, int[] moves, StringBuilder opening,
+                                 DatabaseStatistics statistics) {
+        String fen = reader.tag("FEN");
+        try {
+            position.setFen(fen == null ? Position.START_FEN : fen);
+        } catch (IllegalArgumentException iae) {
+            statistics.addIllegal(describe(reader) + ": " + iae.getMessage());
+            return;
+        }
+
+        opening.setLength(0);
+        char[] text = reader.moveText();
+        for (int i = 0; i < reader.moveCount(); i++) {
+            int start = reader.moveStart(i);
+            int end = reader.moveEnd(i);
+            int move = San.parse(position, text, start, end, moves);
+            if (move == Move.NONE) {
+                statistics.addIllegal(describe(reader) + ": move " + (i + 1) + " (" + reader.move(i)
+                        + ") is not legal");
+                return;
+            }
+            position.makeMove(move);
+            if (i < DatabaseStatistics.OPENING_PLIES) {
+                if (i > 0) {
+                    opening.append(' ');
+                }
+                opening.append(text, start, end - start);
+            }
+        }
+
+        String name = reader.tag("Opening");
+        if (name == null) {
+            name = reader.tag("ECO");
+        }
+        if (name == null) {
+            name = fen == null ? opening.toString() : "(from " + fen + ")";
+        }
+        String result = reader.result();
+        statistics.addGame(result != null ? result : reader.tag("Result"), name, reader.moveCount());
+    }
+
+    /**
+     * Describes the game the reader has just read, for reports.
+     *
+     * @param reader the reader
+     * @return the players and the offset of the game in the file
+     */
+    private static String describe(PgnReader reader) {
+        return String.format("game at byte %,d (%s - %s)", reader.gameOffset(), reader.tag("White"),
+                reader.tag("Black"));
+    }
+}
@@ -0,0 +1,394 @@
+package org.example.examplecommands.chess;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An endgame table: the exact result of every position of one material (such as "KQKR", white king and queen
+ * against black king and rook), with white as the stronger side.
+ * <p>
+ * A table has a byte for every index: {@code 0} for a draw (or an index that is not a position), otherwise the
+ * number of plies to mate plus one, where an odd number of plies means the side to move mates and an even number
+ * means it is mated. The index is made of the side to move, the white king square and the squares of the other
+ * pieces, 6 bits each. Positions are only stored in one of their symmetric forms: the white king is always on the
+ * a1-d1-d4 triangle (the board can be mirrored and turned 8 ways) or, when there are pawns, on files a to d (the
+ * board can only be mirrored left to right). The form with the lowest index is the one that is stored.
+ * <p>
+ * Castling, en passant and the fifty-move rule are not part of the tables.
+ *
+ * @author Macintosh_Fan
+ */
+final class EndgameTable {
+    /**
+     * The value of a draw.
+     */
+    static final int DRAW = 0;
+
+    /**
+     * The letters of the piece types other than the king, strongest first.
+     */
+    static final String ORDER = "QRBNP";
+
+    /**
+     * The piece types of the letters of {@link #ORDER}.
+     */
+    private static final int[] ORDER_TYPES = {Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT,
+            Position.PAWN};
+
+    /**
+     * The squares of the 8 symmetries of the board, by symmetry and square (the first 2 only mirror files).
+     */
+    private static final int[][] TRANSFORM = new int[8][64];
+
+    /**
+     * The index of the white king squares of tables without pawns (or {@code -1} for the other squares).
+     */
+    private static final int[] TRIANGLE = new int[64];
+
+    /**
+     * The index of the white king squares of tables with pawns (or {@code -1} for the other squares).
+     */
+    private static final int[] HALF = new int[64];
+
+    /**
+     * The squares of the indexes of {@link #TRIANGLE}.
+     */
+    private static final int[] TRIANGLE_SQUARES = new int[10];
+
+    /**
+     * The squares of the indexes of {@link #HALF}.
+     */
+    private static final int[] HALF_SQUARES = new int[32];
+
+    static {
+        for (int t = 0; t < 8; t++) {
+            for (int square = 0; square < 64; square++) {
+                int s = square;
+                if ((t & 1) != 0) {
+                    s ^= 7;
+                }
+                if ((t & 2) != 0) {
+                    s ^= 56;
+                }
+                if ((t & 4) != 0) {
+                    s = s >>> 3 | (s & 7) << 3;
+                }
+                TRANSFORM[t][square] = s;
+            }
+        }
+        int triangle = 0;
+        int half = 0;
+        for (int square = 0; square < 64; square++) {
+            int file = square % 8;
+            int rank = square / 8;
+            TRIANGLE[square] = -1;
+            HALF[square] = -1;
+            if (file < 4 && rank < 4 && rank <= file) {
+                TRIANGLE_SQUARES[triangle] = square;
+                TRIANGLE[square] = triangle++;
+            }
+            if (file < 4) {
+                HALF_SQUARES[half] = square;
+                HALF[square] = half++;
+            }
+        }
+    }
+
+    /**
+     * The name of the material, such as "KQKR".
+     */
+    private final String NAME;
+
+    /**
+     * The piece codes of the slots of the index: the white king, the black king, the other white pieces and the
+     * other black pieces (strongest first).
+     */
+    private final int[] PIECES;
+
+    /**
+     * Do the last two slots hold the same piece (so their squares are stored in order)?
+     */
+    private final boolean PAIR;
+
+    /**
+     * Are there pawns?
+     */
+    private final boolean PAWNS;
+
+    /**
+     * The indexes of the white king squares.
+     */
+    private final int[] KING_INDEX;
+
+    /**
+     * The white king squares of the indexes.
+     */
+    private final int[] KING_SQUARES;
+
+    /**
+     * The number of symmetries that are used.
+     */
+    private final int SYMMETRIES;
+
+    /**
+     * The number of indexes.
+     */
+    private final int SIZE;
+
+    /**
+     * The mapped values, or {@code null} if the table is being generated.
+     */
+    private final MappedByteBuffer VALUES;
+
+    /**
+     * Constructs a table that has no values yet.
+     *
+     * @param name the name of the material (see {@link #name(String, String)})
+     * @throws IllegalArgumentException if the name is not a material
+     */
+    EndgameTable(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Constructs a table.
+     *
+     * @param name   the name of the material
+     * @param values the mapped values, or {@code null}
+     * @throws IllegalArgumentException if the name is not a material
+     */
+    private EndgameTable(String name, MappedByteBuffer values) {
+        NAME = name;
+        int secondKing = name.indexOf('K', 1);
+        if (!name.startsWith("K") || secondKing == -1 || name.length() < 3 || name.length() > Tablebases.MAX_PIECES
+                || !isSorted(name.substring(1, secondKing)) || !isSorted(name.substring(secondKing + 1))
+                || !name.equals(name(name.substring(1, secondKing), name.substring(secondKing + 1)))) {
+            throw new IllegalArgumentException("Not a table: " + name);
+        }
+
+        PIECES = new int[name.length()];
+        PIECES[0] = Position.WHITE * 6 + Position.KING;
+        PIECES[1] = Position.BLACK * 6 + Position.KING;
+        int slot = 2;
+        boolean pawns = false;
+        for (int i = 1; i < name.length(); i++) {
+            int order = ORDER.indexOf(name.charAt(i));
+            if (order == -1) {
+                continue;
+            }
+            int color = i < secondKing ? Position.WHITE : Position.BLACK;
+            PIECES[slot++] = color * 6 + ORDER_TYPES[order];
+            pawns |= ORDER_TYPES[order] == Position.PAWN;
+        }
+        PAIR = PIECES.length == 4 && PIECES[2] == PIECES[3];
+        PAWNS = pawns;
+        KING_INDEX = PAWNS ? HALF : TRIANGLE;
+        KING_SQUARES = PAWNS ? HALF_SQUARES : TRIANGLE_SQUARES;
+        SYMMETRIES = PAWNS ? 2 : 8;
+        SIZE = 2 * KING_SQUARES.length << 6 * (PIECES.length - 1);
+        VALUES = values;
+    }
+
+    /**
+     * Opens a table file.
+     *
+     * @param name the name of the material
+     * @param file the file
+     * @return the table
+     * @throws IOException              if the file can't be mapped or doesn't have the size of the table
+     * @throws IllegalArgumentException if the name is not a material
+     */
+    static EndgameTable open(String name, Path file) throws IOException {
+        int size = new EndgameTable(name).SIZE;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != size) {
+                throw new IOException(file + " is not a " + name + " table");
+            }
+            return new EndgameTable(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Gets the name of the material of two sides, with the stronger side as white.
+     *
+     * @param white the letters of the white pieces other than the king, in the order of {@link #ORDER}
+     * @param black the letters of the black pieces other than the king, in the order of {@link #ORDER}
+     * @return the name, such as "KQKR"
+     */
+    static String name(String white, String black) {
+        return isStronger(black, white) ? "K" + black + "K" + white : "K" + white + "K" + black;
+    }
+
+    /**
+     * Is one side stronger than the other (more pieces, or stronger pieces)?
+     *
+     * @param a the letters of the pieces of one side, in the order of {@link #ORDER}
+     * @param b the letters of the pieces of the other side, in the order of {@link #ORDER}
+     * @return {@code true} if a is stronger than b
+     */
+    static boolean isStronger(String a, String b) {
+        if (a.length() != b.length()) {
+            return a.length() > b.length();
+        }
+        for (int i = 0; i < a.length(); i++) {
+            int difference = ORDER.indexOf(a.charAt(i)) - ORDER.indexOf(b.charAt(i));
+            if (difference != 0) {
+                return difference < 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Are letters pieces in the order of {@link #ORDER}?
+     *
+     * @param letters the letters
+     * @return {@code true} if every letter is a piece and none comes before the one in front of it
+     */
+    private static boolean isSorted(String letters) {
+        int last = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            int order = ORDER.indexOf(letters.charAt(i));
+            if (order < last) {
+                return false;
+            }
+            last = order;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the letters of the pieces of a side other than the king.
+     *
+     * @param position the position
+     * @param color    the side
+     * @return the letters, in the order of {@link #ORDER}
+     */
+    static String letters(Position position, int color) {
+        StringBuilder letters = new StringBuilder(Tablebases.MAX_PIECES);
+        for (int i = 0; i < ORDER_TYPES.length; i++) {
+            for (int count = Long.bitCount(position.PIECES[color * 6 + ORDER_TYPES[i]]); count > 0; count--) {
+                letters.append(ORDER.charAt(i));
+            }
+        }
+        return letters.toString();
+    }
+
+    /**
+     * Gets the name of the material.
+     *
+     * @return the name
+     */
+    String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the number of pieces (kings included).
+     *
+     * @return the number of pieces
+     */
+    int pieceCount() {
+        return PIECES.length;
+    }
+
+    /**
+     * Gets the piece codes of the slots of the index.
+     *
+     * @return the piece codes (not a copy)
+     */
+    int[] pieces() {
+        return PIECES;
+    }
+
+    /**
+     * Gets the number of indexes.
+     *
+     * @return the size in bytes
+     */
+    int size() {
+        return SIZE;
+    }
+
+    /**
+     * Gets the value of an index.
+     *
+     * @param index the index
+     * @return {@link #DRAW}, or the number of plies to mate plus one
+     */
+    int value(int index) {
+        return VALUES.get(index) & 0xFF;
+    }
+
+    /**
+     * Gets the index of a position, in the symmetric form that is stored.
+     *
+     * @param squares    the squares of the pieces of the slots
+     * @param sideToMove the side to move
+     * @return the index
+     */
+    int index(int[] squares, int sideToMove) {
+        int best = Integer.MAX_VALUE;
+        for (int t = 0; t < SYMMETRIES; t++) {
+            int[] transform = TRANSFORM[t];
+            int king = KING_INDEX[transform[squares[0]]];
+            if (king == -1) {
+                continue;
+            }
+            int index = (sideToMove * KING_SQUARES.length + king) << 6 | transform[squares[1]];
+            if (PAIR) {
+                int a = transform[squares[2]];
+                int b = transform[squares[3]];
+                index = (index << 6 | Math.min(a, b)) << 6 | Math.max(a, b);
+            } else {
+                for (int i = 2; i < PIECES.length; i++) {
+                    index = index << 6 | transform[squares[i]];
+                }
+            }
+            best = Math.min(best, index);
+        }
+        return best;
+    }
+
+    /**
+     * Gets the index of a position of this material.
+     *
+     * @param position the position
+     * @param flip     are the colors of the position swapped (and the board turned) to match the table?
+     * @param squares  an array for the squares of the pieces of the slots (at least {@link #pieceCount()} long)
+     * @return the index
+     */
+    int index(Position position, boolean flip, int[] squares) {
+        for (int i = 0; i < PIECES.length; i++) {
+            int piece = PIECES[i];
+            if (i > 0 && PIECES[i - 1] == piece) {
+                continue;
+            }
+            long bits = position.PIECES[flip ? (piece + 6) % 12 : piece];
+            for (int j = i; bits != 0; j++, bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                squares[j] = flip ? square ^ 56 : square;
+            }
+        }
+        return index(squares, flip ? position.sideToMove ^ 1 : position.sideToMove);
+    }
+
+    /**
+     * Gets the position of an index.
+     *
+     * @param index   the index
+     * @param squares the array to write the squares of the pieces of the slots to
+     * @return the side to move
+     */
+    int decode(int index, int[] squares) {
+        for (int i = PIECES.length - 1; i > 0; i--) {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        squares[0] = KING_SQUARES[index % KING_SQUARES.length];
+        return index / KING_SQUARES.length;
+    }
+}
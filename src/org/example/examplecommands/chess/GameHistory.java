@@ -0,0 +1,216 @@
+package org.example.examplecommands.chess;
+
+import java.util.Arrays;
+
+/**
+ * The history of a game: undo and redo on top of the move records of a {@link Position}, and a count of how often
+ * each position has occurred.
+ * <p>
+ * Undoing a move only takes back its record in the position (nothing is copied), and the move is kept so that it
+ * can be redone until another move is played. The counts are kept in an open-addressing table of {@link Zobrist}
+ * keys that is updated as moves are played and undone, so finding a threefold repetition takes the same time
+ * however long the game is. The table and the redo stack are allocated once.
+ *
+ * @author Macintosh_Fan
+ */
+final class GameHistory {
+    /**
+     * The size of the count table (a power of two, so that it is at most half full).
+     */
+    private static final int TABLE_SIZE = Position.MAX_PLY * 4;
+
+    /**
+     * The most moves that can be undone. The other move records of the position are left for moves that are played
+     * and taken back right away (like the legality checks of the move generator), so they never make it forget a move
+     * of the game.
+     */
+    private static final int MAX_MOVES = Position.MAX_PLY - 64;
+
+    /**
+     * The position the oldest move that can be undone was played from.
+     */
+    private final Position FIRST = new Position();
+
+    /**
+     * The moves that were undone, the next one to redo last.
+     */
+    private final int[] REDO = new int[Position.MAX_PLY];
+
+    /**
+     * The keys of the count table.
+     */
+    private final long[] KEYS = new long[TABLE_SIZE];
+
+    /**
+     * How often the position of each key of the count table has occurred ({@code 0} for an empty slot).
+     */
+    private final int[] COUNTS = new int[TABLE_SIZE];
+
+    /**
+     * The number of moves that can be redone.
+     */
+    private int redoCount;
+
+    /**
+     * Starts the history of a game.
+     *
+     * @param position the position the game starts from (just set up)
+     */
+    void reset(Position position) {
+        FIRST.copyFrom(position);
+        redoCount = 0;
+        Arrays.fill(COUNTS, 0);
+        add(position.key);
+    }
+
+    /**
+     * Plays a new move (the moves that were undone can't be redone anymore).
+     *
+     * @param position the position
+     * @param move     the legal move
+     */
+    void play(Position position, int move) {
+        redoCount = 0;
+        makeMove(position, move);
+    }
+
+    /**
+     * Undoes the last move.
+     *
+     * @param position the position
+     * @return {@code false} if there is no move to undo
+     */
+    boolean undo(Position position) {
+        if (position.ply == position.firstPly) {
+            return false;
+        }
+        REDO[redoCount++] = position.lastMove();
+        remove(position.key);
+        position.unmakeMove();
+        return true;
+    }
+
+    /**
+     * Redoes the last move that was undone.
+     *
+     * @param position the position
+     * @return {@code false} if there is no move to redo
+     */
+    boolean redo(Position position) {
+        if (redoCount == 0) {
+            return false;
+        }
+        makeMove(position, REDO[--redoCount]);
+        return true;
+    }
+
+    /**
+     * Gets the number of moves that can be redone.
+     *
+     * @return the number of moves
+     */
+    int getRedoCount() {
+        return redoCount;
+    }
+
+    /**
+     * Gets a move that can be redone.
+     *
+     * @param index the index of the move ({@code 0} is the next one to redo)
+     * @return the move
+     */
+    int redoMove(int index) {
+        return REDO[redoCount - 1 - index];
+    }
+
+    /**
+     * Gets the position the oldest move that can be undone was played from.
+     *
+     * @return the position (not a copy)
+     */
+    Position getFirst() {
+        return FIRST;
+    }
+
+    /**
+     * Gets how often the current position has occurred, with the same side to move, castling rights and en passant
+     * square.
+     *
+     * @param position the position
+     * @return the number of times, counting this one
+     */
+    int repetitions(Position position) {
+        for (int slot = slot(position.key); COUNTS[slot] != 0; slot = slot + 1 & TABLE_SIZE - 1) {
+            if (KEYS[slot] == position.key) {
+                return COUNTS[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Plays a move and counts the new position. If {@link #MAX_MOVES} moves can already be undone, the oldest one is
+     * forgotten and its position stops being counted.
+     *
+     * @param position the position
+     * @param move     the legal move
+     */
+    private void makeMove(Position position, int move) {
+        if (position.ply - position.firstPly == MAX_MOVES) {
+            remove(FIRST.key);
+            FIRST.makeMove(position.moveAt(position.firstPly));
+            position.forgetOldestMove();
+        }
+        position.makeMove(move);
+        add(position.key);
+    }
+
+    /**
+     * Gets the first slot of a key in the count table.
+     *
+     * @param key the key
+     * @return the slot
+     */
+    private static int slot(long key) {
+        return (int) (key ^ key >>> 32) & TABLE_SIZE - 1;
+    }
+
+    /**
+     * Counts a position.
+     *
+     * @param key the key of the position
+     */
+    private void add(long key) {
+        int slot = slot(key);
+        while (COUNTS[slot] != 0 && KEYS[slot] != key) {
+            slot = slot + 1 & TABLE_SIZE - 1;
+        }
+        KEYS[slot] = key;
+        COUNTS[slot]++;
+    }
+
+    /**
+     * Stops counting a position once. A slot that becomes empty is filled by shifting back the keys after it.
+     *
+     * @param key the key of the position (which must be counted)
+     */
+    private void remove(long key) {
+        int hole = slot(key);
+        while (KEYS[hole] != key || COUNTS[hole] == 0) {
+            hole = hole + 1 & TABLE_SIZE - 1;
+        }
+        if (--COUNTS[hole] > 0) {
+            return;
+        }
+
+        for (int slot = hole + 1 & TABLE_SIZE - 1; COUNTS[slot] != 0; slot = slot + 1 & TABLE_SIZE - 1) {
+            int home = slot(KEYS[slot]);
+            if ((slot - home & TABLE_SIZE - 1) >= (slot - hole & TABLE_SIZE - 1)) {
+                KEYS[hole] = KEYS[slot];
+                COUNTS[hole] = COUNTS[slot];
+                COUNTS[slot] = 0;
+                hole = slot;
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.examplecommands.chess;
+
+/**
+ * Helper methods for Chess moves packed into an {@code int}.
+ * <p>
+ * Bits 0-5 hold the square the piece moves from, bits 6-11 the square it moves to, bits 12-14 the piece type a
+ * pawn promotes to ({@code 0} if none) and bits 15-16 the kind of move ({@link #NORMAL}, {@link #EN_PASSANT} or
+ * {@link #CASTLING}). Squares are numbered from a1 ({@code 0}) to h8 ({@code 63}), rank by rank.
+ *
+ * @author Macintosh_Fan
+ */
+final class Move {
+    /**
+     * The "no move" value.
+     */
+    static final int NONE = 0;
+
+    /**
+     * A normal move or capture (including promotions).
+     */
+    static final int NORMAL = 0;
+
+    /**
+     * An en passant capture.
+     */
+    static final int EN_PASSANT = 1;
+
+    /**
+     * A castling move (stored as the king's move).
+     */
+    static final int CASTLING = 2;
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private Move() {
+    }
+
+    /**
+     * Packs a normal move.
+     *
+     * @param from the square the piece moves from
+     * @param to   the square the piece moves to
+     * @return the move
+     */
+    static int of(int from, int to) {
+        return from | to << 6;
+    }
+
+    /**
+     * Packs a move.
+     *
+     * @param from      the square the piece moves from
+     * @param to        the square the piece moves to
+     * @param kind      the kind of move ({@link #NORMAL}, {@link #EN_PASSANT} or {@link #CASTLING})
+     * @param promotion the piece type a pawn promotes to, or {@code 0}
+     * @return the move
+     */
+    static int of(int from, int to, int kind, int promotion) {
+        return from | to << 6 | promotion << 12 | kind << 15;
+    }
+
+    /**
+     * Gets the square the piece moves from.
+     *
+     * @param move the move
+     * @return the square the piece moves from
+     */
+    static int from(int move) {
+        return move & 63;
+    }
+
+    /**
+     * Gets the square the piece moves to.
+     *
+     * @param move the move
+     * @return the square the piece moves to
+     */
+    static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    /**
+     * Gets the piece type a pawn promotes to.
+     *
+     * @param move the move
+     * @return the piece type, or {@code 0} if the move is not a promotion
+     */
+    static int promotion(int move) {
+        return move >>> 12 & 7;
+    }
+
+    /**
+     * Gets the kind of move.
+     *
+     * @param move the move
+     * @return {@link #NORMAL}, {@link #EN_PASSANT} or {@link #CASTLING}
+     */
+    static int kind(int move) {
+        return move >>> 15 & 3;
+    }
+
+    /**
+     * Gets the name of a square.
+     *
+     * @param square the square
+     * @return the name of the square (eg: e4)
+     */
+    static String squareName(int square) {
+        return new String(new char[]{(char) ('a' + (square & 7)), (char) ('1' + (square >>> 3))});
+    }
+
+    /**
+     * Parses the name of a square.
+     *
+     * @param name the name (eg: e4)
+     * @return the square, or {@code -1} if the name is not a square
+     */
+    static int parseSquare(CharSequence name) {
+        if (name.length() != 2) {
+            return -1;
+        }
+        int file = name.charAt(0) - 'a';
+        int rank = name.charAt(1) - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            return -1;
+        }
+        return rank * 8 + file;
+    }
+
+    /**
+     * Returns the move in coordinate notation (eg: e2e4, or e7e8q for a promotion).
+     *
+     * @param move the move
+     * @return the move in coordinate notation
+     */
+    static String toString(int move) {
+        String coordinates = squareName(from(move)) + squareName(to(move));
+        if (promotion(move) == 0) {
+            return coordinates;
+        }
+        return coordinates + "pnbrqk".charAt(promotion(move));
+    }
+}
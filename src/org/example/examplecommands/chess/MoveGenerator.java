@@ -0,0 +1,286 @@
+package org.example.examplecommands.chess;
+
+/**
+ * Generates the legal moves of a position.
+ * <p>
+ * Moves are written into arrays supplied by the caller, so generating moves allocates nothing. Most moves are
+ * known to be legal without playing them: only king moves, en passant captures, moves of pinned pieces and moves
+ * made while in check are played and undone to see if they leave the king attacked.
+ *
+ * @author Macintosh_Fan
+ */
+final class MoveGenerator {
+    /**
+     * The maximum number of legal moves in any Chess position is 218, so this is always enough room.
+     */
+    static final int MAX_MOVES = 256;
+
+    /**
+     * The squares of rank 1 and rank 8.
+     */
+    private static final long PROMOTION_RANKS = 0xFF000000000000FFL;
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private MoveGenerator() {
+    }
+
+    /**
+     * Generates the legal moves of a position.
+     *
+     * @param position the position (changed during generation, but restored)
+     * @param moves    the array to write the moves to (at least {@link #MAX_MOVES} long)
+     * @return the number of moves
+     */
+    static int generateLegal(Position position, int[] moves) {
+        int us = position.sideToMove;
+        int king = position.kingSquare(us);
+        long pinned = pinned(position, us, king);
+        boolean inCheck = isAttacked(position, king, us ^ 1);
+        int count = generatePseudoLegal(position, moves, inCheck);
+
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            if (!inCheck && from != king && (pinned & 1L << from) == 0 && Move.kind(move) != Move.EN_PASSANT) {
+                moves[legal++] = move;
+                continue;
+            }
+
+            position.makeMove(move);
+            if (!isAttacked(position, position.kingSquare(us), us ^ 1)) {
+                moves[legal++] = move;
+            }
+            position.unmakeMove();
+        }
+        return legal;
+    }
+
+    /**
+     * Finds the legal move from one square to another.
+     *
+     * @param position  the position
+     * @param from      the square the piece moves from
+     * @param to        the square the piece moves to
+     * @param promotion the piece type to promote to, if the move is a promotion
+     * @return the move, or {@link Move#NONE} if there is no such legal move
+     */
+    static int findLegalMove(Position position, int from, int to, int promotion) {
+        int[] moves = new int[MAX_MOVES];
+        int count = generateLegal(position, moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (Move.promotion(move) == 0 || Move.promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Is the side to move in check?
+     *
+     * @param position the position
+     * @return {@code true} if the king of the side to move is attacked
+     */
+    static boolean inCheck(Position position) {
+        return isAttacked(position, position.kingSquare(position.sideToMove), position.sideToMove ^ 1);
+    }
+
+    /**
+     * Is a square attacked by a side?
+     *
+     * @param position the position
+     * @param square   the square
+     * @param by       the attacking side
+     * @return {@code true} if a piece of the side attacks the square
+     */
+    static boolean isAttacked(Position position, int square, int by) {
+        long[] pieces = position.PIECES;
+        int offset = by * 6;
+        long queens = pieces[offset + Position.QUEEN];
+        return (Attacks.PAWN[by ^ 1][square] & pieces[offset + Position.PAWN]) != 0
+                || (Attacks.KNIGHT[square] & pieces[offset + Position.KNIGHT]) != 0
+                || (Attacks.KING[square] & pieces[offset + Position.KING]) != 0
+                || (Attacks.bishop(square, position.occupied) & (pieces[offset + Position.BISHOP] | queens)) != 0
+                || (Attacks.rook(square, position.occupied) & (pieces[offset + Position.ROOK] | queens)) != 0;
+    }
+
+    /**
+     * Gets the pieces of a side that are pinned to its king.
+     *
+     * @param position the position
+     * @param us       the side
+     * @param king     the square of the side's king
+     * @return the bitboard of pinned pieces
+     */
+    private static long pinned(Position position, int us, int king) {
+        long[] pieces = position.PIECES;
+        int them = (us ^ 1) * 6;
+        long theirPieces = position.COLORS[us ^ 1];
+        long queens = pieces[them + Position.QUEEN];
+        long pinners = (Attacks.rook(king, theirPieces) & (pieces[them + Position.ROOK] | queens))
+                | (Attacks.bishop(king, theirPieces) & (pieces[them + Position.BISHOP] | queens));
+        long pinned = 0;
+        while (pinners != 0) {
+            long blockers = Attacks.BETWEEN[king][Long.numberOfTrailingZeros(pinners)] & position.occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & position.COLORS[us];
+            }
+            pinners &= pinners - 1;
+        }
+        return pinned;
+    }
+
+    /**
+     * Generates the moves of a position that follow the piece rules, but might leave the king attacked.
+     *
+     * @param position the position
+     * @param moves    the array to write the moves to
+     * @param inCheck  is the side to move in check? (it may not castle then)
+     * @return the number of moves
+     */
+    private static int generatePseudoLegal(Position position, int[] moves, boolean inCheck) {
+        int us = position.sideToMove;
+        int offset = us * 6;
+        long[] pieces = position.PIECES;
+        long ours = position.COLORS[us];
+        long occupied = position.occupied;
+        long targets = ~ours;
+        int count = generatePawnMoves(position, moves, 0);
+
+        long knights = pieces[offset + Position.KNIGHT];
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            count = addMoves(moves, count, from, Attacks.KNIGHT[from] & targets);
+            knights &= knights - 1;
+        }
+
+        long diagonal = pieces[offset + Position.BISHOP] | pieces[offset + Position.QUEEN];
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            count = addMoves(moves, count, from, Attacks.bishop(from, occupied) & targets);
+            diagonal &= diagonal - 1;
+        }
+
+        long straight = pieces[offset + Position.ROOK] | pieces[offset + Position.QUEEN];
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            count = addMoves(moves, count, from, Attacks.rook(from, occupied) & targets);
+            straight &= straight - 1;
+        }
+
+        int king = position.kingSquare(us);
+        count = addMoves(moves, count, king, Attacks.KING[king] & targets);
+
+        if (!inCheck && position.castlingRights != 0 && king == (us == Position.WHITE ? 4 : 60)) {
+            int rights = position.castlingRights >>> (us * 2);
+            int rook = offset + Position.ROOK;
+            if ((rights & Position.WHITE_KINGSIDE) != 0 && position.pieceAt(king + 3) == rook
+                    && (occupied & (3L << (king + 1))) == 0
+                    && !isAttacked(position, king + 1, us ^ 1) && !isAttacked(position, king + 2, us ^ 1)) {
+                moves[count++] = Move.of(king, king + 2, Move.CASTLING, 0);
+            }
+            if ((rights & Position.WHITE_QUEENSIDE) != 0 && position.pieceAt(king - 4) == rook
+                    && (occupied & (7L << (king - 3))) == 0
+                    && !isAttacked(position, king - 1, us ^ 1) && !isAttacked(position, king - 2, us ^ 1)) {
+                moves[count++] = Move.of(king, king - 2, Move.CASTLING, 0);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generates the pawn moves of the side to move.
+     *
+     * @param position the position
+     * @param moves    the array to write the moves to
+     * @param count    the number of moves already in the array
+     * @return the new number of moves
+     */
+    private static int generatePawnMoves(Position position, int[] moves, int count) {
+        int us = position.sideToMove;
+        long pawns = position.PIECES[us * 6 + Position.PAWN];
+        long empty = ~position.occupied;
+        long theirs = position.COLORS[us ^ 1];
+        long singlePushes;
+        long doublePushes;
+        int forward;
+        if (us == Position.WHITE) {
+            singlePushes = (pawns << 8) & empty;
+            doublePushes = ((singlePushes & 0xFF0000L) << 8) & empty;
+            forward = 8;
+        } else {
+            singlePushes = (pawns >>> 8) & empty;
+            doublePushes = ((singlePushes & 0xFF0000000000L) >>> 8) & empty;
+            forward = -8;
+        }
+
+        while (singlePushes != 0) {
+            int to = Long.numberOfTrailingZeros(singlePushes);
+            count = addPawnMove(moves, count, to - forward, to);
+            singlePushes &= singlePushes - 1;
+        }
+        while (doublePushes != 0) {
+            int to = Long.numberOfTrailingZeros(doublePushes);
+            moves[count++] = Move.of(to - 2 * forward, to);
+            doublePushes &= doublePushes - 1;
+        }
+
+        int enPassant = position.enPassantSquare;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            long captures = Attacks.PAWN[us][from] & theirs;
+            while (captures != 0) {
+                count = addPawnMove(moves, count, from, Long.numberOfTrailingZeros(captures));
+                captures &= captures - 1;
+            }
+            if (enPassant != -1 && (Attacks.PAWN[us][from] & 1L << enPassant) != 0) {
+                moves[count++] = Move.of(from, enPassant, Move.EN_PASSANT, 0);
+            }
+            pawns &= pawns - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Adds a pawn move, or its four promotions if it reaches the last rank.
+     *
+     * @param moves the array to write the moves to
+     * @param count the number of moves already in the array
+     * @param from  the square the pawn moves from
+     * @param to    the square the pawn moves to
+     * @return the new number of moves
+     */
+    private static int addPawnMove(int[] moves, int count, int from, int to) {
+        if ((PROMOTION_RANKS & 1L << to) != 0) {
+            moves[count++] = Move.of(from, to, Move.NORMAL, Position.QUEEN);
+            moves[count++] = Move.of(from, to, Move.NORMAL, Position.ROOK);
+            moves[count++] = Move.of(from, to, Move.NORMAL, Position.BISHOP);
+            moves[count++] = Move.of(from, to, Move.NORMAL, Position.KNIGHT);
+        } else {
+            moves[count++] = Move.of(from, to);
+        }
+        return count;
+    }
+
+    /**
+     * Adds a move to every target square.
+     *
+     * @param moves   the array to write the moves to
+     * @param count   the number of moves already in the array
+     * @param from    the square the piece moves from
+     * @param targets the bitboard of target squares
+     * @return the new number of moves
+     */
+    private static int addMoves(int[] moves, int count, int from, long targets) {
+        while (targets != 0) {
+            moves[count++] = Move.of(from, Long.numberOfTrailingZeros(targets));
+            targets &= targets - 1;
+        }
+        return count;
+    }
+}
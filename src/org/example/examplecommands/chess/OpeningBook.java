@@ -0,0 +1,179 @@
+package org.example.examplecommands.chess;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A read-only opening book, memory-mapped from a file.
+ * <p>
+ * The file has the layout of a Polyglot book: 16-byte big-endian records of a position key (8 bytes), a move
+ * (2 bytes), a weight (2 bytes) and 4 unused bytes, sorted by key (compared unsigned). The keys are the
+ * {@link Zobrist} keys of this program, not the Polyglot ones. A move is stored as the square it goes to (bits
+ * 0-5), the square it comes from (bits 6-11) and the promotion piece type (bits 12-14); castling is stored as the
+ * king move.
+ * <p>
+ * Opening a book only maps the file, so it takes the same time for any size and copies nothing to the heap; moves
+ * are looked up by a binary search directly in the mapped file.
+ *
+ * @author Macintosh_Fan
+ */
+final class OpeningBook {
+    /**
+     * The size of a record in bytes.
+     */
+    static final int RECORD_SIZE = 16;
+
+    /**
+     * The most moves of one position that are looked at.
+     */
+    static final int MAX_BOOK_MOVES = 64;
+
+    /**
+     * The file.
+     */
+    private final Path PATH;
+
+    /**
+     * The mapped file.
+     */
+    private final MappedByteBuffer BUFFER;
+
+    /**
+     * The number of records.
+     */
+    private final int COUNT;
+
+    /**
+     * Opens a book.
+     *
+     * @param path the file
+     * @throws IOException if the file can't be mapped, is larger than 2 GB or is not made of whole records
+     */
+    OpeningBook(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % RECORD_SIZE != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("not a book file");
+            }
+            PATH = path;
+            BUFFER = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            COUNT = (int) (size / RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Gets the file of the book.
+     *
+     * @return the file
+     */
+    Path getPath() {
+        return PATH;
+    }
+
+    /**
+     * Gets the number of records.
+     *
+     * @return the number of records
+     */
+    int size() {
+        return COUNT;
+    }
+
+    /**
+     * Finds the legal book moves of a position.
+     *
+     * @param position the position
+     * @param moves    the array to write the moves to (at least {@link #MAX_BOOK_MOVES} long)
+     * @param weights  the array to write the weights to (at least {@link #MAX_BOOK_MOVES} long)
+     * @return the number of moves
+     */
+    int lookup(Position position, int[] moves, int[] weights) {
+        long key = position.key;
+        int low = 0;
+        int high = COUNT;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(BUFFER.getLong(middle * RECORD_SIZE), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int count = 0;
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int legalCount = -1;
+        for (int i = low; i < COUNT && count < MAX_BOOK_MOVES && BUFFER.getLong(i * RECORD_SIZE) == key; i++) {
+            int encoded = BUFFER.getShort(i * RECORD_SIZE + 8) & 0xFFFF;
+            if (legalCount == -1) {
+                legalCount = MoveGenerator.generateLegal(position, legal);
+            }
+            int move = decode(encoded, legal, legalCount);
+            if (move != Move.NONE) {
+                moves[count] = move;
+                weights[count++] = BUFFER.getShort(i * RECORD_SIZE + 10) & 0xFFFF;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Picks a book move at random, in proportion to the weights.
+     *
+     * @param position the position
+     * @param random   the random number generator
+     * @return the move, or {@link Move#NONE} if the position is not in the book
+     */
+    int pick(Position position, Random random) {
+        int[] moves = new int[MAX_BOOK_MOVES];
+        int[] weights = new int[MAX_BOOK_MOVES];
+        int count = lookup(position, moves, weights);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += Math.max(1, weights[i]);
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+
+        long choice = (long) (random.nextDouble() * total);
+        for (int i = 0; i < count; i++) {
+            choice -= Math.max(1, weights[i]);
+            if (choice < 0) {
+                return moves[i];
+            }
+        }
+        return moves[count - 1];
+    }
+
+    /**
+     * Encodes a move for the book.
+     *
+     * @param move the move
+     * @return the 16-bit book move
+     */
+    static int encode(int move) {
+        return Move.to(move) | Move.from(move) << 6 | Move.promotion(move) << 12;
+    }
+
+    /**
+     * Finds the legal move of a book move.
+     *
+     * @param encoded the 16-bit book move
+     * @param legal   the legal moves of the position
+     * @param count   the number of legal moves
+     * @return the move, or {@link Move#NONE} if it is not legal
+     */
+    private static int decode(int encoded, int[] legal, int count) {
+        for (int i = 0; i < count; i++) {
+            if (encode(legal[i]) == encoded) {
+                return legal[i];
+            }
+        }
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.examplecommands.chess;
+
+import java.io.PrintStream;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Searches a position with several threads at once ("Lazy SMP").
+ * <p>
+ * Every thread runs its own {@link Search} of the same root on its own copy of the position, and all of them share
+ * one {@link TranspositionTable}. The threads don't talk to each other any other way: a helper that finishes a
+ * subtree first leaves its result in the table, and the others find it there instead of searching it again. Odd
+ * helpers start one depth deeper, so the threads spread over different depths. The main thread decides the move
+ * and the helpers are stopped when it is done.
+ *
+ * @author Macintosh_Fan
+ */
+final class ParallelSearch {
+    /**
+     * The most threads a search can use.
+     */
+    static final int MAX_THREADS = 256;
+
+    /**
+     * The size of the table of every benchmark run, in megabytes.
+     */
+    private static final int BENCHMARK_HASH_SIZE = 64;
+
+    /**
+     * The table of search results shared by all threads.
+     */
+    private final TranspositionTable TABLE;
+
+    /**
+     * The searches of every thread (the first one runs on the calling thread).
+     */
+    private final Search[] SEARCHES;
+
+    /**
+     * The time the last search took, in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Constructs a parallel search.
+     *
+     * @param table   the table of search results
+     * @param threads the number of threads (1 to {@link #MAX_THREADS})
+     * @throws IllegalArgumentException if the number of threads is out of range
+     */
+    ParallelSearch(TranspositionTable table, int threads) {
+        if (threads < 1 || threads > MAX_THREADS) {
+            throw new IllegalArgumentException("The number of threads must be between 1 and " + MAX_THREADS);
+        }
+        TABLE = table;
+        SEARCHES = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            SEARCHES[i] = new Search(table);
+        }
+    }
+
+    /**
+     * Searches a position until a depth is reached, the time is up or the search is cancelled.
+     *
+     * @param root           the position to search (not changed)
+     * @param maxDepth       the deepest iteration (1 to {@link Search#MAX_DEPTH})
+     * @param moveTimeMillis the time to search in milliseconds, or {@code 0} for no limit
+     * @param cancelled      tells if the invocation that started the search has been cancelled
+     * @param out            the stream to report every iteration of the main thread to (may be null)
+     * @return the best move, or {@link Move#NONE} if the position has no legal moves
+     */
+    int search(Position root, int maxDepth, long moveTimeMillis, BooleanSupplier cancelled, PrintStream out) {
+        long start = System.nanoTime();
+        TABLE.newSearch();
+        for (Search search : SEARCHES) {
+            search.prepare(cancelled);
+        }
+
+        Thread[] helpers = new Thread[SEARCHES.length - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = SEARCHES[i + 1];
+            int firstDepth = 1 + (i + 1) % 2;
+            helpers[i] = new Thread(() -> helper.search(root, firstDepth, maxDepth, moveTimeMillis, null),
+                    "chess-helper-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        int move = SEARCHES[0].search(root, maxDepth, moveTimeMillis, out);
+        for (int i = 1; i < SEARCHES.length; i++) {
+            SEARCHES[i].stop();
+        }
+        boolean interrupted = false;
+        for (Thread helper : helpers) {
+            while (true) {
+                try {
+                    helper.join();
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        if (out != null && helpers.length > 0) {
+            out.printf("info threads %d nodes %d nps %d time %d%n", SEARCHES.length, getNodes(),
+                    getNodes() * 1_000_000_000L / Math.max(1, elapsedNanos), elapsedNanos / 1_000_000);
+            out.flush();
+        }
+        return move;
+    }
+
+    /**
+     * Stops the search as soon as possible (can be called from any thread).
+     */
+    void stop() {
+        for (Search search : SEARCHES) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Gets the number of threads.
+     *
+     * @return the number of threads
+     */
+    int getThreads() {
+        return SEARCHES.length;
+    }
+
+    /**
+     * Gets the number of nodes searched by all threads in the last search.
+     *
+     * @return the number of nodes
+     */
+    long getNodes() {
+        long nodes = 0;
+        for (Search search : SEARCHES) {
+            nodes += search.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Gets the time the last search took.
+     *
+     * @return the time in nanoseconds
+     */
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the depth the main thread finished in the last search.
+     *
+     * @return the depth
+     */
+    int getCompletedDepth() {
+        return SEARCHES[0].getCompletedDepth();
+    }
+
+    /**
+     * Measures how the search scales with threads: every reference position is searched to a fixed depth with 1, 2,
+     * 4, ... threads (each time with a fresh table), and the time to depth and nodes per second are compared with
+     * one thread. A first unmeasured run with one thread warms up the JIT compiler.
+     *
+     * @param maxThreads the most threads to measure (1 to {@link #MAX_THREADS})
+     * @param depth      the depth to search every position to
+     * @param cancelled  tells if the invocation that runs the benchmark has been cancelled (which stops it)
+     * @param out        the stream to print to
+     */
+    static void runBenchmark(int maxThreads, int depth, BooleanSupplier cancelled, PrintStream out) {
+        Position position = new Position();
+        double baseMillis = 0;
+        double baseNps = 0;
+        out.printf("Searching %d positions to depth %d (%d processors available):%n", Perft.POSITIONS.length, depth,
+                Runtime.getRuntime().availableProcessors());
+        ParallelSearch warmUp = new ParallelSearch(new TranspositionTable(BENCHMARK_HASH_SIZE), 1);
+        for (String[] reference : Perft.POSITIONS) {
+            position.setFen(reference[1]);
+            warmUp.search(position, depth, 0, cancelled, null);
+        }
+
+        for (int threads = 1; threads <= maxThreads && !cancelled.getAsBoolean();
+             threads = threads == maxThreads ? threads + 1 : Math.min(threads * 2, maxThreads)) {
+            ParallelSearch search = new ParallelSearch(new TranspositionTable(BENCHMARK_HASH_SIZE), threads);
+            long nanos = 0;
+            long nodes = 0;
+            for (String[] reference : Perft.POSITIONS) {
+                position.setFen(reference[1]);
+                search.search(position, depth, 0, cancelled, null);
+                nanos += search.getElapsedNanos();
+                nodes += search.getNodes();
+            }
+
+            if (cancelled.getAsBoolean()) {
+                break;
+            }
+
+            double millis = Math.max(1, nanos) / 1_000_000.0;
+            double nps = nodes * 1_000_000_000.0 / Math.max(1, nanos);
+            if (threads == 1) {
+                baseMillis = millis;
+                baseNps = nps;
+            }
+            out.printf("%3d threads: %,10.1f ms to depth, %,14d nodes, %,12.0f nodes/s, "
+                            + "time-to-depth speedup %.2fx, nodes/s scaling %.2fx%n",
+                    threads, millis, nodes, nps, baseMillis / millis, nps / baseNps);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.examplecommands.chess;
+
+import java.io.PrintStream;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Counts the leaf nodes of the legal move tree ("perft"), to check and measure the move generator.
+ *
+ * @author Macintosh_Fan
+ */
+final class Perft {
+    /**
+     * The standard reference positions, as {name, FEN}.
+     */
+    static final String[][] POSITIONS = {
+            {"initial", Position.START_FEN},
+            {"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"},
+            {"position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"},
+            {"position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"},
+            {"position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"},
+            {"position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"}
+    };
+
+    /**
+     * The known node counts of the reference positions at depths 1 to 6.
+     */
+    static final long[][] EXPECTED = {
+            {20, 400, 8_902, 197_281, 4_865_609, 119_060_324},
+            {48, 2_039, 97_862, 4_085_603, 193_690_690, 8_031_647_685L},
+            {14, 191, 2_812, 43_238, 674_624, 11_030_083},
+            {6, 264, 9_467, 422_333, 15_833_292, 706_045_033},
+            {44, 1_486, 62_379, 2_103_487, 89_941_194, 3_048_196_529L},
+            {46, 2_079, 89_890, 3_894_594, 164_075_551, 6_923_051_137L}
+    };
+
+    /**
+     * The deepest depth supported.
+     */
+    static final int MAX_DEPTH = 6;
+
+    /**
+     * The move arrays, one per remaining depth.
+     */
+    private final int[][] MOVES = new int[MAX_DEPTH + 1][MoveGenerator.MAX_MOVES];
+
+    /**
+     * Tells if the invocation that counts has been cancelled.
+     */
+    private final BooleanSupplier CANCELLED;
+
+    /**
+     * Constructs a perft counter.
+     *
+     * @param cancelled tells if the invocation that counts has been cancelled (which stops the counting)
+     */
+    Perft(BooleanSupplier cancelled) {
+        CANCELLED = cancelled;
+    }
+
+    /**
+     * Counts the leaf nodes at a depth.
+     *
+     * @param position the position (changed during counting, but restored)
+     * @param depth    the depth (at least 1)
+     * @return the number of leaf nodes (too few, if the counting was cancelled)
+     */
+    long count(Position position, int depth) {
+        int[] moves = MOVES[depth];
+        int count = MoveGenerator.generateLegal(position, moves);
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count && !CANCELLED.getAsBoolean(); i++) {
+            position.makeMove(moves[i]);
+            nodes += count(position, depth - 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf nodes at every depth from 1 to a depth, printing the count, time and nodes per second.
+     *
+     * @param position the position
+     * @param depth    the deepest depth (1 to {@link #MAX_DEPTH})
+     * @param expected the expected counts by depth minus one (may be null)
+     * @param out      the stream to print to
+     * @return {@code true} if every count was as expected (and the counting was not cancelled)
+     */
+    boolean report(Position position, int depth, long[] expected, PrintStream out) {
+        boolean passed = true;
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long nodes = count(position, d);
+            long nanos = Math.max(1, System.nanoTime() - start);
+            if (CANCELLED.getAsBoolean()) {
+                out.printf("depth %d: cancelled after %,.1f ms%n", d, nanos / 1_000_000.0);
+                return false;
+            }
+            out.printf("depth %d: %,d nodes in %,.1f ms (%,.0f nodes/s)", d, nodes, nanos / 1_000_000.0,
+                    nodes * 1_000_000_000.0 / nanos);
+            if (expected != null) {
+                if (expected[d - 1] == nodes) {
+                    out.println(" ok");
+                } else {
+                    out.printf(" FAILED (expected %,d)%n", expected[d - 1]);
+                    passed = false;
+                }
+            } else {
+                out.println();
+            }
+            out.flush();
+        }
+        return passed;
+    }
+
+    /**
+     * Runs every reference position up to a depth.
+     *
+     * @param depth the deepest depth (1 to {@link #MAX_DEPTH})
+     * @param out   the stream to print to
+     * @return {@code true} if every count was as expected
+     */
+    boolean runSuite(int depth, PrintStream out) {
+        Position position = new Position();
+        boolean passed = true;
+        for (int i = 0; i < POSITIONS.length && !CANCELLED.getAsBoolean(); i++) {
+            out.println(POSITIONS[i][0] + ": " + POSITIONS[i][1]);
+            position.setFen(POSITIONS[i][1]);
+            passed &= report(position, depth, EXPECTED[i], out);
+        }
+        out.println(passed ? "All perft counts are correct." : "Some perft counts are WRONG!");
+        return passed;
+    }
+}
@@ -0,0 +1,600 @@
+package org.example.examplecommands.chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the games of a PGN file one at a time, in constant memory.
+ * <p>
+ * The file is read through a {@link FileChannel} into one reused buffer, so files of any size can be read. Every
+ * call to {@link #nextGame()} overwrites the tags and moves of the previous game in reused arrays; tag values only
+ * become {@link String}s when they are asked for, and moves are handed out as ranges of a {@code char[]} that
+ * {@link San#parse(Position, char[], int, int, int[])} reads directly. Comments, variations, move numbers and
+ * annotations are skipped.
+ * <p>
+ * A reader can also read only the games that start inside a range of the file, so several threads can read one
+ * file at once. {@link #split(FileChannel, int)} cuts a file into such ranges at game boundaries.
+ *
+ * @author Macintosh_Fan
+ */
+final class PgnReader implements Closeable {
+    /**
+     * The size of the read buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The end of the file.
+     */
+    private static final int EOF = -1;
+
+    /**
+     * No character has been pushed back.
+     */
+    private static final int NOTHING = -2;
+
+    /**
+     * The file.
+     */
+    private final FileChannel CHANNEL;
+
+    /**
+     * Should the channel be closed with this reader?
+     */
+    private final boolean OWNS_CHANNEL;
+
+    /**
+     * The read buffer.
+     */
+    private final ByteBuffer BUFFER = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Games that start at or after this offset are not read.
+     */
+    private final long END;
+
+    /**
+     * The offset in the file of the next byte to read into the buffer.
+     */
+    private long channelPosition;
+
+    /**
+     * The offset in the file of the next character to read.
+     */
+    private long offset;
+
+    /**
+     * The character pushed back, or {@link #NOTHING}.
+     */
+    private int pushedBack = NOTHING;
+
+    /**
+     * The bytes of the tag names and values of the game.
+     */
+    private byte[] tagText = new byte[1024];
+
+    /**
+     * The length of {@link #tagText}.
+     */
+    private int tagTextLength;
+
+    /**
+     * For every tag, the start and end of its name and the start and end of its value in {@link #tagText}.
+     */
+    private int[] tags = new int[4 * 16];
+
+    /**
+     * The number of tags of the game.
+     */
+    private int tagCount;
+
+    /**
+     * The moves of the game, one after the other.
+     */
+    private char[] moveText = new char[2048];
+
+    /**
+     * The length of {@link #moveText}.
+     */
+    private int moveTextLength;
+
+    /**
+     * For every move, its start and end in {@link #moveText}.
+     */
+    private int[] moves = new int[2 * 256];
+
+    /**
+     * The number of moves of the game.
+     */
+    private int moveCount;
+
+    /**
+     * The result at the end of the movetext ("1-0", "0-1", "1/2-1/2" or "*").
+     */
+    private String result;
+
+    /**
+     * The offset in the file where the game starts.
+     */
+    private long gameOffset;
+
+    /**
+     * The number of games read.
+     */
+    private long games;
+
+    /**
+     * Constructs a reader of a whole file.
+     *
+     * @param path the file
+     * @throws IOException if the file can't be opened
+     */
+    PgnReader(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), 0, Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Constructs a reader of the games that start inside a range of a file.
+     *
+     * @param channel the file (not closed with this reader)
+     * @param start   the offset where a game (or the file) starts
+     * @param end     the offset where the range ends
+     */
+    PgnReader(FileChannel channel, long start, long end) {
+        this(channel, start, end, false);
+    }
+
+    /**
+     * Constructs a reader.
+     *
+     * @param channel     the file
+     * @param start       the offset where a game (or the file) starts
+     * @param end         the offset where the range ends
+     * @param ownsChannel should the channel be closed with this reader?
+     */
+    private PgnReader(FileChannel channel, long start, long end, boolean ownsChannel) {
+        CHANNEL = channel;
+        OWNS_CHANNEL = ownsChannel;
+        END = end;
+        channelPosition = start;
+        offset = start;
+        BUFFER.limit(0);
+    }
+
+    /**
+     * Cuts a file into ranges that start at game boundaries (a "[" at the start of a line that follows an empty
+     * line), so every game is inside exactly one range.
+     *
+     * @param channel the file
+     * @param parts   the number of ranges wanted (fewer are returned if the games are too long)
+     * @return the offsets where the ranges start, followed by the size of the file
+     * @throws IOException if the file can't be read
+     */
+    static long[] split(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        long[] bounds = new long[parts + 1];
+        int count = 1;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 1; i < parts; i++) {
+            long bound = findGameStart(channel, Math.max(size / parts * i, bounds[count - 1] + 1), buffer);
+            if (bound < size && bound > bounds[count - 1]) {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Finds the first game that starts at or after an offset.
+     *
+     * @param channel the file
+     * @param from    the offset to start looking at
+     * @param buffer  the buffer to read with
+     * @return the offset of the game, or the size of the file if there is none
+     * @throws IOException if the file can't be read
+     */
+    private static long findGameStart(FileChannel channel, long from, ByteBuffer buffer) throws IOException {
+        int newlines = 0;
+        long position = from;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                byte c = buffer.get(i);
+                if (c == '\n') {
+                    newlines++;
+                } else if (c == '[' && newlines >= 2) {
+                    return position + i;
+                } else if (c != '\r' && c != ' ' && c != '\t') {
+                    newlines = 0;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return {@code false} if there are no more games
+     * @throws IOException if the file can't be read
+     */
+    boolean nextGame() throws IOException {
+        tagTextLength = 0;
+        tagCount = 0;
+        moveTextLength = 0;
+        moveCount = 0;
+        result = null;
+
+        int c = skipWhitespace();
+        if (c == EOF || offset - 1 >= END) {
+            return false;
+        }
+        gameOffset = offset - 1;
+        while (c == '[') {
+            readTag();
+            c = skipWhitespace();
+        }
+        readMoves(c);
+        games++;
+        return true;
+    }
+
+    /**
+     * Gets the value of a tag of the game.
+     *
+     * @param name the name of the tag
+     * @return the value, or {@code null} if the game has no such tag
+     */
+    String tag(String name) {
+        for (int i = 0; i < tagCount; i++) {
+            int start = tags[i * 4];
+            int end = tags[i * 4 + 1];
+            if (end - start != name.length()) {
+                continue;
+            }
+            boolean same = true;
+            for (int j = 0; j < name.length() && same; j++) {
+                same = tagText[start + j] == name.charAt(j);
+            }
+            if (same) {
+                return new String(tagText, tags[i * 4 + 2], tags[i * 4 + 3] - tags[i * 4 + 2],
+                        StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of moves of the game.
+     *
+     * @return the number of moves
+     */
+    int moveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Gets the characters the moves of the game are stored in (see {@link #moveStart(int)}).
+     *
+     * @return the characters (only valid until the next game is read)
+     */
+    char[] moveText() {
+        return moveText;
+    }
+
+    /**
+     * Gets where a move starts.
+     *
+     * @param index the index of the move
+     * @return the index of its first character in {@link #moveText()}
+     */
+    int moveStart(int index) {
+        return moves[index * 2];
+    }
+
+    /**
+     * Gets where a move ends.
+     *
+     * @param index the index of the move
+     * @return the index after its last character in {@link #moveText()}
+     */
+    int moveEnd(int index) {
+        return moves[index * 2 + 1];
+    }
+
+    /**
+     * Gets a move as a string.
+     *
+     * @param index the index of the move
+     * @return the move in SAN, as written in the file
+     */
+    String move(int index) {
+        return new String(moveText, moveStart(index), moveEnd(index) - moveStart(index));
+    }
+
+    /**
+     * Gets the result at the end of the game.
+     *
+     * @return "1-0", "0-1", "1/2-1/2", "*", or {@code null} if the game has no result
+     */
+    String result() {
+        return result;
+    }
+
+    /**
+     * Gets where the game starts.
+     *
+     * @return the offset in the file
+     */
+    long gameOffset() {
+        return gameOffset;
+    }
+
+    /**
+     * Gets the number of games read.
+     *
+     * @return the number of games
+     */
+    long games() {
+        return games;
+    }
+
+    /**
+     * Closes the file, if this reader opened it.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (OWNS_CHANNEL) {
+            CHANNEL.close();
+        }
+    }
+
+    /**
+     * Reads a tag pair after its "[".
+     *
+     * @throws IOException if the file can't be read
+     */
+    private void readTag() throws IOException {
+        if (tags.length < (tagCount + 1) * 4) {
+            tags = Arrays.copyOf(tags, tags.length * 2);
+        }
+        int c = skipWhitespace();
+        tags[tagCount * 4] = tagTextLength;
+        while (c != EOF && c > ' ' && c != '"' && c != ']') {
+            appendTagByte(c);
+            c = read();
+        }
+        tags[tagCount * 4 + 1] = tagTextLength;
+        while (c != EOF && c != '"' && c != ']' && c != '\n') {
+            c = read();
+        }
+
+        tags[tagCount * 4 + 2] = tagTextLength;
+        if (c == '"') {
+            c = read();
+            while (c != EOF && c != '"' && c != '\n') {
+                if (c == '\\') {
+                    c = read();
+                }
+                appendTagByte(c);
+                c = read();
+            }
+        }
+        tags[tagCount * 4 + 3] = tagTextLength;
+        tagCount++;
+        while (c != EOF && c != ']' && c != '\n') {
+            c = read();
+        }
+    }
+
+    /**
+     * Reads the movetext of a game, up to its result or the start of the next game.
+     *
+     * @param c the first character of the movetext
+     * @throws IOException if the file can't be read
+     */
+    private void readMoves(int c) throws IOException {
+        while (c != EOF) {
+            if (c == '[') {
+                pushedBack = c;
+                offset--;
+                return;
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                c = read();
+                while (c >= '0' && c <= '9') {
+                    c = read();
+                }
+                continue;
+            } else if (c == '%') {
+                skipPast('\n');
+            } else if (c != ')' && c != ']' && c != '}' && readToken(c)) {
+                return;
+            }
+            c = skipWhitespace();
+        }
+    }
+
+    /**
+     * Reads a token of the movetext: a move number, a move or the result.
+     *
+     * @param first the first character of the token
+     * @return {@code true} if the token is the result, which ends the game
+     * @throws IOException if the file can't be read
+     */
+    private boolean readToken(int first) throws IOException {
+        if (moveText.length < moveTextLength + 16) {
+            moveText = Arrays.copyOf(moveText, moveText.length * 2);
+        }
+        int start = moveTextLength;
+        int c = first;
+        while (c != EOF && c > ' ' && c != '{' && c != '(' && c != ')' && c != ';' && c != '$' && c != '[') {
+            if (moveTextLength == moveText.length) {
+                moveText = Arrays.copyOf(moveText, moveText.length * 2);
+            }
+            moveText[moveTextLength++] = (char) c;
+            c = read();
+        }
+        if (c != EOF) {
+            pushedBack = c;
+            offset--;
+        }
+
+        int tokenStart = start;
+        if (moveText[start] >= '0' && moveText[start] <= '9') {
+            if (isResult(start)) {
+                result = new String(moveText, start, moveTextLength - start);
+                moveTextLength = start;
+                return true;
+            }
+            int i = start;
+            while (i < moveTextLength && moveText[i] >= '0' && moveText[i] <= '9') {
+                i++;
+            }
+            if (i < moveTextLength && moveText[i] == '.') {
+                while (i < moveTextLength && moveText[i] == '.') {
+                    i++;
+                }
+                tokenStart = i;
+            }
+        } else if (moveTextLength - start == 1 && moveText[start] == '*') {
+            result = "*";
+            moveTextLength = start;
+            return true;
+        }
+
+        if (tokenStart == moveTextLength) {
+            moveTextLength = start;
+            return false;
+        }
+        if (moves.length < (moveCount + 1) * 2) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount * 2] = tokenStart;
+        moves[moveCount * 2 + 1] = moveTextLength;
+        moveCount++;
+        return false;
+    }
+
+    /**
+     * Is the token that starts at an index of the movetext a result?
+     *
+     * @param start the index
+     * @return {@code true} if the token is "1-0", "0-1" or "1/2-1/2"
+     */
+    private boolean isResult(int start) {
+        int length = moveTextLength - start;
+        if (length == 3 && moveText[start + 1] == '-') {
+            return (moveText[start] == '1' && moveText[start + 2] == '0')
+                    || (moveText[start] == '0' && moveText[start + 2] == '1');
+        }
+        return length == 7 && moveText[start + 1] == '/';
+    }
+
+    /**
+     * Skips a variation after its "(", including nested variations and comments.
+     *
+     * @throws IOException if the file can't be read
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            if (c == EOF) {
+                return;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            }
+        }
+    }
+
+    /**
+     * Skips characters up to and including a character.
+     *
+     * @param end the character
+     * @throws IOException if the file can't be read
+     */
+    private void skipPast(int end) throws IOException {
+        int c = read();
+        while (c != EOF && c != end) {
+            c = read();
+        }
+    }
+
+    /**
+     * Skips whitespace (and a byte order mark).
+     *
+     * @return the first character that is not whitespace, or {@link #EOF}
+     * @throws IOException if the file can't be read
+     */
+    private int skipWhitespace() throws IOException {
+        int c = read();
+        while (c != EOF && (c <= ' ' || c == 0xEF || c == 0xBB || c == 0xBF)) {
+            c = read();
+        }
+        return c;
+    }
+
+    /**
+     * Adds a byte to the tag text.
+     *
+     * @param c the byte
+     */
+    private void appendTagByte(int c) {
+        if (tagTextLength == tagText.length) {
+            tagText = Arrays.copyOf(tagText, tagText.length * 2);
+        }
+        tagText[tagTextLength++] = (byte) c;
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return the byte (0 to 255), or {@link #EOF}
+     * @throws IOException if the file can't be read
+     */
+    private int read() throws IOException {
+        if (pushedBack != NOTHING) {
+            int c = pushedBack;
+            pushedBack = NOTHING;
+            offset++;
+            return c;
+        }
+        if (!BUFFER.hasRemaining()) {
+            BUFFER.clear();
+            int read = CHANNEL.read(BUFFER, channelPosition);
+            if (read <= 0) {
+                BUFFER.limit(0);
+                return EOF;
+            }
+            channelPosition += read;
+            BUFFER.flip();
+        }
+        offset++;
+        return BUFFER.get() & 0xFF;
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.examplecommands.chess;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes a game in Portable Game Notation.
+ *
+ * @author Macintosh_Fan
+ */
+final class PgnWriter {
+    /**
+     * The longest line of movetext.
+     */
+    private static final int LINE_LENGTH = 79;
+
+    /**
+     * The format of the Date tag.
+     */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private PgnWriter() {
+    }
+
+    /**
+     * Writes a game: the seven standard tags (and the starting position if it is not the usual one), then every
+     * move of a position that can still be undone.
+     *
+     * @param game     the position at the end of the game
+     * @param startFen the FEN of the position the oldest move that can be undone was played from
+     * @param white    the name of the white player
+     * @param black    the name of the black player
+     * @param result   "1-0", "0-1", "1/2-1/2" or "*"
+     * @return the game in PGN, ending with a line break
+     */
+    static String write(Position game, String startFen, String white, String black, String result) {
+        StringBuilder pgn = new StringBuilder(512);
+        pgn.append("[Event \"Terminal game\"]\n")
+                .append("[Site \"?\"]\n")
+                .append("[Date \"").append(LocalDate.now().format(DATE_FORMAT)).append("\"]\n")
+                .append("[Round \"-\"]\n")
+                .append("[White \"").append(white).append("\"]\n")
+                .append("[Black \"").append(black).append("\"]\n")
+                .append("[Result \"").append(result).append("\"]\n");
+        if (!startFen.equals(Position.START_FEN)) {
+            pgn.append("[SetUp \"1\"]\n").append("[FEN \"").append(startFen).append("\"]\n");
+        }
+        pgn.append('\n');
+
+        Position replay = new Position();
+        replay.setFen(startFen);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int lineStart = pgn.length();
+        for (int i = game.firstPly; i < game.ply; i++) {
+            int move = game.moveAt(i);
+            String token = "";
+            if (replay.sideToMove == Position.WHITE) {
+                token = replay.fullmoveNumber + ". ";
+            } else if (i == game.firstPly) {
+                token = replay.fullmoveNumber + "... ";
+            }
+            token += San.toString(replay, move, moves);
+            lineStart = append(pgn, lineStart, token);
+            replay.makeMove(move);
+        }
+        append(pgn, lineStart, result);
+        return pgn.append('\n').toString();
+    }
+
+    /**
+     * Adds a token to the movetext, starting a new line if the line would get too long.
+     *
+     * @param pgn       the game so far
+     * @param lineStart the index where the current line starts
+     * @param token     the token
+     * @return the index where the current line starts after adding the token
+     */
+    private static int append(StringBuilder pgn, int lineStart, String token) {
+        if (pgn.length() > lineStart) {
+            if (pgn.length() - lineStart + 1 + token.length() > LINE_LENGTH) {
+                pgn.append('\n');
+                lineStart = pgn.length();
+            } else {
+                pgn.append(' ');
+            }
+        }
+        pgn.append(token);
+        return lineStart;
+    }
+}
@@ -0,0 +1,652 @@
+package org.example.examplecommands.chess;
+
+/**
+ * A Chess position stored as bitboards.
+ * <p>
+ * Every piece kind (like white knights) has a {@code long} whose bit {@code n} is set if such a piece stands on
+ * square {@code n}. Squares are numbered from a1 ({@code 0}) to h8 ({@code 63}), rank by rank:
+ * <pre>
+ * 56 57 58 59 60 61 62 63  8
+ * 48 49 50 51 52 53 54 55  7
+ * ...
+ *  8  9 10 11 12 13 14 15  2
+ *  0  1  2  3  4  5  6  7  1
+ *  a  b  c  d  e  f  g  h
+ * </pre>
+ * A piece is coded as {@code color * 6 + type}, so white pieces are {@code 0-5} and black pieces {@code 6-11}.
+ * <p>
+ * {@link #makeMove(int)} and {@link #unmakeMove()} change the position in place and keep what is needed to undo
+ * a move in preallocated arrays, so playing moves allocates nothing. They also keep the {@link Zobrist} key of the
+ * position up to date.
+ *
+ * @author Macintosh_Fan
+ */
+public final class Position {
+    /**
+     * The white side.
+     */
+    static final int WHITE = 0;
+
+    /**
+     * The black side.
+     */
+    static final int BLACK = 1;
+
+    /**
+     * The pawn piece type.
+     */
+    static final int PAWN = 0;
+
+    /**
+     * The knight piece type.
+     */
+    static final int KNIGHT = 1;
+
+    /**
+     * The bishop piece type.
+     */
+    static final int BISHOP = 2;
+
+    /**
+     * The rook piece type.
+     */
+    static final int ROOK = 3;
+
+    /**
+     * The queen piece type.
+     */
+    static final int QUEEN = 4;
+
+    /**
+     * The king piece type.
+     */
+    static final int KING = 5;
+
+    /**
+     * The code of an empty square.
+     */
+    static final int NO_PIECE = -1;
+
+    /**
+     * The castling right of white to castle kingside.
+     */
+    static final int WHITE_KINGSIDE = 1;
+
+    /**
+     * The castling right of white to castle queenside.
+     */
+    static final int WHITE_QUEENSIDE = 2;
+
+    /**
+     * The castling right of black to castle kingside.
+     */
+    static final int BLACK_KINGSIDE = 4;
+
+    /**
+     * The castling right of black to castle queenside.
+     */
+    static final int BLACK_QUEENSIDE = 8;
+
+    /**
+     * The FEN of the initial position.
+     */
+    static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * The maximum number of moves that can be undone (a power of two). Older moves are forgotten.
+     */
+    static final int MAX_PLY = 1024;
+
+    /**
+     * Masks a ply to its place in the move records.
+     */
+    private static final int PLY_MASK = MAX_PLY - 1;
+
+    /**
+     * The FEN letters of the pieces, by piece code.
+     */
+    private static final String PIECE_LETTERS = "PNBRQKpnbrqk";
+
+    /**
+     * The castling rights that remain after a piece moves from or to a square.
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            CASTLING_MASK[square] = 15;
+        }
+        CASTLING_MASK[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+    }
+
+    /**
+     * The bitboard of every piece kind, by piece code.
+     */
+    final long[] PIECES = new long[12];
+
+    /**
+     * The bitboard of all pieces of each side.
+     */
+    final long[] COLORS = new long[2];
+
+    /**
+     * The piece code on every square ({@link #NO_PIECE} if empty).
+     */
+    final int[] BOARD = new int[64];
+
+    /**
+     * The bitboard of all pieces.
+     */
+    long occupied;
+
+    /**
+     * The side to move.
+     */
+    int sideToMove;
+
+    /**
+     * The castling rights (a combination of {@link #WHITE_KINGSIDE} and the like).
+     */
+    int castlingRights;
+
+    /**
+     * The square a pawn can capture en passant on, or {@code -1}.
+     */
+    int enPassantSquare;
+
+    /**
+     * The number of half-moves since the last capture or pawn move.
+     */
+    int halfmoveClock;
+
+    /**
+     * The number of the full move (starts at 1 and grows after black moves).
+     */
+    int fullmoveNumber;
+
+    /**
+     * The Zobrist key of the position.
+     */
+    long key;
+
+    /**
+     * The number of moves played since the position was set up.
+     */
+    int ply;
+
+    /**
+     * The ply of the oldest move that can still be undone (older ones have been overwritten by newer ones).
+     */
+    int firstPly;
+
+    /**
+     * The moves that can be undone, in a ring: the move of ply {@code n} is at {@code n & PLY_MASK}.
+     */
+    private final int[] MOVE_STACK = new int[MAX_PLY];
+
+    /**
+     * What is needed to undo each move: the captured piece, the castling rights, the en passant square and the
+     * half-move clock before the move, packed by {@link #packState(int)} (in the same ring as the moves).
+     */
+    private final long[] STATE_STACK = new long[MAX_PLY];
+
+    /**
+     * The key of the position before each move (in the same ring as the moves).
+     */
+    private final long[] KEY_STACK = new long[MAX_PLY];
+
+    /**
+     * Constructs the initial position.
+     */
+    public Position() {
+        setFen(START_FEN);
+    }
+
+    /**
+     * Sets up a position from its Forsyth-Edwards Notation (the move counters may be left out).
+     *
+     * @param fen the FEN
+     * @throws IllegalArgumentException if the FEN is not valid
+     */
+    public void setFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least 4 fields: " + fen);
+        }
+
+        clear();
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    throw new IllegalArgumentException("Bad FEN rank: " + fen);
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int piece = PIECE_LETTERS.indexOf(c);
+                if (piece == -1 || file > 7) {
+                    throw new IllegalArgumentException("Bad FEN piece placement: " + fen);
+                }
+                put(piece, rank * 8 + file);
+                file++;
+            }
+            if (file > 8) {
+                throw new IllegalArgumentException("Bad FEN rank: " + fen);
+            }
+        }
+        if (rank != 0 || file != 8) {
+            throw new IllegalArgumentException("Bad FEN piece placement: " + fen);
+        }
+        if (Long.bitCount(PIECES[KING]) != 1 || Long.bitCount(PIECES[6 + KING]) != 1) {
+            throw new IllegalArgumentException("FEN needs one king per side: " + fen);
+        }
+
+        switch (fields[1]) {
+            case "w" -> sideToMove = WHITE;
+            case "b" -> sideToMove = BLACK;
+            default -> throw new IllegalArgumentException("Bad FEN side to move: " + fen);
+        }
+
+        if (!fields[2].equals("-")) {
+            for (int i = 0; i < fields[2].length(); i++) {
+                switch (fields[2].charAt(i)) {
+                    case 'K' -> castlingRights |= WHITE_KINGSIDE;
+                    case 'Q' -> castlingRights |= WHITE_QUEENSIDE;
+                    case 'k' -> castlingRights |= BLACK_KINGSIDE;
+                    case 'q' -> castlingRights |= BLACK_QUEENSIDE;
+                    default -> throw new IllegalArgumentException("Bad FEN castling rights: " + fen);
+                }
+            }
+        }
+
+        if (!fields[3].equals("-")) {
+            enPassantSquare = Move.parseSquare(fields[3]);
+            if (enPassantSquare == -1) {
+                throw new IllegalArgumentException("Bad FEN en passant square: " + fen);
+            }
+        }
+
+        key ^= Zobrist.CASTLING[castlingRights] ^ enPassantKey() ^ (sideToMove == BLACK ? Zobrist.BLACK_TO_MOVE : 0);
+        try {
+            halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+            fullmoveNumber = fields.length > 5 ? Math.max(1, Integer.parseInt(fields[5])) : 1;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Bad FEN move counters: " + fen);
+        }
+    }
+
+    /**
+     * Sets up a position from a list of pieces, with no castling rights and no en passant square.
+     *
+     * @param pieces     the piece codes
+     * @param squares    the squares of the pieces (all different)
+     * @param count      the number of pieces
+     * @param sideToMove the side to move
+     */
+    void setPieces(int[] pieces, int[] squares, int count, int sideToMove) {
+        clear();
+        for (int i = 0; i < count; i++) {
+            put(pieces[i], squares[i]);
+        }
+        this.sideToMove = sideToMove;
+        if (sideToMove == BLACK) {
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+    }
+
+    /**
+     * Gets the Forsyth-Edwards Notation of the position.
+     *
+     * @return the FEN
+     */
+    public String getFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = BOARD[rank * 8 + file];
+                if (piece == NO_PIECE) {
+                    empty++;
+                } else {
+                    if (empty != 0) {
+                        fen.append(empty);
+                        empty = 0;
+                    }
+                    fen.append(PIECE_LETTERS.charAt(piece));
+                }
+            }
+            if (empty != 0) {
+                fen.append(empty);
+            }
+            if (rank != 0) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) {
+                fen.append('K');
+            }
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) {
+                fen.append('Q');
+            }
+            if ((castlingRights & BLACK_KINGSIDE) != 0) {
+                fen.append('k');
+            }
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) {
+                fen.append('q');
+            }
+        }
+        fen.append(' ').append(enPassantSquare == -1 ? "-" : Move.squareName(enPassantSquare));
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    /**
+     * Makes this position a copy of another one (including the moves that can be undone).
+     *
+     * @param other the position to copy
+     */
+    void copyFrom(Position other) {
+        System.arraycopy(other.PIECES, 0, PIECES, 0, PIECES.length);
+        System.arraycopy(other.COLORS, 0, COLORS, 0, COLORS.length);
+        System.arraycopy(other.BOARD, 0, BOARD, 0, BOARD.length);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        ply = other.ply;
+        firstPly = other.firstPly;
+        System.arraycopy(other.MOVE_STACK, 0, MOVE_STACK, 0, MAX_PLY);
+        System.arraycopy(other.STATE_STACK, 0, STATE_STACK, 0, MAX_PLY);
+        System.arraycopy(other.KEY_STACK, 0, KEY_STACK, 0, MAX_PLY);
+    }
+
+    /**
+     * Has the position occurred before, with the same side to move, since the last capture or pawn move?
+     *
+     * @return {@code true} if the position is a repetition
+     */
+    boolean isRepetition() {
+        int oldest = Math.max(firstPly, ply - halfmoveClock);
+        for (int i = ply - 4; i >= oldest; i -= 2) {
+            if (KEY_STACK[i & PLY_MASK] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets how often the position has occurred, with the same side to move, since the last capture or pawn move (as
+     * far back as the move records go).
+     *
+     * @return the number of times, counting this one
+     */
+    int repetitions() {
+        int count = 1;
+        int oldest = Math.max(firstPly, ply - halfmoveClock);
+        for (int i = ply - 4; i >= oldest; i -= 2) {
+            if (KEY_STACK[i & PLY_MASK] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the piece on a square.
+     *
+     * @param square the square
+     * @return the piece code, or {@link #NO_PIECE} if the square is empty
+     */
+    int pieceAt(int square) {
+        return BOARD[square];
+    }
+
+    /**
+     * Gets the square of a side's king.
+     *
+     * @param color the side
+     * @return the square of the king
+     */
+    int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(PIECES[color * 6 + KING]);
+    }
+
+    /**
+     * Plays a move. The move is not checked; it must at least move a piece of the side to move. If
+     * {@link #MAX_PLY} moves can already be undone, the oldest one is forgotten.
+     *
+     * @param move the move
+     */
+    void makeMove(int move) {
+        if (ply - firstPly == MAX_PLY) {
+            firstPly++;
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = BOARD[from];
+        int captured = BOARD[to];
+        int kind = Move.kind(move);
+        int record = ply & PLY_MASK;
+        MOVE_STACK[record] = move;
+        KEY_STACK[record] = key;
+        key ^= Zobrist.CASTLING[castlingRights] ^ enPassantKey();
+
+        if (kind == Move.EN_PASSANT) {
+            captured = BOARD[to ^ 8];
+            remove(captured, to ^ 8);
+        } else if (captured != NO_PIECE) {
+            remove(captured, to);
+        }
+        STATE_STACK[record] = packState(captured);
+        ply++;
+        halfmoveClock++;
+
+        remove(piece, from);
+        put(Move.promotion(move) == 0 ? piece : sideToMove * 6 + Move.promotion(move), to);
+
+        if (kind == Move.CASTLING) {
+            if (to > from) {
+                movePiece(to + 1, to - 1);
+            } else {
+                movePiece(to - 2, to + 1);
+            }
+        }
+
+        enPassantSquare = -1;
+        if (piece % 6 == PAWN) {
+            halfmoveClock = 0;
+            if ((from ^ to) == 16) {
+                enPassantSquare = (from + to) >>> 1;
+            }
+        }
+        if (captured != NO_PIECE) {
+            halfmoveClock = 0;
+        }
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        key ^= Zobrist.CASTLING[castlingRights] ^ enPassantKey() ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    /**
+     * Undoes the last move played with {@link #makeMove(int)}.
+     *
+     * @throws IllegalStateException if there is no move to undo
+     */
+    void unmakeMove() {
+        if (ply == firstPly) {
+            throw new IllegalStateException("No move to undo");
+        }
+
+        int record = --ply & PLY_MASK;
+        int move = MOVE_STACK[record];
+        long state = STATE_STACK[record];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int kind = Move.kind(move);
+
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+
+        int piece = BOARD[to];
+        remove(piece, to);
+        put(Move.promotion(move) == 0 ? piece : sideToMove * 6 + PAWN, from);
+
+        if (kind == Move.CASTLING) {
+            if (to > from) {
+                movePiece(to - 1, to + 1);
+            } else {
+                movePiece(to + 1, to - 2);
+            }
+        }
+
+        int captured = (int) (state & 15) - 1;
+        if (captured != NO_PIECE) {
+            put(captured, kind == Move.EN_PASSANT ? to ^ 8 : to);
+        }
+        castlingRights = (int) (state >>> 4 & 15);
+        enPassantSquare = (int) (state >>> 8 & 127) - 1;
+        halfmoveClock = (int) (state >>> 16);
+        key = KEY_STACK[record];
+    }
+
+    /**
+     * Forgets the oldest move that can be undone.
+     *
+     * @throws IllegalStateException if there is no move to undo
+     */
+    void forgetOldestMove() {
+        if (ply == firstPly) {
+            throw new IllegalStateException("No move to undo");
+        }
+        firstPly++;
+    }
+
+    /**
+     * Gets the last move played that can be undone.
+     *
+     * @return the move, or {@link Move#NONE} if there is none
+     */
+    int lastMove() {
+        return ply == firstPly ? Move.NONE : MOVE_STACK[ply - 1 & PLY_MASK];
+    }
+
+    /**
+     * Gets a move played since the position was set up that can still be undone.
+     *
+     * @param index the ply of the move ({@link #firstPly} to {@link #ply} minus one)
+     * @return the move
+     */
+    int moveAt(int index) {
+        return MOVE_STACK[index & PLY_MASK];
+    }
+
+    /**
+     * Gets the Zobrist number of the en passant square.
+     *
+     * @return the number, or {@code 0} if there is no en passant square
+     */
+    private long enPassantKey() {
+        return enPassantSquare == -1 ? 0 : Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
+    }
+
+    /**
+     * Packs the state that a move destroys.
+     *
+     * @param captured the piece the move captures ({@link #NO_PIECE} if none)
+     * @return the packed state
+     */
+    private long packState(int captured) {
+        return (captured + 1) | castlingRights << 4 | (enPassantSquare + 1) << 8 | (long) halfmoveClock << 16;
+    }
+
+    /**
+     * Removes every piece and resets the game state.
+     */
+    private void clear() {
+        for (int i = 0; i < PIECES.length; i++) {
+            PIECES[i] = 0;
+        }
+        COLORS[WHITE] = 0;
+        COLORS[BLACK] = 0;
+        for (int square = 0; square < 64; square++) {
+            BOARD[square] = NO_PIECE;
+        }
+        occupied = 0;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0;
+        ply = 0;
+        firstPly = 0;
+    }
+
+    /**
+     * Puts a piece on an empty square.
+     *
+     * @param piece  the piece code
+     * @param square the square
+     */
+    void put(int piece, int square) {
+        long bit = 1L << square;
+        PIECES[piece] |= bit;
+        COLORS[piece / 6] |= bit;
+        occupied |= bit;
+        BOARD[square] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][square];
+    }
+
+    /**
+     * Removes a piece from a square.
+     *
+     * @param piece  the piece code (must be the piece on the square)
+     * @param square the square
+     */
+    void remove(int piece, int square) {
+        long bit = ~(1L << square);
+        PIECES[piece] &= bit;
+        COLORS[piece / 6] &= bit;
+        occupied &= bit;
+        BOARD[square] = NO_PIECE;
+        key ^= Zobrist.PIECE_SQUARE[piece][square];
+    }
+
+    /**
+     * Moves a piece to an empty square.
+     *
+     * @param from the square of the piece
+     * @param to   the empty square
+     */
+    private void movePiece(int from, int to) {
+        int piece = BOARD[from];
+        remove(piece, from);
+        put(piece, to);
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.examplecommands.chess;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation ("Nf3", "exd5", "O-O", "e8=Q+"), as used by PGN files.
+ * <p>
+ * A move is read by finding the pieces of the right type that can reach the target square, keeping those that
+ * match the disambiguation of the text, and playing each to check that it doesn't leave the king attacked, so a
+ * move that is read is always legal. Only castling generates every legal move. Moves can be read straight from a
+ * {@code char[]} range, which allocates nothing.
+ *
+ * @author Macintosh_Fan
+ */
+final class San {
+    /**
+     * The letters of the piece types in SAN, by piece type (pawns have none).
+     */
+    private static final String PIECE_LETTERS = " NBRQK";
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private San() {
+    }
+
+    /**
+     * Reads a move.
+     *
+     * @param position the position the move is played in (changed during reading, but restored)
+     * @param san      the move in SAN
+     * @return the legal move, or {@link Move#NONE} if the text is not a legal move (or is ambiguous)
+     */
+    static int parse(Position position, String san) {
+        return parse(position, san.toCharArray(), 0, san.length(), new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Reads a move from a range of characters.
+     *
+     * @param position the position the move is played in (changed during reading, but restored)
+     * @param text     the characters
+     * @param start    the index of the first character of the move
+     * @param end      the index after the last character of the move
+     * @param moves    an array to generate the legal moves into (at least {@link MoveGenerator#MAX_MOVES} long)
+     * @return the legal move, or {@link Move#NONE} if the text is not a legal move (or is ambiguous)
+     */
+    static int parse(Position position, char[] text, int start, int end, int[] moves) {
+        while (end > start && "+#!?".indexOf(text[end - 1]) != -1) {
+            end--;
+        }
+        int length = end - start;
+        if (length < 2) {
+            return Move.NONE;
+        }
+
+        if (text[start] == 'O' || text[start] == '0') {
+            int count = MoveGenerator.generateLegal(position, moves);
+            boolean queenside = length >= 5;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (Move.kind(move) == Move.CASTLING && (Move.to(move) < Move.from(move)) == queenside) {
+                    return move;
+                }
+            }
+            return Move.NONE;
+        }
+
+        int type = PIECE_LETTERS.indexOf(text[start]);
+        if (type > 0) {
+            start++;
+        } else {
+            type = Position.PAWN;
+        }
+
+        int promotion = 0;
+        int promotionType = PIECE_LETTERS.indexOf(text[end - 1]);
+        if (promotionType > 0 && type == Position.PAWN) {
+            promotion = promotionType;
+            end--;
+            if (text[end - 1] == '=') {
+                end--;
+            }
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int toFile = text[end - 2] - 'a';
+        int toRank = text[end - 1] - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            return Move.NONE;
+        }
+        int to = toRank * 8 + toFile;
+
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = text[i];
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int us = position.sideToMove;
+        int targetPiece = position.pieceAt(to);
+        if (targetPiece != Position.NO_PIECE && targetPiece / 6 == us) {
+            return Move.NONE;
+        }
+        boolean capture = targetPiece != Position.NO_PIECE || (type == Position.PAWN && to == position.enPassantSquare);
+        if (type == Position.PAWN && capture != (fromFile != -1 && fromFile != toFile)) {
+            return Move.NONE;
+        }
+        long candidates = candidates(position, type, to, capture);
+        if (fromFile != -1) {
+            candidates &= 0x0101010101010101L << fromFile;
+        }
+        if (fromRank != -1) {
+            candidates &= 0xFFL << (fromRank * 8);
+        }
+        boolean lastRank = to < 8 || to >= 56;
+        if (type == Position.PAWN && lastRank != (promotion != 0)) {
+            return Move.NONE;
+        }
+
+        int found = Move.NONE;
+        for (; candidates != 0; candidates &= candidates - 1) {
+            int from = Long.numberOfTrailingZeros(candidates);
+            int kind = type == Position.PAWN && to == position.enPassantSquare && from % 8 != to % 8
+                    ? Move.EN_PASSANT : Move.NORMAL;
+            int move = Move.of(from, to, kind, promotion);
+            position.makeMove(move);
+            boolean legal = !MoveGenerator.isAttacked(position, position.kingSquare(us), us ^ 1);
+            position.unmakeMove();
+            if (legal) {
+                if (found != Move.NONE) {
+                    return Move.NONE;
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the pieces of the side to move that could move to a square by the piece rules (the king might be left
+     * attacked).
+     *
+     * @param position the position
+     * @param type     the piece type
+     * @param to       the square
+     * @param capture  does the move capture (a piece on the square, or a pawn en passant)?
+     * @return the bitboard of the squares of the pieces
+     */
+    private static long candidates(Position position, int type, int to, boolean capture) {
+        int us = position.sideToMove;
+        long ours = position.PIECES[us * 6 + type];
+        long occupied = position.occupied;
+        switch (type) {
+            case Position.KNIGHT:
+                return Attacks.KNIGHT[to] & ours;
+            case Position.BISHOP:
+                return Attacks.bishop(to, occupied) & ours;
+            case Position.ROOK:
+                return Attacks.rook(to, occupied) & ours;
+            case Position.QUEEN:
+                return Attacks.queen(to, occupied) & ours;
+            case Position.KING:
+                return Attacks.KING[to] & ours;
+            default:
+                break;
+        }
+
+        if (capture) {
+            return Attacks.PAWN[us ^ 1][to] & ours;
+        }
+        int forward = us == Position.WHITE ? 8 : -8;
+        int from = to - forward;
+        if (from < 0 || from > 63) {
+            return 0;
+        }
+        if ((ours & 1L << from) != 0) {
+            return 1L << from;
+        }
+        int startRank = us == Position.WHITE ? 3 : 4;
+        if (to / 8 == startRank && position.pieceAt(from) == Position.NO_PIECE
+                && (ours & 1L << (from - forward)) != 0) {
+            return 1L << (from - forward);
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a move.
+     *
+     * @param position the position the move is played in (changed during writing, but restored)
+     * @param move     the legal move
+     * @param moves    an array to generate the legal moves into (at least {@link MoveGenerator#MAX_MOVES} long)
+     * @return the move in SAN, with "+" or "#" if it gives check or checkmate
+     */
+    static String toString(Position position, int move, int[] moves) {
+        StringBuilder san = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = position.pieceAt(from) % 6;
+        boolean capture = position.pieceAt(to) != Position.NO_PIECE || Move.kind(move) == Move.EN_PASSANT;
+
+        if (Move.kind(move) == Move.CASTLING) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == Position.PAWN) {
+            if (capture) {
+                san.append((char) ('a' + from % 8)).append('x');
+            }
+            san.append(Move.squareName(to));
+            if (Move.promotion(move) != 0) {
+                san.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+            }
+        } else {
+            san.append(PIECE_LETTERS.charAt(type));
+            boolean ambiguous = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            int count = MoveGenerator.generateLegal(position, moves);
+            for (int i = 0; i < count; i++) {
+                int other = Move.from(moves[i]);
+                if (Move.to(moves[i]) == to && other != from && position.pieceAt(other) % 6 == type) {
+                    ambiguous = true;
+                    sameFile |= other % 8 == from % 8;
+                    sameRank |= other / 8 == from / 8;
+                }
+            }
+            if (ambiguous) {
+                if (!sameFile) {
+                    san.append((char) ('a' + from % 8));
+                } else if (!sameRank) {
+                    san.append((char) ('1' + from / 8));
+                } else {
+                    san.append(Move.squareName(from));
+                }
+            }
+            if (capture) {
+                san.append('x');
+            }
+            san.append(Move.squareName(to));
+        }
+
+        position.makeMove(move);
+        if (MoveGenerator.inCheck(position)) {
+            san.append(MoveGenerator.generateLegal(position, moves) == 0 ? '#' : '+');
+        }
+        position.unmakeMove();
+        return san.toString();
+    }
+}
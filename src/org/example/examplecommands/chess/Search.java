@@ -0,0 +1,570 @@
+package org.example.examplecommands.chess;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds the best move of a position with an iterative-deepening principal variation search.
+ * <p>
+ * Every iteration searches one ply deeper with alpha-beta pruning: the first move of a node is searched with the
+ * full window and the others with a null window, re-searched only if they turn out better. The leaves are
+ * extended with a quiescence search of captures, so the evaluation never stops in the middle of an exchange.
+ * Results are kept in a {@link TranspositionTable}, so positions reached again (by another move order or in a
+ * later iteration) are cut off or at least start with their best move. Moves are ordered by the previous principal
+ * variation, then the table move, then captures by most valuable victim / least valuable attacker, then killer
+ * moves, then quiet moves by their history score.
+ *
+ * @author Macintosh_Fan
+ */
+final class Search {
+    /**
+     * A score higher than any real score.
+     */
+    static final int INFINITY = 32500;
+
+    /**
+     * The score of giving checkmate right now (mates further away score lower).
+     */
+    static final int MATE = 32000;
+
+    /**
+     * The deepest ply the search can reach.
+     */
+    static final int MAX_PLY = 128;
+
+    /**
+     * The deepest depth an iteration can have.
+     */
+    static final int MAX_DEPTH = 64;
+
+    /**
+     * The ordering score of the principal variation move.
+     */
+    private static final int PV_SCORE = 1_000_000;
+
+    /**
+     * The ordering score of the transposition table move.
+     */
+    private static final int HASH_SCORE = 500_000;
+
+    /**
+     * The ordering score base of captures and promotions.
+     */
+    private static final int CAPTURE_SCORE = 100_000;
+
+    /**
+     * The ordering scores of the two killer moves.
+     */
+    private static final int[] KILLER_SCORES = {90_000, 80_000};
+
+    /**
+     * The history score at which all history scores are halved.
+     */
+    private static final int HISTORY_LIMIT = 70_000;
+
+    /**
+     * The table of search results.
+     */
+    private final TranspositionTable TABLE;
+
+    /**
+     * The position being searched.
+     */
+    private final Position POSITION = new Position();
+
+    /**
+     * The moves of every ply.
+     */
+    private final int[][] MOVES = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    /**
+     * The ordering scores of the moves of every ply.
+     */
+    private final int[][] ORDER = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    /**
+     * The two latest quiet moves that caused a cutoff, by ply.
+     */
+    private final int[][] KILLERS = new int[MAX_PLY][2];
+
+    /**
+     * How often a quiet move of a piece to a square caused a cutoff, weighted by depth.
+     */
+    private final int[][] HISTORY = new int[12][64];
+
+    /**
+     * The principal variation found below every ply (triangular table).
+     */
+    private final int[][] PV = new int[MAX_PLY][MAX_PLY];
+
+    /**
+     * The end of the principal variation of every ply.
+     */
+    private final int[] PV_LENGTH = new int[MAX_PLY];
+
+    /**
+     * The principal variation of the last finished iteration.
+     */
+    private final int[] PREVIOUS_PV = new int[MAX_PLY];
+
+    /**
+     * The length of {@link #PREVIOUS_PV}.
+     */
+    private int previousPvLength;
+
+    /**
+     * Is the search still on the previous principal variation?
+     */
+    private boolean followPv;
+
+    /**
+     * The number of nodes searched.
+     */
+    private long nodes;
+
+    /**
+     * When the search has to stop ({@link System#nanoTime()}), or {@link Long#MAX_VALUE}.
+     */
+    private long deadline;
+
+    /**
+     * Has the search been stopped?
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Tells if the invocation that started the search has been cancelled, which stops it like its deadline.
+     */
+    private BooleanSupplier cancelled = () -> false;
+
+    /**
+     * The best move found.
+     */
+    private int bestMove;
+
+    /**
+     * The score of the best move.
+     */
+    private int bestScore;
+
+    /**
+     * The depth of the last finished iteration.
+     */
+    private int completedDepth;
+
+    /**
+     * Constructs a search.
+     *
+     * @param table the table of search results (may be shared with other searches)
+     */
+    Search(TranspositionTable table) {
+        TABLE = table;
+    }
+
+    /**
+     * Searches a position until a depth is reached or the time is up.
+     * <p>
+     * The caller starts a new search of the table with {@link TranspositionTable#newSearch()} and clears earlier
+     * stop requests with {@link #prepare(BooleanSupplier)} first.
+     *
+     * @param root           the position to search (not changed)
+     * @param maxDepth       the deepest iteration (1 to {@link #MAX_DEPTH})
+     * @param moveTimeMillis the time to search in milliseconds, or {@code 0} for no limit
+     * @param out            the stream to report every iteration to (may be null)
+     * @return the best move, or {@link Move#NONE} if the position has no legal moves
+     */
+    int search(Position root, int maxDepth, long moveTimeMillis, PrintStream out) {
+        return search(root, 1, maxDepth, moveTimeMillis, out);
+    }
+
+    /**
+     * Searches a position until a depth is reached or the time is up, starting with a deeper iteration.
+     *
+     * @param root           the position to search (not changed)
+     * @param firstDepth     the first iteration (helper threads skip depths so they don't all search the same)
+     * @param maxDepth       the deepest iteration (1 to {@link #MAX_DEPTH})
+     * @param moveTimeMillis the time to search in milliseconds, or {@code 0} for no limit
+     * @param out            the stream to report every iteration to (may be null)
+     * @return the best move, or {@link Move#NONE} if the position has no legal moves
+     */
+    int search(Position root, int firstDepth, int maxDepth, long moveTimeMillis, PrintStream out) {
+        long start = System.nanoTime();
+        deadline = moveTimeMillis > 0 ? start + moveTimeMillis * 1_000_000 : Long.MAX_VALUE;
+        nodes = 0;
+        bestMove = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+        previousPvLength = 0;
+        POSITION.copyFrom(root);
+        for (int[] killers : KILLERS) {
+            killers[0] = Move.NONE;
+            killers[1] = Move.NONE;
+        }
+        for (int[] history : HISTORY) {
+            Arrays.fill(history, 0);
+        }
+
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            followPv = true;
+            int score = pvs(-INFINITY, INFINITY, depth, 0);
+            if (stopped && completedDepth > 0) {
+                break;
+            }
+
+            completedDepth = depth;
+            bestScore = score;
+            previousPvLength = PV_LENGTH[0];
+            System.arraycopy(PV[0], 0, PREVIOUS_PV, 0, previousPvLength);
+            if (previousPvLength > 0) {
+                bestMove = PREVIOUS_PV[0];
+            }
+
+            long elapsed = System.nanoTime() - start;
+            if (out != null) {
+                out.println(info(depth, score, elapsed));
+                out.flush();
+            }
+            if (bestMove == Move.NONE || Math.abs(score) >= MATE - depth || stopped
+                    || (deadline != Long.MAX_VALUE && System.nanoTime() > start + (deadline - start) / 2)) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Clears the stop request of the last search, before the next search is started.
+     *
+     * @param cancelled tells if the next search has been cancelled (checked with the deadline, every 2048 nodes)
+     */
+    void prepare(BooleanSupplier cancelled) {
+        stopped = false;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Stops the search as soon as possible (can be called from any thread).
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Gets the number of nodes searched by the last search.
+     *
+     * @return the number of nodes
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the score of the best move of the last search.
+     *
+     * @return the score in centipawns, from the point of view of the side to move
+     */
+    int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Gets the depth of the last finished iteration of the last search.
+     *
+     * @return the depth
+     */
+    int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Formats the report of a finished iteration.
+     *
+     * @param depth        the depth of the iteration
+     * @param score        the score of the iteration
+     * @param elapsedNanos the time since the search started
+     * @return the report line
+     */
+    private String info(int depth, int score, long elapsedNanos) {
+        StringBuilder info = new StringBuilder(128);
+        info.append("info depth ").append(depth).append(" score ");
+        if (Math.abs(score) >= MATE - MAX_PLY) {
+            int plies = MATE - Math.abs(score);
+            info.append("mate ").append(score > 0 ? (plies + 1) / 2 : -(plies / 2));
+        } else {
+            info.append("cp ").append(score);
+        }
+        long millis = elapsedNanos / 1_000_000;
+        info.append(" nodes ").append(nodes)
+                .append(" nps ").append(nodes * 1_000_000_000L / Math.max(1, elapsedNanos))
+                .append(" time ").append(millis)
+                .append(" pv");
+        for (int i = 0; i < previousPvLength; i++) {
+            info.append(' ').append(Move.toString(PREVIOUS_PV[i]));
+        }
+        return info.toString();
+    }
+
+    /**
+     * Searches a node with the principal variation search.
+     *
+     * @param alpha the score the side to move is already sure of
+     * @param beta  the score the opponent is already sure of
+     * @param depth the remaining depth
+     * @param ply   the distance from the root
+     * @return the score of the node
+     */
+    private int pvs(int alpha, int beta, int depth, int ply) {
+        PV_LENGTH[ply] = ply;
+        if ((++nodes & 2047) == 0 && (System.nanoTime() > deadline || cancelled.getAsBoolean())) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply > 0 && (POSITION.halfmoveClock >= 100 || POSITION.isRepetition())) {
+            return 0;
+        }
+
+        boolean inCheck = MoveGenerator.inCheck(POSITION);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(POSITION);
+        }
+
+        long key = POSITION.key;
+        long entry = TABLE.probe(key);
+        int hashMove = TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry, ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int[] moves = MOVES[ply];
+        int count = MoveGenerator.generateLegal(POSITION, moves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        orderMoves(ply, count, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, i, count);
+            boolean quiet = isQuiet(move);
+            POSITION.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -pvs(-beta, -alpha, depth - 1, ply + 1);
+            } else {
+                score = -pvs(-alpha - 1, -alpha, depth - 1, ply + 1);
+                if (score > alpha && score < beta) {
+                    score = -pvs(-beta, -alpha, depth - 1, ply + 1);
+                }
+            }
+            POSITION.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    if (quiet) {
+                        rememberCutoff(ply, move, depth);
+                    }
+                    break;
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER_BOUND
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        TABLE.store(key, bestMove, best, depth, bound, ply);
+        return best;
+    }
+
+    /**
+     * Searches captures and promotions until the position is quiet.
+     *
+     * @param alpha the score the side to move is already sure of
+     * @param beta  the score the opponent is already sure of
+     * @param ply   the distance from the root
+     * @return the score of the node
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        PV_LENGTH[ply] = ply;
+        if ((++nodes & 2047) == 0 && (System.nanoTime() > deadline || cancelled.getAsBoolean())) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        int standPat = Evaluation.evaluate(POSITION);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        int[] moves = MOVES[ply];
+        int count = MoveGenerator.generateLegal(POSITION, moves);
+        int captures = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isQuiet(moves[i])) {
+                moves[captures++] = moves[i];
+            }
+        }
+        followPv = false;
+        orderMoves(ply, captures, Move.NONE);
+
+        for (int i = 0; i < captures; i++) {
+            int move = pickMove(ply, i, captures);
+            POSITION.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            POSITION.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Is a move neither a capture nor a promotion?
+     *
+     * @param move the move (not played yet)
+     * @return {@code true} if the move is quiet
+     */
+    private boolean isQuiet(int move) {
+        return POSITION.pieceAt(Move.to(move)) == Position.NO_PIECE && Move.kind(move) != Move.EN_PASSANT
+                && Move.promotion(move) == 0;
+    }
+
+    /**
+     * Gives every move of a ply its ordering score.
+     *
+     * @param ply      the ply
+     * @param count    the number of moves
+     * @param hashMove the best move stored in the transposition table ({@link Move#NONE} if none)
+     */
+    private void orderMoves(int ply, int count, int hashMove) {
+        int[] moves = MOVES[ply];
+        int[] order = ORDER[ply];
+        int pvMove = followPv && ply < previousPvLength ? PREVIOUS_PV[ply] : Move.NONE;
+        followPv = false;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int piece = POSITION.pieceAt(Move.from(move));
+            int victim = POSITION.pieceAt(Move.to(move));
+            if (move == pvMove) {
+                order[i] = PV_SCORE;
+                followPv = true;
+            } else if (move == hashMove) {
+                order[i] = HASH_SCORE;
+            } else if (victim != Position.NO_PIECE || Move.kind(move) == Move.EN_PASSANT
+                    || Move.promotion(move) != 0) {
+                int victimValue = victim == Position.NO_PIECE ? Evaluation.PIECE_VALUES[Position.PAWN]
+                        : Evaluation.PIECE_VALUES[victim % 6];
+                if (Move.promotion(move) != 0) {
+                    victimValue += Evaluation.PIECE_VALUES[Move.promotion(move)];
+                }
+                order[i] = CAPTURE_SCORE + victimValue * 8 - piece % 6;
+            } else if (move == KILLERS[ply][0]) {
+                order[i] = KILLER_SCORES[0];
+            } else if (move == KILLERS[ply][1]) {
+                order[i] = KILLER_SCORES[1];
+            } else {
+                order[i] = HISTORY[piece][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Moves the best remaining move of a ply to an index (selection sort, one step at a time).
+     *
+     * @param ply   the ply
+     * @param index the index to fill
+     * @param count the number of moves
+     * @return the move at the index
+     */
+    private int pickMove(int ply, int index, int count) {
+        int[] moves = MOVES[ply];
+        int[] order = ORDER[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (order[i] > order[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = order[best];
+        order[best] = order[index];
+        order[index] = score;
+        return move;
+    }
+
+    /**
+     * Makes a move the principal variation of a ply, followed by the principal variation of the next ply.
+     *
+     * @param ply  the ply
+     * @param move the move
+     */
+    private void updatePv(int ply, int move) {
+        PV[ply][ply] = move;
+        int length = PV_LENGTH[ply + 1];
+        System.arraycopy(PV[ply + 1], ply + 1, PV[ply], ply + 1, length - ply - 1);
+        PV_LENGTH[ply] = Math.max(length, ply + 1);
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff, as a killer move and in the history.
+     *
+     * @param ply   the ply
+     * @param move  the move (not played)
+     * @param depth the remaining depth
+     */
+    private void rememberCutoff(int ply, int move, int depth) {
+        if (KILLERS[ply][0] != move) {
+            KILLERS[ply][1] = KILLERS[ply][0];
+            KILLERS[ply][0] = move;
+        }
+
+        int[] history = HISTORY[POSITION.pieceAt(Move.from(move))];
+        history[Move.to(move)] += depth * depth;
+        if (history[Move.to(move)] > HISTORY_LIMIT) {
+            for (int[] pieceHistory : HISTORY) {
+                for (int square = 0; square < 64; square++) {
+                    pieceHistory[square] /= 2;
+                }
+            }
+        }
+    }
+}
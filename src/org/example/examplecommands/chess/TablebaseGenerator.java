@@ -0,0 +1,565 @@
+package org.example.examplecommands.chess;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Generates an {@link EndgameTable} by retrograde analysis.
+ * <p>
+ * First every position is set up and its legal moves are played: moves that capture or promote are looked up in the
+ * smaller tables (which must exist), and the other moves are counted. Then the positions are resolved ply by ply: at
+ * ply {@code n} the positions that are mated in {@code n} plies or mate in {@code n} plies are marked, and their
+ * moves are taken back. A position that can move into one that is mated in {@code n} plies mates in {@code n + 1};
+ * a position whose moves all lead to positions that mate is mated once its last move is taken back. Positions that
+ * are never marked are draws.
+ * <p>
+ * Every pass over the positions is split into chunks that run on a fork/join pool. Passes that take moves back
+ * update the positions they lead to with atomic operations, since two chunks can lead to the same position.
+ *
+ * @author Macintosh_Fan
+ */
+final class TablebaseGenerator {
+    /**
+     * The ply of a position that is not known to mate or to be mated.
+     */
+    private static final int NONE = 0xFF;
+
+    /**
+     * The deepest ply that fits in a table.
+     */
+    private static final int MAX_PLIES = 254;
+
+    /**
+     * The number of chunks of every pass, for each thread.
+     */
+    private static final int CHUNKS_PER_THREAD = 16;
+
+    /**
+     * Gives atomic access to the bytes of the arrays.
+     */
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /**
+     * The table.
+     */
+    private final EndgameTable TABLE;
+
+    /**
+     * The tables that captures and promotions lead to.
+     */
+    private final Tablebases TABLEBASES;
+
+    /**
+     * The number of threads.
+     */
+    private final int THREADS;
+
+    /**
+     * Tells if the invocation that generates the table has been cancelled (checked before every pass).
+     */
+    private final BooleanSupplier CANCELLED;
+
+    /**
+     * The values of the positions that are resolved.
+     */
+    private final byte[] VALUES;
+
+    /**
+     * The fewest plies in which each position is known to mate, or {@link #NONE}.
+     */
+    private final byte[] WIN;
+
+    /**
+     * The most plies in which each position is mated if all its moves lead to positions that mate, or
+     * {@link #NONE} if it has a move that doesn't lose (or is not a position).
+     */
+    private final byte[] LOSS;
+
+    /**
+     * The number of positions each position leads to that are not known to mate yet.
+     */
+    private final byte[] REMAINING;
+
+    /**
+     * The number of positions.
+     */
+    private long positions;
+
+    /**
+     * The number of positions where the side to move mates.
+     */
+    private long wins;
+
+    /**
+     * The number of positions where the side to move is mated.
+     */
+    private long losses;
+
+    /**
+     * The most plies to mate of any position.
+     */
+    private int longest;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param table      the table
+     * @param tablebases the tables that captures and promotions lead to
+     * @param threads    the number of threads
+     * @param cancelled  tells if the invocation that generates the table has been cancelled
+     */
+    TablebaseGenerator(EndgameTable table, Tablebases tablebases, int threads, BooleanSupplier cancelled) {
+        TABLE = table;
+        TABLEBASES = tablebases;
+        THREADS = threads;
+        CANCELLED = cancelled;
+        VALUES = new byte[table.size()];
+        WIN = new byte[table.size()];
+        LOSS = new byte[table.size()];
+        REMAINING = new byte[table.size()];
+    }
+
+    /**
+     * Generates the table.
+     *
+     * @return the values of the table
+     * @throws IllegalStateException if a position takes more plies to mate than a table can hold
+     * @throws CancellationException  if the generation is cancelled
+     */
+    byte[] generate() {
+        ForkJoinPool pool = new ForkJoinPool(THREADS);
+        try {
+            long[] deepest = run(pool, this::setUp);
+            int deepestExit = 0;
+            for (long ply : deepest) {
+                deepestExit = (int) Math.max(deepestExit, ply);
+            }
+
+            for (int ply = 0; ; ply++) {
+                int finalPly = ply;
+                long resolved = 0;
+                for (long count : run(pool, (start, end) -> resolve(start, end, finalPly))) {
+                    resolved += count;
+                }
+                if (resolved == 0 && ply >= deepestExit) {
+                    break;
+                }
+                if (ply == MAX_PLIES) {
+                    throw new IllegalStateException(TABLE.getName() + " has mates longer than " + MAX_PLIES
+                            + " plies");
+                }
+                run(pool, (start, end) -> retract(start, end, finalPly));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < VALUES.length; i++) {
+            if (VALUES[i] != 0) {
+                int plies = (VALUES[i] & 0xFF) - 1;
+                if (plies % 2 == 1) {
+                    wins++;
+                } else {
+                    losses++;
+                }
+                longest = Math.max(longest, plies);
+            }
+        }
+        return VALUES;
+    }
+
+    /**
+     * Gets the number of positions.
+     *
+     * @return the number of positions
+     */
+    long getPositions() {
+        return positions;
+    }
+
+    /**
+     * Gets the number of positions where the side to move mates.
+     *
+     * @return the number of won positions
+     */
+    long getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the number of positions where the side to move is mated.
+     *
+     * @return the number of lost positions
+     */
+    long getLosses() {
+        return losses;
+    }
+
+    /**
+     * Gets the number of drawn positions.
+     *
+     * @return the number of drawn positions
+     */
+    long getDraws() {
+        return positions - wins - losses;
+    }
+
+    /**
+     * Gets the most plies to mate of any position.
+     *
+     * @return the number of plies
+     */
+    int getLongest() {
+        return longest;
+    }
+
+    /**
+     * A pass over a chunk of positions.
+     */
+    private interface Pass {
+        /**
+         * Runs the pass over a chunk.
+         *
+         * @param start the first index of the chunk
+         * @param end   the index after the chunk
+         * @return the result of the chunk
+         */
+        long run(int start, int end);
+    }
+
+    /**
+     * Runs a pass over every position, in chunks on a pool.
+     *
+     * @param pool the pool
+     * @param pass the pass
+     * @return the results of the chunks
+     * @throws CancellationException if the generation has been cancelled
+     */
+    private long[] run(ForkJoinPool pool, Pass pass) {
+        if (CANCELLED.getAsBoolean()) {
+            throw new CancellationException("Generating " + TABLE.getName() + " was cancelled");
+        }
+
+        int chunks = THREADS * CHUNKS_PER_THREAD;
+        int chunkSize = (VALUES.length + chunks - 1) / chunks;
+        List<Callable<Long>> tasks = new ArrayList<>(chunks);
+        for (int start = 0; start < VALUES.length; start += chunkSize) {
+            int chunkStart = start;
+            int chunkEnd = Math.min(VALUES.length, start + chunkSize);
+            tasks.add(() -> pass.run(chunkStart, chunkEnd));
+        }
+
+        List<Future<Long>> futures = pool.invokeAll(tasks);
+        long[] results = new long[futures.size()];
+        try {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(ee.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Sets up the positions of a chunk: marks the indexes that are not positions, and counts the moves that stay in
+     * the table and looks up the ones that leave it.
+     *
+     * @param start the first index of the chunk
+     * @param end   the index after the chunk
+     * @return the deepest ply a position of the chunk can be resolved at by the moves that leave the table
+     */
+    private long setUp(int start, int end) {
+        int[] pieces = TABLE.pieces();
+        int[] squares = new int[pieces.length];
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] children = new int[MoveGenerator.MAX_MOVES];
+        Position position = new Position();
+        long count = 0;
+        int deepest = 0;
+        for (int index = start; index < end; index++) {
+            WIN[index] = (byte) NONE;
+            LOSS[index] = (byte) NONE;
+            int sideToMove = TABLE.decode(index, squares);
+            if (!isPosition(pieces, squares) || TABLE.index(squares, sideToMove) != index) {
+                continue;
+            }
+            position.setPieces(pieces, squares, pieces.length, sideToMove);
+            if (MoveGenerator.isAttacked(position, position.kingSquare(sideToMove ^ 1), sideToMove)) {
+                continue;
+            }
+            count++;
+
+            int moveCount = MoveGenerator.generateLegal(position, moves);
+            int win = NONE;
+            int loss = 0;
+            int childCount = 0;
+            if (moveCount == 0 && !MoveGenerator.inCheck(position)) {
+                loss = NONE;
+            }
+            for (int i = 0; i < moveCount; i++) {
+                int move = moves[i];
+                boolean leaves = position.pieceAt(Move.to(move)) != Position.NO_PIECE || Move.promotion(move) != 0;
+                position.makeMove(move);
+                if (leaves) {
+                    int value = TABLEBASES.probe(position);
+                    if (value == Tablebases.UNKNOWN) {
+                        throw new IllegalStateException("A table that " + TABLE.getName() + " needs is missing");
+                    }
+                    value = Tablebases.afterMove(value);
+                    if (value == EndgameTable.DRAW) {
+                        loss = NONE;
+                    } else if ((value - 1) % 2 == 1) {
+                        win = Math.min(win, value - 1);
+                    } else if (loss != NONE) {
+                        loss = Math.max(loss, value - 1);
+                    }
+                } else {
+                    int child = TABLE.index(position, false, squares);
+                    int j = 0;
+                    while (j < childCount && children[j] != child) {
+                        j++;
+                    }
+                    if (j == childCount) {
+                        children[childCount++] = child;
+                    }
+                }
+                position.unmakeMove();
+            }
+            WIN[index] = (byte) win;
+            LOSS[index] = (byte) loss;
+            REMAINING[index] = (byte) childCount;
+            if (win != NONE) {
+                deepest = Math.max(deepest, win);
+            } else if (loss != NONE) {
+                deepest = Math.max(deepest, loss);
+            }
+        }
+        synchronized (this) {
+            positions += count;
+        }
+        return deepest;
+    }
+
+    /**
+     * Checks that the squares of the pieces of an index make a position: no two pieces on one square, and no pawns
+     * on the first or last rank.
+     *
+     * @param pieces  the piece codes of the slots
+     * @param squares the squares of the slots
+     * @return {@code true} if the squares make a position
+     */
+    private static boolean isPosition(int[] pieces, int[] squares) {
+        long occupied = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            long bit = 1L << squares[i];
+            if ((occupied & bit) != 0) {
+                return false;
+            }
+            occupied |= bit;
+            if (pieces[i] % 6 == Position.PAWN && (squares[i] < 8 || squares[i] >= 56)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the positions of a chunk that mate or are mated in a number of plies.
+     *
+     * @param start the first index of the chunk
+     * @param end   the index after the chunk
+     * @param ply   the number of plies
+     * @return the number of positions marked
+     */
+    private long resolve(int start, int end, int ply) {
+        long count = 0;
+        for (int index = start; index < end; index++) {
+            if (VALUES[index] != 0) {
+                continue;
+            }
+            int win = WIN[index] & 0xFF;
+            if (win == ply || win == NONE && (LOSS[index] & 0xFF) == ply && REMAINING[index] == 0) {
+                VALUES[index] = (byte) (ply + 1);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Takes back the moves into the positions of a chunk that were marked at a number of plies.
+     *
+     * @param start the first index of the chunk
+     * @param end   the index after the chunk
+     * @param ply   the number of plies
+     * @return {@code 0}
+     */
+    private long retract(int start, int end, int ply) {
+        int[] pieces = TABLE.pieces();
+        int[] squares = new int[pieces.length];
+        int[] parents = new int[MoveGenerator.MAX_MOVES];
+        for (int index = start; index < end; index++) {
+            if ((VALUES[index] & 0xFF) != ply + 1) {
+                continue;
+            }
+            int sideToMove = TABLE.decode(index, squares);
+            int parentCount = parents(pieces, squares, sideToMove, parents);
+            for (int i = 0; i < parentCount; i++) {
+                int parent = parents[i];
+                if (ply % 2 == 0) {
+                    lower(WIN, parent, ply + 1);
+                } else {
+                    raise(LOSS, parent, ply + 1);
+                    BYTES.getAndAdd(REMAINING, parent, (byte) -1);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the positions that lead to a position by a move that doesn't capture or promote.
+     *
+     * @param pieces     the piece codes of the slots
+     * @param squares    the squares of the slots (changed during the search, but restored)
+     * @param sideToMove the side to move
+     * @param parents    the array to write the indexes of the positions to (each once)
+     * @return the number of positions
+     */
+    private int parents(int[] pieces, int[] squares, int sideToMove, int[] parents) {
+        int mover = sideToMove ^ 1;
+        long occupied = 0;
+        for (int square : squares) {
+            occupied |= 1L << square;
+        }
+
+        int count = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] / 6 != mover) {
+                continue;
+            }
+            int to = squares[i];
+            long origins;
+            int type = pieces[i] % 6;
+            if (type == Position.PAWN) {
+                int back = mover == Position.WHITE ? -8 : 8;
+                origins = 0;
+                int from = to + back;
+                if (from >= 8 && from < 56 && (occupied & 1L << from) == 0) {
+                    origins |= 1L << from;
+                    int startRank = mover == Position.WHITE ? 3 : 4;
+                    if (to / 8 == startRank && (occupied & 1L << (from + back)) == 0) {
+                        origins |= 1L << (from + back);
+                    }
+                }
+            } else {
+                origins = attacks(type, mover, to, occupied) & ~occupied;
+            }
+
+            for (; origins != 0; origins &= origins - 1) {
+                squares[i] = Long.numberOfTrailingZeros(origins);
+                if (!isKingAttacked(pieces, squares, sideToMove)) {
+                    int parent = TABLE.index(squares, mover);
+                    int j = 0;
+                    while (j < count && parents[j] != parent) {
+                        j++;
+                    }
+                    if (j == count) {
+                        parents[count++] = parent;
+                    }
+                }
+            }
+            squares[i] = to;
+        }
+        return count;
+    }
+
+    /**
+     * Is the king of a side attacked by the pieces of the other side?
+     *
+     * @param pieces  the piece codes of the slots
+     * @param squares the squares of the slots
+     * @param color   the side of the king
+     * @return {@code true} if the king is attacked
+     */
+    private static boolean isKingAttacked(int[] pieces, int[] squares, int color) {
+        long occupied = 0;
+        int king = -1;
+        for (int i = 0; i < pieces.length; i++) {
+            occupied |= 1L << squares[i];
+            if (pieces[i] == color * 6 + Position.KING) {
+                king = squares[i];
+            }
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] / 6 != color
+                    && (attacks(pieces[i] % 6, pieces[i] / 6, squares[i], occupied) & 1L << king) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the squares a piece attacks.
+     *
+     * @param type     the piece type
+     * @param color    the side of the piece
+     * @param square   the square of the piece
+     * @param occupied the occupied squares
+     * @return the bitboard of the attacked squares
+     */
+    private static long attacks(int type, int color, int square, long occupied) {
+        return switch (type) {
+            case Position.PAWN -> Attacks.PAWN[color][square];
+            case Position.KNIGHT -> Attacks.KNIGHT[square];
+            case Position.BISHOP -> Attacks.bishop(square, occupied);
+            case Position.ROOK -> Attacks.rook(square, occupied);
+            case Position.QUEEN -> Attacks.queen(square, occupied);
+            default -> Attacks.KING[square];
+        };
+    }
+
+    /**
+     * Lowers a byte of an array (compared unsigned) atomically.
+     *
+     * @param array the array
+     * @param index the index of the byte
+     * @param value the value to lower it to
+     */
+    private static void lower(byte[] array, int index, int value) {
+        byte current;
+        do {
+            current = (byte) BYTES.getVolatile(array, index);
+        } while ((current & 0xFF) > value && !BYTES.compareAndSet(array, index, current, (byte) value));
+    }
+
+    /**
+     * Raises a byte of an array (compared unsigned) atomically.
+     *
+     * @param array the array
+     * @param index the index of the byte
+     * @param value the value to raise it to
+     */
+    private static void raise(byte[] array, int index, int value) {
+        byte current;
+        do {
+            current = (byte) BYTES.getVolatile(array, index);
+        } while ((current & 0xFF) < value && !BYTES.compareAndSet(array, index, current, (byte) value));
+    }
+}
@@ -0,0 +1,353 @@
+package org.example.examplecommands.chess;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The endgame tables of a directory: one {@link EndgameTable} file ("KQKR.tb") per material, mapped when it is
+ * first probed.
+ * <p>
+ * Probing finds the table of the material of a position (turning the board and swapping the colors if black is the
+ * stronger side) and reads the value of the position from it. Positions with an en passant square are probed by
+ * playing each move, since the tables don't know about en passant.
+ *
+ * @author Macintosh_Fan
+ */
+final class Tablebases {
+    /**
+     * The most pieces (kings included) of a table.
+     */
+    static final int MAX_PIECES = 4;
+
+    /**
+     * The value of a position that is not in the tables.
+     */
+    static final int UNKNOWN = -1;
+
+    /**
+     * The extension of table files.
+     */
+    private static final String EXTENSION = ".tb";
+
+    /**
+     * The tables that are open, by name.
+     */
+    private final Map<String, EndgameTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * The directory of the table files.
+     */
+    private final Path DIRECTORY;
+
+    /**
+     * Constructs the tablebases of a directory.
+     *
+     * @param directory the directory of the table files
+     */
+    Tablebases(Path directory) {
+        DIRECTORY = directory;
+    }
+
+    /**
+     * Gets the directory of the table files.
+     *
+     * @return the directory
+     */
+    Path getDirectory() {
+        return DIRECTORY;
+    }
+
+    /**
+     * Gets the names of every table of 3 and 4 pieces.
+     *
+     * @return the names, smaller tables first
+     */
+    static List<String> allNames() {
+        String order = EndgameTable.ORDER;
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < order.length(); i++) {
+            names.add("K" + order.charAt(i) + "K");
+        }
+        for (int i = 0; i < order.length(); i++) {
+            for (int j = i; j < order.length(); j++) {
+                names.add("K" + order.charAt(i) + order.charAt(j) + "K");
+            }
+        }
+        for (int i = 0; i < order.length(); i++) {
+            for (int j = i; j < order.length(); j++) {
+                names.add("K" + order.charAt(i) + "K" + order.charAt(j));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Gets the name of the material of a position.
+     *
+     * @param position the position
+     * @return the name, such as "KQKR"
+     */
+    static String name(Position position) {
+        return EndgameTable.name(EndgameTable.letters(position, Position.WHITE),
+                EndgameTable.letters(position, Position.BLACK));
+    }
+
+    /**
+     * Gets the file of a table.
+     *
+     * @param name the name of the table
+     * @return the file
+     */
+    Path file(String name) {
+        return DIRECTORY.resolve(name + EXTENSION);
+    }
+
+    /**
+     * Gets an open table, opening its file if needed.
+     *
+     * @param name the name of the table
+     * @return the table, or {@code null} if it has no file
+     * @throws IOException if the file can't be opened
+     */
+    EndgameTable table(String name) throws IOException {
+        EndgameTable table = TABLES.get(name);
+        if (table == null && Files.isRegularFile(file(name))) {
+            table = EndgameTable.open(name, file(name));
+            TABLES.put(name, table);
+        }
+        return table;
+    }
+
+    /**
+     * Forgets an open table (so it is opened again from its file).
+     *
+     * @param name the name of the table
+     */
+    void close(String name) {
+        TABLES.remove(name);
+    }
+
+    /**
+     * Gets the value of a position.
+     *
+     * @param position the position (changed during probing, but restored)
+     * @return {@link EndgameTable#DRAW}, the number of plies to mate plus one (odd plies if the side to move mates),
+     * or {@link #UNKNOWN} if the position is not in the tables
+     */
+    int probe(Position position) {
+        int pieces = Long.bitCount(position.occupied);
+        if (pieces > MAX_PIECES || position.castlingRights != 0) {
+            return UNKNOWN;
+        }
+        if (position.enPassantSquare != -1) {
+            return probeMoves(position, new int[MoveGenerator.MAX_MOVES]);
+        }
+        if (pieces == 2) {
+            return EndgameTable.DRAW;
+        }
+
+        String white = EndgameTable.letters(position, Position.WHITE);
+        String black = EndgameTable.letters(position, Position.BLACK);
+        EndgameTable table;
+        try {
+            table = table(EndgameTable.name(white, black));
+        } catch (IOException ioe) {
+            return UNKNOWN;
+        }
+        if (table == null) {
+            return UNKNOWN;
+        }
+        boolean flip = EndgameTable.isStronger(black, white);
+        return table.value(table.index(position, flip, new int[MAX_PIECES]));
+    }
+
+    /**
+     * Gets the value of a position by probing the positions after every legal move.
+     *
+     * @param position the position (changed during probing, but restored)
+     * @param moves    an array to generate the legal moves into
+     * @return the value, or {@link #UNKNOWN} if a position after a move is not in the tables
+     */
+    private int probeMoves(Position position, int[] moves) {
+        int count = MoveGenerator.generateLegal(position, moves);
+        if (count == 0) {
+            return MoveGenerator.inCheck(position) ? 1 : EndgameTable.DRAW;
+        }
+        int best = UNKNOWN;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int value = probe(position);
+            position.unmakeMove();
+            if (value == UNKNOWN) {
+                return UNKNOWN;
+            }
+            value = afterMove(value);
+            if (best == UNKNOWN || score(value) > score(best)) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the best move of a position.
+     *
+     * @param position the position (changed during probing, but restored)
+     * @return the move that mates the fastest, draws, or is mated the slowest, or {@link Move#NONE} if there are
+     * no legal moves or a position after a move is not in the tables
+     */
+    int bestMove(Position position) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(position, moves);
+        int bestMove = Move.NONE;
+        int best = UNKNOWN;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int value = probe(position);
+            position.unmakeMove();
+            if (value == UNKNOWN) {
+                return Move.NONE;
+            }
+            value = afterMove(value);
+            if (best == UNKNOWN || score(value) > score(best)) {
+                best = value;
+                bestMove = moves[i];
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Gets the value of a position for the side that moved into another one.
+     *
+     * @param value the value of the position after the move
+     * @return the value of the position before the move
+     */
+    static int afterMove(int value) {
+        return value == EndgameTable.DRAW ? EndgameTable.DRAW : value + 1;
+    }
+
+    /**
+     * Scores a value for the side to move, so that better values have higher scores.
+     *
+     * @param value the value
+     * @return the score
+     */
+    static int score(int value) {
+        if (value == EndgameTable.DRAW) {
+            return 0;
+        }
+        int plies = value - 1;
+        return plies % 2 == 1 ? 1000 - plies : plies - 1000;
+    }
+
+    /**
+     * Describes a value.
+     *
+     * @param value      the value
+     * @param sideToMove the side to move
+     * @return the result, such as "White mates in 12"
+     */
+    static String describe(int value, int sideToMove) {
+        if (value == UNKNOWN) {
+            return "Not in the tables";
+        }
+        if (value == EndgameTable.DRAW) {
+            return "Draw";
+        }
+        int plies = value - 1;
+        if (plies == 0) {
+            return (sideToMove == Position.WHITE ? "White" : "Black") + " is checkmated";
+        }
+        int winner = plies % 2 == 1 ? sideToMove : sideToMove ^ 1;
+        return (winner == Position.WHITE ? "White" : "Black") + " mates in " + (plies + 1) / 2 + " (" + plies
+                + " plies)";
+    }
+
+    /**
+     * Generates a table (and the smaller tables it needs that have no file yet) and writes it to its file.
+     *
+     * @param name      the name of the table
+     * @param threads   the number of threads to generate with
+     * @param cancelled tells if the invocation that generates the table has been cancelled
+     * @param out       the stream to report to
+     * @throws IOException              if a file can't be written
+     * @throws IllegalArgumentException if the name is not a table
+     * @throws CancellationException    if the generation is cancelled (no file is written for the table)
+     */
+    void generate(String name, int threads, BooleanSupplier cancelled, PrintStream out) throws IOException {
+        EndgameTable table = new EndgameTable(name);
+        for (String smaller : successors(table)) {
+            if (table(smaller) == null) {
+                generate(smaller, threads, cancelled, out);
+            }
+        }
+
+        long start = System.nanoTime();
+        TablebaseGenerator generator = new TablebaseGenerator(table, this, threads, cancelled);
+        byte[] values = generator.generate();
+        Files.createDirectories(DIRECTORY);
+        Files.write(file(name), values);
+        close(name);
+        out.printf("%-5s %,11d positions: %,11d won, %,11d drawn, %,11d lost, longest mate %3d plies,"
+                        + " %,6d KB, %.2f s%n", name, generator.getPositions(), generator.getWins(),
+                generator.getDraws(), generator.getLosses(), generator.getLongest(), values.length / 1024,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Gets the tables a capture or a promotion leads to from a table.
+     *
+     * @param table the table
+     * @return the names of the tables (of 3 pieces or more)
+     */
+    private static List<String> successors(EndgameTable table) {
+        String name = table.getName();
+        int secondKing = name.indexOf('K', 1);
+        String white = name.substring(1, secondKing);
+        String black = name.substring(secondKing + 1);
+        List<String> names = new ArrayList<>();
+        for (int side = 0; side < 2; side++) {
+            String ours = side == 0 ? white : black;
+            String theirs = side == 0 ? black : white;
+            for (int i = 0; i < ours.length(); i++) {
+                String rest = ours.substring(0, i) + ours.substring(i + 1);
+                if (rest.length() + theirs.length() > 0) {
+                    names.add(EndgameTable.name(rest, theirs));
+                }
+                if (ours.charAt(i) == 'P') {
+                    for (char piece : "QRBN".toCharArray()) {
+                        names.add(EndgameTable.name(sorted(rest + piece), theirs));
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Sorts letters of pieces in the order of {@link EndgameTable#ORDER}.
+     *
+     * @param letters the letters
+     * @return the sorted letters
+     */
+    private static String sorted(String letters) {
+        StringBuilder sorted = new StringBuilder(letters.length());
+        for (char piece : EndgameTable.ORDER.toCharArray()) {
+            for (int i = 0; i < letters.length(); i++) {
+                if (letters.charAt(i) == piece) {
+                    sorted.append(piece);
+                }
+            }
+        }
+        return sorted.toString();
+    }
+}
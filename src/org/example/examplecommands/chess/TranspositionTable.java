@@ -0,0 +1,272 @@
+package org.example.examplecommands.chess;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size hash table of search results, shared without locks by any number of search threads.
+ * <p>
+ * Every entry is 16 bytes: a {@code long} of data (move, score, depth, bound and age) and a {@code long} holding
+ * the position key XORed with the data. A reader accepts an entry only if XORing both words gives back its key, so
+ * an entry torn by two threads writing at once is simply a miss, and no locks are needed. Entries are grouped in
+ * buckets of two: the first slot keeps the deepest result (unless it is from an older search), the second slot is
+ * always replaced.
+ *
+ * @author Macintosh_Fan
+ */
+final class TranspositionTable {
+    /**
+     * The score is exact.
+     */
+    static final int EXACT = 3;
+
+    /**
+     * The score is at least this high (the search failed high).
+     */
+    static final int LOWER_BOUND = 2;
+
+    /**
+     * The score is at most this high (the search failed low).
+     */
+    static final int UPPER_BOUND = 1;
+
+    /**
+     * The size of an entry in bytes.
+     */
+    static final int ENTRY_SIZE = 16;
+
+    /**
+     * Atomic (opaque) access to the elements of the {@code long[]} arrays.
+     */
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * The position keys XORed with the data.
+     */
+    private final long[] KEYS;
+
+    /**
+     * The data of the entries.
+     */
+    private final long[] DATA;
+
+    /**
+     * The mask that turns a key into the index of the first slot of its bucket.
+     */
+    private final int MASK;
+
+    /**
+     * The number of probes.
+     */
+    private final LongAdder PROBES = new LongAdder();
+
+    /**
+     * The number of probes that found their position.
+     */
+    private final LongAdder HITS = new LongAdder();
+
+    /**
+     * The number of stores.
+     */
+    private final LongAdder STORES = new LongAdder();
+
+    /**
+     * The age of the current search (6 bits).
+     */
+    private volatile int generation;
+
+    /**
+     * Constructs a table.
+     *
+     * @param megabytes the memory budget in megabytes (the table takes the biggest power of two that fits)
+     * @throws IllegalArgumentException if the budget is smaller than 1 or larger than 32768
+     */
+    TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 32768) {
+            throw new IllegalArgumentException("The hash size must be between 1 and 32768 MB");
+        }
+        long entries = Long.highestOneBit(megabytes * 1024L * 1024L / ENTRY_SIZE);
+        entries = Math.min(entries, 1 << 30);
+        KEYS = new long[(int) entries];
+        DATA = new long[(int) entries];
+        MASK = (int) entries - 2;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the number of entries
+     */
+    int capacity() {
+        return KEYS.length;
+    }
+
+    /**
+     * Gets the memory taken by the entries.
+     *
+     * @return the size in bytes
+     */
+    long sizeInBytes() {
+        return (long) KEYS.length * ENTRY_SIZE;
+    }
+
+    /**
+     * Starts a new search, so entries of older searches become the first to be replaced.
+     */
+    void newSearch() {
+        generation = (generation + 1) & 63;
+    }
+
+    /**
+     * Removes every entry and resets the statistics.
+     */
+    void clear() {
+        for (int i = 0; i < KEYS.length; i++) {
+            LONGS.setOpaque(KEYS, i, 0L);
+            LONGS.setOpaque(DATA, i, 0L);
+        }
+        PROBES.reset();
+        HITS.reset();
+        STORES.reset();
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key the position key
+     * @return the data of the entry, or {@code 0} if the position is not in the table
+     */
+    long probe(long key) {
+        PROBES.increment();
+        int index = (int) key & MASK;
+        for (int i = index; i < index + 2; i++) {
+            long data = (long) LONGS.getOpaque(DATA, i);
+            if (((long) LONGS.getOpaque(KEYS, i) ^ data) == key && data != 0) {
+                HITS.increment();
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param key   the position key
+     * @param move  the best move ({@link Move#NONE} if unknown)
+     * @param score the score, as returned by the search at this ply
+     * @param depth the depth searched (0 to 255)
+     * @param bound {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     * @param ply   the distance from the root (to store mate scores relative to the position)
+     */
+    void store(long key, int move, int score, int depth, int bound, int ply) {
+        STORES.increment();
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            score += ply;
+        } else if (score <= -Search.MATE + Search.MAX_PLY) {
+            score -= ply;
+        }
+        long data = (move & 0x1FFFFL) | (long) bound << 17 | (long) (depth & 255) << 19
+                | (long) generation << 27 | (long) (score & 0xFFFF) << 48;
+
+        int index = (int) key & MASK;
+        long old = (long) LONGS.getOpaque(DATA, index);
+        boolean samePosition = ((long) LONGS.getOpaque(KEYS, index) ^ old) == key;
+        if (old == 0 || samePosition || depth >= depth(old) || generation(old) != generation) {
+            write(index, key, data);
+        } else {
+            write(index + 1, key, data);
+        }
+    }
+
+    /**
+     * Writes an entry.
+     *
+     * @param index the slot
+     * @param key   the position key
+     * @param data  the data
+     */
+    private void write(int index, long key, long data) {
+        LONGS.setOpaque(KEYS, index, key ^ data);
+        LONGS.setOpaque(DATA, index, data);
+    }
+
+    /**
+     * Gets the best move of an entry.
+     *
+     * @param data the data of the entry
+     * @return the move ({@link Move#NONE} if unknown)
+     */
+    static int move(long data) {
+        return (int) (data & 0x1FFFF);
+    }
+
+    /**
+     * Gets the bound of an entry.
+     *
+     * @param data the data of the entry
+     * @return {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     */
+    static int bound(long data) {
+        return (int) (data >>> 17 & 3);
+    }
+
+    /**
+     * Gets the depth of an entry.
+     *
+     * @param data the data of the entry
+     * @return the depth
+     */
+    static int depth(long data) {
+        return (int) (data >>> 19 & 255);
+    }
+
+    /**
+     * Gets the age of an entry.
+     *
+     * @param data the data of the entry
+     * @return the age
+     */
+    private static int generation(long data) {
+        return (int) (data >>> 27 & 63);
+    }
+
+    /**
+     * Gets the score of an entry.
+     *
+     * @param data the data of the entry
+     * @param ply  the distance from the root (to turn mate scores back into distances from the root)
+     * @return the score
+     */
+    static int score(long data, int ply) {
+        int score = (short) (data >>> 48);
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            score -= ply;
+        } else if (score <= -Search.MATE + Search.MAX_PLY) {
+            score += ply;
+        }
+        return score;
+    }
+
+    /**
+     * Formats the statistics of the table.
+     *
+     * @return the statistics as one line
+     */
+    String statistics() {
+        long probes = PROBES.sum();
+        long hits = HITS.sum();
+        int sample = Math.min(KEYS.length, 1000);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = (long) LONGS.getOpaque(DATA, i);
+            if (data != 0 && generation(data) == generation) {
+                used++;
+            }
+        }
+        return String.format("%,d entries (%,d MB), %,d probes, %,d hits (%.1f%%), %,d stores, %.1f%% full",
+                KEYS.length, sizeInBytes() / (1024 * 1024), probes, hits, probes == 0 ? 0.0 : hits * 100.0 / probes,
+                STORES.sum(), used * 100.0 / sample);
+    }
+}
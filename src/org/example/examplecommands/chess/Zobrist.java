@@ -0,0 +1,70 @@
+package org.example.examplecommands.chess;
+
+/**
+ * The random numbers of Zobrist hashing.
+ * <p>
+ * The key of a position is the XOR of the numbers of everything in it (every piece on its square, the castling
+ * rights, the en passant file and the side to move), so playing a move only needs a few XORs to update the key.
+ * The numbers come from a fixed seed, so keys stay the same between runs and can be stored in files.
+ *
+ * @author Macintosh_Fan
+ */
+final class Zobrist {
+    /**
+     * The numbers of every piece on every square, by piece code and square.
+     */
+    static final long[][] PIECE_SQUARE = new long[12][64];
+
+    /**
+     * The numbers of every combination of castling rights.
+     */
+    static final long[] CASTLING = new long[16];
+
+    /**
+     * The numbers of the en passant file, by file.
+     */
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    /**
+     * The number of black to move.
+     */
+    static final long BLACK_TO_MOVE;
+
+    static {
+        long state = 0x9E3779B97F4A7C15L;
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                state += 0x9E3779B97F4A7C15L;
+                squares[square] = mix(state);
+            }
+        }
+        for (int rights = 0; rights < CASTLING.length; rights++) {
+            state += 0x9E3779B97F4A7C15L;
+            CASTLING[rights] = rights == 0 ? 0 : mix(state);
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            state += 0x9E3779B97F4A7C15L;
+            EN_PASSANT_FILE[file] = mix(state);
+        }
+        state += 0x9E3779B97F4A7C15L;
+        BLACK_TO_MOVE = mix(state);
+    }
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Scrambles a number (the SplitMix64 finalizer).
+     *
+     * @param z the number
+     * @return the scrambled number
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
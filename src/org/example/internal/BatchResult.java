@@ -0,0 +1,21 @@
+package org.example.internal;
+
+/**
+ * The summary of a non-interactive batch of command lines.
+ *
+ * @param successes    the number of lines that ran a command which returned normally
+ * @param failures     the number of lines that named no command, or ran a command which threw an exception
+ * @param elapsedNanos the wall-clock time the batch took, in nanoseconds
+ * @author Macintosh_Fan
+ */
+public record BatchResult(int successes, int failures, long elapsedNanos) {
+    /**
+     * Returns the summary as a human-readable line.
+     *
+     * @return the summary as a human-readable line
+     */
+    @Override
+    public String toString() {
+        return String.format("%d succeeded, %d failed in %.3f ms", successes, failures, elapsedNanos / 1_000_000.0);
+    }
+}
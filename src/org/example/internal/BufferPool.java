@@ -0,0 +1,79 @@
+package org.example.internal;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of direct buffers of one size.
+ * <p>
+ * Allocating a direct buffer is slow and its memory is only freed by the garbage collector, so the buffers are
+ * kept after use instead: the pool grows to the most buffers that were in use at once, up to a limit.
+ *
+ * @author Macintosh_Fan
+ */
+final class BufferPool {
+    /**
+     * The size of every buffer.
+     */
+    private final int BUFFER_SIZE;
+
+    /**
+     * The most buffers the pool keeps.
+     */
+    private final int MAX_POOLED;
+
+    /**
+     * The buffers that are not in use.
+     */
+    private final ArrayDeque<ByteBuffer> FREE = new ArrayDeque<>();
+
+    /**
+     * The number of buffers that were allocated.
+     */
+    private long allocated;
+
+    /**
+     * Constructs a pool.
+     *
+     * @param bufferSize the size of every buffer
+     * @param maxPooled  the most buffers the pool keeps
+     */
+    BufferPool(int bufferSize, int maxPooled) {
+        BUFFER_SIZE = bufferSize;
+        MAX_POOLED = maxPooled;
+    }
+
+    /**
+     * Takes a buffer from the pool, or allocates one if the pool is empty.
+     *
+     * @return an empty buffer (in write mode)
+     */
+    synchronized ByteBuffer acquire() {
+        ByteBuffer buffer = FREE.pollLast();
+        if (buffer == null) {
+            allocated++;
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
+    /**
+     * Gives a buffer back to the pool.
+     *
+     * @param buffer the buffer (from {@link #acquire()}, and not used anymore)
+     */
+    synchronized void release(ByteBuffer buffer) {
+        if (FREE.size() < MAX_POOLED) {
+            FREE.addLast(buffer.clear());
+        }
+    }
+
+    /**
+     * Gets the number of buffers that were allocated.
+     *
+     * @return the number of buffers
+     */
+    synchronized long getAllocated() {
+        return allocated;
+    }
+}
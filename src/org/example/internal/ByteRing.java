@@ -0,0 +1,136 @@
+package org.example.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed-size ring buffer of bytes: bytes are added after the last one and taken from the first one, without ever
+ * moving the buffered bytes or growing the array.
+ * <p>
+ * A ring is not thread-safe and never waits: the class that owns it (a {@link Pipe} or a {@link SessionInputStream})
+ * guards it with its own lock, and decides what the threads on either side do while it is full or empty.
+ *
+ * @author Macintosh_Fan
+ */
+final class ByteRing {
+    /**
+     * The buffered bytes.
+     */
+    private final byte[] BYTES;
+
+    /**
+     * The index of the first buffered byte.
+     */
+    private int head;
+
+    /**
+     * The number of buffered bytes.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param capacity the most bytes the ring can buffer
+     */
+    ByteRing(int capacity) {
+        BYTES = new byte[capacity];
+    }
+
+    /**
+     * Gets the number of buffered bytes.
+     *
+     * @return the number of buffered bytes
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of bytes that can still be added.
+     *
+     * @return the free space of the ring
+     */
+    int room() {
+        return BYTES.length - size;
+    }
+
+    /**
+     * Checks if the ring has no buffered bytes.
+     *
+     * @return {@code true} if the ring is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks if the ring has no room left.
+     *
+     * @return {@code true} if the ring is full
+     */
+    boolean isFull() {
+        return size == BYTES.length;
+    }
+
+    /**
+     * Adds as many bytes of an array as fit.
+     *
+     * @param b   the bytes
+     * @param off the index of the first byte
+     * @param len the number of bytes
+     * @return the number of bytes added
+     */
+    int put(byte[] b, int off, int len) {
+        int put = 0;
+        while (put < len && size < BYTES.length) {
+            int tail = (head + size) % BYTES.length;
+            int length = Math.min(len - put, Math.min(BYTES.length - size, BYTES.length - tail));
+            System.arraycopy(b, off + put, BYTES, tail, length);
+            size += length;
+            put += length;
+        }
+        return put;
+    }
+
+    /**
+     * Adds as many bytes of a buffer as fit.
+     *
+     * @param source the bytes (in read mode); the bytes that are added are consumed
+     */
+    void put(ByteBuffer source) {
+        while (source.hasRemaining() && size < BYTES.length) {
+            int tail = (head + size) % BYTES.length;
+            int length = Math.min(source.remaining(), Math.min(BYTES.length - size, BYTES.length - tail));
+            source.get(BYTES, tail, length);
+            size += length;
+        }
+    }
+
+    /**
+     * Takes the first buffered bytes, as many as there are up to a limit.
+     *
+     * @param b   the array to take the bytes into
+     * @param off the index of the first byte
+     * @param len the most bytes to take
+     * @return the number of bytes taken
+     */
+    int take(byte[] b, int off, int len) {
+        int taken = 0;
+        while (taken < len && size > 0) {
+            int length = Math.min(len - taken, Math.min(size, BYTES.length - head));
+            System.arraycopy(BYTES, head, b, off + taken, length);
+            head = (head + length) % BYTES.length;
+            size -= length;
+            taken += length;
+        }
+        return taken;
+    }
+
+    /**
+     * Drops every buffered byte.
+     */
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+}
@@ -1,18 +1,38 @@
 package org.example.internal;
 
 /**
- * Represents a command for the custom terminal.
+ * Represents a command for the custom terminal. Implementations override one of the two {@code onCommand} methods
+ * (their defaults call each other, so the terminal refuses a command that overrides neither).
  *
  * @author Macintosh_Fan
  */
 public interface Command {
+    /**
+     * Called when the command is called, with the streams, environment and cancellation flag of this invocation.
+     * <p>
+     * Commands implement either this method or {@link #onCommand(Terminal, String[])}. By default, this method
+     * calls the other one with a terminal whose streams are those of the context, so older commands keep working;
+     * commands that keep their state in the context can run in several invocations at once.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    default void onCommand(CommandContext context, String[] args) {
+        onCommand(context.asTerminal(), args);
+    }
+
     /**
      * Called when the command is called.
+     * <p>
+     * By default, this method calls {@link #onCommand(CommandContext, String[])} with a context of the streams of
+     * the terminal.
      *
      * @param terminal the main terminal
      * @param args     inputted arguments by the user (might be null)
      */
-    void onCommand(Terminal terminal, String[] args);
+    default void onCommand(Terminal terminal, String[] args) {
+        onCommand(terminal.newContext(), args);
+    }
 
     /**
      * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
@@ -0,0 +1,284 @@
+package org.example.internal;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The context of one invocation of a command: its own input, output and error streams, the environment of its
+ * terminal, working variables and a cancellation flag.
+ * <p>
+ * Every invocation gets a new context, so commands that keep their state in the context (instead of in fields of
+ * the command) can run at the same time, in background jobs or remote sessions, without locks and without printing
+ * into each other's output.
+ *
+ * @author Macintosh_Fan
+ */
+public final class CommandContext {
+    /**
+     * The terminal the command runs in.
+     */
+    private final Terminal TERMINAL;
+
+    /**
+     * The context this one is a stage of (whose cancellation cancels this one too), or {@code null}.
+     */
+    private final CommandContext PARENT;
+
+    /**
+     * The line reader over the standard input stream of the invocation.
+     */
+    private final LineReader IN;
+
+    /**
+     * The standard output stream of the invocation.
+     */
+    private final PrintStream OUT;
+
+    /**
+     * The standard error stream of the invocation.
+     */
+    private final PrintStream ERR;
+
+    /**
+     * The environment variables of the terminal (read-only).
+     */
+    private final Map<String, String> ENVIRONMENT;
+
+    /**
+     * The working variables of the invocation.
+     */
+    private final Map<String, String> VARIABLES = new HashMap<>();
+
+    /**
+     * Has the invocation been asked to stop?
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The command line the arguments were split from, or {@code null} if they were not set.
+     */
+    private CommandLine commandLine;
+
+    /**
+     * The index of the token of the first argument.
+     */
+    private int firstArg;
+
+    /**
+     * The number of arguments.
+     */
+    private int argCount;
+
+    /**
+     * Constructs a context.
+     *
+     * @param terminal    the terminal the command runs in
+     * @param in          the line reader over the standard input stream
+     * @param out         the standard output stream
+     * @param err         the standard error stream
+     * @param environment the environment variables (read-only)
+     */
+    CommandContext(Terminal terminal, LineReader in, PrintStream out, PrintStream err,
+                   Map<String, String> environment) {
+        TERMINAL = terminal;
+        PARENT = null;
+        IN = in;
+        OUT = out;
+        ERR = err;
+        ENVIRONMENT = environment;
+    }
+
+    /**
+     * Constructs the context of a stage of a pipeline, with its own input and output but the error stream and
+     * environment of the pipeline.
+     *
+     * @param parent the context of the pipeline
+     * @param in     the line reader over the input of the stage
+     * @param out    the output of the stage
+     */
+    CommandContext(CommandContext parent, LineReader in, PrintStream out) {
+        TERMINAL = parent.TERMINAL;
+        PARENT = parent;
+        IN = in;
+        OUT = out;
+        ERR = parent.ERR;
+        ENVIRONMENT = parent.ENVIRONMENT;
+    }
+
+    /**
+     * Gets the terminal the command runs in.
+     *
+     * @return the terminal
+     */
+    public Terminal getTerminal() {
+        return TERMINAL;
+    }
+
+    /**
+     * Gets the standard input stream. Commands should read lines with {@link #readLine()} instead, since a reader
+     * of their own would buffer input that then never reaches the terminal.
+     *
+     * @return the standard input stream
+     */
+    public InputStream getIn() {
+        return IN.getInputStream();
+    }
+
+    /**
+     * Gets the standard output stream (buffered, see {@link Terminal#stdOutStream}).
+     *
+     * @return the standard output stream
+     */
+    public PrintStream getOut() {
+        return OUT;
+    }
+
+    /**
+     * Gets the standard error stream.
+     *
+     * @return the standard error stream
+     */
+    public PrintStream getErr() {
+        return ERR;
+    }
+
+    /**
+     * Reads the next line from the standard input stream, flushing the output first.
+     *
+     * @return the line, or {@code null} if the end of the standard input stream has been reached
+     */
+    public String readLine() {
+        flush();
+        return IN.readLine();
+    }
+
+    /**
+     * Flushes the standard output and error streams.
+     */
+    public void flush() {
+        OUT.flush();
+        ERR.flush();
+    }
+
+    /**
+     * Gets the environment variables of the terminal.
+     *
+     * @return the environment variables (read-only)
+     */
+    public Map<String, String> getEnvironment() {
+        return ENVIRONMENT;
+    }
+
+    /**
+     * Gets an environment variable of the terminal.
+     *
+     * @param name the name of the variable
+     * @return the value, or {@code null} if the variable is not set
+     */
+    public String getEnv(String name) {
+        return ENVIRONMENT.get(name);
+    }
+
+    /**
+     * Gets a working variable of the invocation.
+     *
+     * @param name the name of the variable
+     * @return the value, or {@code null} if the variable is not set
+     */
+    public String getVariable(String name) {
+        return VARIABLES.get(name);
+    }
+
+    /**
+     * Sets a working variable of the invocation (no other invocation sees it).
+     *
+     * @param name  the name of the variable
+     * @param value the value, or {@code null} to remove the variable
+     */
+    public void setVariable(String name, String value) {
+        if (value == null) {
+            VARIABLES.remove(name);
+        } else {
+            VARIABLES.put(name, value);
+        }
+    }
+
+    /**
+     * Has the invocation been asked to stop (with the internal {@code kill} command, or because the next stage of
+     * its pipeline no longer reads its output)? Long-running commands should check this between steps and return
+     * early.
+     *
+     * @return {@code true} if the invocation should stop
+     */
+    public boolean isCancelled() {
+        return cancelled || PARENT != null && PARENT.isCancelled();
+    }
+
+    /**
+     * Gets the number of arguments of the invocation.
+     *
+     * @return the number of arguments (0 if there are none)
+     */
+    public int getArgCount() {
+        return argCount;
+    }
+
+    /**
+     * Gets an argument of the invocation without copying it: a view of the command line it was typed in (its chars
+     * are only copied if it had quotes or escapes). The same arguments are given to the command as strings, too.
+     *
+     * @param index the index of the argument
+     * @return a read-only view of the argument
+     * @throws IndexOutOfBoundsException if there is no argument with that index
+     */
+    public CharSequence getArg(int index) {
+        if (index < 0 || index >= argCount) {
+            throw new IndexOutOfBoundsException("Argument " + index + " of " + argCount);
+        }
+        return commandLine.get(firstArg + index);
+    }
+
+    /**
+     * Sets the arguments of the invocation.
+     *
+     * @param line the command line they were split from
+     * @param from the index of the token of the first argument
+     * @param to   the index after the token of the last argument
+     */
+    void setArgs(CommandLine line, int from, int to) {
+        commandLine = line;
+        firstArg = from;
+        argCount = Math.max(0, to - from);
+    }
+
+    /**
+     * Asks the invocation to stop.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Gets the line reader over the standard input stream.
+     *
+     * @return the line reader
+     */
+    LineReader getLineReader() {
+        return IN;
+    }
+
+    /**
+     * Gets a terminal whose streams are the streams of this context, for commands that only implement
+     * {@link Command#onCommand(Terminal, String[])}.
+     *
+     * @return the terminal itself if its streams are those of the context, otherwise a view of it
+     */
+    Terminal asTerminal() {
+        if (TERMINAL.stdOutStream == OUT && TERMINAL.stdErrStream == ERR && TERMINAL.getLineReader() == IN) {
+            return TERMINAL;
+        }
+        return new Terminal(TERMINAL, this);
+    }
+}
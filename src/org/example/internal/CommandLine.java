@@ -0,0 +1,364 @@
+package org.example.internal;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A command line split into tokens in one pass: words, and the operators '|' (between the stages of a pipeline) and
+ * a last '&' (to run the line as a background job).
+ * <p>
+ * Words are separated by any number of spaces or tabs, so there are no empty words between two spaces. Inside single
+ * quotes every char is part of the word; inside double quotes a backslash only escapes '"' and '\'; elsewhere a
+ * backslash makes the next char part of the word, and '|' (or a last '&') is an operator even without spaces around
+ * it. A quote that is not closed ends with the line.
+ * <p>
+ * Nothing is copied while splitting: a token is an offset and a length in the line, and {@link #get(int)} returns a
+ * view of those chars. Only a word with quotes or escapes can't be a view of the line, since the quotes and
+ * backslashes are not part of it; its chars are copied once, into a buffer shared by the whole line.
+ * {@link #toArray(int, int)} builds the {@code String[]} that {@link Command#onCommand(CommandContext, String[])}
+ * takes. That copies every word into a string of its own, so splitting a line and building the strings costs a
+ * little more than the {@code String.split} calls the terminal used before (which find spaces with a vectorized
+ * {@link String#indexOf(int)}, but know nothing about quotes, pipes or jobs); only commands that read their arguments
+ * as views, with {@link CommandContext#getArg(int)}, split faster than before.
+ *
+ * @author Macintosh_Fan
+ */
+public final class CommandLine {
+    /**
+     * The kind of a word.
+     */
+    static final int WORD = 0;
+
+    /**
+     * The kind of a '|' between the stages of a pipeline.
+     */
+    static final int PIPE = 1;
+
+    /**
+     * The kind of a '&' at the end of a line.
+     */
+    static final int BACKGROUND = 2;
+
+    /**
+     * The flag added to the kind of a word whose chars are in {@link #decoded} instead of the line.
+     */
+    private static final int DECODED = 4;
+
+    /**
+     * The number of ints that describe a token in {@link #tokens}.
+     */
+    private static final int STRIDE = 5;
+
+    /**
+     * The line.
+     */
+    private final CharSequence SOURCE;
+
+    /**
+     * The tokens, {@link #STRIDE} ints each: the kind (and {@link #DECODED} for words with quotes or escapes), the
+     * offset of the chars (in the line or in {@link #decoded}), the number of chars, and the offsets in the line of
+     * the first char of the token (a quote or a backslash, for some words) and after its last char.
+     */
+    private int[] tokens = new int[4 * STRIDE];
+
+    /**
+     * The chars of the words with quotes or escapes, or {@code null} if there are none.
+     */
+    private char[] decoded;
+
+    /**
+     * The number of chars used in {@link #decoded}.
+     */
+    private int decodedLength;
+
+    /**
+     * The number of tokens.
+     */
+    private int size;
+
+    /**
+     * Splits a line.
+     *
+     * @param source the line (which must not change while the command line is used)
+     */
+    private CommandLine(CharSequence source) {
+        SOURCE = source;
+        tokenize();
+    }
+
+    /**
+     * Splits a line into tokens.
+     *
+     * @param line the line (which must not change while the command line is used)
+     * @return the command line
+     */
+    public static CommandLine parse(CharSequence line) {
+        return new CommandLine(line);
+    }
+
+    /**
+     * Splits a line into the strings of its tokens (operators included).
+     *
+     * @param line the line
+     * @return the strings of the tokens (empty if the line is blank)
+     */
+    public static String[] split(CharSequence line) {
+        CommandLine commandLine = new CommandLine(line);
+        String[] tokens = new String[commandLine.size];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = commandLine.getString(i);
+        }
+        return tokens;
+    }
+
+    /**
+     * Gets the number of tokens.
+     *
+     * @return the number of tokens
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets a token.
+     *
+     * @param index the index of the token
+     * @return a read-only view of the chars of the token
+     * @throws IndexOutOfBoundsException if there is no token with that index
+     */
+    public CharSequence get(int index) {
+        checkIndex(index);
+        int offset = tokens[index * STRIDE + 1];
+        int length = tokens[index * STRIDE + 2];
+        if ((tokens[index * STRIDE] & DECODED) != 0) {
+            return CharBuffer.wrap(decoded, offset, length).asReadOnlyBuffer();
+        }
+        return CharBuffer.wrap(SOURCE, offset, offset + length);
+    }
+
+    /**
+     * Gets a token as a string.
+     *
+     * @param index the index of the token
+     * @return the token
+     * @throws IndexOutOfBoundsException if there is no token with that index
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        int offset = tokens[index * STRIDE + 1];
+        int length = tokens[index * STRIDE + 2];
+        if ((tokens[index * STRIDE] & DECODED) != 0) {
+            return new String(decoded, offset, length);
+        }
+        return SOURCE.subSequence(offset, offset + length).toString();
+    }
+
+    /**
+     * Checks if a token is a word (not an operator).
+     *
+     * @param index the index of the token
+     * @return {@code true} if the token is a word, even a quoted "|"
+     * @throws IndexOutOfBoundsException if there is no token with that index
+     */
+    public boolean isWord(int index) {
+        return kind(index) == WORD;
+    }
+
+    /**
+     * Gets the kind of a token.
+     *
+     * @param index the index of the token
+     * @return {@link #WORD}, {@link #PIPE} or {@link #BACKGROUND}
+     * @throws IndexOutOfBoundsException if there is no token with that index
+     */
+    int kind(int index) {
+        checkIndex(index);
+        return tokens[index * STRIDE] & ~DECODED;
+    }
+
+    /**
+     * Builds the strings of the words in a range of tokens, for
+     * {@link Command#onCommand(CommandContext, String[])}. Every word is copied into a new string.
+     *
+     * @param from the index of the first token
+     * @param to   the index after the last token
+     * @return the strings, or {@code null} if the range is empty
+     */
+    public String[] toArray(int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+
+        String[] strings = new String[to - from];
+        for (int i = from; i < to; i++) {
+            strings[i - from] = getString(i);
+        }
+        return strings;
+    }
+
+    /**
+     * Gets the text of the line that a range of tokens was split from, with its quotes and escapes.
+     *
+     * @param from the index of the first token
+     * @param to   the index after the last token
+     * @return the text (empty if the range is empty)
+     */
+    String source(int from, int to) {
+        if (from >= to) {
+            return "";
+        }
+        return SOURCE.subSequence(tokens[from * STRIDE + 3], tokens[(to - 1) * STRIDE + 4]).toString();
+    }
+
+    /**
+     * Checks if the line ends after its last token, with a space or a tab that is not quoted (so the next word has
+     * not been started yet).
+     *
+     * @return {@code true} if the line ends with a separator, or has no tokens
+     */
+    boolean endsWithSeparator() {
+        return size == 0 || tokens[(size - 1) * STRIDE + 4] < SOURCE.length();
+    }
+
+    /**
+     * Throws an exception if there is no token with an index.
+     *
+     * @param index the index
+     * @throws IndexOutOfBoundsException if there is no token with that index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+        }
+    }
+
+    /**
+     * Splits the line.
+     */
+    private void tokenize() {
+        CharSequence source = SOURCE;
+        int length = source.length();
+        int i = 0;
+        while (true) {
+            while (i < length && isSeparator(source.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                return;
+            }
+
+            char c = source.charAt(i);
+            if (c == '|') {
+                add(PIPE, i, 1, i, i + 1);
+                i++;
+                continue;
+            }
+            if (c == '&' && isBlank(i + 1)) {
+                add(BACKGROUND, i, 1, i, i + 1);
+                return;
+            }
+
+            // A plain word is a view of the line; at the first quote or backslash, it moves to the decoded buffer.
+            int start = i;
+            int decodedStart = -1;
+            char quote = 0;
+            for (; i < length; i++) {
+                c = source.charAt(i);
+                if (quote == 0 && (isSeparator(c) || c == '|' || c == '&' && isBlank(i + 1))) {
+                    break;
+                }
+
+                boolean special = quote == 0 ? c == '\'' || c == '"' || c == '\\'
+                        : c == quote || quote == '"' && c == '\\' && i + 1 < length
+                        && (source.charAt(i + 1) == '"' || source.charAt(i + 1) == '\\');
+                if (special && decodedStart == -1) {
+                    decodedStart = startDecoding(start, i);
+                }
+
+                if (!special) {
+                    if (decodedStart != -1) {
+                        decoded[decodedLength++] = c;
+                    }
+                } else if (c == '\\') {
+                    if (i + 1 < length) {
+                        decoded[decodedLength++] = source.charAt(++i);
+                    }
+                } else {
+                    quote = quote == 0 ? c : 0;
+                }
+            }
+            if (decodedStart == -1) {
+                add(WORD, start, i - start, start, i);
+            } else {
+                add(WORD | DECODED, decodedStart, decodedLength - decodedStart, start, i);
+            }
+        }
+    }
+
+    /**
+     * Moves the word being split to the decoded buffer (allocating it the first time, as long as the line, which is
+     * enough for every word).
+     *
+     * @param start the offset in the line of the first char of the word
+     * @param end   the offset in the line of the quote or backslash
+     * @return the offset of the word in the decoded buffer
+     */
+    private int startDecoding(int start, int end) {
+        if (decoded == null) {
+            decoded = new char[SOURCE.length()];
+        }
+        int decodedStart = decodedLength;
+        for (int i = start; i < end; i++) {
+            decoded[decodedLength++] = SOURCE.charAt(i);
+        }
+        return decodedStart;
+    }
+
+    /**
+     * Adds a token.
+     *
+     * @param kind        the kind of the token
+     * @param offset      the offset of its chars (in the line or in the decoded buffer)
+     * @param length      the number of chars
+     * @param sourceStart the offset in the line of its first char
+     * @param sourceEnd   the offset in the line after its last char
+     */
+    private void add(int kind, int offset, int length, int sourceStart, int sourceEnd) {
+        if ((size + 1) * STRIDE > tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        int token = size * STRIDE;
+        tokens[token] = kind;
+        tokens[token + 1] = offset;
+        tokens[token + 2] = length;
+        tokens[token + 3] = sourceStart;
+        tokens[token + 4] = sourceEnd;
+        size++;
+    }
+
+    /**
+     * Checks if the rest of the line, from an offset, is only spaces and tabs.
+     *
+     * @param from the offset
+     * @return {@code true} if the rest of the line is blank
+     */
+    private boolean isBlank(int from) {
+        for (int i = from; i < SOURCE.length(); i++) {
+            if (!isSeparator(SOURCE.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a char separates words.
+     *
+     * @param c the char
+     * @return {@code true} for a space or a tab
+     */
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.internal;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many tokens per second, and how many bytes of garbage per line, a {@link CommandLine} splits lines
+ * into, against splitting them with {@link String#split(String, int)} like the terminal did before.
+ * <p>
+ * Three ways are measured on the same lines: the code of the terminal before {@link CommandLine}
+ * ({@code input.split(" ", 2)} for the command name, then {@code args[1].split(" ")} for the arguments, with '|' and
+ * '&' as plain arguments since it had no pipelines or jobs), a {@link CommandLine} whose tokens are all looked at
+ * through views, and a {@link CommandLine} that also builds the {@code String} arguments that commands are given.
+ * Each is run a few times and the fastest run is printed.
+ *
+ * @author Macintosh_Fan
+ */
+public final class CommandLineBenchmark {
+    /**
+     * The lines that are split, like the ones typed at the prompt.
+     */
+    private static final String[] LINES = {
+            "printNumber 42",
+            "seq 1 1000000 | grep -c 7",
+            "grep -v -m 10 pattern",
+            "chessdb games.pgn 4",
+            "history -s seq",
+            "seq 100 | grep 1 | grep -c 0 &",
+            "chessserver start unix:/tmp/chess.sock 1000",
+            "help"
+    };
+
+    /**
+     * The number of times each way is run.
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Keeps the results alive, so the work is not optimized away.
+     */
+    private static long sink;
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private CommandLineBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark and prints the results.
+     *
+     * @param lines the number of lines each run splits
+     * @param out   the stream to print the results to
+     */
+    public static void run(int lines, PrintStream out) {
+        out.printf("Splitting %,d lines (%d different ones), best of %d runs:%n", lines, LINES.length, RUNS);
+        report(out, "String.split", lines, () -> splitWithStrings(lines));
+        report(out, "CommandLine (views)", lines, () -> tokenize(lines, false));
+        report(out, "CommandLine + String[] bridge", lines, () -> tokenize(lines, true));
+    }
+
+    /**
+     * Runs one way a few times and prints its fastest run.
+     *
+     * @param out   the stream to print to
+     * @param name  the name of the way
+     * @param lines the number of lines of a run
+     * @param run   a run, which returns the number of tokens it split
+     */
+    private static void report(PrintStream out, String name, int lines, Run run) {
+        long bestNanos = Long.MAX_VALUE;
+        long tokens = 0;
+        long bytes = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            tokens = run.run();
+            long nanos = System.nanoTime() - start;
+            if (nanos < bestNanos) {
+                bestNanos = nanos;
+                bytes = startBytes < 0 ? -1 : allocatedBytes() - startBytes;
+            }
+        }
+        out.printf("  %-30s %,6.1f M tokens/s  %,6.1f ns/line  %s%n", name, tokens * 1e3 / bestNanos,
+                (double) bestNanos / lines, bytes < 0 ? "" : String.format("%,d bytes/line", bytes / lines));
+    }
+
+    /**
+     * Splits lines the way the terminal did before {@link CommandLine}.
+     *
+     * @param lines the number of lines
+     * @return the number of tokens (command names and arguments)
+     */
+    private static long splitWithStrings(int lines) {
+        long tokens = 0;
+        for (int i = 0; i < lines; i++) {
+            String input = LINES[i % LINES.length];
+            String[] args = input.split(" ", 2);
+            sink += args[0].length();
+            if (args.length == 2) {
+                String[] arguments = args[1].split(" ");
+                for (String argument : arguments) {
+                    sink += argument.length();
+                }
+                tokens += 1 + arguments.length;
+            } else {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits lines with {@link CommandLine}, and looks at every word.
+     *
+     * @param lines  the number of lines
+     * @param bridge to build the strings of the arguments and command names, instead of only reading the views
+     * @return the number of tokens (command names and arguments)
+     */
+    private static long tokenize(int lines, boolean bridge) {
+        long tokens = 0;
+        for (int i = 0; i < lines; i++) {
+            CommandLine line = CommandLine.parse(LINES[i % LINES.length]);
+            int stageStart = 0;
+            for (int token = 0; token <= line.size(); token++) {
+                if (token < line.size() && line.isWord(token)) {
+                    continue;
+                }
+
+                if (bridge && token > stageStart) {
+                    sink += line.getString(stageStart).length();
+                    String[] args = line.toArray(stageStart + 1, token);
+                    if (args != null) {
+                        for (String arg : args) {
+                            sink += arg.length();
+                        }
+                    }
+                } else {
+                    for (int word = stageStart; word < token; word++) {
+                        sink += line.get(word).length();
+                    }
+                }
+                tokens += token - stageStart;
+                stageStart = token + 1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Gets the number of bytes the current thread has allocated, if the JVM can tell.
+     *
+     * @return the number of bytes, or {@code -1}
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * A run of the benchmark.
+     */
+    private interface Run {
+        /**
+         * Runs.
+         *
+         * @return the number of tokens split
+         */
+        long run();
+    }
+}
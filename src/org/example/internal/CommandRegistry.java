@@ -0,0 +1,144 @@
+package org.example.internal;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A name-indexed lookup table for the commands of a terminal.
+ * <p>
+ * The table is built once when the terminal is constructed, so dispatching a line only costs one hash lookup
+ * of its first word no matter how many commands are registered. A {@link NameTrie} of the lower-case names, built at
+ * the same time, completes the beginning of a name and suggests the closest name for a mistyped one without comparing
+ * it with every name.
+ *
+ * @author Macintosh_Fan
+ */
+final class CommandRegistry {
+    /**
+     * The most edits a mistyped name may be away from the name that is suggested for it.
+     */
+    private static final int MAX_SUGGESTION_DISTANCE = 3;
+
+    /**
+     * The commands by their name.
+     */
+    private final Map<String, Command> COMMANDS_BY_NAME;
+
+    /**
+     * The command names, in the order the commands were registered.
+     */
+    private final String[] NAMES;
+
+    /**
+     * The trie of the lower-case command names (in the same order as {@link #NAMES}).
+     */
+    private final NameTrie NAME_TRIE;
+
+    /**
+     * Builds the registry.
+     *
+     * @param commands the commands to register
+     * @throws IllegalArgumentException if two commands have the same name, a command name is empty or contains a
+     *                                  space, or a command overrides neither {@code onCommand} method
+     * @throws NullPointerException     if a command name is {@code null}
+     */
+    CommandRegistry(Command[] commands) {
+        COMMANDS_BY_NAME = new HashMap<>(commands.length * 2);
+        NAMES = new String[commands.length];
+        String[] lowerCaseNames = new String[commands.length];
+        for (int i = 0; i < commands.length; i++) {
+            Command command = commands[i];
+            String name = command.getName();
+            if (name == null) {
+                throw new NullPointerException("Command name of " + command.getClass().getName() + " is null");
+            }
+            if (name.isEmpty() || name.indexOf(' ') != -1) {
+                throw new IllegalArgumentException("Command name '" + name + "' must be one non-empty word");
+            }
+            if (!overridesOnCommand(command)) {
+                throw new IllegalArgumentException("Command '" + name + "' (" + command.getClass().getName()
+                        + ") must override one of the onCommand methods");
+            }
+            Command previous = COMMANDS_BY_NAME.putIfAbsent(name, command);
+            if (previous != null) {
+                throw new IllegalArgumentException(String.format("Duplicate command name '%s' (%s and %s)",
+                        name, previous.getClass().getName(), command.getClass().getName()));
+            }
+            NAMES[i] = name;
+            lowerCaseNames[i] = name.toLowerCase(Locale.ROOT);
+        }
+        NAME_TRIE = new NameTrie(lowerCaseNames);
+    }
+
+    /**
+     * Checks if a command overrides at least one of the two {@code onCommand} methods of {@link Command}. Their
+     * defaults call each other, so a command that overrides neither would only fail with a
+     * {@link StackOverflowError} when it is called.
+     *
+     * @param command the command
+     * @return {@code true} if the command overrides one of the methods
+     */
+    static boolean overridesOnCommand(Command command) {
+        Class<?> type = command.getClass();
+        try {
+            return type.getMethod("onCommand", CommandContext.class, String[].class).getDeclaringClass()
+                    != Command.class
+                    || type.getMethod("onCommand", Terminal.class, String[].class).getDeclaringClass()
+                    != Command.class;
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Gets the command with the exact name.
+     *
+     * @param name the command name
+     * @return the command, or {@code null} if there is no such command
+     */
+    Command get(String name) {
+        return COMMANDS_BY_NAME.get(name);
+    }
+
+    /**
+     * Suggests the command name closest to a name that is not registered, ignoring case: a few edits away, and at
+     * most half as many edits as the name has chars (at least one).
+     *
+     * @param name the name
+     * @return the closest command name, or {@code null} if no name is close enough
+     */
+    String suggest(String name) {
+        int maxDistance = Math.max(1, Math.min(MAX_SUGGESTION_DISTANCE, name.length() / 2));
+        int index = NAME_TRIE.nearest(name.toLowerCase(Locale.ROOT), maxDistance);
+        return index == -1 ? null : NAMES[index];
+    }
+
+    /**
+     * Completes the beginning of a command name, ignoring case: offers the names that start with it in alphabetical
+     * order, finding each one only when the previous one has been taken.
+     *
+     * @param prefix     the beginning of the name
+     * @param candidates the consumer of the names
+     */
+    void complete(String prefix, Completer.Candidates candidates) {
+        int root = NAME_TRIE.find(prefix.toLowerCase(Locale.ROOT));
+        if (root == -1) {
+            return;
+        }
+        for (int node = NAME_TRIE.nextName(root, -1); node != -1; node = NAME_TRIE.nextName(root, node)) {
+            if (!candidates.offer(NAMES[NAME_TRIE.nameAt(node)])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of registered commands.
+     *
+     * @return the number of registered commands
+     */
+    int size() {
+        return COMMANDS_BY_NAME.size();
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.internal;
+
+/**
+ * The internal complete command.
+ *
+ * @author Macintosh_Fan
+ */
+class CompleteCommand extends InternalCommand {
+    /**
+     * Called when the command is called.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(CommandContext context, String[] args) {
+        if (args == null) {
+            context.getErr().println("Missing parameter 'line'!");
+            return;
+        }
+
+        Completer.printCompletions(context.getTerminal()::complete, String.join(" ", args), context.getOut());
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return "complete";
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return "line";
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return "lists the completions of the last word of a command line (like ending a line with a tab).";
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.internal;
+
+import java.io.PrintStream;
+
+/**
+ * Represents something that completes the words typed to it, like a command that completes its arguments.
+ * <p>
+ * The terminal has no keys of its own (it reads whole lines), so a line typed at a prompt that ends with a tab asks
+ * for the completions of its last word instead of being run: the terminal completes command names and, for a command
+ * that implements this interface, its arguments; a command with a prompt of its own (like a game) can complete the
+ * lines typed to it with {@link #printCompletions(Completer, String, PrintStream)}. Batch scripts run such lines.
+ * <p>
+ * Candidates are given one by one to a {@link Candidates} consumer, which can stop them at any time, so a completer
+ * should compute each candidate only when the previous one has been taken instead of building a list first.
+ *
+ * @author Macintosh_Fan
+ */
+public interface Completer {
+    /**
+     * The char that ends a line asking for completions.
+     */
+    char COMPLETION_KEY = '\t';
+
+    /**
+     * The most candidates that are printed for a line.
+     */
+    int MAX_PRINTED = 100;
+
+    /**
+     * Completes a word.
+     *
+     * @param words      the words typed before the word (for a command, its arguments before it)
+     * @param word       the beginning of the word (might be empty)
+     * @param candidates the consumer of the candidates: whole words that start with {@code word}
+     */
+    void complete(String[] words, String word, Candidates candidates);
+
+    /**
+     * Checks if a line asks for completions.
+     *
+     * @param line the line
+     * @return {@code true} if the line ends with {@link #COMPLETION_KEY}
+     */
+    static boolean isCompletionRequest(String line) {
+        return !line.isEmpty() && line.charAt(line.length() - 1) == COMPLETION_KEY;
+    }
+
+    /**
+     * Completes the last word of a line (split by a {@link CommandLine}, so the word may be quoted) and prints the
+     * candidates, one per line, at most {@link #MAX_PRINTED} of them.
+     *
+     * @param completer the completer
+     * @param line      the line (without the tab that asked for completions)
+     * @param out       the stream to print to
+     */
+    static void printCompletions(Completer completer, String line, PrintStream out) {
+        CommandLine commandLine = CommandLine.parse(line);
+        int size = commandLine.size();
+        int wordCount = commandLine.endsWithSeparator() || !commandLine.isWord(size - 1) ? size : size - 1;
+        String[] words = new String[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = commandLine.getString(i);
+        }
+        String word = wordCount == size ? "" : commandLine.getString(wordCount);
+        int[] printed = new int[1];
+        completer.complete(words, word, candidate -> {
+            if (printed[0] == MAX_PRINTED) {
+                out.println("...");
+                return false;
+            }
+            out.println(candidate);
+            printed[0]++;
+            return true;
+        });
+        if (printed[0] == 0) {
+            out.println("(no completions)");
+        }
+    }
+
+    /**
+     * Offers the options that start with a word, in their order.
+     *
+     * @param word       the beginning of the word
+     * @param candidates the consumer of the candidates
+     * @param options    the options
+     * @return {@code false} if the consumer stopped the candidates
+     */
+    static boolean offerMatching(String word, Candidates candidates, String... options) {
+        for (String option : options) {
+            if (option.startsWith(word) && !candidates.offer(option)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the candidates of a completion.
+     */
+    interface Candidates {
+        /**
+         * Consumes a candidate.
+         *
+         * @param candidate the candidate
+         * @return {@code true} to get the next candidate, {@code false} to stop
+         */
+        boolean offer(String candidate);
+    }
+}
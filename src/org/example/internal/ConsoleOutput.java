@@ -0,0 +1,119 @@
+package org.example.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * The buffered standard output and error streams of the process.
+ * <p>
+ * {@link System#out} flushes (and makes a system call) on every line. The output stream here instead collects
+ * output in a 64 KiB buffer and writes it when the buffer is full or the terminal flushes it (before every read from
+ * the standard input stream, so before every prompt). Both streams are also flushed when the program exits.
+ * <p>
+ * They write through plain {@link FileOutputStream}s rather than their {@link java.nio.channels.FileChannel}s: a
+ * file channel is interruptible, so a job whose thread is interrupted (see {@link Job#cancel()}) while it prints
+ * would close the standard output of the whole process.
+ *
+ * @author Macintosh_Fan
+ */
+final class ConsoleOutput {
+    /**
+     * The size of the buffer of the standard output stream.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The buffered standard output stream.
+     */
+    static final PrintStream OUT;
+
+    /**
+     * The standard error stream. It is not buffered, and flushes the standard output stream before every write, so
+     * output and errors still appear in the order they were printed.
+     */
+    static final PrintStream ERR;
+
+    static {
+        Charset charset = consoleCharset();
+        OUT = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE), false,
+                charset);
+        ERR = new PrintStream(new FlushingFirstOutputStream(new FileOutputStream(FileDescriptor.err), OUT), true,
+                charset);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            OUT.flush();
+            ERR.flush();
+        }, "terminal-output-flush"));
+    }
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private ConsoleOutput() {
+    }
+
+    /**
+     * Gets the charset that {@link System#out} uses.
+     *
+     * @return the charset of the standard output stream
+     */
+    private static Charset consoleCharset() {
+        String encoding = System.getProperty("sun.stdout.encoding");
+        if (encoding != null && Charset.isSupported(encoding)) {
+            return Charset.forName(encoding);
+        }
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * A stream that flushes another stream before each write, so output of both to the same place stays in order.
+     */
+    private static final class FlushingFirstOutputStream extends FilterOutputStream {
+        /**
+         * The stream to flush before every write.
+         */
+        private final OutputStream FLUSH_FIRST;
+
+        /**
+         * Constructs the stream.
+         *
+         * @param out        the stream to write to
+         * @param flushFirst the stream to flush before every write
+         */
+        FlushingFirstOutputStream(OutputStream out, OutputStream flushFirst) {
+            super(out);
+            FLUSH_FIRST = flushFirst;
+        }
+
+        /**
+         * Flushes the other stream, then writes a byte.
+         *
+         * @param b the byte
+         * @throws IOException if either stream could not be written to
+         */
+        @Override
+        public void write(int b) throws IOException {
+            FLUSH_FIRST.flush();
+            out.write(b);
+        }
+
+        /**
+         * Flushes the other stream, then writes bytes.
+         *
+         * @param b   the bytes
+         * @param off the index of the first byte
+         * @param len the number of bytes
+         * @throws IOException if either stream could not be written to
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            FLUSH_FIRST.flush();
+            out.write(b, off, len);
+        }
+    }
+}
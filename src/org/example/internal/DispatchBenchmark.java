@@ -0,0 +1,197 @@
+package org.example.internal;
+
+import java.io.PrintStream;
+
+/**
+ * Measures how long it takes to find and run the command of a line, with more and more commands registered, to show
+ * that the cost stays flat as the number of commands grows.
+ * <p>
+ * For every number of commands, a terminal is built with that many commands that do nothing, and three ways of
+ * finding a command are measured on the same lines: a lookup in the {@link CommandRegistry}, a whole
+ * {@link Terminal#dispatch(String)} (splitting the line and running the command included), and the scan over every
+ * command that the terminal did before the registry (on fewer lines as the commands grow, since it takes so much
+ * longer). Each is run a few times and the fastest run is printed.
+ *
+ * @author Macintosh_Fan
+ */
+public final class DispatchBenchmark {
+    /**
+     * The numbers of commands that are registered.
+     */
+    private static final int[] COMMAND_COUNTS = {10, 100, 1000, 10_000};
+
+    /**
+     * The number of times each way is run.
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Steps through the names in an order that is not the order they were registered in (a prime that does not
+     * divide any of the numbers of commands).
+     */
+    private static final int STRIDE = 7919;
+
+    /**
+     * Keeps the results alive, so the work is not optimized away.
+     */
+    private static long sink;
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private DispatchBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark and prints the results.
+     *
+     * @param lookups the number of lines each run finds the command of
+     * @param out     the stream to print the results to
+     */
+    public static void run(int lookups, PrintStream out) {
+        out.printf("Finding the commands of %,d lines, best of %d runs (ns per line):%n", lookups, RUNS);
+        out.printf("  %8s  %10s  %10s  %10s%n", "commands", "registry", "dispatch", "scan");
+        for (int count : COMMAND_COUNTS) {
+            Command[] commands = new Command[count];
+            String[] names = new String[count];
+            String[] lines = new String[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = "bench" + i;
+                commands[i] = new EmptyCommand(names[i]);
+                lines[i] = names[i] + " 1 2";
+            }
+            Terminal terminal = new Terminal(commands);
+
+            double registry = best(lookups, () -> lookUp(terminal.REGISTRY, names, lookups));
+            double dispatch = best(lookups, () -> dispatch(terminal, lines, lookups));
+            int scans = (int) Math.max(1, Math.min(lookups, (long) lookups * COMMAND_COUNTS[0] / count));
+            double scan = best(scans, () -> scan(terminal.COMMANDS, lines, scans));
+            out.printf("  %,8d  %,10.1f  %,10.1f  %,10.1f%n", count, registry, dispatch, scan);
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs one way a few times.
+     *
+     * @param lookups the number of lines of a run
+     * @param run     a run
+     * @return the time per line of the fastest run, in nanoseconds
+     */
+    private static double best(int lookups, Runnable run) {
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        return (double) bestNanos / lookups;
+    }
+
+    /**
+     * Looks names up in a registry.
+     *
+     * @param registry the registry
+     * @param names    the names
+     * @param lookups  the number of lookups
+     */
+    private static void lookUp(CommandRegistry registry, String[] names, int lookups) {
+        for (int i = 0; i < lookups; i++) {
+            sink += registry.get(names[(int) ((long) i * STRIDE % names.length)]).hashCode();
+        }
+    }
+
+    /**
+     * Dispatches lines through a terminal.
+     *
+     * @param terminal the terminal
+     * @param lines    the lines
+     * @param lookups  the number of lines to dispatch
+     */
+    private static void dispatch(Terminal terminal, String[] lines, int lookups) {
+        for (int i = 0; i < lookups; i++) {
+            if (terminal.dispatch(lines[(int) ((long) i * STRIDE % lines.length)])) {
+                sink++;
+            }
+        }
+    }
+
+    /**
+     * Finds the commands of lines by comparing every command name with the beginning of the line, like the terminal
+     * did before the registry.
+     *
+     * @param commands the commands
+     * @param lines    the lines
+     * @param lookups  the number of lines
+     */
+    private static void scan(Command[] commands, String[] lines, int lookups) {
+        for (int i = 0; i < lookups; i++) {
+            String input = lines[(int) ((long) i * STRIDE % lines.length)];
+            for (Command command : commands) {
+                if (input.startsWith(command.getName())) {
+                    sink += command.hashCode();
+                }
+            }
+        }
+    }
+
+    /**
+     * A command that does nothing but count its arguments.
+     */
+    private static final class EmptyCommand implements Command {
+        /**
+         * The name of the command.
+         */
+        private final String NAME;
+
+        /**
+         * Constructs the command.
+         *
+         * @param name the name of the command
+         */
+        EmptyCommand(String name) {
+            NAME = name;
+        }
+
+        /**
+         * Called when the command is called: only counts the arguments.
+         *
+         * @param context the context of this invocation
+         * @param args    inputted arguments by the user (might be null)
+         */
+        @Override
+        public void onCommand(CommandContext context, String[] args) {
+            sink += args == null ? 0 : args.length;
+        }
+
+        /**
+         * Gets the name of the command.
+         *
+         * @return the command name
+         */
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        /**
+         * Gets the usage of the command.
+         *
+         * @return the usage
+         */
+        @Override
+        public String getUsage() {
+            return "a b";
+        }
+
+        /**
+         * Gets the description of the command.
+         *
+         * @return the command description
+         */
+        @Override
+        public String getDescription() {
+            return "does nothing (for the dispatch benchmark).";
+        }
+    }
+}
@@ -9,13 +9,14 @@ class ExitCommand extends InternalCommand {
     /**
      * Called when the command is called.
      *
-     * @param terminal the main terminal
-     * @param args     inputted arguments by the user (might be null)
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
      */
     @Override
-    public void onCommand(Terminal terminal, String[] args) {
-        terminal.stdOutStream.println("Goodbye");
-        System.exit(0);
+    public void onCommand(CommandContext context, String[] args) {
+        context.getOut().println("Goodbye");
+        context.flush();
+        context.getTerminal().exit();
     }
 
     /**
@@ -0,0 +1,89 @@
+package org.example.internal;
+
+/**
+ * The internal fg command.
+ *
+ * @author Macintosh_Fan
+ */
+class ForegroundCommand extends InternalCommand {
+    /**
+     * Called when the command is called.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(CommandContext context, String[] args) {
+        Job job;
+        if (args == null) {
+            job = context.getTerminal().JOBS.latestRunning();
+            if (job == null) {
+                context.getErr().println("No running jobs!");
+                return;
+            }
+        } else {
+            job = KillCommand.findJob(context, args[0]);
+            if (job == null) {
+                return;
+            }
+        }
+
+        context.getOut().println(job.COMMAND_LINE);
+        try {
+            job.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return "fg";
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return "[job]";
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return "waits for a background job (the latest one by default) to finish.";
+    }
+}
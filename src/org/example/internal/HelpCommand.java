@@ -14,12 +14,12 @@ class HelpCommand extends InternalCommand implements Setup {
     /**
      * Called when the command is called.
      *
-     * @param terminal the main terminal
-     * @param args     inputted arguments by the user (might be null)
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
      */
     @Override
-    public void onCommand(Terminal terminal, String[] args) {
-        terminal.stdOutStream.println(helpMessage);
+    public void onCommand(CommandContext context, String[] args) {
+        context.getOut().println(helpMessage);
     }
 
     /**
@@ -0,0 +1,440 @@
+package org.example.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The command history of a terminal, kept on disk across runs.
+ * <p>
+ * The history is a directory of two files, both memory-mapped: {@code history.log} holds every line followed by a
+ * line break (and then zeros up to the size that is mapped), and {@code history.idx} holds a header (a magic number
+ * and the number of entries) and then, for every entry, the offset in the log where it ends. The entry with a number
+ * is found with one read of the index, so listing, recalling and appending entries only read the pages of the files
+ * they use. The files are opened the first time the history is used, never when the terminal starts.
+ * <p>
+ * An entry is appended by writing the line, then its offset, then the new number of entries, so the history is
+ * consistent even if the process is killed in between; the mapped pages reach the disk even if the process exits
+ * without closing the files. If the machine stops, the pages of the index may reach the disk without those of the
+ * log, so the newest entries whose lines are not in the log are dropped when the files are opened. Appending locks
+ * the index file, so several terminals may share the history.
+ * <p>
+ * Searches for a text use a {@link TrigramIndex}, which is only kept in memory: the first search of a process that
+ * needs it reads the whole log to build it (about 0.4 s and 50 MB for 2 million entries), and it is kept up to date
+ * from then on. Searches are the one thing that does not page in only what it needs.
+ *
+ * @author Macintosh_Fan
+ */
+final class History {
+    /**
+     * The environment variable naming the history directory ({@code ~/.terminal_history} by default, none if empty).
+     */
+    static final String DIRECTORY_VARIABLE = "TERMINAL_HISTORY";
+
+    /**
+     * The magic number at the start of the index file.
+     */
+    private static final int MAGIC = 0x48495354;
+
+    /**
+     * The offset of the number of entries in the index file.
+     */
+    private static final int COUNT_OFFSET = 4;
+
+    /**
+     * The size of the header of the index file.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * The smallest mapped size of the log file.
+     */
+    private static final int MIN_LOG_CAPACITY = 1 << 16;
+
+    /**
+     * The smallest mapped size of the index file.
+     */
+    private static final int MIN_INDEX_CAPACITY = 1 << 12;
+
+    /**
+     * The shortest text searched with the trigram index (shorter texts are compared with every entry, newest first).
+     */
+    private static final int MIN_INDEXED_LENGTH = 3;
+
+    /**
+     * The history directory.
+     */
+    private final Path DIRECTORY;
+
+    /**
+     * The trigrams of the entries.
+     */
+    private final TrigramIndex TRIGRAMS = new TrigramIndex();
+
+    /**
+     * The channel of the log file, once it is open.
+     */
+    private FileChannel logChannel;
+
+    /**
+     * The channel of the index file, once it is open.
+     */
+    private FileChannel indexChannel;
+
+    /**
+     * The mapped log file.
+     */
+    private MappedByteBuffer log;
+
+    /**
+     * The mapped index file.
+     */
+    private MappedByteBuffer index;
+
+    /**
+     * The number of entries, as of the last time the header was read.
+     */
+    private int count;
+
+    /**
+     * Creates a history, without opening its files yet.
+     *
+     * @param directory the history directory (created when the history is first used)
+     */
+    History(Path directory) {
+        DIRECTORY = directory;
+    }
+
+    /**
+     * Gets the history directory.
+     *
+     * @return the history directory
+     */
+    Path getDirectory() {
+        return DIRECTORY;
+    }
+
+    /**
+     * Gets the number of entries (which is also the number of the newest entry).
+     *
+     * @return the number of entries
+     * @throws IOException if the history can't be opened
+     */
+    synchronized int size() throws IOException {
+        refresh();
+        return count;
+    }
+
+    /**
+     * Gets an entry.
+     *
+     * @param number the number of the entry (from 1)
+     * @return the entry, or {@code null} if there is no entry with that number
+     * @throws IOException if the history can't be opened
+     */
+    synchronized String get(int number) throws IOException {
+        refresh();
+        if (number < 1 || number > count) {
+            return null;
+        }
+
+        int start = start(number - 1);
+        byte[] bytes = new byte[end(number - 1) - start];
+        log.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a line, unless it is the same as the newest entry.
+     *
+     * @param line the line (without line breaks)
+     * @throws IOException if the history can't be opened or is full (2 GiB)
+     */
+    synchronized void add(String line) throws IOException {
+        byte[] bytes = (line + '\n').getBytes(StandardCharsets.UTF_8);
+        refresh();
+        FileLock lock = indexChannel.lock();
+        try {
+            refresh();
+            if (count != 0 && matches(count - 1, bytes, bytes.length - 1, true)
+                    && end(count - 1) - start(count - 1) == bytes.length - 1) {
+                return;
+            }
+
+            int start = count == 0 ? 0 : end(count - 1) + 1;
+            log = map(logChannel, log, (long) start + bytes.length, MIN_LOG_CAPACITY);
+            index = map(indexChannel, index, HEADER_SIZE + 4L * (count + 1), MIN_INDEX_CAPACITY);
+            log.put(start, bytes);
+            index.putInt(HEADER_SIZE + 4 * count, start + bytes.length);
+            index.putInt(COUNT_OFFSET, ++count);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Finds the newest entry, before an entry, that contains a text (or starts with it).
+     *
+     * @param text   the text
+     * @param before the number of the entry to search before (searches every entry if it is above the size)
+     * @param prefix to only find entries that start with the text
+     * @return the number of the entry, or 0 if there is no such entry
+     * @throws IOException if the history can't be opened
+     */
+    synchronized int search(String text, int before, boolean prefix) throws IOException {
+        refresh();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int last = Math.min(before - 1, count) - 1;
+        if (last < 0) {
+            return 0;
+        }
+
+        if (bytes.length < MIN_INDEXED_LENGTH) {
+            for (int entry = last; entry >= 0; entry--) {
+                if (matches(entry, bytes, bytes.length, prefix)) {
+                    return entry + 1;
+                }
+            }
+            return 0;
+        }
+
+        while (TRIGRAMS.size() < count) {
+            int entry = TRIGRAMS.size();
+            TRIGRAMS.add(log, start(entry), end(entry));
+        }
+        int[] slots = TRIGRAMS.find(bytes);
+        if (slots == null) {
+            return 0;
+        }
+        for (int block = TRIGRAMS.lastBlock(slots, last / TrigramIndex.BLOCK_SIZE); block >= 0;
+             block = TRIGRAMS.lastBlock(slots, block - 1)) {
+            int first = block * TrigramIndex.BLOCK_SIZE;
+            for (int entry = Math.min(last, first + TrigramIndex.BLOCK_SIZE - 1); entry >= first; entry--) {
+                if (matches(entry, bytes, bytes.length, prefix)) {
+                    return entry + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Expands a line that recalls an entry: {@code !!} (the newest entry), {@code !n} (entry n), {@code !-n} (the
+     * n-th newest entry) or {@code !prefix} (the newest entry that starts with the prefix). What follows the first
+     * space of the line is appended to the entry, as in {@code !! | grep x}.
+     *
+     * @param input the line (starting with '!')
+     * @return the expanded line, or {@code null} if there is no such entry
+     * @throws IOException if the history can't be opened
+     */
+    synchronized String expand(String input) throws IOException {
+        int designatorEnd = input.indexOf(' ');
+        String designator = designatorEnd == -1 ? input.substring(1) : input.substring(1, designatorEnd);
+        String rest = designatorEnd == -1 ? "" : input.substring(designatorEnd);
+        int number;
+        if (designator.equals("!")) {
+            number = size();
+        } else if (!designator.isEmpty() && (designator.charAt(0) == '-' || Character.isDigit(designator.charAt(0)))) {
+            try {
+                number = Integer.parseInt(designator);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (number < 0) {
+                number += size() + 1;
+            }
+        } else if (!designator.isEmpty()) {
+            number = search(designator, Integer.MAX_VALUE, true);
+        } else {
+            return null;
+        }
+
+        String entry = get(number);
+        return entry == null ? null : entry + rest;
+    }
+
+    /**
+     * Checks if an entry contains (or starts with) a text, comparing the bytes in the mapped log.
+     *
+     * @param entry  the index of the entry (from 0)
+     * @param text   the UTF-8 bytes of the text
+     * @param length the number of bytes of the text to compare
+     * @param prefix to only check if the entry starts with the text
+     * @return {@code true} if the entry contains the text
+     */
+    private boolean matches(int entry, byte[] text, int length, boolean prefix) {
+        int start = start(entry);
+        int last = (prefix ? start : end(entry) - length);
+        if (end(entry) - start < length) {
+            return false;
+        }
+
+        for (int i = start; i <= last; i++) {
+            int j = 0;
+            while (j < length && log.get(i + j) == text[j]) {
+                j++;
+            }
+            if (j == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the offset of the first byte of an entry in the log.
+     *
+     * @param entry the index of the entry (from 0)
+     * @return the offset
+     */
+    private int start(int entry) {
+        return entry == 0 ? 0 : index.getInt(HEADER_SIZE + 4 * (entry - 1));
+    }
+
+    /**
+     * Gets the offset of the line break that ends an entry in the log.
+     *
+     * @param entry the index of the entry (from 0)
+     * @return the offset
+     */
+    private int end(int entry) {
+        return index.getInt(HEADER_SIZE + 4 * entry) - 1;
+    }
+
+    /**
+     * Opens the files if they are not open yet, and reads the number of entries (other terminals may have added
+     * some), mapping more of the files if needed.
+     *
+     * @throws IOException if the files can't be opened, or the index file is not a history index
+     */
+    private void refresh() throws IOException {
+        if (indexChannel == null) {
+            open();
+        }
+
+        count = index.getInt(COUNT_OFFSET);
+        index = map(indexChannel, index, HEADER_SIZE + 4L * count, MIN_INDEX_CAPACITY);
+        if (count != 0) {
+            log = map(logChannel, log, end(count - 1) + 1L, MIN_LOG_CAPACITY);
+        }
+    }
+
+    /**
+     * Opens and maps the files, creating them if needed.
+     *
+     * @throws IOException if the files can't be opened, or the index file is not a history index
+     */
+    private void open() throws IOException {
+        Files.createDirectories(DIRECTORY);
+        FileChannel logFile = FileChannel.open(DIRECTORY.resolve("history.log"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel indexFile;
+        try {
+            indexFile = FileChannel.open(DIRECTORY.resolve("history.idx"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            logFile.close();
+            throw e;
+        }
+
+        try {
+            FileLock lock = indexFile.lock();
+            try {
+                boolean created = indexFile.size() < HEADER_SIZE;
+                MappedByteBuffer indexBuffer = map(indexFile, null, HEADER_SIZE, MIN_INDEX_CAPACITY);
+                if (created) {
+                    indexBuffer.putInt(0, MAGIC);
+                    indexBuffer.putInt(COUNT_OFFSET, 0);
+                } else if (indexBuffer.getInt(0) != MAGIC) {
+                    throw new IOException(DIRECTORY.resolve("history.idx") + " is not a history index");
+                } else {
+                    // Drop the newest entries whose lines never reached the log (if the machine stopped after the
+                    // pages of the index were written but before those of the log).
+                    int entries = indexBuffer.getInt(COUNT_OFFSET);
+                    indexBuffer = map(indexFile, indexBuffer, HEADER_SIZE + 4L * entries, MIN_INDEX_CAPACITY);
+                    while (entries != 0 && !isWritten(logFile, indexBuffer, entries - 1)) {
+                        indexBuffer.putInt(COUNT_OFFSET, --entries);
+                    }
+                }
+                log = map(logFile, null, 0, MIN_LOG_CAPACITY);
+                index = indexBuffer;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            logFile.close();
+            indexFile.close();
+            throw e;
+        }
+        logChannel = logFile;
+        indexChannel = indexFile;
+    }
+
+    /**
+     * Checks if the line of an entry is in the log. The log is always mapped (so made longer) beyond its last line,
+     * and is zeros where nothing was written, so its size tells nothing: a written line ends with a line break and
+     * has no zero bytes.
+     *
+     * @param logFile the channel of the log file
+     * @param index   the mapped index file
+     * @param entry   the index of the entry (from 0)
+     * @return {@code true} if the line of the entry is in the log
+     * @throws IOException if the log can't be read
+     */
+    private static boolean isWritten(FileChannel logFile, MappedByteBuffer index, int entry) throws IOException {
+        int start = entry == 0 ? 0 : index.getInt(HEADER_SIZE + 4 * (entry - 1));
+        int end = index.getInt(HEADER_SIZE + 4 * entry);
+        if (start < 0 || end <= start || end > logFile.size()) {
+            return false;
+        }
+
+        ByteBuffer line = ByteBuffer.allocate(end - start);
+        while (line.hasRemaining()) {
+            if (logFile.read(line, start + line.position()) <= 0) {
+                return false;
+            }
+        }
+        if (line.get(line.limit() - 1) != '\n') {
+            return false;
+        }
+        for (int i = 0; i < line.limit(); i++) {
+            if (line.get(i) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps a file from its start, if the current mapping is too small: at least the whole file, and twice as much
+     * as before if that is still too small (mapping beyond the end of the file makes it longer).
+     *
+     * @param channel     the channel of the file
+     * @param buffer      the current mapping, or {@code null}
+     * @param needed      the size that must be mapped
+     * @param minCapacity the smallest size to map
+     * @return the mapping
+     * @throws IOException if the file can't be mapped, or the size is above 2 GiB
+     */
+    private static MappedByteBuffer map(FileChannel channel, MappedByteBuffer buffer, long needed, int minCapacity)
+            throws IOException {
+        if (buffer != null && buffer.capacity() >= needed) {
+            return buffer;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            throw new IOException("The history is full");
+        }
+
+        long capacity = Math.max(minCapacity, Math.max(channel.size(), buffer == null ? 0 : buffer.capacity()));
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.internal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * The internal history command.
+ *
+ * @author Macintosh_Fan
+ */
+class HistoryCommand extends InternalCommand implements Completer {
+    /**
+     * The number of entries listed by default.
+     */
+    private static final int DEFAULT_COUNT = 20;
+
+    /**
+     * Called when the command is called.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(CommandContext context, String[] args) {
+        History history = context.getTerminal().HISTORY;
+        if (history == null) {
+            context.getErr().println("This terminal has no history!");
+            return;
+        }
+
+        try {
+            if (args == null) {
+                list(context.getOut(), history, history.size() - DEFAULT_COUNT + 1);
+            } else if (args[0].equals("-s")) {
+                if (args.length == 1) {
+                    context.getErr().println("Missing parameter 'text'!");
+                    return;
+                }
+                printMatches(context.getOut(), history, String.join(" ", Arrays.copyOfRange(args, 1, args.length)));
+            } else if (args[0].equals("-r")) {
+                reverseSearch(context, history);
+            } else {
+                int count;
+                try {
+                    count = Integer.parseInt(args[0]);
+                } catch (NumberFormatException e) {
+                    context.getErr().println("Invalid number (too small/big or contained non-numeric characters?)!");
+                    return;
+                }
+                list(context.getOut(), history, history.size() - count + 1);
+            }
+        } catch (IOException e) {
+            context.getErr().println("Could not read the history in " + history.getDirectory() + ": "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the entries from a number to the newest one.
+     *
+     * @param out     the stream to print to
+     * @param history the history
+     * @param first   the number of the first entry to print
+     * @throws IOException if the history can't be read
+     */
+    private static void list(PrintStream out, History history, int first) throws IOException {
+        int size = history.size();
+        for (int number = Math.max(1, first); number <= size; number++) {
+            out.printf("%5d  %s%n", number, history.get(number));
+        }
+    }
+
+    /**
+     * Prints the newest entries that contain a text, oldest first.
+     *
+     * @param out     the stream to print to
+     * @param history the history
+     * @param text    the text
+     * @throws IOException if the history can't be read
+     */
+    private static void printMatches(PrintStream out, History history, String text) throws IOException {
+        Deque<Integer> matches = new ArrayDeque<>();
+        int number = Integer.MAX_VALUE;
+        while (matches.size() < DEFAULT_COUNT && (number = history.search(text, number, false)) != 0) {
+            matches.push(number);
+        }
+        for (int match : matches) {
+            out.printf("%5d  %s%n", match, history.get(match));
+        }
+    }
+
+    /**
+     * Searches the history as the user types, like Ctrl-R in a shell, but a line at a time: every line is a new
+     * text to search for, an empty line finds the next older match, "!" runs the match and "." stops.
+     *
+     * @param context the context of the invocation
+     * @param history the history
+     * @throws IOException if the history can't be read
+     */
+    private static void reverseSearch(CommandContext context, History history) throws IOException {
+        PrintStream out = context.getOut();
+        out.println("Type a text to search for (an empty line finds an older match, '!' runs the match and '.' "
+                + "stops).");
+        String text = null;
+        int match = 0;
+        while (!context.isCancelled()) {
+            out.print("(reverse-i-search)> ");
+            String line = context.readLine();
+            if (line == null || line.equals(".")) {
+                return;
+            }
+
+            if (line.equals("!")) {
+                if (match == 0) {
+                    context.getErr().println("Nothing to run! Try again...\n");
+                    continue;
+                }
+                context.getTerminal().runLine(history.get(match));
+                return;
+            }
+
+            int found;
+            if (line.isEmpty()) {
+                if (text == null) {
+                    continue;
+                }
+                found = match == 0 ? 0 : history.search(text, match, false);
+            } else {
+                text = line;
+                found = history.search(text, Integer.MAX_VALUE, false);
+            }
+
+            if (found == 0) {
+                out.println("(failing reverse-i-search) '" + text + "'");
+            } else {
+                match = found;
+                out.printf("%5d  %s%n", match, history.get(match));
+            }
+        }
+    }
+
+    /**
+     * Completes an argument: the options of the command.
+     *
+     * @param words      the arguments before the argument
+     * @param word       the beginning of the argument
+     * @param candidates the consumer of the candidates
+     */
+    @Override
+    public void complete(String[] words, String word, Candidates candidates) {
+        if (words.length == 0) {
+            Completer.offerMatching(word, candidates, "-r", "-s");
+        }
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return "history";
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return "[count] | -s text | -r";
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return "lists the last commands (20 by default), the last ones containing a text, or searches them as you "
+                + "type (!n, !-n, !! and !prefix run a command again).";
+    }
+}
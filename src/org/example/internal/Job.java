@@ -0,0 +1,80 @@
+package org.example.internal;
+
+/**
+ * A command invocation running in the background of the terminal.
+ *
+ * @author Macintosh_Fan
+ */
+final class Job {
+    /**
+     * The job number shown to the user.
+     */
+    final int ID;
+
+    /**
+     * The command line that started the job.
+     */
+    final String COMMAND_LINE;
+
+    /**
+     * The context of the command of the job.
+     */
+    final CommandContext CONTEXT;
+
+    /**
+     * The thread running the job.
+     */
+    final Thread THREAD;
+
+    /**
+     * Constructs a job (the thread is not started).
+     *
+     * @param id          the job number shown to the user
+     * @param commandLine the command line that started the job
+     * @param context     the context of the command of the job
+     * @param thread      the thread running the job
+     */
+    Job(int id, String commandLine, CommandContext context, Thread thread) {
+        ID = id;
+        COMMAND_LINE = commandLine;
+        CONTEXT = context;
+        THREAD = thread;
+    }
+
+    /**
+     * Is the job still running?
+     *
+     * @return {@code true} if the job is still running
+     */
+    boolean isRunning() {
+        return THREAD.isAlive();
+    }
+
+    /**
+     * Asks the job to stop by cancelling its context and interrupting its thread. Commands stop cooperatively, so
+     * the job may keep running until its command notices.
+     */
+    void cancel() {
+        CONTEXT.cancel();
+        THREAD.interrupt();
+    }
+
+    /**
+     * Waits for the job to finish.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    void await() throws InterruptedException {
+        THREAD.join();
+    }
+
+    /**
+     * Returns the job as a line for the job list.
+     *
+     * @return the job as a line for the job list
+     */
+    @Override
+    public String toString() {
+        return String.format("[%d] %-8s %s", ID, isRunning() ? "Running" : "Done", COMMAND_LINE);
+    }
+}
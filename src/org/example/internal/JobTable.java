@@ -0,0 +1,135 @@
+package org.example.internal;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * The background jobs of a terminal.
+ *
+ * @author Macintosh_Fan
+ */
+final class JobTable {
+    /**
+     * Creates the threads of the jobs: virtual threads where the runtime has them, daemon threads otherwise.
+     */
+    static final ThreadFactory THREAD_FACTORY = newThreadFactory();
+
+    /**
+     * The jobs by their number, oldest first.
+     */
+    private final Map<Integer, Job> JOBS = new LinkedHashMap<>();
+
+    /**
+     * The number of the next job.
+     */
+    private int nextId = 1;
+
+    /**
+     * Starts a job.
+     * <p>
+     * The job is announced before its thread is started, so whatever the job prints comes after the announcement.
+     * Both happen while the table is locked, so no one sees the job before its thread runs.
+     *
+     * @param commandLine the command line that started the job
+     * @param context     the context of the command of the job
+     * @param task        what the job does
+     * @param announce    called with the job (which has its number) right before its thread is started
+     * @return the started job
+     */
+    synchronized Job start(String commandLine, CommandContext context, Runnable task, Consumer<Job> announce) {
+        if (JOBS.isEmpty()) {
+            nextId = 1;
+        }
+        Job job = new Job(nextId++, commandLine, context, THREAD_FACTORY.newThread(task));
+        JOBS.put(job.ID, job);
+        announce.accept(job);
+        job.THREAD.start();
+        return job;
+    }
+
+    /**
+     * Gets a job.
+     *
+     * @param id the job number
+     * @return the job, or {@code null} if there is no such job
+     */
+    synchronized Job get(int id) {
+        return JOBS.get(id);
+    }
+
+    /**
+     * Gets the most recently started job that is still running.
+     *
+     * @return the job, or {@code null} if no job is running
+     */
+    synchronized Job latestRunning() {
+        Job latest = null;
+        for (Job job : JOBS.values()) {
+            if (job.isRunning()) {
+                latest = job;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Gets all jobs, oldest first.
+     *
+     * @return a copy of the list of jobs
+     */
+    synchronized List<Job> list() {
+        return new ArrayList<>(JOBS.values());
+    }
+
+    /**
+     * Forgets the jobs that have finished.
+     */
+    synchronized void removeFinished() {
+        Iterator<Job> iterator = JOBS.values().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().isRunning()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Waits for every job (including jobs started while waiting) to finish.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    void awaitAll() throws InterruptedException {
+        Job job;
+        while ((job = latestRunning()) != null) {
+            job.await();
+        }
+    }
+
+    /**
+     * Creates the thread factory for jobs.
+     * <p>
+     * Virtual threads are looked up reflectively, so the terminal still runs (with platform threads) on
+     * runtimes that do not have them.
+     *
+     * @return the thread factory
+     */
+    private static ThreadFactory newThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return task -> {
+                Thread thread = new Thread(task, "terminal-job");
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.internal;
+
+/**
+ * The internal jobs command.
+ *
+ * @author Macintosh_Fan
+ */
+class JobsCommand extends InternalCommand {
+    /**
+     * Called when the command is called.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(CommandContext context, String[] args) {
+        JobTable jobs = context.getTerminal().JOBS;
+        for (Job job : jobs.list()) {
+            context.getOut().println(job);
+        }
+        jobs.removeFinished();
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return "jobs";
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return null;
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return "lists the background jobs (finished jobs are listed once).";
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.internal;
+
+/**
+ * The internal kill command.
+ *
+ * @author Macintosh_Fan
+ */
+class KillCommand extends InternalCommand {
+    /**
+     * Called when the command is called.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(CommandContext context, String[] args) {
+        if (args == null) {
+            context.getErr().println("Missing parameter 'job'!");
+            return;
+        }
+
+        Job job = findJob(context, args[0]);
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Gets the name of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getName() {
+     * return "randomNumber";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return "kill";
+    }
+
+    /**
+     * Gets the usage of the command. May be {@code null} if the command has no arguments.
+     * <p>
+     * Example:
+     * <code>
+     * public void getUsage() {
+     * return "a b";
+     * }
+     * </code>
+     *
+     * @return the command name
+     */
+    @Override
+    public String getUsage() {
+        return "job";
+    }
+
+    /**
+     * Gets the description of the command. <strong>THIS METHOD CANNOT BE NULL!</strong>
+     * <p>
+     * Example:
+     * <code>
+     * public void getDescription() {
+     * return "gets random number between a and b.";
+     * }
+     * </code>
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return "asks a background job to stop.";
+    }
+
+    /**
+     * Finds a job by the number the user typed (with or without a leading '%'), printing an error if there is
+     * no such job.
+     *
+     * @param context the context of the invocation
+     * @param id      the job number the user typed
+     * @return the job, or {@code null} if there is no such job
+     */
+    static Job findJob(CommandContext context, String id) {
+        Job job = null;
+        try {
+            job = context.getTerminal().JOBS.get(Integer.parseInt(id.startsWith("%") ? id.substring(1) : id));
+        } catch (NumberFormatException ignored) {
+        }
+
+        if (job == null) {
+            context.getErr().println("No such job: " + id);
+        }
+        return job;
+    }
+}
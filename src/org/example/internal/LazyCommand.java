@@ -0,0 +1,153 @@
+package org.example.internal;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A command that is known by its name, usage and description only, until it is first called: then its class is
+ * loaded and instantiated, and every call goes to that instance.
+ * <p>
+ * The terminal only needs the metadata to index commands and print the help message, so a terminal whose commands
+ * are lazy starts without loading the classes of commands that are never used (nor what they load, like Swing for a
+ * window or the tables of a chess engine).
+ * <p>
+ * The metadata should come from {@code static final String} constants of the command class: the compiler copies
+ * their values into the code that builds the lazy command, so there is one source for them and reading them does not
+ * load the class.
+ *
+ * @author Macintosh_Fan
+ */
+public final class LazyCommand implements Command, Completer {
+    /**
+     * The binary name of the class of the command.
+     */
+    private final String CLASS_NAME;
+
+    /**
+     * The name of the command.
+     */
+    private final String NAME;
+
+    /**
+     * The usage of the command, or {@code null}.
+     */
+    private final String USAGE;
+
+    /**
+     * The description of the command.
+     */
+    private final String DESCRIPTION;
+
+    /**
+     * The command, once it has been loaded.
+     */
+    private volatile Command command;
+
+    /**
+     * Constructs a lazy command. The metadata must be what the command itself returns, which is checked when it is
+     * loaded.
+     *
+     * @param className   the binary name of the class of the command (which needs a public constructor without
+     *                    parameters)
+     * @param name        the name of the command
+     * @param usage       the usage of the command, or {@code null}
+     * @param description the description of the command
+     */
+    public LazyCommand(String className, String name, String usage, String description) {
+        CLASS_NAME = className;
+        NAME = name;
+        USAGE = usage;
+        DESCRIPTION = description;
+    }
+
+    /**
+     * Gets the command, loading and instantiating its class the first time.
+     *
+     * @return the command
+     * @throws IllegalStateException if the class can't be instantiated, its metadata is not the metadata of this
+     *                               lazy command, or it overrides neither {@code onCommand} method
+     */
+    public Command getCommand() {
+        Command loaded = command;
+        if (loaded != null) {
+            return loaded;
+        }
+
+        synchronized (this) {
+            if (command == null) {
+                try {
+                    loaded = Class.forName(CLASS_NAME).asSubclass(Command.class).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                    throw new IllegalStateException("Could not load the command " + CLASS_NAME, cause);
+                }
+                if (!NAME.equals(loaded.getName()) || !DESCRIPTION.equals(loaded.getDescription())
+                        || (USAGE == null ? loaded.getUsage() != null : !USAGE.equals(loaded.getUsage()))) {
+                    throw new IllegalStateException("The metadata of " + CLASS_NAME + " is not the metadata of '"
+                            + NAME + "'");
+                }
+                if (!CommandRegistry.overridesOnCommand(loaded)) {
+                    throw new IllegalStateException("The command " + CLASS_NAME + " must override one of the "
+                            + "onCommand methods");
+                }
+                command = loaded;
+            }
+            return command;
+        }
+    }
+
+    /**
+     * Called when the command is called: loads the command if needed, and calls it.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    public void onCommand(CommandContext context, String[] args) {
+        getCommand().onCommand(context, args);
+    }
+
+    /**
+     * Completes an argument: loads the command if needed, and lets it complete the argument if it is a
+     * {@link Completer}.
+     *
+     * @param words      the arguments before the argument
+     * @param word       the beginning of the argument
+     * @param candidates the consumer of the candidates
+     */
+    @Override
+    public void complete(String[] words, String word, Candidates candidates) {
+        if (getCommand() instanceof Completer completer) {
+            completer.complete(words, word, candidates);
+        }
+    }
+
+    /**
+     * Gets the name of the command (without loading it).
+     *
+     * @return the command name
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the usage of the command (without loading it).
+     *
+     * @return the command usage, or {@code null}
+     */
+    @Override
+    public String getUsage() {
+        return USAGE;
+    }
+
+    /**
+     * Gets the description of the command (without loading it).
+     *
+     * @return the command description
+     */
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+}
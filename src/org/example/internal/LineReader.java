@@ -0,0 +1,207 @@
+package org.example.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Reads lines from an input stream.
+ * <p>
+ * Unlike {@link java.util.Scanner}, this reader does not tokenize with regular expressions, and it decodes through
+ * buffers that are reused for every line, so the only allocation per line is the returned {@link String}.
+ * Only one reader should ever exist per stream, because any bytes it has read ahead are lost to other readers.
+ *
+ * @author Macintosh_Fan
+ */
+public final class LineReader {
+    /**
+     * The size of the byte and char buffers.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The stream to read from.
+     */
+    private final InputStream IN;
+
+    /**
+     * The decoder for the bytes of the stream.
+     */
+    private final CharsetDecoder DECODER;
+
+    /**
+     * The bytes read from the stream but not yet decoded (always in read mode).
+     */
+    private final ByteBuffer BYTE_BUFFER;
+
+    /**
+     * The decoded chars not yet consumed (always in read mode).
+     */
+    private final CharBuffer CHAR_BUFFER;
+
+    /**
+     * The chars of the line being read (grows if a line is longer).
+     */
+    private char[] line = new char[256];
+
+    /**
+     * Has the end of the stream been reached?
+     */
+    private boolean endOfInput;
+
+    /**
+     * Has the decoder been flushed after the end of the stream?
+     */
+    private boolean flushed;
+
+    /**
+     * Should a '\n' directly after the last '\r' be skipped?
+     */
+    private boolean skipLineFeed;
+
+    /**
+     * Constructs a line reader that decodes with the default charset.
+     *
+     * @param in the stream to read from
+     */
+    public LineReader(InputStream in) {
+        this(in, Charset.defaultCharset());
+    }
+
+    /**
+     * Constructs a line reader.
+     *
+     * @param in      the stream to read from
+     * @param charset the charset of the stream
+     */
+    public LineReader(InputStream in, Charset charset) {
+        this(in, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a line reader with smaller or larger buffers (lines can be longer than the buffers either way).
+     *
+     * @param in         the stream to read from
+     * @param charset    the charset of the stream
+     * @param bufferSize the size of the byte and char buffers
+     */
+    public LineReader(InputStream in, Charset charset, int bufferSize) {
+        IN = in;
+        BYTE_BUFFER = ByteBuffer.allocate(bufferSize);
+        CHAR_BUFFER = CharBuffer.allocate(bufferSize);
+        DECODER = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        BYTE_BUFFER.flip();
+        CHAR_BUFFER.flip();
+    }
+
+    /**
+     * Gets the stream this reader reads from.
+     *
+     * @return the stream this reader reads from
+     */
+    public InputStream getInputStream() {
+        return IN;
+    }
+
+    /**
+     * Can the next line be started without waiting for the stream (chars or bytes are buffered, or the stream has
+     * bytes available, or its end has been reached)?
+     *
+     * @return {@code true} if reading the first char of the next line would not block
+     */
+    public synchronized boolean ready() {
+        try {
+            return CHAR_BUFFER.hasRemaining() || BYTE_BUFFER.hasRemaining() || endOfInput || IN.available() > 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Reads the next line, without its line terminator ("\n", "\r" or "\r\n").
+     *
+     * @return the line, or {@code null} if the end of the stream has been reached
+     * @throws UncheckedIOException if the stream could not be read
+     */
+    public synchronized String readLine() {
+        int length = 0;
+        char c;
+        while (true) {
+            while (CHAR_BUFFER.hasRemaining()) {
+                c = CHAR_BUFFER.get();
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+
+                if (c == '\n') {
+                    return new String(line, 0, length);
+                } else if (c == '\r') {
+                    skipLineFeed = true;
+                    return new String(line, 0, length);
+                }
+
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = c;
+            }
+
+            if (!fill()) {
+                return length == 0 ? null : new String(line, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Decodes more chars into the char buffer, reading from the stream if needed.
+     *
+     * @return {@code false} if there are no more chars
+     */
+    private boolean fill() {
+        if (flushed) {
+            return false;
+        }
+
+        CHAR_BUFFER.clear();
+        try {
+            while (true) {
+                if (!endOfInput) {
+                    BYTE_BUFFER.compact();
+                    int read = IN.read(BYTE_BUFFER.array(), BYTE_BUFFER.arrayOffset() + BYTE_BUFFER.position(),
+                            BYTE_BUFFER.remaining());
+                    if (read == -1) {
+                        endOfInput = true;
+                    } else {
+                        BYTE_BUFFER.position(BYTE_BUFFER.position() + read);
+                    }
+                    BYTE_BUFFER.flip();
+                }
+
+                DECODER.decode(BYTE_BUFFER, CHAR_BUFFER, endOfInput);
+                if (endOfInput) {
+                    DECODER.flush(CHAR_BUFFER);
+                    flushed = true;
+                }
+
+                if (CHAR_BUFFER.position() != 0 || flushed) {
+                    CHAR_BUFFER.flip();
+                    return CHAR_BUFFER.hasRemaining();
+                }
+            }
+        } catch (IOException e) {
+            CHAR_BUFFER.flip();
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package org.example.internal;
+
+/**
+ * A trie of names that finds the names that start with a prefix, and the name closest to a query by edit
+ * (Levenshtein) distance, like a Levenshtein automaton run over the trie.
+ * <p>
+ * The names with a prefix are found by walking down to the node of the prefix and then through its subtree, one name
+ * at a time and in alphabetical order (the children of every node are sorted), without allocating anything: a caller
+ * that only wants the first few names stops after them, however many names the trie holds.
+ * <p>
+ * The search walks the trie depth first and keeps, for every node on the path, the row of edit distances between the
+ * prefix the node spells and every prefix of the query. A child's row is computed from its parent's, so a prefix
+ * shared by many names is compared once, and a branch is left as soon as every entry of its row is above the
+ * tolerance. Only the entries within the tolerance of the diagonal are computed. The cost therefore depends on how
+ * many prefixes are a few edits from the query, not on the number of names. The trie is stored in arrays and never
+ * changes after it is built, so any number of threads can query it at once.
+ *
+ * @author Macintosh_Fan
+ */
+final class NameTrie {
+    /**
+     * The char every node adds to the prefix of its parent (node 0 is the root, the empty prefix).
+     */
+    private final char[] LABEL;
+
+    /**
+     * The depth of every node (the length of the prefix it spells).
+     */
+    private final int[] DEPTH;
+
+    /**
+     * The first child of every node, or {@code -1}.
+     */
+    private final int[] FIRST_CHILD;
+
+    /**
+     * The next child of the parent of every node (in the order of their chars), or {@code -1}.
+     */
+    private final int[] NEXT_SIBLING;
+
+    /**
+     * The parent of every node, or {@code -1} for the root.
+     */
+    private final int[] PARENT;
+
+    /**
+     * The index of the name every node spells, or {@code -1} if it only spells a prefix.
+     */
+    private final int[] NAME;
+
+    /**
+     * The number of nodes.
+     */
+    private final int SIZE;
+
+    /**
+     * The length of the longest name.
+     */
+    private final int MAX_LENGTH;
+
+    /**
+     * The rows of distances of the last search of every thread, kept so a search allocates nothing: a row for every
+     * depth, each with room for every prefix of the longest query so far.
+     */
+    private final ThreadLocal<int[][]> ROWS = new ThreadLocal<>();
+
+    /**
+     * The stack of nodes of the searches of every thread, with room for every node.
+     */
+    private final ThreadLocal<int[]> STACK = new ThreadLocal<>();
+
+    /**
+     * Builds the trie.
+     *
+     * @param names the names (a name equal to an earlier one is never found)
+     */
+    NameTrie(String[] names) {
+        int capacity = 1;
+        int maxLength = 0;
+        for (String name : names) {
+            capacity += name.length();
+            maxLength = Math.max(maxLength, name.length());
+        }
+        LABEL = new char[capacity];
+        DEPTH = new int[capacity];
+        FIRST_CHILD = new int[capacity];
+        NEXT_SIBLING = new int[capacity];
+        PARENT = new int[capacity];
+        NAME = new int[capacity];
+        MAX_LENGTH = maxLength;
+
+        int nodes = 1;
+        FIRST_CHILD[0] = -1;
+        NEXT_SIBLING[0] = -1;
+        PARENT[0] = -1;
+        NAME[0] = -1;
+        for (int i = 0; i < names.length; i++) {
+            int node = 0;
+            for (int depth = 0; depth < names[i].length(); depth++) {
+                char c = names[i].charAt(depth);
+                int child = FIRST_CHILD[node];
+                while (child != -1 && LABEL[child] != c) {
+                    child = NEXT_SIBLING[child];
+                }
+                if (child == -1) {
+                    child = nodes++;
+                    LABEL[child] = c;
+                    DEPTH[child] = depth + 1;
+                    FIRST_CHILD[child] = -1;
+                    NEXT_SIBLING[child] = FIRST_CHILD[node];
+                    PARENT[child] = node;
+                    NAME[child] = -1;
+                    FIRST_CHILD[node] = child;
+                }
+                node = child;
+            }
+            if (NAME[node] == -1) {
+                NAME[node] = i;
+            }
+        }
+        SIZE = nodes;
+        sortChildren();
+    }
+
+    /**
+     * Links the children of every node in the order of their chars.
+     */
+    private void sortChildren() {
+        int[] children = new int[SIZE];
+        for (int node = 0; node < SIZE; node++) {
+            int count = 0;
+            for (int child = FIRST_CHILD[node]; child != -1; child = NEXT_SIBLING[child]) {
+                children[count++] = child;
+            }
+            if (count < 2) {
+                continue;
+            }
+
+            // An insertion sort, since a node has a few dozen children at most.
+            for (int i = 1; i < count; i++) {
+                int child = children[i];
+                int j = i - 1;
+                while (j >= 0 && LABEL[children[j]] > LABEL[child]) {
+                    children[j + 1] = children[j];
+                    j--;
+                }
+                children[j + 1] = child;
+            }
+            FIRST_CHILD[node] = children[0];
+            for (int i = 0; i < count; i++) {
+                NEXT_SIBLING[children[i]] = i + 1 < count ? children[i + 1] : -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the node of a prefix.
+     *
+     * @param prefix the prefix
+     * @return the node, or {@code -1} if no name starts with the prefix
+     */
+    int find(String prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node != -1; i++) {
+            char c = prefix.charAt(i);
+            node = FIRST_CHILD[node];
+            while (node != -1 && LABEL[node] != c) {
+                node = NEXT_SIBLING[node];
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Finds the next node, in alphabetical order, that spells a name and is in the subtree of a node (so the next
+     * name that starts with the prefix of that node).
+     *
+     * @param root the node of the prefix, from {@link #find(String)}
+     * @param node the node of the previous name, or {@code -1} to find the first one
+     * @return the node, or {@code -1} if there are no more names
+     */
+    int nextName(int root, int node) {
+        node = node == -1 ? root : advance(root, node);
+        while (node != -1 && NAME[node] == -1) {
+            node = advance(root, node);
+        }
+        return node;
+    }
+
+    /**
+     * Gets the name a node spells.
+     *
+     * @param node the node
+     * @return the index of the name, or {@code -1} if the node only spells a prefix
+     */
+    int nameAt(int node) {
+        return NAME[node];
+    }
+
+    /**
+     * Finds the node after a node in the preorder of the subtree of a root: its first child, or else the next
+     * sibling of the nearest of it and its ancestors that has one.
+     *
+     * @param root the root of the subtree
+     * @param node the node
+     * @return the next node, or {@code -1} if the node is the last one of the subtree
+     */
+    private int advance(int root, int node) {
+        if (FIRST_CHILD[node] != -1) {
+            return FIRST_CHILD[node];
+        }
+        while (node != root) {
+            if (NEXT_SIBLING[node] != -1) {
+                return NEXT_SIBLING[node];
+            }
+            node = PARENT[node];
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the name closest to a query.
+     * <p>
+     * The trie is searched with a tolerance of 0, then 1, and so on up to the largest distance: most queries are a
+     * typo or two away from a name, and a small tolerance leaves far more branches early.
+     *
+     * @param query       the query
+     * @param maxDistance the largest distance a name may have to be found
+     * @return the index of the closest name (the first one given, if several are as close), or {@code -1} if no
+     * name is within the distance
+     */
+    int nearest(String query, int maxDistance) {
+        int[][] rows = ROWS.get();
+        if (rows == null || rows[0].length <= query.length()) {
+            rows = new int[MAX_LENGTH + 1][query.length() + 1];
+            ROWS.set(rows);
+        }
+        int[] stack = STACK.get();
+        if (stack == null) {
+            stack = new int[SIZE];
+            STACK.set(stack);
+        }
+        for (int tolerance = 0; tolerance <= maxDistance; tolerance++) {
+            int nearest = search(query, tolerance, rows, stack);
+            if (nearest != -1) {
+                return nearest;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first name (in the order they were given) within a tolerance of a query.
+     *
+     * @param query     the query
+     * @param tolerance the largest distance a name may have to be found
+     * @param rows      a row of distances for every depth, each with room (at least) for every prefix of the query
+     * @param stack     an array with room for every node
+     * @return the index of the name, or {@code -1} if no name is within the tolerance
+     */
+    private int search(String query, int tolerance, int[][] rows, int[] stack) {
+        int length = query.length();
+        int outside = tolerance + 1;
+        for (int j = 0; j <= length; j++) {
+            rows[0][j] = j <= tolerance ? j : outside;
+        }
+
+        int nearest = -1;
+        int stackSize = 0;
+        for (int child = FIRST_CHILD[0]; child != -1; child = NEXT_SIBLING[child]) {
+            stack[stackSize++] = child;
+        }
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            int depth = DEPTH[node];
+            int[] parent = rows[depth - 1];
+            int[] row = rows[depth];
+            char c = LABEL[node];
+
+            // Entries more than the tolerance away from the diagonal are above it anyway.
+            int from = Math.max(1, depth - tolerance);
+            int to = Math.min(length, depth + tolerance);
+            row[from - 1] = from == 1 && depth <= tolerance ? depth : outside;
+            int rowMin = row[from - 1];
+            for (int j = from; j <= to; j++) {
+                int substitution = parent[j - 1] + (c == query.charAt(j - 1) ? 0 : 1);
+                row[j] = Math.min(substitution, Math.min(parent[j], row[j - 1]) + 1);
+                rowMin = Math.min(rowMin, row[j]);
+            }
+            if (to < length) {
+                row[to + 1] = outside;
+            }
+            if (rowMin > tolerance) {
+                continue;
+            }
+
+            if (NAME[node] != -1 && to == length && row[length] <= tolerance
+                    && (nearest == -1 || NAME[node] < nearest)) {
+                nearest = NAME[node];
+            }
+            for (int child = FIRST_CHILD[node]; child != -1; child = NEXT_SIBLING[child]) {
+                stack[stackSize++] = child;
+            }
+        }
+        return nearest;
+    }
+}
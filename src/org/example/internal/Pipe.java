@@ -0,0 +1,237 @@
+package org.example.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * A bounded in-memory channel between two stages of a pipeline: one thread writes bytes into a ring buffer and
+ * another reads them.
+ * <p>
+ * The ring has a fixed size, so a stage that writes faster than the next one reads waits for room instead of
+ * buffering its whole output. Closing the writing end lets the reader read the rest and then the end of the stream;
+ * closing the reading end makes every later write fail, so a stage whose output is no longer read stops early.
+ *
+ * @author Macintosh_Fan
+ */
+final class Pipe {
+    /**
+     * The size of the ring when none is given.
+     */
+    static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /**
+     * The reading end of the pipe.
+     */
+    final InputStream IN = new Source();
+
+    /**
+     * The writing end of the pipe.
+     */
+    final OutputStream OUT = new Sink();
+
+    /**
+     * The buffered bytes.
+     */
+    private final ByteRing RING;
+
+    /**
+     * Has the writing end been closed?
+     */
+    private boolean writerClosed;
+
+    /**
+     * Has the reading end been closed?
+     */
+    private boolean readerClosed;
+
+    /**
+     * Constructs a pipe.
+     *
+     * @param capacity the size of the ring
+     */
+    Pipe(int capacity) {
+        RING = new ByteRing(capacity);
+    }
+
+    /**
+     * Writes bytes, waiting for room in the ring whenever it is full.
+     *
+     * @param b   the bytes
+     * @param off the index of the first byte
+     * @param len the number of bytes
+     * @throws IOException if either end has been closed, or the thread is interrupted while waiting
+     */
+    private synchronized void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            while (RING.isFull() && !readerClosed && !writerClosed) {
+                await();
+            }
+            if (readerClosed) {
+                throw new IOException("Broken pipe");
+            }
+            if (writerClosed) {
+                throw new IOException("The pipe has been closed");
+            }
+
+            boolean wasEmpty = RING.isEmpty();
+            int written = RING.put(b, off, len);
+            off += written;
+            len -= written;
+            if (wasEmpty) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads bytes, waiting until at least one is buffered.
+     *
+     * @param b   the array to read into
+     * @param off the index of the first byte
+     * @param len the most bytes to read
+     * @return the number of bytes read, or {@code -1} if the writing end is closed and every byte has been read
+     * @throws IOException if the reading end has been closed, or the thread is interrupted while waiting
+     */
+    private synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (RING.isEmpty() && !writerClosed && !readerClosed) {
+            await();
+        }
+        if (readerClosed) {
+            throw new IOException("The pipe has been closed");
+        }
+        if (RING.isEmpty()) {
+            return -1;
+        }
+
+        boolean wasFull = RING.isFull();
+        int read = RING.take(b, off, len);
+        if (wasFull) {
+            notifyAll();
+        }
+        return read;
+    }
+
+    /**
+     * Waits until the other end changes the pipe.
+     *
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    private void await() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the pipe");
+        }
+    }
+
+    /**
+     * Closes the writing end: the reader reads what is buffered, and then the end of the stream.
+     */
+    synchronized void closeWriter() {
+        writerClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * Closes the reading end: the buffered bytes are dropped, and the writer's next write fails.
+     */
+    synchronized void closeReader() {
+        readerClosed = true;
+        RING.clear();
+        notifyAll();
+    }
+
+    /**
+     * The reading end of the pipe.
+     */
+    private final class Source extends InputStream {
+        /**
+         * Reads a byte, waiting for one if needed.
+         *
+         * @return the byte, or {@code -1} if the end of the stream has been reached
+         * @throws IOException if the reading end has been closed, or the thread is interrupted while waiting
+         */
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return Pipe.this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        /**
+         * Reads bytes, waiting until at least one is buffered.
+         *
+         * @param b   the array to read into
+         * @param off the index of the first byte
+         * @param len the most bytes to read
+         * @return the number of bytes read, or {@code -1} if the end of the stream has been reached
+         * @throws IOException if the reading end has been closed, or the thread is interrupted while waiting
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return Pipe.this.read(b, off, len);
+        }
+
+        /**
+         * Gets the number of bytes that can be read without waiting.
+         *
+         * @return the number of buffered bytes
+         */
+        @Override
+        public int available() {
+            synchronized (Pipe.this) {
+                return RING.size();
+            }
+        }
+
+        /**
+         * Closes the reading end.
+         */
+        @Override
+        public void close() {
+            closeReader();
+        }
+    }
+
+    /**
+     * The writing end of the pipe.
+     */
+    private final class Sink extends OutputStream {
+        /**
+         * Writes a byte, waiting for room if needed.
+         *
+         * @param b the byte
+         * @throws IOException if either end has been closed, or the thread is interrupted while waiting
+         */
+        @Override
+        public void write(int b) throws IOException {
+            Pipe.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        /**
+         * Writes bytes, waiting for room whenever the ring is full.
+         *
+         * @param b   the bytes
+         * @param off the index of the first byte
+         * @param len the number of bytes
+         * @throws IOException if either end has been closed, or the thread is interrupted while waiting
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Pipe.this.write(b, off, len);
+        }
+
+        /**
+         * Closes the writing end.
+         */
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A command line of one or more commands separated by '|': the output of every stage is the input of the next.
+ * <p>
+ * Every stage runs at the same time on its own thread (the last one on the thread that runs the pipeline), and the
+ * stages are connected by {@link Pipe}s of a fixed size, so a large output flows through in constant memory. When a
+ * stage ends, the stage before it is cancelled and its writes start to fail, so a generator feeding a stage that
+ * stopped early (like {@code grep -m 1}) stops too.
+ *
+ * @author Macintosh_Fan
+ */
+final class Pipeline {
+    /**
+     * The size of the chunks a stage writes into its pipe.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The commands of the stages.
+     */
+    private final Command[] COMMANDS;
+
+    /**
+     * The command line.
+     */
+    private final CommandLine LINE;
+
+    /**
+     * The index of the token of the command name of every stage, and the index after the last token of the line that
+     * is run (so the arguments of stage i are the tokens after {@code STARTS[i]} up to {@code STARTS[i + 1] - 1}).
+     */
+    private final int[] STARTS;
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param commands the commands of the stages
+     * @param line     the command line
+     * @param starts   the index of the token of the command name of every stage, then the end of the tokens
+     */
+    private Pipeline(Command[] commands, CommandLine line, int[] starts) {
+        COMMANDS = commands;
+        LINE = line;
+        STARTS = starts;
+    }
+
+    /**
+     * Parses a command line into its stages.
+     *
+     * @param registry the commands that can be run
+     * @param line     the command line
+     * @param end      the index after the last token to run (before a '&')
+     * @return the pipeline, or {@code null} if a stage is empty or names no command
+     */
+    static Pipeline parse(CommandRegistry registry, CommandLine line, int end) {
+        int stages = 1;
+        for (int i = 0; i < end; i++) {
+            if (line.kind(i) == CommandLine.PIPE) {
+                stages++;
+            }
+        }
+
+        Command[] commands = new Command[stages];
+        int[] starts = new int[stages + 1];
+        int stage = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i < end && line.kind(i) != CommandLine.PIPE) {
+                continue;
+            }
+
+            if (i == starts[stage] || !line.isWord(starts[stage])) {
+                return null;
+            }
+            commands[stage] = registry.get(line.getString(starts[stage]));
+            if (commands[stage] == null) {
+                return null;
+            }
+            starts[++stage] = i + 1;
+        }
+        return new Pipeline(commands, line, starts);
+    }
+
+    /**
+     * Builds the arguments of a stage for {@link Command#onCommand(CommandContext, String[])}, and gives the
+     * context of the stage views of them.
+     *
+     * @param stage   the index of the stage
+     * @param context the context of the stage
+     * @return the arguments, or {@code null} if there are none
+     */
+    private String[] args(int stage, CommandContext context) {
+        context.setArgs(LINE, STARTS[stage] + 1, STARTS[stage + 1] - 1);
+        return LINE.toArray(STARTS[stage] + 1, STARTS[stage + 1] - 1);
+    }
+
+    /**
+     * Is the pipeline a single internal command (which always runs right away)?
+     *
+     * @return {@code true} if the pipeline is a single internal command
+     */
+    boolean isInternal() {
+        return COMMANDS.length == 1 && COMMANDS[0] instanceof InternalCommand;
+    }
+
+    /**
+     * Runs the pipeline and waits for every stage to end.
+     * <p>
+     * The first stage reads the input of the context and the last one prints to its output; every stage prints
+     * errors to its error stream. An exception of the last stage is thrown once the other stages have ended; the
+     * other stages print theirs (unless they were cancelled).
+     *
+     * @param context the context of the pipeline
+     */
+    void run(CommandContext context) {
+        if (COMMANDS.length == 1) {
+            COMMANDS[0].onCommand(context, args(0, context));
+            return;
+        }
+
+        int last = COMMANDS.length - 1;
+        Pipe[] pipes = new Pipe[last];
+        CommandContext[] contexts = new CommandContext[COMMANDS.length];
+        for (int i = 0; i <= last; i++) {
+            if (i < last) {
+                pipes[i] = new Pipe(Pipe.DEFAULT_CAPACITY);
+            }
+            LineReader in = i == 0 ? context.getLineReader()
+                    : new LineReader(pipes[i - 1].IN, StandardCharsets.UTF_8);
+            PrintStream out = i == last ? context.getOut()
+                    : new PrintStream(new BufferedOutputStream(pipes[i].OUT, CHUNK_SIZE), false,
+                    StandardCharsets.UTF_8);
+            contexts[i] = new CommandContext(context, in, out);
+        }
+
+        Thread[] threads = new Thread[last];
+        for (int i = 0; i < last; i++) {
+            int stage = i;
+            threads[i] = JobTable.THREAD_FACTORY.newThread(() -> runStage(stage, contexts, pipes));
+            threads[i].start();
+        }
+        try {
+            COMMANDS[last].onCommand(contexts[last], args(last, contexts[last]));
+        } finally {
+            pipes[last - 1].closeReader();
+            contexts[last - 1].cancel();
+            awaitStages(threads, contexts);
+        }
+    }
+
+    /**
+     * Runs a stage other than the last one, and then closes its output and cancels the stage before it.
+     *
+     * @param stage    the index of the stage
+     * @param contexts the contexts of the stages
+     * @param pipes    the pipes between the stages
+     */
+    private void runStage(int stage, CommandContext[] contexts, Pipe[] pipes) {
+        CommandContext context = contexts[stage];
+        try {
+            COMMANDS[stage].onCommand(context, args(stage, context));
+        } catch (RuntimeException e) {
+            if (!context.isCancelled()) {
+                context.getErr().println("Command failed: " + LINE.source(STARTS[stage], STARTS[stage + 1] - 1));
+                e.printStackTrace(context.getErr());
+            }
+        } finally {
+            context.getOut().flush();
+            pipes[stage].closeWriter();
+            if (stage > 0) {
+                pipes[stage - 1].closeReader();
+                contexts[stage - 1].cancel();
+            }
+        }
+    }
+
+    /**
+     * Waits for the stages that run on their own threads. If the waiting thread is interrupted, every stage is
+     * cancelled and interrupted, and the interrupt is kept for the caller.
+     *
+     * @param threads  the threads of the stages
+     * @param contexts the contexts of the stages
+     */
+    private static void awaitStages(Thread[] threads, CommandContext[] contexts) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    for (int i = 0; i < threads.length; i++) {
+                        contexts[i].cancel();
+                        threads[i].interrupt();
+                    }
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
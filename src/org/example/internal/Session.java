@@ -0,0 +1,160 @@
+package org.example.internal;
+
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A remote session of a {@link TerminalServer}: a connection with its own terminal (streams, line reader and
+ * background jobs) over the commands of the terminal of the process.
+ * <p>
+ * A session only has a thread while it runs commands. When a line arrives and the session is idle, the server
+ * hands the session to its executor, which runs lines until no more input is buffered; a command that reads input
+ * (like a game) keeps the thread while it waits.
+ *
+ * @author Macintosh_Fan
+ */
+final class Session implements Runnable {
+    /**
+     * The size of the input ring of a session.
+     */
+    static final int INPUT_SIZE = 4096;
+
+    /**
+     * The connection of the session.
+     */
+    final SocketChannel CHANNEL;
+
+    /**
+     * The input read from the connection.
+     */
+    final SessionInputStream IN;
+
+    /**
+     * The output waiting to be written to the connection.
+     */
+    final SessionOutputStream OUT;
+
+    /**
+     * Is the session waiting for the server thread to update its interest (see {@link TerminalServer#update})?
+     */
+    final AtomicBoolean UPDATE_PENDING = new AtomicBoolean();
+
+    /**
+     * The server of the session.
+     */
+    private final TerminalServer SERVER;
+
+    /**
+     * The terminal of the session.
+     */
+    private final Terminal TERMINAL;
+
+    /**
+     * The key of the connection (only used by the server thread).
+     */
+    SelectionKey key;
+
+    /**
+     * Is a thread running the lines of the session?
+     */
+    private boolean running;
+
+    /**
+     * Should the connection be closed once the output is written?
+     */
+    private volatile boolean closing;
+
+    /**
+     * Constructs a session.
+     *
+     * @param server   the server of the session
+     * @param terminal the terminal whose commands are used
+     * @param channel  the connection
+     * @param pool     the pool of the output buffers
+     */
+    Session(TerminalServer server, Terminal terminal, SocketChannel channel, BufferPool pool) {
+        SERVER = server;
+        CHANNEL = channel;
+        IN = new SessionInputStream(INPUT_SIZE, () -> server.update(this));
+        OUT = new SessionOutputStream(pool, () -> server.update(this));
+        TERMINAL = new Terminal(terminal, IN, new PrintStream(OUT, false, StandardCharsets.UTF_8), this);
+    }
+
+    /**
+     * Prints the help message and the first prompt.
+     */
+    void greet() {
+        TERMINAL.printHelp();
+        TERMINAL.stdOutStream.print(Terminal.PROMPT);
+        TERMINAL.flush();
+    }
+
+    /**
+     * Lets the session run the input that has arrived (or notice the end of the input), starting a thread for it
+     * if it is idle.
+     */
+    synchronized void inputArrived() {
+        if (!running && !closing) {
+            running = true;
+            SERVER.execute(this);
+        }
+    }
+
+    /**
+     * Closes the session once its output is written.
+     */
+    void close() {
+        closing = true;
+        IN.end();
+        SERVER.update(this);
+    }
+
+    /**
+     * Is the session closing?
+     *
+     * @return {@code true} if the connection should be closed once the output is written
+     */
+    boolean isClosing() {
+        return closing;
+    }
+
+    /**
+     * Runs the lines that have arrived, each followed by a prompt, until the session would have to wait for input.
+     * As at the prompt of the terminal, a line ending with a tab prints the completions of its last word.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!closing) {
+                TERMINAL.flush();
+                synchronized (this) {
+                    if (!TERMINAL.getLineReader().ready() && !IN.isEnded()) {
+                        running = false;
+                        return;
+                    }
+                }
+
+                String input = TERMINAL.readLine();
+                if (input == null) {
+                    break;
+                }
+                if (Completer.isCompletionRequest(input)) {
+                    TERMINAL.printCompletions(input.substring(0, input.length() - 1));
+                } else if (!Terminal.isBlankOrComment(input)) {
+                    TERMINAL.dispatchBatched(input);
+                }
+                if (!closing) {
+                    TERMINAL.stdOutStream.print(Terminal.PROMPT);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            TERMINAL.stdErrStream.println("Could not read the input: " + e.getMessage());
+        }
+        TERMINAL.flush();
+        close();
+    }
+}
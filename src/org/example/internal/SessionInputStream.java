@@ -0,0 +1,141 @@
+package org.example.internal;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The standard input stream of a remote session: the bytes the server thread has read from the connection, waiting
+ * in a ring buffer for the thread that runs the commands of the session.
+ * <p>
+ * The ring has a fixed size. While it is full, the server stops reading from the connection, and the stream tells
+ * it when there is room again, so a client that types faster than its commands read only fills the socket buffers.
+ *
+ * @author Macintosh_Fan
+ */
+final class SessionInputStream extends InputStream {
+    /**
+     * The buffered bytes.
+     */
+    private final ByteRing RING;
+
+    /**
+     * Called (on the reading thread) when the ring was full and has room again.
+     */
+    private final Runnable ON_ROOM;
+
+    /**
+     * Has the end of the stream been reached (no more bytes will be added)?
+     */
+    private boolean ended;
+
+    /**
+     * Constructs the stream.
+     *
+     * @param capacity the size of the ring
+     * @param onRoom   called when the ring was full and has room again
+     */
+    SessionInputStream(int capacity, Runnable onRoom) {
+        RING = new ByteRing(capacity);
+        ON_ROOM = onRoom;
+    }
+
+    /**
+     * Adds bytes to the stream.
+     *
+     * @param source the bytes (in read mode); as many as fit are taken
+     * @return {@code true} if the ring still has room
+     */
+    synchronized boolean append(ByteBuffer source) {
+        RING.put(source);
+        notifyAll();
+        return !RING.isFull();
+    }
+
+    /**
+     * Gets the number of bytes that can still be added.
+     *
+     * @return the free space of the ring
+     */
+    synchronized int room() {
+        return RING.room();
+    }
+
+    /**
+     * Ends the stream: the bytes that are buffered can still be read, and then the end of the stream is reached.
+     */
+    synchronized void end() {
+        ended = true;
+        notifyAll();
+    }
+
+    /**
+     * Has the end of the stream been reached, or will it be once the buffered bytes are read?
+     *
+     * @return {@code true} if no more bytes will be added
+     */
+    synchronized boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Reads a byte, waiting for one if needed.
+     *
+     * @return the byte, or {@code -1} if the end of the stream has been reached
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    @Override
+    public int read() throws InterruptedIOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    /**
+     * Reads bytes, waiting until at least one is buffered.
+     *
+     * @param b   the array to read into
+     * @param off the index of the first byte
+     * @param len the most bytes to read
+     * @return the number of bytes read, or {@code -1} if the end of the stream has been reached
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws InterruptedIOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        boolean wasFull;
+        int read;
+        synchronized (this) {
+            while (RING.isEmpty() && !ended) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for input");
+                }
+            }
+            if (RING.isEmpty()) {
+                return -1;
+            }
+
+            wasFull = RING.isFull();
+            read = RING.take(b, off, len);
+        }
+        if (wasFull) {
+            ON_ROOM.run();
+        }
+        return read;
+    }
+
+    /**
+     * Gets the number of bytes that can be read without waiting.
+     *
+     * @return the number of buffered bytes
+     */
+    @Override
+    public synchronized int available() {
+        return RING.size();
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * The standard output (and error) stream of a remote session: bytes are collected in pooled direct buffers, and the
+ * full (or flushed) buffers wait in a queue until the server thread writes them to the connection.
+ * <p>
+ * The queue has a limit. A command that prints faster than the client reads waits until the server has written
+ * some of the queue, instead of buffering without bound.
+ *
+ * @author Macintosh_Fan
+ */
+final class SessionOutputStream extends OutputStream {
+    /**
+     * The most buffers that can wait in the queue.
+     */
+    private static final int MAX_QUEUED = 16;
+
+    /**
+     * The pool the buffers come from.
+     */
+    private final BufferPool POOL;
+
+    /**
+     * Called when buffers were added to the empty queue (so the server should write them).
+     */
+    private final Runnable ON_OUTPUT;
+
+    /**
+     * The buffers waiting to be written (in read mode), oldest first.
+     */
+    private final ArrayDeque<ByteBuffer> QUEUE = new ArrayDeque<>();
+
+    /**
+     * The buffer being filled (in write mode), or {@code null}.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Has the connection been closed?
+     */
+    private boolean closed;
+
+    /**
+     * Constructs the stream.
+     *
+     * @param pool     the pool the buffers come from
+     * @param onOutput called when buffers were added to the empty queue
+     */
+    SessionOutputStream(BufferPool pool, Runnable onOutput) {
+        POOL = pool;
+        ON_OUTPUT = onOutput;
+    }
+
+    /**
+     * Writes a byte to the buffer.
+     *
+     * @param b the byte
+     * @throws IOException if the connection has been closed
+     */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * Writes bytes to the buffer, queueing every buffer that gets full.
+     *
+     * @param b   the bytes
+     * @param off the index of the first byte
+     * @param len the number of bytes
+     * @throws IOException if the connection has been closed
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        boolean wasEmpty = false;
+        synchronized (this) {
+            while (len > 0) {
+                if (closed) {
+                    throw new IOException("The session has been closed");
+                }
+                if (buffer == null) {
+                    buffer = POOL.acquire();
+                }
+                int length = Math.min(len, buffer.remaining());
+                buffer.put(b, off, length);
+                off += length;
+                len -= length;
+                if (!buffer.hasRemaining()) {
+                    wasEmpty |= queue();
+                }
+            }
+        }
+        if (wasEmpty) {
+            ON_OUTPUT.run();
+        }
+    }
+
+    /**
+     * Queues the buffer being filled, so the server writes it.
+     *
+     * @throws IOException if the connection has been closed
+     */
+    @Override
+    public void flush() throws IOException {
+        boolean wasEmpty;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("The session has been closed");
+            }
+            if (buffer == null || buffer.position() == 0) {
+                return;
+            }
+            wasEmpty = queue();
+        }
+        if (wasEmpty) {
+            ON_OUTPUT.run();
+        }
+    }
+
+    /**
+     * Queues the buffer being filled, waiting while the queue is at its limit.
+     *
+     * @return {@code true} if the queue was empty
+     * @throws IOException if the connection is closed while waiting
+     */
+    private boolean queue() throws IOException {
+        while (QUEUE.size() >= MAX_QUEUED && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the client to read", e);
+            }
+        }
+        if (closed) {
+            throw new IOException("The session has been closed");
+        }
+        boolean wasEmpty = QUEUE.isEmpty();
+        QUEUE.addLast(buffer.flip());
+        buffer = null;
+        return wasEmpty;
+    }
+
+    /**
+     * Writes as much of the queue to the connection as it takes without blocking (called by the server thread).
+     *
+     * @param channel the connection
+     * @return {@code true} if the whole queue was written
+     * @throws IOException if the connection fails
+     */
+    synchronized boolean writeTo(SocketChannel channel) throws IOException {
+        if (QUEUE.isEmpty()) {
+            return true;
+        }
+        channel.write(QUEUE.toArray(new ByteBuffer[0]));
+        while (!QUEUE.isEmpty() && !QUEUE.peekFirst().hasRemaining()) {
+            POOL.release(QUEUE.pollFirst());
+        }
+        notifyAll();
+        return QUEUE.isEmpty();
+    }
+
+    /**
+     * Stops the stream after the connection has been closed, giving its buffers back to the pool. Commands that
+     * write to it afterwards get an {@link IOException} (which a {@link java.io.PrintStream} swallows).
+     */
+    synchronized void discard() {
+        closed = true;
+        for (ByteBuffer queued : QUEUE) {
+            POOL.release(queued);
+        }
+        QUEUE.clear();
+        if (buffer != null) {
+            POOL.release(buffer);
+            buffer = null;
+        }
+        notifyAll();
+    }
+}
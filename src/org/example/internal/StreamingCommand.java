@@ -0,0 +1,70 @@
+package org.example.internal;
+
+/**
+ * Represents a command that consumes its input line by line as it arrives, like a later stage of a pipeline
+ * ({@code seq 1 1000000 | grep 7}), instead of reading it all first.
+ * <p>
+ * Every invocation opens its own {@link LineConsumer}, so the state of an invocation lives in its consumer and the
+ * command can run in several pipelines at once. The output is only flushed when no more input is waiting, so lines
+ * that flow through a pipeline are written in chunks.
+ *
+ * @author Macintosh_Fan
+ */
+public interface StreamingCommand extends Command {
+    /**
+     * Starts an invocation: checks the arguments and creates the consumer of its input.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     * @return the consumer of the input, or {@code null} if the invocation ends right away (for example after
+     * printing an error about the arguments)
+     */
+    LineConsumer open(CommandContext context, String[] args);
+
+    /**
+     * Called when the command is called: opens a consumer and gives it every line of the input, until the end of
+     * the input, the consumer stops or the invocation is cancelled.
+     *
+     * @param context the context of this invocation
+     * @param args    inputted arguments by the user (might be null)
+     */
+    @Override
+    default void onCommand(CommandContext context, String[] args) {
+        LineConsumer consumer = open(context, args);
+        if (consumer == null) {
+            return;
+        }
+
+        LineReader reader = context.getLineReader();
+        String line;
+        while (!context.isCancelled()) {
+            if (!reader.ready()) {
+                context.flush();
+            }
+            line = reader.readLine();
+            if (line == null || !consumer.accept(line)) {
+                break;
+            }
+        }
+        consumer.end();
+    }
+
+    /**
+     * Consumes the input of one invocation of a {@link StreamingCommand}.
+     */
+    interface LineConsumer {
+        /**
+         * Consumes a line of the input.
+         *
+         * @param line the line (without its line break)
+         * @return {@code true} to go on with the next line, {@code false} to stop reading
+         */
+        boolean accept(String line);
+
+        /**
+         * Called once after the last line (at the end of the input, or when the consumer stopped).
+         */
+        default void end() {
+        }
+    }
+}
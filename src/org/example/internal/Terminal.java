@@ -1,8 +1,15 @@
 package org.example.internal;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
-import java.util.Scanner;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The main terminal.
@@ -10,35 +17,109 @@ import java.util.Scanner;
  * @author Macintosh_Fan
  */
 public final class Terminal implements Runnable {
+    /**
+     * The prompt printed before every command is read.
+     */
+    static final String PROMPT = "\n> ";
+
+    /**
+     * The size of the line reader buffers of remote sessions (there may be thousands of them).
+     */
+    private static final int SESSION_BUFFER_SIZE = 512;
+
     /**
      * The commands in the terminal.
      */
     final Command[] COMMANDS;
 
+    /**
+     * The commands in the terminal, indexed by name.
+     */
+    final CommandRegistry REGISTRY;
+
+    /**
+     * The background jobs of the terminal.
+     */
+    final JobTable JOBS;
+
+    /**
+     * The environment variables of the terminal (read-only).
+     */
+    final Map<String, String> ENVIRONMENT;
+
+    /**
+     * The command history, or {@code null} if the terminal has none (like the terminal of a remote session).
+     */
+    final History HISTORY;
+
     /**
      * The standard output stream for the terminal.
+     * <p>
+     * By default, this stream is buffered: the terminal flushes it before reading input (so before every prompt),
+     * after every background job and at the end of a batch.
+     * Commands that print progress without reading input should call {@link #flush()}.
+     * <p>
+     * Every invocation of a command gets the streams of the terminal in its {@link CommandContext}; commands should
+     * print to those, so their output can be redirected without changing this field.
      */
-    public PrintStream stdOutStream = System.out;
+    public PrintStream stdOutStream = ConsoleOutput.OUT;
 
     /**
      * The standard error stream for the terminal.
      */
-    public PrintStream stdErrStream = System.err;
+    public PrintStream stdErrStream = ConsoleOutput.ERR;
 
     /**
      * The standard input stream for the terminal.
      */
     public InputStream stdInStream = System.in;
 
+    /**
+     * The line reader over {@link #stdInStream}, shared by the terminal and its commands.
+     */
+    private LineReader lineReader;
+
+    /**
+     * The remote session this terminal belongs to, or {@code null} for the terminal of the process.
+     */
+    private final Session SESSION;
+
+    /**
+     * Have the internal commands been set up?
+     */
+    private boolean setUp;
+
+    /**
+     * Should every command (except internal ones) run as a background job?
+     */
+    private volatile boolean async;
+
+    /**
+     * Should the time to the first prompt and the number of loaded classes be printed before the first prompt?
+     */
+    private boolean startupStats;
+
+    /**
+     * Could the history not be written (so lines are no longer added to it)?
+     */
+    private boolean historyFailed;
+
     /**
      * Instantiates a new terminal.
      *
      * @param commands additional commands for the terminal
+     * @throws IllegalArgumentException if two commands have the same name
      */
     public Terminal(Command... commands) {
         InternalCommand[] internalCommands = {
                 new HelpCommand(),
-                new ExitCommand()
+                new ExitCommand(),
+                new JobsCommand(),
+                new ForegroundCommand(),
+                new WaitCommand(),
+                new KillCommand(),
+                new HistoryCommand(),
+                new CompleteCommand()
         };
 
         if (commands.length != 0) {
@@ -53,6 +134,62 @@ public final class Terminal implements Runnable {
         } else {
             COMMANDS = internalCommands;
         }
+        REGISTRY = new CommandRegistry(COMMANDS);
+        JOBS = new JobTable();
+        ENVIRONMENT = System.getenv();
+        String historyDirectory = ENVIRONMENT.get(History.DIRECTORY_VARIABLE);
+        if (historyDirectory == null) {
+            HISTORY = new History(Path.of(System.getProperty("user.home"), ".terminal_history"));
+        } else {
+            HISTORY = historyDirectory.isEmpty() ? null : new History(Path.of(historyDirectory));
+        }
+        SESSION = null;
+    }
+
+    /**
+     * Instantiates the terminal of a remote session, with the commands of another terminal but its own streams and
+     * background jobs.
+     *
+     * @param parent  the terminal whose commands are used
+     * @param in      the standard input stream of the session
+     * @param out     the standard output and error stream of the session
+     * @param session the session
+     */
+    Terminal(Terminal parent, InputStream in, PrintStream out, Session session) {
+        parent.setup();
+        COMMANDS = parent.COMMANDS;
+        REGISTRY = parent.REGISTRY;
+        JOBS = new JobTable();
+        ENVIRONMENT = parent.ENVIRONMENT;
+        HISTORY = null;
+        SESSION = session;
+        stdInStream = in;
+        stdOutStream = out;
+        stdErrStream = out;
+        lineReader = new LineReader(in, StandardCharsets.UTF_8, SESSION_BUFFER_SIZE);
+        setUp = true;
+    }
+
+    /**
+     * Instantiates a view of a terminal whose streams are those of a command context, for commands that only
+     * implement {@link Command#onCommand(Terminal, String[])}. The view shares everything else with the terminal.
+     *
+     * @param parent  the terminal
+     * @param context the context whose streams are used
+     */
+    Terminal(Terminal parent, CommandContext context) {
+        COMMANDS = parent.COMMANDS;
+        REGISTRY = parent.REGISTRY;
+        JOBS = parent.JOBS;
+        ENVIRONMENT = parent.ENVIRONMENT;
+        HISTORY = parent.HISTORY;
+        SESSION = parent.SESSION;
+        stdInStream = context.getIn();
+        stdOutStream = context.getOut();
+        stdErrStream = context.getErr();
+        lineReader = context.getLineReader();
+        setUp = parent.setUp;
+        async = parent.async;
     }
 
     /**
@@ -62,7 +199,45 @@ public final class Terminal implements Runnable {
      */
     public void start(boolean separateThread) {
         stdOutStream.println("Starting the terminal...");
-        
+        setup();
+
+        if (separateThread) {
+            Thread thread = new Thread(this);
+            thread.start();
+        } else {
+            run();
+        }
+    }
+
+    /**
+     * Sets whether every command (except internal ones) runs as a background job, as if each line ended with '&'.
+     * Jobs can be listed, waited for and stopped with the internal {@code jobs}, {@code fg}, {@code wait} and
+     * {@code kill} commands.
+     *
+     * @param async {@code true} to run commands as background jobs
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * Sets whether the time from the start of the JVM to the first prompt, and the number of classes loaded by
+     * then, are printed before the first prompt (to measure how much startup work the commands do).
+     *
+     * @param startupStats {@code true} to print the statistics
+     */
+    public void setStartupStats(boolean startupStats) {
+        this.startupStats = startupStats;
+    }
+
+    /**
+     * Sets up the internal commands, if that was not done yet.
+     */
+    synchronized void setup() {
+        if (setUp) {
+            return;
+        }
+
         for (Command command : COMMANDS) {
             if (!(command instanceof InternalCommand)) {
                 break;
@@ -72,13 +247,7 @@ public final class Terminal implements Runnable {
                 setup.setup(this);
             }
         }
-        
-        if (separateThread) {
-            Thread thread = new Thread(this);
-            thread.start();
-        } else {
-            run();
-        }
+        setUp = true;
     }
 
     /**
@@ -94,35 +263,387 @@ public final class Terminal implements Runnable {
      */
     @Override
     public void run() {
-        Scanner scanner = new Scanner(stdInStream);
+        printHelp();
+        if (startupStats) {
+            printStartupStats();
+        }
+
+        String input;
+        while (true) {
+            stdOutStream.print(PROMPT);
+            input = readLine();
+            if (input == null) {
+                return;
+            }
+
+            runLine(input);
+        }
+    }
+
+    /**
+     * Runs a line typed at the prompt: a line starting with '!' is replaced with the entry of the history it
+     * recalls (and printed), then the line is added to the history and run. A line ending with a tab prints the
+     * completions of its last word instead. A command that throws an exception is reported, and the prompt goes on.
+     *
+     * @param input the line
+     */
+    void runLine(String input) {
+        if (Completer.isCompletionRequest(input)) {
+            printCompletions(input.substring(0, input.length() - 1));
+            return;
+        }
+
+        if (input.startsWith("!") && HISTORY != null) {
+            String expanded;
+            try {
+                expanded = HISTORY.expand(input);
+            } catch (IOException e) {
+                stdErrStream.println("Could not read the history in " + HISTORY.getDirectory() + ": "
+                        + e.getMessage());
+                return;
+            }
+            if (expanded == null) {
+                int designatorEnd = input.indexOf(' ');
+                stdErrStream.println("No such command in the history: "
+                        + (designatorEnd == -1 ? input : input.substring(0, designatorEnd)));
+                return;
+            }
+            input = expanded;
+            stdOutStream.println(input);
+        }
+
+        if (HISTORY != null && !historyFailed && !input.isBlank()) {
+            try {
+                HISTORY.add(input);
+            } catch (IOException e) {
+                historyFailed = true;
+                stdErrStream.println("Could not write the history in " + HISTORY.getDirectory() + " (commands "
+                        + "will not be saved): " + e.getMessage());
+            }
+        }
+
+        try {
+            if (!dispatch(input)) {
+                String suggestion = suggestCommand(input);
+                stdErrStream.println(suggestion == null ? "Not a valid command (case-sensitivity error?)!"
+                        : "Not a valid command! Did you mean '" + suggestion + "'?");
+            }
+        } catch (RuntimeException e) {
+            stdErrStream.println("Command failed: " + input);
+            e.printStackTrace(stdErrStream);
+        }
+    }
+
+    /**
+     * Prints the help message of the terminal.
+     */
+    void printHelp() {
         for (Command command : COMMANDS) {
             if (command instanceof HelpCommand helpCommand) {
                 stdOutStream.println(helpCommand.helpMessage);
             }
         }
-        
-        boolean invalidCommand;
+    }
+
+    /**
+     * Prints the time since the start of the JVM and the number of loaded classes (which includes the few classes
+     * loaded to measure them).
+     */
+    private void printStartupStats() {
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        stdOutStream.printf("%nFirst prompt after %,d ms, with %,d classes loaded.%n", millis,
+                ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+    }
+
+    /**
+     * Ends the terminal: closes the connection of a remote session, or exits the process.
+     */
+    void exit() {
+        if (SESSION != null) {
+            SESSION.close();
+        } else {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Runs every line of a script file as a command, without prompts, until the end of the file.
+     * <p>
+     * While the script runs, it is also the standard input stream, so commands that read input (like a game)
+     * read the lines that follow them in the script.
+     *
+     * @param script the script file
+     * @return the summary of the batch
+     * @throws IOException if the script file could not be opened
+     * @see #runBatch(InputStream)
+     */
+    public BatchResult runBatch(Path script) throws IOException {
+        try (InputStream in = Files.newInputStream(script)) {
+            InputStream oldStdInStream = stdInStream;
+            stdInStream = in;
+            try {
+                return runBatch(in);
+            } finally {
+                stdInStream = oldStdInStream;
+            }
+        }
+    }
+
+    /**
+     * Runs every line of a stream as a command, without prompts, until the end of the stream.
+     * <p>
+     * Blank lines and lines starting with '#' are skipped. A line fails if it names no command, or if its command
+     * throws an exception (whose stack trace is printed to the standard error stream); either way, the batch goes on
+     * with the next line. Only lines typed at a prompt ask for completions, so a line ending with a tab is run like
+     * any other.
+     *
+     * @param in the stream to read from (usually {@link #stdInStream})
+     * @return the summary of the batch
+     */
+    public BatchResult runBatch(InputStream in) {
+        setup();
+        long start = System.nanoTime();
+        int successes = 0;
+        int failures = 0;
+        LineReader reader = in == stdInStream ? getLineReader() : new LineReader(in);
         String input;
-        String[] args;
-        while (true) {
-            stdOutStream.print("\n> ");
-            input = scanner.nextLine();
-            args = input.split(" ", 2);
-            invalidCommand = true;
-            for (Command command : COMMANDS) {
-                if (input.startsWith(command.getName())) {
-                    if (args.length == 2) {
-                        command.onCommand(this, args[1].split(" "));
-                    } else {
-                        command.onCommand(this, null);
-                    }
-                    invalidCommand = false;
-                }
+        while ((input = reader.readLine()) != null) {
+            if (isBlankOrComment(input)) {
+                continue;
             }
 
-            if (invalidCommand) {
-                stdErrStream.println("Not a valid command (case-sensitivity error?)!");
+            if (dispatchBatched(input)) {
+                successes++;
+            } else {
+                failures++;
             }
         }
+        awaitJobs();
+        flush();
+        return new BatchResult(successes, failures, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs every line of a list as a command, without prompts or any stream in between.
+     *
+     * @param lines the command lines (blank lines and lines starting with '#' are skipped)
+     * @return the summary of the batch
+     * @see #runBatch(InputStream)
+     */
+    public BatchResult execute(List<String> lines) {
+        setup();
+        long start = System.nanoTime();
+        int successes = 0;
+        int failures = 0;
+        for (String input : lines) {
+            if (isBlankOrComment(input)) {
+                continue;
+            }
+
+            if (dispatchBatched(input)) {
+                successes++;
+            } else {
+                failures++;
+            }
+        }
+        awaitJobs();
+        flush();
+        return new BatchResult(successes, failures, System.nanoTime() - start);
+    }
+
+    /**
+     * Waits for the background jobs started by a batch.
+     */
+    private void awaitJobs() {
+        try {
+            JOBS.awaitAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks if a batch line should be skipped.
+     *
+     * @param input the line
+     * @return {@code true} if the line is blank or a comment
+     */
+    static boolean isBlankOrComment(String input) {
+        return input.isBlank() || input.charAt(0) == '#';
+    }
+
+    /**
+     * Runs a batch line, reporting unknown commands and exceptions instead of stopping the batch.
+     *
+     * @param input the line
+     * @return {@code true} if the command ran and returned normally
+     */
+    boolean dispatchBatched(String input) {
+        try {
+            if (dispatch(input)) {
+                return true;
+            }
+            String suggestion = suggestCommand(input);
+            stdErrStream.println(suggestion == null ? "Not a valid command (case-sensitivity error?): " + input
+                    : "Not a valid command: " + input + " (did you mean '" + suggestion + "'?)");
+        } catch (RuntimeException e) {
+            stdErrStream.println("Command failed: " + input);
+            e.printStackTrace(stdErrStream);
+        }
+        return false;
+    }
+
+    /**
+     * Completes the last word of a command line and prints the candidates.
+     *
+     * @param line the line (without the tab that asked for completions)
+     * @see Completer
+     */
+    void printCompletions(String line) {
+        Completer.printCompletions(this::complete, line, stdOutStream);
+    }
+
+    /**
+     * Completes a word of a command line: the name of the command of the last stage of the pipeline, or an argument
+     * of that command if it is a {@link Completer}.
+     *
+     * @param words      the words typed before the word
+     * @param word       the beginning of the word
+     * @param candidates the consumer of the candidates
+     */
+    void complete(String[] words, String word, Completer.Candidates candidates) {
+        int stageStart = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equals("|")) {
+                stageStart = i + 1;
+            }
+        }
+        if (stageStart == words.length) {
+            REGISTRY.complete(word, candidates);
+        } else if (REGISTRY.get(words[stageStart]) instanceof Completer completer) {
+            completer.complete(Arrays.copyOfRange(words, stageStart + 1, words.length), word, candidates);
+        }
+    }
+
+    /**
+     * Suggests a command for a line that {@link #dispatch(String)} could not run: the registered name closest to
+     * the first name of the line (or of a stage of its pipeline) that is not registered.
+     *
+     * @param input the line
+     * @return the suggested command name, or {@code null} if no name is close enough
+     */
+    String suggestCommand(String input) {
+        CommandLine line = CommandLine.parse(input);
+        boolean stageStart = true;
+        for (int i = 0; i < line.size(); i++) {
+            if (stageStart && line.isWord(i)) {
+                String name = line.getString(i);
+                if (REGISTRY.get(name) == null) {
+                    return REGISTRY.suggest(name);
+                }
+            }
+            stageStart = line.kind(i) == CommandLine.PIPE;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next line from the standard input stream.
+     * <p>
+     * Commands must use this method instead of wrapping {@link #stdInStream} in their own reader or
+     * {@link java.util.Scanner}, since a second reader would buffer input that then never reaches the terminal.
+     *
+     * @return the line, or {@code null} if the end of the standard input stream has been reached
+     */
+    public String readLine() {
+        flush();
+        return getLineReader().readLine();
+    }
+
+    /**
+     * Flushes the standard output and error streams.
+     */
+    public void flush() {
+        stdOutStream.flush();
+        stdErrStream.flush();
+    }
+
+    /**
+     * Creates the context of an invocation, with the current streams of the terminal.
+     *
+     * @return the new context
+     */
+    CommandContext newContext() {
+        return new CommandContext(this, getLineReader(), stdOutStream, stdErrStream, ENVIRONMENT);
+    }
+
+    /**
+     * Creates the context of a background job: the streams of the terminal, except for a standard input stream at its
+     * end. The prompt keeps reading the lines typed after the job is started, so the job must not read them too.
+     *
+     * @return the new context
+     */
+    CommandContext newJobContext() {
+        return new CommandContext(this, new LineReader(InputStream.nullInputStream()), stdOutStream, stdErrStream,
+                ENVIRONMENT);
+    }
+
+    /**
+     * Gets the line reader over the standard input stream, replacing it if {@link #stdInStream} was changed.
+     *
+     * @return the line reader
+     */
+    synchronized LineReader getLineReader() {
+        if (lineReader == null || lineReader.getInputStream() != stdInStream) {
+            lineReader = new LineReader(stdInStream);
+        }
+        return lineReader;
+    }
+
+    /**
+     * Runs the command named by the first word of the input line, or the pipeline of commands separated by '|'.
+     * The line is split by a {@link CommandLine}, so arguments can be quoted or escaped.
+     * <p>
+     * If the line ends with '&', or the terminal is asynchronous, the command runs as a background job (which reads
+     * no input) and this method returns right away. Internal commands always run right away.
+     *
+     * @param input the input line
+     * @return {@code true} if every command of the line exists
+     */
+    boolean dispatch(String input) {
+        CommandLine line = CommandLine.parse(input);
+        int end = line.size();
+        boolean background = async;
+        if (end != 0 && line.kind(end - 1) == CommandLine.BACKGROUND) {
+            background = true;
+            end--;
+        }
+
+        Pipeline pipeline = Pipeline.parse(REGISTRY, line, end);
+        if (pipeline == null) {
+            return false;
+        }
+
+        if (!background || pipeline.isInternal()) {
+            pipeline.run(newContext());
+            return true;
+        }
+
+        CommandContext context = newJobContext();
+        String jobLine = line.source(0, end);
+        JOBS.start(jobLine, context, () -> {
+            try {
+                pipeline.run(context);
+            } catch (RuntimeException e) {
+                context.getErr().println("Job failed: " + jobLine);
+                e.printStackTrace(context.getErr());
+            } finally {
+                context.flush();
+            }
+        }, job -> {
+            stdOutStream.printf("[%d] %s%n", job.ID, jobLine);
+            stdOutStream.flush();
+        });
+        return true;
     }
 }
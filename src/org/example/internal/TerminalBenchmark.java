@@ -0,0 +1,310 @@
+package org.example.internal;
+
+import org.example.util.LatencyRecorder;
+import org.example.util.Utility;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures how many commands per second a {@link TerminalServer} runs, and how long each takes, with a number of
+ * concurrent sessions.
+ * <p>
+ * Every session connects and waits for the first prompt. Once all of them are connected, each one sends a command,
+ * waits for the prompt that follows its output, and sends the next one, until the commands of the level have been
+ * shared out. One thread drives every session with a {@link Selector}, so 10,000 sessions need 10,000 sockets but
+ * no more threads (run the benchmark in another process than the server, since each side needs a file descriptor
+ * per session).
+ *
+ * @author Macintosh_Fan
+ */
+public final class TerminalBenchmark {
+    /**
+     * The bytes of the prompt that ends the output of a command.
+     */
+    private static final byte[] PROMPT = Terminal.PROMPT.getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The size of the buffer the output of the server is read into.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The address of the server.
+     */
+    private final SocketAddress ADDRESS;
+
+    /**
+     * The command line every session sends, with its line break.
+     */
+    private final byte[] COMMAND;
+
+    /**
+     * The buffer the output of the server is read into.
+     */
+    private final ByteBuffer READ_BUFFER = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The time from sending each command to reading the prompt after it.
+     */
+    private final LatencyRecorder LATENCIES = new LatencyRecorder();
+
+    /**
+     * The number of sessions that have read their first prompt.
+     */
+    private int greeted;
+
+    /**
+     * The number of sessions whose connection is open.
+     */
+    private int open;
+
+    /**
+     * The number of sessions that failed.
+     */
+    private int failures;
+
+    /**
+     * The state of a session.
+     */
+    private static final class Client {
+        /**
+         * The connection to the server.
+         */
+        final SocketChannel CHANNEL;
+
+        /**
+         * The command being written.
+         */
+        final ByteBuffer OUTPUT;
+
+        /**
+         * The number of commands left to send.
+         */
+        int commandsLeft;
+
+        /**
+         * The number of bytes of the prompt that the output read so far ends with.
+         */
+        int matched;
+
+        /**
+         * Has the first prompt been read?
+         */
+        boolean greeted;
+
+        /**
+         * The time the command was sent.
+         */
+        long sentAt;
+
+        /**
+         * Constructs the state of a session.
+         *
+         * @param channel      the connection to the server
+         * @param command      the command line to send
+         * @param commandsLeft the number of commands to send
+         */
+        Client(SocketChannel channel, byte[] command, int commandsLeft) {
+            CHANNEL = channel;
+            OUTPUT = ByteBuffer.wrap(command);
+            this.commandsLeft = commandsLeft;
+        }
+    }
+
+    /**
+     * Constructs a benchmark.
+     *
+     * @param address the address of the server (see {@link Utility#parseSocketAddress(String)})
+     * @param command the command line every session sends
+     * @throws IllegalArgumentException if the address is not a port or a socket file
+     */
+    private TerminalBenchmark(String address, String command) {
+        ADDRESS = Utility.parseSocketAddress(address);
+        COMMAND = (command + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs the benchmark at several numbers of sessions, and prints a line for each.
+     *
+     * @param address  the address of the server (see {@link Utility#parseSocketAddress(String)})
+     * @param sessions the numbers of sessions
+     * @param commands the number of commands of each level (shared out between its sessions, at least one each)
+     * @param command  the command line every session sends
+     * @param out      the stream to print to
+     * @throws IOException              if the sessions can't connect
+     * @throws IllegalArgumentException if the address is not a port or a socket file
+     */
+    public static void run(String address, int[] sessions, int commands, String command, PrintStream out)
+            throws IOException {
+        out.printf("Benchmarking \"%s\" on %s:%n", command, address);
+        for (int count : sessions) {
+            TerminalBenchmark benchmark = new TerminalBenchmark(address, command);
+            long nanos = Math.max(1, benchmark.runLevel(count, Math.max(1, commands / count)));
+            LatencyRecorder latencies = benchmark.LATENCIES;
+            out.printf("%,7d sessions: %,9d commands in %,9.1f ms, %,10.0f commands/s, latency p50 %,9.1f us,"
+                            + " p99 %,9.1f us, p99.9 %,9.1f us, max %,9.1f us%s%n", count, latencies.getCount(),
+                    nanos / 1_000_000.0, latencies.getCount() * 1_000_000_000.0 / nanos,
+                    latencies.getPercentile(50) / 1000.0, latencies.getPercentile(99) / 1000.0,
+                    latencies.getPercentile(99.9) / 1000.0, latencies.getMax() / 1000.0,
+                    benchmark.failures == 0 ? "" : " (" + benchmark.failures + " sessions failed)");
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs one level: connects the sessions, and once all of them have their prompt, lets each send its commands.
+     *
+     * @param sessions            the number of sessions
+     * @param commandsPerSession the number of commands each session sends
+     * @return the time from the moment every session was connected to the end of the last command
+     * @throws IOException if the sessions can't connect
+     */
+    private long runLevel(int sessions, int commandsPerSession) throws IOException {
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < sessions; i++) {
+                SocketChannel channel = SocketChannel.open(ADDRESS instanceof UnixDomainSocketAddress
+                        ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+                open++;
+                try {
+                    channel.configureBlocking(false);
+                    if (ADDRESS instanceof InetSocketAddress) {
+                        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    }
+                    Client client = new Client(channel, COMMAND, commandsPerSession);
+                    channel.register(selector, channel.connect(ADDRESS) ? SelectionKey.OP_READ
+                            : SelectionKey.OP_CONNECT, client);
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+
+            long start = 0;
+            while (open > 0 && !Thread.currentThread().isInterrupted()) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        step(key);
+                    } catch (IOException e) {
+                        failures++;
+                        close(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                if (start == 0 && greeted + failures == sessions) {
+                    start = System.nanoTime();
+                    for (SelectionKey key : selector.keys()) {
+                        if (key.isValid()) {
+                            send(key, (Client) key.attachment());
+                        }
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            return System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Lets a session go on: finishes its connection, writes its command or reads the output.
+     *
+     * @param key the key of the session
+     * @throws IOException if the connection fails
+     */
+    private void step(SelectionKey key) throws IOException {
+        Client client = (Client) key.attachment();
+        if (key.isConnectable()) {
+            client.CHANNEL.finishConnect();
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        if (key.isWritable()) {
+            client.CHANNEL.write(client.OUTPUT);
+            key.interestOps(client.OUTPUT.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            return;
+        }
+
+        READ_BUFFER.clear();
+        if (client.CHANNEL.read(READ_BUFFER) == -1) {
+            throw new IOException("The server closed the session");
+        }
+        READ_BUFFER.flip();
+        while (READ_BUFFER.hasRemaining()) {
+            byte b = READ_BUFFER.get();
+            if (client.matched < PROMPT.length && b == PROMPT[client.matched]) {
+                client.matched++;
+            } else {
+                client.matched = b == PROMPT[0] ? 1 : 0;
+            }
+        }
+        if (client.matched < PROMPT.length) {
+            return;
+        }
+
+        client.matched = 0;
+        if (!client.greeted) {
+            client.greeted = true;
+            greeted++;
+            return;
+        }
+        LATENCIES.record(System.nanoTime() - client.sentAt);
+        if (--client.commandsLeft == 0) {
+            close(key);
+        } else {
+            send(key, client);
+        }
+    }
+
+    /**
+     * Sends the command of a session (a session whose connection fails is counted and closed).
+     *
+     * @param key    the key of the session
+     * @param client the session
+     */
+    private void send(SelectionKey key, Client client) {
+        client.OUTPUT.clear();
+        client.sentAt = System.nanoTime();
+        try {
+            client.CHANNEL.write(client.OUTPUT);
+        } catch (IOException e) {
+            failures++;
+            close(key);
+            return;
+        }
+        if (client.OUTPUT.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Closes the connection of a session.
+     *
+     * @param key the key of the session
+     */
+    private void close(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        open--;
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // The connection is gone either way.
+        }
+    }
+}
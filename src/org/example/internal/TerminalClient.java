@@ -0,0 +1,98 @@
+package org.example.internal;
+
+import org.example.util.Utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A client of a {@link TerminalServer}: sends the lines of an input stream to the server and prints what the server
+ * answers, until the server closes the connection.
+ *
+ * @author Macintosh_Fan
+ */
+public final class TerminalClient {
+    /**
+     * The size of the buffer the answers of the server are read into.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private TerminalClient() {
+    }
+
+    /**
+     * Connects to a server and runs a session: lines are sent as they are read, and the answers are printed as they
+     * arrive. At the end of the input, the client waits for the server to finish the last commands.
+     *
+     * @param address the address of the server (see {@link Utility#parseSocketAddress(String)})
+     * @param in      the stream to read lines from
+     * @param out     the stream to print the answers to
+     * @throws IOException              if the server can't be reached
+     * @throws IllegalArgumentException if the address is not a port or a socket file
+     */
+    public static void connect(String address, InputStream in, PrintStream out) throws IOException {
+        SocketAddress socketAddress = Utility.parseSocketAddress(address);
+        try (SocketChannel channel = SocketChannel.open(socketAddress instanceof UnixDomainSocketAddress
+                ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET)) {
+            channel.connect(socketAddress);
+            Thread sender = new Thread(() -> send(channel, in), "terminal-client");
+            sender.setDaemon(true);
+            sender.start();
+            print(channel, out);
+        }
+    }
+
+    /**
+     * Sends the lines of a stream to the server, and then tells it that there is no more input.
+     * <p>
+     * This runs on a daemon thread, so a client whose session was ended by the server (with "exit") returns
+     * without waiting for another line of input.
+     *
+     * @param channel the connection
+     * @param in      the stream to read lines from
+     */
+    private static void send(SocketChannel channel, InputStream in) {
+        LineReader reader = new LineReader(in);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(line + "\n");
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            channel.shutdownOutput();
+        } catch (IOException | RuntimeException ignored) {
+            // The server closed the connection; the printer sees it too.
+        }
+    }
+
+    /**
+     * Prints what the server sends until it closes the connection.
+     *
+     * @param channel the connection
+     * @param out     the stream to print to
+     */
+    private static void print(SocketChannel channel, PrintStream out) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try {
+            while (channel.read(buffer.clear()) != -1) {
+                out.write(buffer.array(), 0, buffer.position());
+                out.flush();
+            }
+        } catch (IOException e) {
+            out.println("Connection lost: " + e.getMessage());
+        }
+        out.flush();
+    }
+}
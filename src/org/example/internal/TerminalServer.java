@@ -0,0 +1,363 @@
+package org.example.internal;
+
+import org.example.util.Utility;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the commands of a terminal to many clients at once over a loopback TCP port or a Unix domain socket.
+ * Every connection is a {@link Session} with its own streams, so its commands print to its own client.
+ * <p>
+ * One thread does all the network I/O with a {@link Selector}: it accepts connections, reads input into the rings
+ * of the sessions and writes their output from pooled direct buffers, never blocking on a client. Commands run on
+ * the threads of an executor (virtual threads where the runtime has them), only while a session has input, so idle
+ * sessions cost no thread. Threads that run commands tell the server thread about new output (or room for input)
+ * through a queue of sessions to update.
+ *
+ * @author Macintosh_Fan
+ */
+public final class TerminalServer implements Runnable {
+    /**
+     * The address the server listens on by default (a port of the loopback interface).
+     */
+    public static final String DEFAULT_ADDRESS = "7070";
+
+    /**
+     * The size of the pooled output buffers (and of the buffer input is read into).
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The most output buffers the pool keeps.
+     */
+    private static final int MAX_POOLED = 1024;
+
+    /**
+     * The number of connections the operating system may queue before they are accepted.
+     */
+    private static final int BACKLOG = 4096;
+
+    /**
+     * The terminal whose commands are served.
+     */
+    private final Terminal TERMINAL;
+
+    /**
+     * The address the server listens on.
+     */
+    private final SocketAddress ADDRESS;
+
+    /**
+     * The address the server listens on, as it is given to {@link Utility#parseSocketAddress(String)}.
+     */
+    private final String NAME;
+
+    /**
+     * The server socket.
+     */
+    private final ServerSocketChannel SERVER;
+
+    /**
+     * The selector of the server socket and the connections.
+     */
+    private final Selector SELECTOR;
+
+    /**
+     * The pool of the output buffers.
+     */
+    private final BufferPool POOL = new BufferPool(BUFFER_SIZE, MAX_POOLED);
+
+    /**
+     * The buffer input is read into (only used by the server thread).
+     */
+    private final ByteBuffer READ_BUFFER = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Runs the commands of the sessions.
+     */
+    private final ExecutorService EXECUTOR = Executors.newCachedThreadPool(JobTable.THREAD_FACTORY);
+
+    /**
+     * The sessions whose interest must be updated by the server thread.
+     */
+    private final Queue<Session> UPDATES = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of open sessions.
+     */
+    private final AtomicInteger SESSIONS = new AtomicInteger();
+
+    /**
+     * Opens a server (which serves once {@link #run()} is called).
+     *
+     * @param terminal the terminal whose commands are served
+     * @param address  the address to listen on (see {@link Utility#parseSocketAddress(String)})
+     * @throws IOException              if the address can't be listened on
+     * @throws IllegalArgumentException if the address is not a port or a socket file
+     */
+    public TerminalServer(Terminal terminal, String address) throws IOException {
+        TERMINAL = terminal;
+        ADDRESS = Utility.parseSocketAddress(address);
+        if (ADDRESS instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+        SERVER = ServerSocketChannel.open(ADDRESS instanceof UnixDomainSocketAddress
+                ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+        try {
+            SERVER.bind(ADDRESS, BACKLOG);
+            NAME = Utility.formatSocketAddress(SERVER.getLocalAddress());
+            SERVER.configureBlocking(false);
+            SELECTOR = Selector.open();
+            SERVER.register(SELECTOR, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            SERVER.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the address the server listens on.
+     *
+     * @return the address (with the port that was chosen, if the port was 0)
+     */
+    public String getAddress() {
+        return NAME;
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return the number of sessions
+     */
+    public int getSessionCount() {
+        return SESSIONS.get();
+    }
+
+    /**
+     * Stops the server: {@link #run()} closes every session and returns.
+     */
+    public void stop() {
+        try {
+            SERVER.close();
+        } catch (IOException ignored) {
+            // The server stops either way.
+        }
+        SELECTOR.wakeup();
+    }
+
+    /**
+     * Serves connections until the server is stopped (or the thread is interrupted).
+     */
+    @Override
+    public void run() {
+        try {
+            while (SERVER.isOpen() && !Thread.currentThread().isInterrupted()) {
+                SELECTOR.select();
+                for (SelectionKey key : SELECTOR.selectedKeys()) {
+                    if (key.isValid()) {
+                        handle(key);
+                    }
+                }
+                SELECTOR.selectedKeys().clear();
+
+                Session session;
+                while ((session = UPDATES.poll()) != null) {
+                    session.UPDATE_PENDING.set(false);
+                    if (session.key != null && session.key.isValid()) {
+                        flush(session);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException ignored) {
+            // The server stops.
+        } finally {
+            shutDown();
+        }
+    }
+
+    /**
+     * Asks the server thread to write the output of a session, read more of its input, or close it.
+     *
+     * @param session the session
+     */
+    void update(Session session) {
+        if (session.UPDATE_PENDING.compareAndSet(false, true)) {
+            UPDATES.add(session);
+            SELECTOR.wakeup();
+        }
+    }
+
+    /**
+     * Runs the input of a session on a thread of the executor.
+     *
+     * @param session the session
+     */
+    void execute(Session session) {
+        EXECUTOR.execute(session);
+    }
+
+    /**
+     * Handles a ready key: accepts connections, or reads and writes a session.
+     *
+     * @param key the key
+     */
+    private void handle(SelectionKey key) {
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        Session session = (Session) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(session);
+            }
+            if (key.isValid()) {
+                flush(session);
+            }
+        } catch (IOException e) {
+            close(session);
+        }
+    }
+
+    /**
+     * Accepts the waiting connections and opens a session for each.
+     */
+    private void accept() {
+        SocketChannel channel;
+        while (true) {
+            try {
+                channel = SERVER.accept();
+            } catch (IOException e) {
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                channel.configureBlocking(false);
+                if (channel.getRemoteAddress() instanceof InetSocketAddress) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+                Session session = new Session(this, TERMINAL, channel, POOL);
+                session.key = channel.register(SELECTOR, SelectionKey.OP_READ, session);
+                SESSIONS.incrementAndGet();
+                session.greet();
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // The connection is gone either way.
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads as much input of a session as its ring has room for.
+     *
+     * @param session the session
+     * @throws IOException if the connection fails
+     */
+    private void read(Session session) throws IOException {
+        READ_BUFFER.clear().limit(Math.min(READ_BUFFER.capacity(), session.IN.room()));
+        if (!READ_BUFFER.hasRemaining()) {
+            return;
+        }
+        int read = session.CHANNEL.read(READ_BUFFER);
+        if (read == -1) {
+            session.IN.end();
+        } else {
+            session.IN.append(READ_BUFFER.flip());
+        }
+        session.inputArrived();
+    }
+
+    /**
+     * Writes the output of a session, closes it if it is closing and its output is written, and updates which
+     * operations the server waits for on its connection.
+     *
+     * @param session the session
+     */
+    private void flush(Session session) {
+        boolean written;
+        try {
+            written = session.OUT.writeTo(session.CHANNEL);
+        } catch (IOException e) {
+            close(session);
+            return;
+        }
+        if (written && session.isClosing()) {
+            close(session);
+            return;
+        }
+
+        int interest = written ? 0 : SelectionKey.OP_WRITE;
+        if (!session.IN.isEnded() && session.IN.room() > 0) {
+            interest |= SelectionKey.OP_READ;
+        }
+        session.key.interestOps(interest);
+    }
+
+    /**
+     * Closes the connection of a session. A command still running in the session reads the end of its input, and
+     * its output is dropped.
+     *
+     * @param session the session
+     */
+    private void close(Session session) {
+        if (session.key == null || !session.key.isValid()) {
+            return;
+        }
+        session.key.cancel();
+        try {
+            session.CHANNEL.close();
+        } catch (IOException ignored) {
+            // The connection is gone either way.
+        }
+        session.IN.end();
+        session.OUT.discard();
+        SESSIONS.decrementAndGet();
+    }
+
+    /**
+     * Closes every session, the server socket and the selector, and stops the threads running commands.
+     */
+    private void shutDown() {
+        if (SELECTOR.isOpen()) {
+            for (SelectionKey key : SELECTOR.keys()) {
+                if (key.attachment() instanceof Session session) {
+                    close(session);
+                }
+            }
+        }
+        EXECUTOR.shutdownNow();
+        try {
+            SELECTOR.close();
+            SERVER.close();
+            if (ADDRESS instanceof UnixDomainSocketAddress unix) {
+                Files.deleteIfExists(unix.getPath());
+            }
+        } catch (IOException ignored) {
+            // Nothing more can be done.
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.internal;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An index of the byte trigrams of the entries of a {@link History}, to find the entries that contain a text without
+ * reading every entry.
+ * <p>
+ * Entries are indexed in blocks of {@link #BLOCK_SIZE}: the posting list of a trigram holds the (ascending) numbers of
+ * the blocks that have an entry containing it, not the entries themselves. The same commands are typed again and
+ * again, so a block repeats most of its trigrams and the lists stay many times shorter than one item per entry. A
+ * search intersects the lists of the trigrams of its text from the newest block backwards, and only the entries of
+ * the blocks that contain all of them are compared with the text. Trigrams of the UTF-8 bytes are enough, since a
+ * UTF-8 string contains another exactly when its bytes do.
+ * <p>
+ * The index lives on the heap and is not saved: every process builds it again from the log.
+ *
+ * @author Macintosh_Fan
+ */
+final class TrigramIndex {
+    /**
+     * The number of entries in a block.
+     */
+    static final int BLOCK_SIZE = 64;
+
+    /**
+     * The trigrams plus one (0 marks a free slot), in open addressing slots.
+     */
+    private int[] keys = new int[1024];
+
+    /**
+     * The posting list of the trigram in every slot.
+     */
+    private int[][] postings = new int[1024][];
+
+    /**
+     * The length of the posting list in every slot.
+     */
+    private int[] sizes = new int[1024];
+
+    /**
+     * The number of distinct trigrams.
+     */
+    private int trigrams;
+
+    /**
+     * The number of indexed entries.
+     */
+    private int entries;
+
+    /**
+     * Gets the number of indexed entries.
+     *
+     * @return the number of indexed entries
+     */
+    int size() {
+        return entries;
+    }
+
+    /**
+     * Indexes the next entry.
+     *
+     * @param buffer the buffer holding the entry
+     * @param start  the index of the first byte of the entry
+     * @param end    the index after the last byte of the entry
+     */
+    void add(ByteBuffer buffer, int start, int end) {
+        int block = entries++ / BLOCK_SIZE;
+        for (int i = start; i + 3 <= end; i++) {
+            int slot = slot(trigram(buffer.get(i), buffer.get(i + 1), buffer.get(i + 2)), true);
+            int size = sizes[slot];
+            int[] posting = postings[slot];
+            if (size != 0 && posting[size - 1] == block) {
+                continue;
+            }
+
+            if (size == posting.length) {
+                posting = Arrays.copyOf(posting, size * 2);
+                postings[slot] = posting;
+            }
+            posting[size] = block;
+            sizes[slot] = size + 1;
+        }
+    }
+
+    /**
+     * Finds the slots of the trigrams of a text.
+     *
+     * @param text the UTF-8 bytes of the text (at least 3)
+     * @return the slots, or {@code null} if a trigram of the text is in no entry
+     */
+    int[] find(byte[] text) {
+        int[] slots = new int[text.length - 2];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slot(trigram(text[i], text[i + 1], text[i + 2]), false);
+            if (slots[i] == -1) {
+                return null;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Finds the newest block, up to a block, that has entries with every trigram of a text (not necessarily all in
+     * the same entry, or in the order of the text).
+     *
+     * @param slots the slots of the trigrams of the text, from {@link #find(byte[])}
+     * @param block the newest block to consider
+     * @return the block, or {@code -1} if there is no such block
+     */
+    int lastBlock(int[] slots, int block) {
+        int candidate = block;
+        int agreeing = 0;
+        for (int i = 0; agreeing < slots.length; i = (i + 1) % slots.length) {
+            if (candidate < 0) {
+                return -1;
+            }
+
+            int found = floor(slots[i], candidate);
+            if (found == candidate) {
+                agreeing++;
+            } else {
+                candidate = found;
+                agreeing = 1;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Finds the newest block of the posting list of a slot, up to a block.
+     *
+     * @param slot  the slot
+     * @param block the newest block to consider
+     * @return the block, or {@code -1} if the list has no such block
+     */
+    private int floor(int slot, int block) {
+        int[] posting = postings[slot];
+        int low = 0;
+        int high = sizes[slot] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (posting[middle] <= block) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high < 0 ? -1 : posting[high];
+    }
+
+    /**
+     * Packs three bytes into a trigram.
+     *
+     * @param a the first byte
+     * @param b the second byte
+     * @param c the third byte
+     * @return the trigram
+     */
+    private static int trigram(byte a, byte b, byte c) {
+        return (a & 0xFF) << 16 | (b & 0xFF) << 8 | (c & 0xFF);
+    }
+
+    /**
+     * Spreads the bits of a trigram over the whole int.
+     *
+     * @param trigram the trigram
+     * @return the hash of the trigram
+     */
+    private static int hash(int trigram) {
+        int hash = trigram * 0x9E3779B9;
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Finds the slot of a trigram.
+     *
+     * @param trigram the trigram
+     * @param create  to add the trigram (with an empty posting list) if it is not there yet
+     * @return the slot, or {@code -1} if the trigram is not there and {@code create} is {@code false}
+     */
+    private int slot(int trigram, boolean create) {
+        int mask = keys.length - 1;
+        int slot = hash(trigram) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == trigram + 1) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return -1;
+        }
+
+        if (2 * (trigrams + 1) > keys.length) {
+            grow();
+            return slot(trigram, true);
+        }
+        keys[slot] = trigram + 1;
+        postings[slot] = new int[4];
+        trigrams++;
+        return slot;
+    }
+
+    /**
+     * Doubles the number of slots.
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        int[][] oldPostings = postings;
+        int[] oldSizes = sizes;
+        keys = new int[oldKeys.length * 2];
+        postings = new int[keys.length][];
+        sizes = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) {
+                continue;
+            }
+
+            int slot = hash(oldKeys[i] - 1) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            postings[slot] = oldPostings[i];
+            sizes[slot] = oldSizes[i];
+        }
+    }
+}
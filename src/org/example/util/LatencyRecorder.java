@@ -0,0 +1,164 @@
+package org.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies into a fixed histogram, so percentiles can be read without keeping every sample.
+ * <p>
+ * The buckets are logarithmic with 32 linear steps per power of two, so a percentile is within about 3% of the
+ * exact value. Recording takes constant time and allocates nothing. This class is not thread-safe: use one recorder
+ * per thread and {@link #add(LatencyRecorder)} them together.
+ *
+ * @author Macintosh_Fan
+ */
+public final class LatencyRecorder {
+    /**
+     * The number of bits of the linear steps per power of two.
+     */
+    private static final int STEP_BITS = 5;
+
+    /**
+     * The number of linear steps per power of two.
+     */
+    private static final int STEPS = 1 << STEP_BITS;
+
+    /**
+     * The sample counts of the buckets.
+     */
+    private final long[] COUNTS = new long[(64 - STEP_BITS) * STEPS];
+
+    /**
+     * The number of samples.
+     */
+    private long count;
+
+    /**
+     * The sum of the samples.
+     */
+    private long total;
+
+    /**
+     * The largest sample.
+     */
+    private long max;
+
+    /**
+     * Records a sample.
+     *
+     * @param nanos the latency in nanoseconds (negative values count as 0)
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        COUNTS[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Adds the samples of another recorder to this one.
+     *
+     * @param other the other recorder
+     */
+    public void add(LatencyRecorder other) {
+        for (int i = 0; i < COUNTS.length; i++) {
+            COUNTS[i] += other.COUNTS[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every sample.
+     */
+    public void reset() {
+        Arrays.fill(COUNTS, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Gets the number of samples.
+     *
+     * @return the number of samples
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the samples.
+     *
+     * @return the mean in nanoseconds, or {@code 0} if there are no samples
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Gets the largest sample.
+     *
+     * @return the largest sample in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets a percentile of the samples.
+     *
+     * @param percent the percentile (eg: 99 for the 99th percentile)
+     * @return the upper bound of the bucket of the percentile in nanoseconds (at most {@link #getMax()}), or
+     * {@code 0} if there are no samples
+     * @throws IllegalArgumentException if {@code percent} is not between 0 and 100
+     */
+    public long getPercentile(double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Parameter 'percent' must be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percent / 100));
+        long seen = 0;
+        for (int i = 0; i < COUNTS.length; i++) {
+            seen += COUNTS[i];
+            if (seen >= rank) {
+                return Math.min(max, upperBound(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the bucket of a sample.
+     *
+     * @param nanos the sample (not negative)
+     * @return the bucket
+     */
+    private static int bucket(long nanos) {
+        if (nanos < STEPS) {
+            return (int) nanos;
+        }
+        int shift = 63 - STEP_BITS - Long.numberOfLeadingZeros(nanos);
+        return shift * STEPS + (int) (nanos >>> shift);
+    }
+
+    /**
+     * Gets the largest sample of a bucket.
+     *
+     * @param bucket the bucket
+     * @return the largest sample
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < STEPS) {
+            return bucket;
+        }
+        int shift = bucket / STEPS - 1;
+        long step = bucket % STEPS + STEPS;
+        return ((step + 1) << shift) - 1;
+    }
+}
@@ -1,11 +1,22 @@
 package org.example.util;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+
 /**
  * A utility class with utility methods.
  *
  * @author Macintosh_Fan
  */
 public class Utility {
+    /**
+     * The prefix of the addresses of Unix domain sockets.
+     */
+    public static final String UNIX_PREFIX = "unix:";
+
     /**
      * Don't let anyone instantiate this class.
      */
@@ -27,4 +38,44 @@ public class Utility {
         }
         return n >= a && n <= b;
     }
+
+    /**
+     * Parses the address of a local server.
+     *
+     * @param address a port of the loopback interface (eg: 7777), or "unix:" and the path of a socket file
+     *                (eg: unix:/tmp/chess.sock)
+     * @return the socket address
+     * @throws IllegalArgumentException if the address is not a port or a socket file
+     */
+    public static SocketAddress parseSocketAddress(String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(Path.of(address.substring(UNIX_PREFIX.length())));
+        }
+        int port;
+        try {
+            port = Integer.parseInt(address);
+        } catch (NumberFormatException nfe) {
+            port = -1;
+        }
+        if (!isInRange(port, 0, 65535)) {
+            throw new IllegalArgumentException("Not a port or a socket file: " + address);
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Formats the address of a local server the way {@link #parseSocketAddress(String)} reads it.
+     *
+     * @param address the socket address
+     * @return the port, or "unix:" and the path of the socket file
+     */
+    public static String formatSocketAddress(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet) {
+            return String.valueOf(inet.getPort());
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            return UNIX_PREFIX + unix.getPath();
+        }
+        return String.valueOf(address);
+    }
 }